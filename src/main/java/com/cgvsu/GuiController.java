@@ -1,5 +1,6 @@
 package com.cgvsu;
-import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ObjGroupIndex;
+import com.cgvsu.meshcache.MeshCache;
 import com.cgvsu.objreader.ObjReader;
 import com.cgvsu.objwriter.ObjWriter;
 import com.cgvsu.removers.PolygonRemover;
@@ -10,6 +11,7 @@ import javafx.fxml.FXML;
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
 import javafx.scene.canvas.Canvas;
@@ -23,17 +25,22 @@ import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import javafx.stage.FileChooser;
 import javafx.util.Duration;
-import java.nio.file.Files;
 import java.io.File;
+import java.nio.IntBuffer;
 import java.util.*;
-import javax.vecmath.Matrix4f;
-import javax.vecmath.Point2f;
-import javax.vecmath.Vector3f;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.cgvsu.math.Vector3f;
 
 import com.cgvsu.model.Model;
+import com.cgvsu.model.MeshBuffers;
+import com.cgvsu.model.ModelFootprint;
+import com.cgvsu.model.Vector3fList;
 import com.cgvsu.render_engine.Camera;
+import com.cgvsu.render_engine.ScreenProjection;
 
-import static com.cgvsu.render_engine.GraphicConveyor.*;
 
 public class GuiController {
 
@@ -47,10 +54,39 @@ public class GuiController {
 
     @FXML
     private VBox modelsListContainer;
+
+    /**
+     * Сварка вершин при загрузке и ее допуск
+     */
+    @FXML
+    private CheckMenuItem weldOnImportMenuItem;
+    private static final float WELD_EPSILON = 1e-5f;
+    /**
+     * Упорядочивание вершин и полигонов по кривой Мортона при загрузке
+     */
+    @FXML
+    private CheckMenuItem reorderOnImportMenuItem;
+    /**
+     * Перестановка полигонов под кэш преобразованных вершин при загрузке
+     */
+    @FXML
+    private CheckMenuItem cacheOptimizeOnImportMenuItem;
+    /**
+     * Хранение геометрии загруженной модели вне кучи (OffHeapMesh, через отображение кэша в память)
+     */
+    @FXML
+    private CheckMenuItem offHeapOnImportMenuItem;
+    /**
+     * Квантование координат и нормалей загруженной модели (QuantizedMesh)
+     */
+    @FXML
+    private CheckMenuItem quantizeOnImportMenuItem;
     /**
      *Модель, над которой находится курсор
      */
     private Model hoveredModel = null;
+    // Проекция вершин каждой модели: общая для отрисовки и выбора мышью, переиспользуется между кадрами
+    private final Map<Model, ScreenProjection> projections = new IdentityHashMap<>();
     /**
      * Индекс полигона под курсором
      */
@@ -77,6 +113,42 @@ public class GuiController {
      */
     private int modelCounter = 1;
 
+    /**
+     * Модели, которые еще загружаются в фоне, и их задачи загрузки
+     */
+    private final Map<Model, ModelLoadTask> loadingModels = new HashMap<>();
+    /**
+     * Группы файлов-сборок, геометрия которых еще не читалась
+     */
+    private final Map<Model, LazyGroup> lazyGroups = new HashMap<>();
+
+    private static class LazyGroup {
+        final ObjGroupIndex index;
+        final int group;
+
+        LazyGroup(ObjGroupIndex index, int group) {
+            this.index = index;
+            this.group = group;
+        }
+    }
+    /**
+     * Сколько файлов читается одновременно
+     */
+    private static final int MAX_PARALLEL_LOADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    /**
+     * Потоки для чтения файлов, чтобы не блокировать интерфейс
+     */
+    private final ExecutorService modelLoader = Executors.newFixedThreadPool(MAX_PARALLEL_LOADS, new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "model-loader-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     private Camera camera = new Camera(
             new Vector3f(0, 0, 100),
             new Vector3f(0, 0, 0),
@@ -327,7 +399,8 @@ public class GuiController {
 
                 Integer hvi = (activeModels.contains(model) && model == hoveredModel) ? hoveredVertexIndex : null;
                 Integer hpi = (activeModels.contains(model) && model == hoveredModel) ? hoveredPolygonIndex : null;
-                RenderEngine.render(canvas.getGraphicsContext2D(), camera, model, (int) width, (int) height, editVerticesMode, hpi, hvi);
+                RenderEngine.render(canvas.getGraphicsContext2D(), camera, model, projectionOf(model),
+                        (int) width, (int) height, editVerticesMode, hpi, hvi);
             }
         });
 
@@ -344,7 +417,7 @@ public class GuiController {
 
             boolean found = false;
             for (Model model : activeModels) {
-                if (hiddenModels.contains(model)) continue;
+                if (hiddenModels.contains(model) || loadingModels.containsKey(model)) continue;
                 Integer polygonIndex = findPolygonUnderCursor(model, mouseX, mouseY, (int) canvas.getWidth(), (int) canvas.getHeight());
                 if (polygonIndex != null) {
                     hoveredModel = model;
@@ -356,7 +429,7 @@ public class GuiController {
             }
             if (!found) {
                 for (Model model : activeModels) {
-                    if (hiddenModels.contains(model)) continue;
+                    if (hiddenModels.contains(model) || loadingModels.containsKey(model)) continue;
                     Integer vertexIndex = findVertexUnderCursor(model, mouseX, mouseY, (int) canvas.getWidth(), (int) canvas.getHeight());
                     if (vertexIndex != null) {
                         hoveredModel = model;
@@ -400,28 +473,246 @@ public class GuiController {
     @FXML
     private void onOpenModelMenuItemClick() {
         FileChooser fileChooser = new FileChooser();
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Model (*.obj)", "*.obj"));
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Model (*.obj, *.obj.gz)", "*.obj", "*.obj.gz"));
         fileChooser.setTitle("Загрузить модель");
 
-        File file = fileChooser.showOpenDialog((Stage) canvas.getScene().getWindow());
-        if (file == null) {
+        List<File> files = fileChooser.showOpenMultipleDialog((Stage) canvas.getScene().getWindow());
+        if (files == null || files.isEmpty()) {
             return;
         }
 
-        try {
-            String fileContent = Files.readString(file.toPath());
-            Model model = ObjReader.read(fileContent);
+        // Для одного файла ошибка показывается сразу, для нескольких - в общем отчете
+        ImportReport report = files.size() > 1 ? new ImportReport(files.size()) : null;
+        for (File file : files) {
+            openModelFile(file, report);
+        }
+    }
 
-            model.setName("Модель " + modelCounter++);
+    /**
+     * Отчет об импорте нескольких файлов: скорость чтения каждого файла и ошибки.
+     * Показывается, когда закончится загрузка последнего файла
+     */
+    private class ImportReport {
+        private int remaining;
+        private int failures;
+        private final StringBuilder details = new StringBuilder();
+
+        ImportReport(int fileCount) {
+            remaining = fileCount;
+        }
+
+        void succeeded(ModelLoadTask task) {
+            double megabytes = task.getFileSize() / (1024.0 * 1024.0);
+            double seconds = task.getElapsedNanos() / 1e9;
+            details.append(String.format(Locale.ROOT, "%s: %.1f МБ за %.2f с (%.1f МБ/с)%n",
+                    task.getFile().getFileName(), megabytes, seconds, seconds > 0 ? megabytes / seconds : 0.0));
+            if (task.getGroupModels() != null) {
+                details.append("    групп: ").append(task.getGroupModels().size()).append(System.lineSeparator());
+            }
+            if (task.getWeldResult() != null) {
+                details.append("    сварка: ").append(task.getWeldResult()).append(System.lineSeparator());
+            }
+            if (task.getCacheResult() != null) {
+                details.append("    кэш вершин: ").append(task.getCacheResult()).append(System.lineSeparator());
+                // Связная сетка рисуется пакетом всех вершин, кэш FIFO и порядок полигонов при этом не используются
+                if (!RenderEngine.usesTransformCache(task.getTarget().getMeshBuffers())) {
+                    details.append("    модель рисуется пакетом вершин, порядок полигонов на отрисовку не влияет")
+                            .append(System.lineSeparator());
+                }
+            }
+            fileDone();
+        }
+
+        void grouped(File file, int groupCount) {
+            details.append(file.getName()).append(": групп ").append(groupCount)
+                    .append(", геометрия читается при показе группы").append(System.lineSeparator());
+            fileDone();
+        }
+
+        void failed(File file, String message) {
+            failures++;
+            details.append(file.getName()).append(": ошибка - ").append(message).append(System.lineSeparator());
+            fileDone();
+        }
+
+        private void fileDone() {
+            if (--remaining > 0) {
+                return;
+            }
+            Alert alert = new Alert(failures > 0 ? Alert.AlertType.WARNING : Alert.AlertType.INFORMATION);
+            alert.setTitle("Импорт моделей");
+            alert.setHeaderText(failures > 0
+                    ? "Импорт завершен, ошибок: " + failures
+                    : "Импорт завершен");
+            TextArea text = new TextArea(details.toString());
+            text.setEditable(false);
+            text.setWrapText(true);
+            alert.getDialogPane().setContent(text);
+            alert.show();
+        }
+    }
+
+    /**
+     * Открывает файл. Если рядом с файлом сохранен индекс групп o/g (MeshCache.cachedGroups), каждая
+     * группа файла-сборки становится отдельной скрытой моделью, которая читается при первом показе.
+     * Иначе файл загружается целиком, а индекс групп строится при том же разборе: модель файла
+     * с несколькими группами после загрузки заменяется моделями групп
+     * @param file
+     * @param report отчет об импорте нескольких файлов или null
+     */
+    private void openModelFile(File file, ImportReport report) {
+        Task<ObjGroupIndex> indexTask = new Task<>() {
+            @Override
+            protected ObjGroupIndex call() throws Exception {
+                // Сжатый файл нельзя читать по группам, он загружается целиком
+                if (ObjReader.isGzip(file.toPath())) {
+                    return null;
+                }
+                return MeshCache.cachedGroups(file.toPath());
+            }
+        };
+        indexTask.setOnSucceeded(e -> {
+            ObjGroupIndex index = indexTask.getValue();
+            if (index != null && index.getGroupCount() > 1) {
+                addGroupModels(file, index, report);
+            } else {
+                loadModel(file, report);
+            }
+        });
+        indexTask.setOnFailed(e -> reportLoadFailure(file, report, indexTask.getException()));
+        modelLoader.submit(indexTask);
+    }
+
+    /**
+     * Добавляет группы файла как отдельные скрытые модели без геометрии
+     * @param file
+     * @param index
+     * @param report
+     */
+    private void addGroupModels(File file, ObjGroupIndex index, ImportReport report) {
+        List<String> names = index.getGroupNames();
+        for (int i = 0; i < names.size(); i++) {
+            Model model = new Model(file.getName() + ": " + names.get(i));
             models.add(model);
-            activeModels.add(model);
+            hiddenModels.add(model);
+            lazyGroups.put(model, new LazyGroup(index, i));
+        }
+        updateModelsListUI();
+        if (report != null) {
+            report.grouped(file, names.size());
+        }
+    }
 
+    /**
+     * Запускает фоновую загрузку модели. Модель сразу появляется в списке и рисуется
+     * по мере чтения файла, пока загрузка не закончится или не будет отменена
+     * @param file
+     * @param report отчет об импорте нескольких файлов или null
+     */
+    private void loadModel(File file, ImportReport report) {
+        Model model = new Model("Модель " + modelCounter++);
+        models.add(model);
+        activeModels.add(model);
+        ModelLoadTask task = new ModelLoadTask(file.toPath(), model);
+        if (weldOnImportMenuItem.isSelected()) {
+            task.setWeldEpsilon(WELD_EPSILON);
+        }
+        task.setSpatialReorder(reorderOnImportMenuItem.isSelected());
+        task.setCacheOptimize(cacheOptimizeOnImportMenuItem.isSelected());
+        task.setOffHeap(offHeapOnImportMenuItem.isSelected());
+        task.setQuantize(quantizeOnImportMenuItem.isSelected());
+        startLoad(file, model, task, report);
+    }
+
+    /**
+     * Разбирает геометрию группы при первом показе
+     * @param model
+     */
+    private void loadGroup(Model model) {
+        LazyGroup group = lazyGroups.remove(model);
+        hiddenModels.remove(model);
+        activeModels.add(model);
+        ModelLoadTask task = new ModelLoadTask(group.index.getPath(), model,
+                listener -> group.index.loadGroup(group.group));
+        startLoad(group.index.getPath().toFile(), model, task, null);
+    }
+
+    private void startLoad(File file, Model model, ModelLoadTask task, ImportReport report) {
+        task.setOnSucceeded(e -> {
+            loadingModels.remove(model);
+            if (task.getGroupModels() != null) {
+                replaceWithGroups(file, model, task.getGroupModels());
+            } else {
+                // Загруженная модель хранит индексы в компактном виде, пока ее полигоны не понадобятся для изменения
+                model.compact();
+            }
             updateModelsListUI();
-        } catch (Exception e) {
+            if (report != null) {
+                report.succeeded(task);
+            }
+        });
+        task.setOnCancelled(e -> {
+            discardLoadingModel(model);
+            if (report != null) {
+                report.failed(file, "загрузка отменена");
+            }
+        });
+        task.setOnFailed(e -> {
+            discardLoadingModel(model);
+            reportLoadFailure(file, report, task.getException());
+        });
+
+        loadingModels.put(model, task);
+        updateModelsListUI();
+        modelLoader.submit(task);
+    }
+
+    /**
+     * Ставит модели групп файла на место загруженной целиком модели
+     * @param file
+     * @param model
+     * @param groups
+     */
+    private void replaceWithGroups(File file, Model model, List<Model> groups) {
+        int position = models.indexOf(model);
+        models.remove(position);
+        activeModels.remove(model);
+        projections.remove(model);
+        for (Model group : groups) {
+            group.setName(file.getName() + ": " + group.getName());
+            group.compact();
+        }
+        models.addAll(position, groups);
+        activeModels.addAll(groups);
+    }
+
+    private void reportLoadFailure(File file, ImportReport report, Throwable error) {
+        String details = error != null ? error.getMessage() : null;
+        if (report != null) {
+            report.failed(file, details);
+        } else {
             showErrorAlert("Ошибка при загрузке модели",
-                    "Не удалось прочитать файл OBJ.",
-                    e.getMessage());
+                    "Не удалось прочитать файл OBJ " + file.getName() + ".",
+                    details);
+        }
+    }
+
+    /**
+     * Убирает недозагруженную модель после ошибки или отмены
+     * @param model
+     */
+    private void discardLoadingModel(Model model) {
+        loadingModels.remove(model);
+        models.remove(model);
+        activeModels.remove(model);
+        hiddenModels.remove(model);
+        projections.remove(model);
+        if (hoveredModel == model) {
+            hoveredModel = null;
+            hoveredPolygonIndex = null;
+            hoveredVertexIndex = null;
         }
+        updateModelsListUI();
     }
 
 
@@ -432,7 +723,7 @@ public class GuiController {
     private void onSaveModelMenuItemClick() {
         List<Model> modelsToSave = new ArrayList<>();
         for (Model model : models) {
-            if (activeModels.contains(model)) {
+            if (activeModels.contains(model) && !loadingModels.containsKey(model)) {
                 modelsToSave.add(model);
             }
         }
@@ -442,7 +733,9 @@ public class GuiController {
         }
 
         FileChooser fileChooser = new FileChooser();
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Model (*.obj)", "*.obj"));
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Model (*.obj)", "*.obj"),
+                new FileChooser.ExtensionFilter("Compressed model (*.obj.gz)", "*.obj.gz"));
         fileChooser.setTitle("Сохранить модель");
         fileChooser.setInitialFileName("model.obj");
 
@@ -460,16 +753,14 @@ public class GuiController {
                 String fixModel = shiftIndices(modelObj, v, vt, vn);
                 sb.append(fixModel).append("\n");
 
-                v += model.getVertices().size();
-                if (model.getTextureVertices() != null) {
-                    vt += model.getTextureVertices().size();
-                }
-                if (model.getNormals() != null) {
-                    vn += model.getNormals().size();
-                }
+                // Количества берутся из буферов, геометрия вне кучи не возвращается в списки
+                MeshBuffers mesh = model.getMeshBuffers();
+                v += mesh.vertexCount();
+                vt += mesh.textureVertexCount();
+                vn += mesh.normalCount();
             }
 
-            Files.writeString(file.toPath(), sb.toString());
+            ObjWriter.writeContent(sb, file.toPath());
         } catch (Exception e) {
             showErrorAlert("Ошибка при сохранении модели",
                     "Не удалось записать файл OBJ.",
@@ -546,6 +837,19 @@ public class GuiController {
             HBox item = new HBox(5);
             item.setAlignment(Pos.CENTER_LEFT);
 
+            ModelLoadTask loadTask = loadingModels.get(model);
+            if (loadTask != null) {
+                Label nameLabel = new Label(model.getName());
+                ProgressBar progressBar = new ProgressBar();
+                progressBar.progressProperty().bind(loadTask.progressProperty());
+                Button cancelBtn = new Button("Отмена");
+                cancelBtn.getStyleClass().add("model-button");
+                cancelBtn.setOnAction(e -> loadTask.cancel());
+                item.getChildren().addAll(nameLabel, progressBar, cancelBtn);
+                modelsListContainer.getChildren().add(item);
+                continue;
+            }
+
             Button modelBtn = new Button(model.getName());
             modelBtn.getStyleClass().add("model-button");
             modelBtn.setOnAction(e -> {
@@ -572,12 +876,18 @@ public class GuiController {
                 models.remove(model);
                 activeModels.remove(model);
                 hiddenModels.remove(model);
+                lazyGroups.remove(model);
+                projections.remove(model);
                 updateModelsListUI();
             });
 
             Button toggleVisibilityBtn = new Button(hiddenModels.contains(model) ? "Показать" : "Скрыть");
             toggleVisibilityBtn.getStyleClass().add("model-button");
             toggleVisibilityBtn.setOnAction(e -> {
+                if (lazyGroups.containsKey(model)) {
+                    loadGroup(model);
+                    return;
+                }
                 if (hiddenModels.contains(model)) {
                     hiddenModels.remove(model);
                     toggleVisibilityBtn.setText("Скрыть");
@@ -589,7 +899,12 @@ public class GuiController {
                     toggleVisibilityBtn.setText("Показать");
                 }
             });
-            item.getChildren().addAll(modelBtn, deleteBtn, toggleVisibilityBtn);
+            // Оценка занятой памяти, подробности - во всплывающей подсказке
+            ModelFootprint footprint = ModelFootprint.of(model);
+            Label footprintLabel = new Label(ModelFootprint.format(footprint.getTotalBytes()));
+            footprintLabel.setTooltip(new Tooltip(footprint.toString()));
+
+            item.getChildren().addAll(modelBtn, deleteBtn, toggleVisibilityBtn, footprintLabel);
             modelsListContainer.getChildren().add(item);
 
             HBox extraButtonsRow = new HBox(5);
@@ -635,56 +950,81 @@ public class GuiController {
      * @return
      */
     private Integer findPolygonUnderCursor(Model model, double mouseX, double mouseY, int width, int height) {
-        Camera cam = camera;
-        Matrix4f modelMatrix = rotateScaleTranslate();
-        Matrix4f viewMatrix = cam.getViewMatrix();
-        Matrix4f projectionMatrix = cam.getProjectionMatrix();
-
-        Matrix4f mvp = new Matrix4f(modelMatrix);
-        mvp.mul(viewMatrix);
-        mvp.mul(projectionMatrix);
-
-        for (int i = 0; i < model.getPolygons().size(); i++) {
-            Polygon polygon = model.getPolygons().get(i);
-            List<Integer> vertexIndices = polygon.getVertexIndices();
-            if (vertexIndices == null || vertexIndices.isEmpty()) continue;
-
-            List<Point2f> screenPoints = new ArrayList<>();
-            for (Integer idx : vertexIndices) {
-                com.cgvsu.math.Vector3f v3d = model.getVertices().get(idx);
-                Vector3f v = new Vector3f(v3d.getX(), v3d.getY(), v3d.getZ());
-                Point2f p = vertexToPoint(multiplyMatrix4ByVector3(mvp, v), width, height);
-                if (!Float.isFinite(p.x) || !Float.isFinite(p.y)) {
-                    screenPoints = null;
-                    break;
-                }
-                screenPoints.add(p);
-            }
-            if (screenPoints == null || screenPoints.size() < 3) continue;
-
-            if (isPointInPolygon((float) mouseX, (float) mouseY, screenPoints)) {
+        Vector3fList vertices = heapVertices(model);
+        ScreenProjection projection = projectVertices(model, width, height);
+
+        // Индексы полигонов из того же снимка, что и при отрисовке
+        MeshBuffers mesh = model.getMeshBuffers();
+        IntBuffer vertexOffsets = mesh.vertexOffsets();
+        IntBuffer vertexIndices = mesh.vertexIndices();
+        for (int i = 0; i < mesh.polygonCount(); i++) {
+            int from = vertexOffsets.get(i);
+            int to = vertexOffsets.get(i + 1);
+            if (to - from < 3 || !isProjected(vertices, vertexIndices, from, to, projection)) continue;
+
+            if (isPointInPolygon((float) mouseX, (float) mouseY, vertexIndices, from, to,
+                    projection.screenX(), projection.screenY())) {
                 return i;
             }
         }
         return null;
     }
 
+    /**
+     * Экранные координаты всех вершин модели одним пакетом. Пока не сдвинулись камера или
+     * вершины модели и не изменился размер окна, возвращается уже посчитанная проекция
+     * @param model
+     * @param width
+     * @param height
+     * @return
+     */
+    private ScreenProjection projectVertices(Model model, int width, int height) {
+        return RenderEngine.project(camera, model, projectionOf(model), width, height);
+    }
+
+    // Вершины в куче для проверки пустых элементов; у геометрии в буферах их нет, и она не возвращается в кучу
+    private Vector3fList heapVertices(Model model) {
+        return model.hasStoredGeometry() ? null : model.getVertices();
+    }
+
+    // При отрисовке кадра проекция уже посчитана с той же матрицей, и выбор мышью ее не пересчитывает
+    private ScreenProjection projectionOf(Model model) {
+        return projections.computeIfAbsent(model, key -> new ScreenProjection());
+    }
+
+    // Все вершины полигона существуют, лежат перед камерой и имеют конечные экранные координаты
+    private boolean isProjected(Vector3fList vertices, IntBuffer vertexIndices, int from, int to,
+                                ScreenProjection projection) {
+        for (int k = from; k < to; k++) {
+            int vertex = vertexIndices.get(k);
+            if ((vertices != null && vertices.isNullAt(vertex)) || !projection.isInFront(vertex)
+                    || !Float.isFinite(projection.x(vertex)) || !Float.isFinite(projection.y(vertex))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Проверяет, попадает ли точка в полигон
      * @param x
      * @param y
-     * @param polygon
+     * @param vertexIndices индексы вершин полигона с from до to
+     * @param screenX
+     * @param screenY
      * @return
      */
-    private boolean isPointInPolygon(float x, float y, List<Point2f> polygon) {
-        int n = polygon.size();
+    private boolean isPointInPolygon(float x, float y, IntBuffer vertexIndices, int from, int to,
+                                     float[] screenX, float[] screenY) {
         boolean inside = false;
 
-        for (int i = 0, j = n - 1; i < n; j = i++) {
-            float xi = polygon.get(i).x;
-            float yi = polygon.get(i).y;
-            float xj = polygon.get(j).x;
-            float yj = polygon.get(j).y;
+        for (int i = from, j = to - 1; i < to; j = i++) {
+            int vi = vertexIndices.get(i);
+            int vj = vertexIndices.get(j);
+            float xi = screenX[vi];
+            float yi = screenY[vi];
+            float xj = screenX[vj];
+            float yj = screenY[vj];
 
             boolean intersect = ((yi > y) != (yj > y)) &&
                     (x < (xj - xi) * (y - yi) / (yj - yi) + xi);
@@ -705,6 +1045,8 @@ public class GuiController {
             hoveredVertexIndex = null;
             hoveredModel = null;
             hoveredPolygonIndex = null;
+            // Обновляется оценка памяти модели в списке
+            updateModelsListUI();
         } catch (Exception e) {
             showErrorAlert("Ошибка при удалении полигона",
                     "Невозможно удалить выбранный полигон.",
@@ -725,25 +1067,16 @@ public class GuiController {
      * @return
      */
     private Integer findVertexUnderCursor(Model model, double mouseX, double mouseY, int width, int height) {
-        Camera cam = camera;
-        Matrix4f modelMatrix = rotateScaleTranslate();
-        Matrix4f viewMatrix = cam.getViewMatrix();
-        Matrix4f projectionMatrix = cam.getProjectionMatrix();
-
-        Matrix4f mvp = new Matrix4f(modelMatrix);
-        mvp.mul(viewMatrix);
-        mvp.mul(projectionMatrix);
+        Vector3fList vertices = heapVertices(model);
+        ScreenProjection projection = projectVertices(model, width, height);
 
         float threshold = 5.0f;
 
-        for (int i = 0; i < model.getVertices().size(); i++) {
-            com.cgvsu.math.Vector3f v3d = model.getVertices().get(i);
-            javax.vecmath.Vector3f v = new javax.vecmath.Vector3f(v3d.getX(), v3d.getY(), v3d.getZ());
-            Point2f p = vertexToPoint(multiplyMatrix4ByVector3(mvp, v), width, height);
-
-            if (Float.isFinite(p.x) && Float.isFinite(p.y)) {
-                double dx = p.x - mouseX;
-                double dy = p.y - mouseY;
+        for (int i = 0; i < projection.count(); i++) {
+            if ((vertices == null || !vertices.isNullAt(i)) && projection.isInFront(i)
+                    && Float.isFinite(projection.x(i)) && Float.isFinite(projection.y(i))) {
+                double dx = projection.x(i) - mouseX;
+                double dy = projection.y(i) - mouseY;
                 if (dx * dx + dy * dy <= threshold * threshold) {
                     return i;
                 }
@@ -765,6 +1098,8 @@ public class GuiController {
             hoveredModel = null;
             hoveredPolygonIndex = null;
             hoveredVertexIndex = null;
+            // Обновляется оценка памяти модели в списке
+            updateModelsListUI();
         } catch (Exception e) {
             showErrorAlert("Ошибка при удалении вершины",
                     "Невозможно удалить выбранную вершину.",
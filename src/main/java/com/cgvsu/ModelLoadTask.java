@@ -0,0 +1,298 @@
+package com.cgvsu;
+
+import com.cgvsu.meshcache.MeshCache;
+import com.cgvsu.model.MeshBuffers;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.OffHeapMesh;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.model.QuantizedMesh;
+import com.cgvsu.model.Vector2fList;
+import com.cgvsu.model.Vector3fList;
+import com.cgvsu.objreader.ObjGroupIndex;
+import com.cgvsu.objreader.ObjReadListener;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.optimizers.MortonReorder;
+import com.cgvsu.optimizers.VertexCacheOptimizer;
+import com.cgvsu.optimizers.VertexWelder;
+import com.cgvsu.optimizers.dto.VertexCacheResult;
+import com.cgvsu.optimizers.dto.WeldResult;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Фоновая загрузка модели.
+ * Модель, которую показывает интерфейс, создается заранее и дополняется только в потоке JavaFX:
+ * поток чтения передает туда новые вершины и полигоны порциями, поэтому отрисовка может
+ * начинаться с первых полигонов, пока остальная часть файла еще читается.
+ * Если в файле несколько групп o/g, после чтения модель делится на группы по индексу,
+ * который строится при том же разборе (ObjReadListener.onGroups).
+ */
+public class ModelLoadTask extends Task<Model> {
+
+    /**
+     * Способ получить модель; наблюдатель сообщает о ходе разбора
+     */
+    public interface Loader {
+        Model load(ObjReadListener listener) throws IOException;
+    }
+
+    private final Path file;
+    private final Model target;
+    private final Loader loader;
+    // Файл загружается через MeshCache, и его кэш можно отобразить в память (MeshCache.map)
+    private final boolean mappable;
+
+    // Сколько элементов уже передано в target (меняется только в потоке чтения)
+    private int publishedVertices;
+    private int publishedTextureVertices;
+    private int publishedNormals;
+    private int publishedPolygons;
+
+    // Сварка вершин после чтения; отрицательное значение - без сварки
+    private float weldEpsilon = -1;
+    private volatile WeldResult weldResult;
+    // Упорядочивание вершин и полигонов по кривой Мортона после чтения
+    private boolean spatialReorder;
+    // Перестановка полигонов под кэш преобразованных вершин после чтения
+    private boolean cacheOptimize;
+    private volatile VertexCacheResult cacheResult;
+    // Хранение геометрии после загрузки: вне кучи (OffHeapMesh) и/или квантованной (QuantizedMesh)
+    private boolean offHeap;
+    private boolean quantize;
+    // Индекс групп из разбора файла и модели групп, если их больше одной
+    private volatile ObjGroupIndex groupIndex;
+    private volatile List<Model> groupModels;
+
+    // Размер файла и время загрузки для отчета о скорости
+    private volatile long fileSize;
+    private volatile long elapsedNanos;
+
+    /**
+     * Загрузка файла через MeshCache. Пока модель показывается по частям, файл читается
+     * последовательно, в порядке строк. Если после чтения модель меняется целиком (сварка,
+     * упорядочивание, перестановка под кэш), промежуточные части не нужны: файл читается
+     * параллельно (ObjReader.readParallel), наблюдатель только обновляет ход чтения и проверяет отмену
+     * @param file
+     * @param target
+     */
+    public ModelLoadTask(Path file, Model target) {
+        this.file = file;
+        this.target = target;
+        this.loader = listener -> isStreamed()
+                ? MeshCache.load(file, listener)
+                : MeshCache.loadParallel(file, listener);
+        this.mappable = true;
+    }
+
+    public ModelLoadTask(Path file, Model target, Loader loader) {
+        this.file = file;
+        this.target = target;
+        this.loader = loader;
+        this.mappable = false;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Model getTarget() {
+        return target;
+    }
+
+    /**
+     * Включает сварку вершин после чтения. Индексы при сварке меняются,
+     * поэтому модель показывается только целиком, без промежуточных порций
+     * @param epsilon
+     */
+    public void setWeldEpsilon(float epsilon) {
+        this.weldEpsilon = epsilon;
+    }
+
+    /**
+     * Включает пространственное упорядочивание (MortonReorder) после чтения и сварки.
+     * Как и при сварке, модель показывается только целиком
+     * @param reorder
+     */
+    public void setSpatialReorder(boolean reorder) {
+        this.spatialReorder = reorder;
+    }
+
+    /**
+     * Включает перестановку полигонов под кэш вершин (VertexCacheOptimizer) последним шагом после чтения.
+     * Модель показывается только целиком
+     * @param optimize
+     */
+    public void setCacheOptimize(boolean optimize) {
+        this.cacheOptimize = optimize;
+    }
+
+    /**
+     * Хранит геометрию загруженной модели вне кучи (Model.storeGeometry): без шагов после чтения
+     * секции кэша отображаются в память (MeshCache.map) и модель в куче не создается вовсе,
+     * иначе прочитанная модель копируется в прямые буферы. Модель показывается только целиком
+     * @param offHeap
+     */
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Квантует позиции и нормали загруженной модели (QuantizedMesh), вместе с setOffHeap - поверх буферов вне кучи.
+     * Модель показывается только целиком
+     * @param quantize
+     */
+    public void setQuantize(boolean quantize) {
+        this.quantize = quantize;
+    }
+
+    public VertexCacheResult getCacheResult() {
+        return cacheResult;
+    }
+
+    public WeldResult getWeldResult() {
+        return weldResult;
+    }
+
+    /**
+     * Модели групп o/g, на которые разделена прочитанная модель, или null, если группа одна.
+     * Шаги после чтения и хранение вне кучи к группам не применяются, как и при чтении группы по отдельности
+     * @return
+     */
+    public List<Model> getGroupModels() {
+        return groupModels;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    protected Model call() throws Exception {
+        final long start = System.nanoTime();
+        fileSize = Files.size(file);
+        // Ход чтения считается по распакованному тексту, для gzip он больше размера файла
+        final long total = Math.max(1, ObjReader.contentLength(file));
+        updateProgress(0, total);
+
+        if (offHeap && mappable && !hasPostPasses()) {
+            // Кэш отображается в память, ход чтения не сообщается
+            MeshBuffers mapped = MeshCache.map(file);
+            checkCancelled();
+            store(quantize ? QuantizedMesh.of(mapped) : mapped);
+            updateProgress(total, total);
+            elapsedNanos = System.nanoTime() - start;
+            return target;
+        }
+
+        Model loaded = loader.load(new ObjReadListener() {
+            @Override
+            public void onProgress(Model partial, long bytesRead) {
+                checkCancelled();
+                updateProgress(bytesRead, total);
+                if (isStreamed()) {
+                    publish(partial);
+                }
+            }
+
+            @Override
+            public void onGroups(ObjGroupIndex index) {
+                groupIndex = index;
+            }
+        });
+        // Каждый шаг после чтения проходит всю модель, отмена проверяется перед каждым из них
+        checkCancelled();
+        if (groupIndex != null && groupIndex.getGroupCount() > 1) {
+            List<Model> groups = new ArrayList<>(groupIndex.getGroupCount());
+            for (int group = 0; group < groupIndex.getGroupCount(); group++) {
+                groups.add(groupIndex.extractGroup(loaded, group));
+                checkCancelled();
+            }
+            groupModels = groups;
+            updateProgress(total, total);
+            elapsedNanos = System.nanoTime() - start;
+            return target;
+        }
+        if (weldEpsilon >= 0) {
+            weldResult = VertexWelder.weld(loaded, weldEpsilon);
+            checkCancelled();
+        }
+        if (spatialReorder) {
+            MortonReorder.reorder(loaded);
+            checkCancelled();
+        }
+        if (cacheOptimize) {
+            cacheResult = VertexCacheOptimizer.optimize(loaded);
+            checkCancelled();
+        }
+        if (offHeap || quantize) {
+            MeshBuffers source = offHeap ? OffHeapMesh.allocate(loaded) : MeshBuffers.of(loaded);
+            store(quantize ? QuantizedMesh.of(source) : source);
+        } else {
+            publish(loaded);
+        }
+        updateProgress(total, total);
+        elapsedNanos = System.nanoTime() - start;
+        return target;
+    }
+
+    private void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+    }
+
+    // Модель показывается по мере чтения, только если после чтения она не перестраивается
+    private boolean isStreamed() {
+        return !hasPostPasses() && !offHeap && !quantize;
+    }
+
+    private boolean hasPostPasses() {
+        return weldEpsilon >= 0 || spatialReorder || cacheOptimize;
+    }
+
+    // Готовые буферы заменяют геометрию target; модель в куче, из которой они построены, больше не нужна
+    private void store(MeshBuffers buffers) {
+        Platform.runLater(() -> target.storeGeometry(buffers));
+    }
+
+    // Передает в target все, что появилось в модели с прошлого раза.
+    // Координаты копируются массивами: сначала в потоке чтения (модель продолжает расти),
+    // затем в потоке JavaFX в target, без создания объекта на каждую вершину.
+    // Элементы только дописываются в конец, поэтому буферы отрисовки target достраиваются, а не строятся заново
+    private void publish(Model source) {
+        Vector3fList vertices = new Vector3fList(source.getVertices().size() - publishedVertices);
+        vertices.addAll(source.getVertices(), publishedVertices, source.getVertices().size());
+        Vector2fList textureVertices = new Vector2fList(source.getTextureVertices().size() - publishedTextureVertices);
+        textureVertices.addAll(source.getTextureVertices(), publishedTextureVertices, source.getTextureVertices().size());
+        Vector3fList normals = new Vector3fList(source.getNormals().size() - publishedNormals);
+        normals.addAll(source.getNormals(), publishedNormals, source.getNormals().size());
+        List<Polygon> polygons = new ArrayList<>(source.getPolygons().subList(publishedPolygons, source.getPolygons().size()));
+        publishedVertices += vertices.size();
+        publishedTextureVertices += textureVertices.size();
+        publishedNormals += normals.size();
+        publishedPolygons += polygons.size();
+
+        if (vertices.isEmpty() && textureVertices.isEmpty() && normals.isEmpty() && polygons.isEmpty()) {
+            return;
+        }
+        Platform.runLater(() -> {
+            // Вершины добавляются раньше полигонов, которые на них ссылаются
+            target.getVertices().addAll(vertices, 0, vertices.size());
+            target.getTextureVertices().addAll(textureVertices, 0, textureVertices.size());
+            target.getNormals().addAll(normals, 0, normals.size());
+            target.getPolygons().addAll(polygons);
+            target.markGeometryAppended();
+        });
+    }
+}
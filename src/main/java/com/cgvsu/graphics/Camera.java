@@ -2,6 +2,7 @@ package com.cgvsu.graphics;
 
 
 import com.cgvsu.math.Matrix4f;
+import com.cgvsu.math.Quaternion;
 import com.cgvsu.math.Vector3f;
 
 /*
@@ -9,6 +10,10 @@ import com.cgvsu.math.Vector3f;
  * Поддерживает различные типы проекций и управление положением камеры.
  */
 public class Camera {
+    private static final Vector3f WORLD_UP = new Vector3f(0, 1, 0);
+    // Предельный угол возвышения камеры над горизонтом, градусы
+    private static final float MAX_ELEVATION = (float)Math.toDegrees(Math.PI / 2 - 0.1);
+    
     private Vector3f position;
     private Vector3f target;
     private Vector3f up;
@@ -87,43 +92,47 @@ public class Camera {
         updateViewMatrix();
     }
     
-    // Вращение камеры вокруг цели
+    // Вращение камеры вокруг цели: yaw - вокруг вертикальной оси, pitch - вокруг оси «вправо» камеры (в градусах)
     public void rotateAroundTarget(float yaw, float pitch) {
-        // Вычисляем радиус-вектор от цели к камере
         Vector3f direction = position.subtract(target);
-        
-        // Преобразуем углы в радианы
-        float yawRad = (float)Math.toRadians(yaw);
-        float pitchRad = (float)Math.toRadians(pitch);
-        
-        // Применяем вращение
-        float cosYaw = (float)Math.cos(yawRad);
-        float sinYaw = (float)Math.sin(yawRad);
-        float cosPitch = (float)Math.cos(pitchRad);
-        float sinPitch = (float)Math.sin(pitchRad);
-        
-        // Вращение вокруг оси Y (горизонтальное)
-        float x = direction.getX() * cosYaw - direction.getZ() * sinYaw;
-        float z = direction.getX() * sinYaw + direction.getZ() * cosYaw;
-        direction = new Vector3f(x, direction.getY(), z);
-        
-        // Вращение вокруг оси X (вертикальное) с ограничением
-        float lengthXY = (float)Math.sqrt(direction.getX() * direction.getX() + 
-                                         direction.getZ() * direction.getZ());
-        float newPitch = (float)Math.atan2(direction.getY(), lengthXY) + pitchRad;
+        float length = direction.length();
+        if (length < 1e-6f) {
+            return;
+        }
         
         // Ограничиваем вертикальное вращение, чтобы не перевернуть камеру
-        float maxPitch = (float)Math.PI / 2 - 0.1f;
-        newPitch = Math.max(-maxPitch, Math.min(maxPitch, newPitch));
-        
-        float newLength = direction.length();
-        direction = new Vector3f(
-            (float)(Math.cos(newPitch) * Math.cos(yawRad + Math.atan2(direction.getZ(), direction.getX()))) * newLength,
-            (float)Math.sin(newPitch) * newLength,
-            (float)(Math.cos(newPitch) * Math.sin(yawRad + Math.atan2(direction.getZ(), direction.getX()))) * newLength
-        );
+        float elevation = (float)Math.toDegrees(Math.asin(Math.max(-1, Math.min(1, direction.getY() / length))));
+        float newElevation = Math.max(-MAX_ELEVATION, Math.min(MAX_ELEVATION, elevation + pitch));
         
-        position = target.add(direction);
+        Quaternion rotation = Quaternion.fromAxisAngle(WORLD_UP, -yaw);
+        Vector3f right = direction.cross(WORLD_UP);
+        if (right.length() > 1e-6f) {
+            rotation = rotation.multiply(Quaternion.fromAxisAngle(right, newElevation - elevation));
+        }
+        position = target.add(rotation.rotate(direction));
+        updateViewMatrix();
+    }
+    
+    // Поворот положения камеры вокруг цели заданным кватернионом
+    public void orbit(Quaternion rotation) {
+        position = target.add(rotation.normalize().rotate(position.subtract(target)));
+        updateViewMatrix();
+    }
+    
+    /**
+     * Ставит камеру в промежуточное положение на орбите вокруг цели: направление
+     * поворачивается по кратчайшей дуге (slerp), расстояние до цели интерполируется линейно.
+     * Подходит для плавных переходов между ракурсами
+     * @param from положение камеры при t = 0
+     * @param to положение камеры при t = 1
+     * @param t параметр интерполяции
+     */
+    public void interpolateOrbit(Vector3f from, Vector3f to, float t) {
+        Vector3f fromDirection = from.subtract(target);
+        Vector3f toDirection = to.subtract(target);
+        float distance = fromDirection.length() * (1 - t) + toDirection.length() * t;
+        Quaternion rotation = Quaternion.slerp(Quaternion.IDENTITY, Quaternion.fromTo(fromDirection, toDirection), t);
+        position = target.add(rotation.rotate(fromDirection.normalize()).multiply(distance));
         updateViewMatrix();
     }
     
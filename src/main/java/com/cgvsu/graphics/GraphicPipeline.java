@@ -35,6 +35,9 @@ public class GraphicPipeline {
     // MVP матрица (Model-View-Projection)
     private Matrix4f mvpMatrix;
     
+    // Рабочий массив для преобразования одной вершины
+    private final float[] point = new float[3];
+    
     public GraphicPipeline(int viewportWidth, int viewportHeight) {
         this.modelTransformation = new Transformation();
         this.camera = new Camera();
@@ -63,40 +66,66 @@ public class GraphicPipeline {
     
     // Преобразование вершины через весь конвейер
     public Vector3f transformVertex(Vector3f vertex, TransformSpace outputSpace) {
-        return transformVertex(vertex, modelTransformation.getMatrix(), outputSpace);
+        return transformVertex(vertex, null, outputSpace);
     }
     
     // Преобразование вершины с заданной матрицей модели
     public Vector3f transformVertex(Vector3f vertex, Matrix4f customModelMatrix, TransformSpace outputSpace) {
-        Vector3f result = vertex;
-        
+        if (outputSpace == TransformSpace.LOCAL_SPACE) {
+            return vertex;
+        }
+        point[0] = vertex.getX();
+        point[1] = vertex.getY();
+        point[2] = vertex.getZ();
+        transformVertices(point, point, 1, customModelMatrix, outputSpace);
+        return new Vector3f(point[0], point[1], point[2]);
+    }
+    
+    /**
+     * Преобразует count вершин (по три координаты подряд) через конвейер без создания объектов.
+     * src и dst могут совпадать
+     */
+    public void transformVertices(float[] src, float[] dst, int count, TransformSpace outputSpace) {
+        transformVertices(src, dst, count, null, outputSpace);
+    }
+    
+    // customModelMatrix == null - матрица модели берется из modelTransformation
+    private void transformVertices(float[] src, float[] dst, int count, Matrix4f customModelMatrix,
+                                   TransformSpace outputSpace) {
         // 1. Модельное преобразование (локальные -> мировые)
         if (outputSpace.compareTo(TransformSpace.LOCAL_SPACE) > 0) {
-            result = customModelMatrix.mul(result);
+            if (customModelMatrix != null) {
+                customModelMatrix.transformInto(src, dst, 0, count);
+            } else {
+                modelTransformation.transformInto(src, dst, 0, count);
+            }
+        } else if (src != dst) {
+            System.arraycopy(src, 0, dst, 0, count * 3);
         }
         
         // 2. Преобразование вида (мировые -> камеры)
         if (outputSpace.compareTo(TransformSpace.WORLD_SPACE) > 0) {
-            result = camera.getViewMatrix().mul(result);
+            camera.getViewMatrix().transformInto(dst, dst, 0, count);
         }
         
         // 3. Проекционное преобразование (камера -> отсечение)
         if (outputSpace.compareTo(TransformSpace.VIEW_SPACE) > 0) {
-            result = camera.getProjectionMatrix().mul(result);
+            camera.getProjectionMatrix().transformInto(dst, dst, 0, count);
         }
         
         // 4. Перспективное деление (отсечение -> NDC)
         if (outputSpace.compareTo(TransformSpace.CLIP_SPACE) > 0) {
             // Для NDC и SCREEN_SPACE нужно перспективное деление
-            // Оно уже выполнено в Matrix4f.mul() для Vector3f
+            // Как и в Matrix4f.mul() для Vector3f, компонента w не используется
         }
         
         // 5. Преобразование в экранные координаты (NDC -> экран)
         if (outputSpace.compareTo(TransformSpace.NDC_SPACE) > 0) {
-            result = ndcToScreen(result);
+            for (int i = 0; i < count * 3; i += 3) {
+                dst[i] = (dst[i] + 1.0f) * 0.5f * viewportWidth;
+                dst[i + 1] = (1.0f - dst[i + 1]) * 0.5f * viewportHeight; // Ось Y инвертирована
+            }
         }
-        
-        return result;
     }
     
     // Преобразование нормали
@@ -104,16 +133,6 @@ public class GraphicPipeline {
         return modelTransformation.transformNormal(normal);
     }
     
-    // Преобразование из NDC в экранные координаты
-    private Vector3f ndcToScreen(Vector3f ndc) {
-        // NDC: x,y ∈ [-1, 1], z ∈ [0, 1] (для глубины)
-        float screenX = (ndc.getX() + 1.0f) * 0.5f * viewportWidth;
-        float screenY = (1.0f - ndc.getY()) * 0.5f * viewportHeight; // Ось Y инвертирована
-        float screenZ = ndc.getZ(); // Сохраняем глубину
-        
-        return new Vector3f(screenX, screenY, screenZ);
-    }
-    
     // Преобразование из экранных координат в NDC
     public Vector3f screenToNDC(Vector3f screen) {
         float ndcX = (screen.getX() / viewportWidth) * 2.0f - 1.0f;
@@ -127,11 +146,18 @@ public class GraphicPipeline {
     public Model transformModel(Model model, boolean transformNormals, boolean includeTransformations) {
         Model transformedModel = new Model();
         
-        // Трансформируем вершины
-        for (Vector3f vertex : model.getVertices()) {
-            Vector3f transformedVertex = includeTransformations ? 
-                transformVertex(vertex, TransformSpace.WORLD_SPACE) : vertex;
-            transformedModel.getVertices().add(transformedVertex);
+        // Трансформируем вершины: без пустых элементов - одним проходом по массиву координат
+        if (includeTransformations && !model.getVertices().hasNulls()) {
+            int count = model.getVertices().size();
+            float[] coordinates = new float[count * 3];
+            transformVertices(model.getVertices().coordinates(), coordinates, count, TransformSpace.WORLD_SPACE);
+            transformedModel.getVertices().setCoordinates(coordinates, count);
+        } else {
+            for (Vector3f vertex : model.getVertices()) {
+                Vector3f transformedVertex = includeTransformations ?
+                    transformVertex(vertex, TransformSpace.WORLD_SPACE) : vertex;
+                transformedModel.getVertices().add(transformedVertex);
+            }
         }
         
         // Трансформируем текстурные координаты (если есть)
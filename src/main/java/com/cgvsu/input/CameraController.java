@@ -35,6 +35,10 @@ public class CameraController implements MouseListener, MouseMotionListener, Mou
     private float zoomSpeed = 0.5f;
     private float moveSpeed = 0.1f;
     
+    // Camera.rotateAroundTarget поворачивает на угол yaw один раз, а прежняя реализация добавляла его дважды.
+    // Множитель сохраняет прежнюю горизонтальную чувствительность орбиты
+    private static final float ORBIT_YAW_SCALE = 2;
+    
     // Режимы управления
     private ControlMode controlMode = ControlMode.FLY;
     
@@ -127,7 +131,7 @@ public class CameraController implements MouseListener, MouseMotionListener, Mou
         
         switch (controlMode) {
             case ORBIT:
-                camera.rotateAroundTarget(-yaw, -pitch);
+                camera.rotateAroundTarget(-yaw * ORBIT_YAW_SCALE, -pitch);
                 break;
             case FLY:
             case FPS:
@@ -227,10 +231,10 @@ public class CameraController implements MouseListener, MouseMotionListener, Mou
                 camera.rotateAroundTarget(0, rotationSpeed * 5);
                 break;
             case KeyEvent.VK_LEFT:
-                camera.rotateAroundTarget(rotationSpeed * 5, 0);
+                camera.rotateAroundTarget(rotationSpeed * 5 * ORBIT_YAW_SCALE, 0);
                 break;
             case KeyEvent.VK_RIGHT:
-                camera.rotateAroundTarget(-rotationSpeed * 5, 0);
+                camera.rotateAroundTarget(-rotationSpeed * 5 * ORBIT_YAW_SCALE, 0);
                 break;
         }
     }
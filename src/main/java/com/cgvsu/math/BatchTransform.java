@@ -0,0 +1,93 @@
+package com.cgvsu.math;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Пакетное преобразование вершин в экранные координаты за один проход:
+ * умножение на матрицу 4x4, перспективное деление и перевод в координаты области вывода.
+ * Координаты передаются отдельными массивами x, y, z (SoA). Если при запуске доступен модуль
+ * jdk.incubator.vector (--add-modules jdk.incubator.vector), основная часть массива обрабатывается
+ * векторными инструкциями, иначе и для хвоста массива используется обычный цикл.
+ * Результат совпадает с GraphicConveyor.multiplyMatrix4ByVector3 и vertexToPoint.
+ */
+public final class BatchTransform {
+    private static final Logger log = LoggerFactory.getLogger(BatchTransform.class);
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    // -Dcgvsu.batch.scalar=true отключает векторный путь, например для сравнения
+    private static final boolean VECTORIZED = detectVectorSupport();
+
+    private BatchTransform() {
+    }
+
+    private static boolean detectVectorSupport() {
+        if (Boolean.getBoolean("cgvsu.batch.scalar")
+                || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return false;
+        }
+        try {
+            log.info("BATCH_TRANSFORM_VECTORIZED: {} floats per vector", VectorBatchTransform.lanes());
+            return true;
+        } catch (LinkageError e) {
+            log.warn("BATCH_TRANSFORM_SCALAR: vector API unavailable: {}", e.toString());
+            return false;
+        }
+    }
+
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Преобразует вершины матрицей в экранные координаты
+     *
+     * @param matrix  Матрица для векторов-столбцов
+     * @param xs      Координаты x
+     * @param ys      Координаты y
+     * @param zs      Координаты z
+     * @param count   Количество вершин
+     * @param width   Ширина области вывода
+     * @param height  Высота области вывода
+     * @param screenX Массив для экранных x
+     * @param screenY Массив для экранных y
+     */
+    public static void toScreen(Matrix4f matrix, float[] xs, float[] ys, float[] zs, int count,
+                                int width, int height, float[] screenX, float[] screenY) {
+        toScreen(matrix.toFlatArray(new float[16], 0), xs, ys, zs, count, width, height, screenX, screenY);
+    }
+
+    /**
+     * То же для матрицы, записанной построчно в массив из 16 элементов:
+     * x' = m[0] x + m[1] y + m[2] z + m[3], ..., w = m[12] x + m[13] y + m[14] z + m[15]
+     */
+    public static void toScreen(float[] matrix, float[] xs, float[] ys, float[] zs, int count,
+                                int width, int height, float[] screenX, float[] screenY) {
+        if (matrix.length < 16) {
+            throw new IllegalArgumentException("Matrix must have 16 elements");
+        }
+        if (xs.length < count || ys.length < count || zs.length < count
+                || screenX.length < count || screenY.length < count) {
+            throw new IllegalArgumentException("Arrays are shorter than count: " + count);
+        }
+        int done = VECTORIZED
+                ? VectorBatchTransform.toScreen(matrix, xs, ys, zs, count, width, height, screenX, screenY)
+                : 0;
+        toScreenScalar(matrix, xs, ys, zs, done, count, width, height, screenX, screenY);
+    }
+
+    // Обычный цикл для вершин from..count
+    static void toScreenScalar(float[] m, float[] xs, float[] ys, float[] zs, int from, int count,
+                               int width, int height, float[] screenX, float[] screenY) {
+        final float halfWidth = width / 2.0F;
+        final float halfHeight = height / 2.0F;
+        for (int i = from; i < count; i++) {
+            final float x = xs[i];
+            final float y = ys[i];
+            final float z = zs[i];
+            final float w = m[12] * x + m[13] * y + m[14] * z + m[15];
+            screenX[i] = (m[0] * x + m[1] * y + m[2] * z + m[3]) / w * width + halfWidth;
+            screenY[i] = -((m[4] * x + m[5] * y + m[6] * z + m[7]) / w) * height + halfHeight;
+        }
+    }
+}
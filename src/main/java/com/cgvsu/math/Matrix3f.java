@@ -79,9 +79,28 @@ public class Matrix3f {
     
     // Умножение матрицы на Vector3f
     public Vector3f mul(Vector3f vec) {
-        ColumnVector columnVec = new ColumnVector(vec.getX(), vec.getY(), vec.getZ());
-        ColumnVector result = mul(columnVec);
-        return result.toVector3f();
+        final float x = vec.getX();
+        final float y = vec.getY();
+        final float z = vec.getZ();
+        return new Vector3f(
+                m[0][0] * x + m[0][1] * y + m[0][2] * z,
+                m[1][0] * x + m[1][1] * y + m[1][2] * z,
+                m[2][0] * x + m[2][1] * y + m[2][2] * z);
+    }
+    
+    // Умножение count векторов из src (по три координаты) с записью в dst без создания объектов
+    public void transformInto(float[] src, float[] dst, int offset, int count) {
+        final float m00 = m[0][0], m01 = m[0][1], m02 = m[0][2];
+        final float m10 = m[1][0], m11 = m[1][1], m12 = m[1][2];
+        final float m20 = m[2][0], m21 = m[2][1], m22 = m[2][2];
+        for (int i = offset * 3; i < (offset + count) * 3; i += 3) {
+            final float x = src[i];
+            final float y = src[i + 1];
+            final float z = src[i + 2];
+            dst[i] = m00 * x + m01 * y + m02 * z;
+            dst[i + 1] = m10 * x + m11 * y + m12 * z;
+            dst[i + 2] = m20 * x + m21 * y + m22 * z;
+        }
     }
     
     // Транспонирование матрицы
@@ -5,12 +5,18 @@ package com.cgvsu.math;
  * Класс для работы с матрицами 4x4.
  * Используется для аффинных преобразований в 3D-графике.
  * Векторы представляются как столбцы.
+ * Элементы хранятся построчно в одном массиве float[16]. Методы с суффиксом Into
+ * записывают результат в переданную матрицу или массив и ничего не создают,
+ * поэтому подходят для преобразования каждой вершины.
  */
 public class Matrix4f {
-    private final float[][] m;
+    private static final int SIZE = 4;
+    
+    // Элемент (row, col) лежит в m[row * 4 + col]
+    private final float[] m;
     
     public Matrix4f() {
-        m = new float[4][4];
+        m = new float[SIZE * SIZE];
         setIdentity();
     }
     
@@ -18,18 +24,15 @@ public class Matrix4f {
         if (matrix.length != 4 || matrix[0].length != 4) {
             throw new IllegalArgumentException("Matrix must be 4x4");
         }
-        m = new float[4][4];
+        m = new float[SIZE * SIZE];
         for (int i = 0; i < 4; i++) {
-            System.arraycopy(matrix[i], 0, m[i], 0, 4);
+            System.arraycopy(matrix[i], 0, m, i * SIZE, 4);
         }
     }
     
     // Копирующий конструктор
     public Matrix4f(Matrix4f other) {
-        m = new float[4][4];
-        for (int i = 0; i < 4; i++) {
-            System.arraycopy(other.m[i], 0, m[i], 0, 4);
-        }
+        m = other.m.clone();
     }
     
     public static Matrix4f identity() {
@@ -37,26 +40,49 @@ public class Matrix4f {
     }
     
     public void setIdentity() {
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                m[i][j] = (i == j) ? 1.0f : 0.0f;
-            }
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            m[i] = (i % (SIZE + 1) == 0) ? 1.0f : 0.0f;
         }
     }
     
+    // Копирование элементов другой матрицы в эту
+    public Matrix4f set(Matrix4f other) {
+        System.arraycopy(other.m, 0, m, 0, SIZE * SIZE);
+        return this;
+    }
+    
     // Умножение матриц (C = A * B)
     public Matrix4f mul(Matrix4f other) {
-        float[][] result = new float[4][4];
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                float sum = 0;
-                for (int k = 0; k < 4; k++) {
-                    sum += m[i][k] * other.m[k][j];
-                }
-                result[i][j] = sum;
-            }
-        }
-        return new Matrix4f(result);
+        return mulInto(other, new Matrix4f());
+    }
+    
+    // Умножение с записью в dest (dest = this * other). dest может совпадать с this или other:
+    // все элементы результата вычисляются до записи
+    public Matrix4f mulInto(Matrix4f other, Matrix4f dest) {
+        final float[] a = m;
+        final float[] b = other.m;
+        final float c00 = a[0] * b[0] + a[1] * b[4] + a[2] * b[8] + a[3] * b[12];
+        final float c01 = a[0] * b[1] + a[1] * b[5] + a[2] * b[9] + a[3] * b[13];
+        final float c02 = a[0] * b[2] + a[1] * b[6] + a[2] * b[10] + a[3] * b[14];
+        final float c03 = a[0] * b[3] + a[1] * b[7] + a[2] * b[11] + a[3] * b[15];
+        final float c10 = a[4] * b[0] + a[5] * b[4] + a[6] * b[8] + a[7] * b[12];
+        final float c11 = a[4] * b[1] + a[5] * b[5] + a[6] * b[9] + a[7] * b[13];
+        final float c12 = a[4] * b[2] + a[5] * b[6] + a[6] * b[10] + a[7] * b[14];
+        final float c13 = a[4] * b[3] + a[5] * b[7] + a[6] * b[11] + a[7] * b[15];
+        final float c20 = a[8] * b[0] + a[9] * b[4] + a[10] * b[8] + a[11] * b[12];
+        final float c21 = a[8] * b[1] + a[9] * b[5] + a[10] * b[9] + a[11] * b[13];
+        final float c22 = a[8] * b[2] + a[9] * b[6] + a[10] * b[10] + a[11] * b[14];
+        final float c23 = a[8] * b[3] + a[9] * b[7] + a[10] * b[11] + a[11] * b[15];
+        final float c30 = a[12] * b[0] + a[13] * b[4] + a[14] * b[8] + a[15] * b[12];
+        final float c31 = a[12] * b[1] + a[13] * b[5] + a[14] * b[9] + a[15] * b[13];
+        final float c32 = a[12] * b[2] + a[13] * b[6] + a[14] * b[10] + a[15] * b[14];
+        final float c33 = a[12] * b[3] + a[13] * b[7] + a[14] * b[11] + a[15] * b[15];
+        final float[] d = dest.m;
+        d[0] = c00; d[1] = c01; d[2] = c02; d[3] = c03;
+        d[4] = c10; d[5] = c11; d[6] = c12; d[7] = c13;
+        d[8] = c20; d[9] = c21; d[10] = c22; d[11] = c23;
+        d[12] = c30; d[13] = c31; d[14] = c32; d[15] = c33;
+        return dest;
     }
     
     // Умножение матрицы на вектор-столбец (v' = M * v)
@@ -69,7 +95,7 @@ public class Matrix4f {
         for (int i = 0; i < 4; i++) {
             float sum = 0;
             for (int j = 0; j < 4; j++) {
-                sum += m[i][j] * vec.get(j);
+                sum += m[i * SIZE + j] * vec.get(j);
             }
             result[i] = sum;
         }
@@ -77,114 +103,282 @@ public class Matrix4f {
         return new ColumnVector(result);
     }
     
-    // Умножение матрицы на Vector3f (с преобразованием в гомогенные координаты)
+    // Умножение матрицы на Vector3f (с преобразованием в гомогенные координаты, w = 1).
+    // Как и раньше, компонента w результата отбрасывается без перспективного деления
     public Vector3f mul(Vector3f vec) {
-        ColumnVector columnVec = new ColumnVector(vec);
-        ColumnVector result = mul(columnVec);
-        return result.toVector3f();
+        final float x = vec.getX();
+        final float y = vec.getY();
+        final float z = vec.getZ();
+        return new Vector3f(
+                m[0] * x + m[1] * y + m[2] * z + m[3],
+                m[4] * x + m[5] * y + m[6] * z + m[7],
+                m[8] * x + m[9] * y + m[10] * z + m[11]);
+    }
+    
+    /**
+     * Преобразует count точек (x, y, z) с w = 1, как mul(Vector3f), без создания объектов.
+     * Точки читаются из src и пишутся в dst начиная с точки offset; src и dst могут совпадать
+     * @param src координаты подряд по три
+     * @param dst массив для результата
+     * @param offset номер первой точки
+     * @param count количество точек
+     */
+    public void transformInto(float[] src, float[] dst, int offset, int count) {
+        transformInto(src, offset * 3, dst, offset * 3, count);
+    }
+    
+    // То же с отдельными смещениями (в числах float) для src и dst
+    public void transformInto(float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        final float m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+        final float m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+        final float m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+        for (int i = 0; i < count; i++) {
+            final int s = srcOffset + i * 3;
+            final int d = dstOffset + i * 3;
+            final float x = src[s];
+            final float y = src[s + 1];
+            final float z = src[s + 2];
+            dst[d] = m00 * x + m01 * y + m02 * z + m03;
+            dst[d + 1] = m10 * x + m11 * y + m12 * z + m13;
+            dst[d + 2] = m20 * x + m21 * y + m22 * z + m23;
+        }
+    }
+    
+    /**
+     * Преобразует count точек с перспективным делением на w (координаты отсечения -> NDC).
+     * Точки с w = 0 записываются без деления
+     */
+    public void projectInto(float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        for (int i = 0; i < count; i++) {
+            final int s = srcOffset + i * 3;
+            final int d = dstOffset + i * 3;
+            final float x = src[s];
+            final float y = src[s + 1];
+            final float z = src[s + 2];
+            final float w = m[12] * x + m[13] * y + m[14] * z + m[15];
+            final float scale = w != 0.0f ? 1.0f / w : 1.0f;
+            dst[d] = (m[0] * x + m[1] * y + m[2] * z + m[3]) * scale;
+            dst[d + 1] = (m[4] * x + m[5] * y + m[6] * z + m[7]) * scale;
+            dst[d + 2] = (m[8] * x + m[9] * y + m[10] * z + m[11]) * scale;
+        }
     }
     
     // Транспонирование матрицы
     public Matrix4f transpose() {
-        float[][] result = new float[4][4];
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                result[i][j] = m[j][i];
+        return transposeInto(new Matrix4f());
+    }
+    
+    // Транспонирование с записью в dest; dest может совпадать с this
+    public Matrix4f transposeInto(Matrix4f dest) {
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = i; j < SIZE; j++) {
+                final float upper = m[i * SIZE + j];
+                final float lower = m[j * SIZE + i];
+                dest.m[i * SIZE + j] = lower;
+                dest.m[j * SIZE + i] = upper;
             }
         }
-        return new Matrix4f(result);
+        return dest;
+    }
+    
+    // Обратная матрица
+    public Matrix4f inverse() {
+        return invertInto(new Matrix4f());
+    }
+    
+    // Обратная матрица с записью в dest (через алгебраические дополнения); dest может совпадать с this
+    public Matrix4f invertInto(Matrix4f dest) {
+        final float[] a = m;
+        final float s0 = a[0] * a[5] - a[4] * a[1];
+        final float s1 = a[0] * a[6] - a[4] * a[2];
+        final float s2 = a[0] * a[7] - a[4] * a[3];
+        final float s3 = a[1] * a[6] - a[5] * a[2];
+        final float s4 = a[1] * a[7] - a[5] * a[3];
+        final float s5 = a[2] * a[7] - a[6] * a[3];
+        final float c5 = a[10] * a[15] - a[14] * a[11];
+        final float c4 = a[9] * a[15] - a[13] * a[11];
+        final float c3 = a[9] * a[14] - a[13] * a[10];
+        final float c2 = a[8] * a[15] - a[12] * a[11];
+        final float c1 = a[8] * a[14] - a[12] * a[10];
+        final float c0 = a[8] * a[13] - a[12] * a[9];
+        final float det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+        if (det == 0.0f || !Float.isFinite(det)) {
+            throw new ArithmeticException("Matrix is singular, cannot compute inverse");
+        }
+        final float inv = 1.0f / det;
+        final float r0 = (a[5] * c5 - a[6] * c4 + a[7] * c3) * inv;
+        final float r1 = (-a[1] * c5 + a[2] * c4 - a[3] * c3) * inv;
+        final float r2 = (a[13] * s5 - a[14] * s4 + a[15] * s3) * inv;
+        final float r3 = (-a[9] * s5 + a[10] * s4 - a[11] * s3) * inv;
+        final float r4 = (-a[4] * c5 + a[6] * c2 - a[7] * c1) * inv;
+        final float r5 = (a[0] * c5 - a[2] * c2 + a[3] * c1) * inv;
+        final float r6 = (-a[12] * s5 + a[14] * s2 - a[15] * s1) * inv;
+        final float r7 = (a[8] * s5 - a[10] * s2 + a[11] * s1) * inv;
+        final float r8 = (a[4] * c4 - a[5] * c2 + a[7] * c0) * inv;
+        final float r9 = (-a[0] * c4 + a[1] * c2 - a[3] * c0) * inv;
+        final float r10 = (a[12] * s4 - a[13] * s2 + a[15] * s0) * inv;
+        final float r11 = (-a[8] * s4 + a[9] * s2 - a[11] * s0) * inv;
+        final float r12 = (-a[4] * c3 + a[5] * c1 - a[6] * c0) * inv;
+        final float r13 = (a[0] * c3 - a[1] * c1 + a[2] * c0) * inv;
+        final float r14 = (-a[12] * s3 + a[13] * s1 - a[14] * s0) * inv;
+        final float r15 = (a[8] * s3 - a[9] * s1 + a[10] * s0) * inv;
+        final float[] d = dest.m;
+        d[0] = r0; d[1] = r1; d[2] = r2; d[3] = r3;
+        d[4] = r4; d[5] = r5; d[6] = r6; d[7] = r7;
+        d[8] = r8; d[9] = r9; d[10] = r10; d[11] = r11;
+        d[12] = r12; d[13] = r13; d[14] = r14; d[15] = r15;
+        return dest;
     }
     
     // Сложение матриц
     public Matrix4f add(Matrix4f other) {
-        float[][] result = new float[4][4];
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                result[i][j] = m[i][j] + other.m[i][j];
-            }
+        return addInto(other, new Matrix4f());
+    }
+    
+    public Matrix4f addInto(Matrix4f other, Matrix4f dest) {
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            dest.m[i] = m[i] + other.m[i];
         }
-        return new Matrix4f(result);
+        return dest;
     }
     
     // Вычитание матриц
     public Matrix4f subtract(Matrix4f other) {
-        float[][] result = new float[4][4];
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                result[i][j] = m[i][j] - other.m[i][j];
-            }
+        return subtractInto(other, new Matrix4f());
+    }
+    
+    public Matrix4f subtractInto(Matrix4f other, Matrix4f dest) {
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            dest.m[i] = m[i] - other.m[i];
         }
-        return new Matrix4f(result);
+        return dest;
     }
     
     // Умножение на скаляр
     public Matrix4f multiply(float scalar) {
-        float[][] result = new float[4][4];
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                result[i][j] = m[i][j] * scalar;
-            }
+        return multiplyInto(scalar, new Matrix4f());
+    }
+    
+    public Matrix4f multiplyInto(float scalar, Matrix4f dest) {
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            dest.m[i] = m[i] * scalar;
         }
-        return new Matrix4f(result);
+        return dest;
     }
     
-    // Статические методы для создания матриц преобразований
+    // Статические методы для создания матриц преобразований.
+    // Методы set* записывают ту же матрицу в существующий объект
     
     public static Matrix4f translation(float tx, float ty, float tz) {
-        Matrix4f mat = new Matrix4f();
-        mat.set(0, 3, tx);
-        mat.set(1, 3, ty);
-        mat.set(2, 3, tz);
-        return mat;
+        return new Matrix4f().setTranslation(tx, ty, tz);
+    }
+    
+    public Matrix4f setTranslation(float tx, float ty, float tz) {
+        setIdentity();
+        set(0, 3, tx);
+        set(1, 3, ty);
+        set(2, 3, tz);
+        return this;
     }
     
     public static Matrix4f scaling(float sx, float sy, float sz) {
-        Matrix4f mat = new Matrix4f();
-        mat.set(0, 0, sx);
-        mat.set(1, 1, sy);
-        mat.set(2, 2, sz);
-        return mat;
+        return new Matrix4f().setScaling(sx, sy, sz);
+    }
+    
+    public Matrix4f setScaling(float sx, float sy, float sz) {
+        setIdentity();
+        set(0, 0, sx);
+        set(1, 1, sy);
+        set(2, 2, sz);
+        return this;
     }
     
     public static Matrix4f rotationX(float angleDegrees) {
+        return new Matrix4f().setRotationX(angleDegrees);
+    }
+    
+    public Matrix4f setRotationX(float angleDegrees) {
         float angleRad = (float) Math.toRadians(angleDegrees);
         float cos = (float) Math.cos(angleRad);
         float sin = (float) Math.sin(angleRad);
         
-        Matrix4f mat = new Matrix4f();
-        mat.set(1, 1, cos);
-        mat.set(1, 2, -sin);
-        mat.set(2, 1, sin);
-        mat.set(2, 2, cos);
-        return mat;
+        setIdentity();
+        set(1, 1, cos);
+        set(1, 2, -sin);
+        set(2, 1, sin);
+        set(2, 2, cos);
+        return this;
     }
     
     public static Matrix4f rotationY(float angleDegrees) {
+        return new Matrix4f().setRotationY(angleDegrees);
+    }
+    
+    public Matrix4f setRotationY(float angleDegrees) {
         float angleRad = (float) Math.toRadians(angleDegrees);
         float cos = (float) Math.cos(angleRad);
         float sin = (float) Math.sin(angleRad);
         
-        Matrix4f mat = new Matrix4f();
-        mat.set(0, 0, cos);
-        mat.set(0, 2, sin);
-        mat.set(2, 0, -sin);
-        mat.set(2, 2, cos);
-        return mat;
+        setIdentity();
+        set(0, 0, cos);
+        set(0, 2, sin);
+        set(2, 0, -sin);
+        set(2, 2, cos);
+        return this;
     }
     
     public static Matrix4f rotationZ(float angleDegrees) {
+        return new Matrix4f().setRotationZ(angleDegrees);
+    }
+    
+    public Matrix4f setRotationZ(float angleDegrees) {
         float angleRad = (float) Math.toRadians(angleDegrees);
         float cos = (float) Math.cos(angleRad);
         float sin = (float) Math.sin(angleRad);
         
-        Matrix4f mat = new Matrix4f();
-        mat.set(0, 0, cos);
-        mat.set(0, 1, -sin);
-        mat.set(1, 0, sin);
-        mat.set(1, 1, cos);
-        return mat;
+        setIdentity();
+        set(0, 0, cos);
+        set(0, 1, -sin);
+        set(1, 0, sin);
+        set(1, 1, cos);
+        return this;
     }
-    
+
+    // Матрица поворота по единичному кватерниону
+    public Matrix4f setRotation(Quaternion q) {
+        return setTranslationRotationScale(0, 0, 0, q, 1, 1, 1);
+    }
+
+    /**
+     * Записывает T * R * S за один проход, без трех умножений матриц
+     * @param q единичный кватернион поворота
+     * @return
+     */
+    public Matrix4f setTranslationRotationScale(float tx, float ty, float tz, Quaternion q,
+                                                float sx, float sy, float sz) {
+        float xx = q.x * q.x, yy = q.y * q.y, zz = q.z * q.z;
+        float xy = q.x * q.y, xz = q.x * q.z, yz = q.y * q.z;
+        float wx = q.w * q.x, wy = q.w * q.y, wz = q.w * q.z;
+
+        m[0] = (1 - 2 * (yy + zz)) * sx;
+        m[1] = 2 * (xy - wz) * sy;
+        m[2] = 2 * (xz + wy) * sz;
+        m[3] = tx;
+        m[4] = 2 * (xy + wz) * sx;
+        m[5] = (1 - 2 * (xx + zz)) * sy;
+        m[6] = 2 * (yz - wx) * sz;
+        m[7] = ty;
+        m[8] = 2 * (xz - wy) * sx;
+        m[9] = 2 * (yz + wx) * sy;
+        m[10] = (1 - 2 * (xx + yy)) * sz;
+        m[11] = tz;
+        m[12] = 0;
+        m[13] = 0;
+        m[14] = 0;
+        m[15] = 1;
+        return this;
+    }
+
     // Создание матрицы перспективной проекции
     public static Matrix4f perspective(float fovDegrees, float aspectRatio, float near, float far) {
         float fovRad = (float) Math.toRadians(fovDegrees);
@@ -241,28 +435,34 @@ public class Matrix4f {
     
     // Геттеры и сеттеры
     public float get(int row, int col) {
-        return m[row][col];
+        return m[row * SIZE + col];
     }
     
     public void set(int row, int col, float value) {
-        m[row][col] = value;
+        m[row * SIZE + col] = value;
     }
     
     public float[][] toArray() {
         float[][] copy = new float[4][4];
         for (int i = 0; i < 4; i++) {
-            System.arraycopy(m[i], 0, copy[i], 0, 4);
+            System.arraycopy(m, i * SIZE, copy[i], 0, 4);
         }
         return copy;
     }
     
+    // Копирует элементы построчно в dest начиная с offset
+    public float[] toFlatArray(float[] dest, int offset) {
+        System.arraycopy(m, 0, dest, offset, SIZE * SIZE);
+        return dest;
+    }
+    
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < 4; i++) {
             sb.append("[");
             for (int j = 0; j < 4; j++) {
-                sb.append(String.format("%8.4f", m[i][j]));
+                sb.append(String.format("%8.4f", m[i * SIZE + j]));
                 if (j < 3) sb.append(" ");
             }
             sb.append("]\n");
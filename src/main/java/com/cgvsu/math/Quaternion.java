@@ -0,0 +1,238 @@
+package com.cgvsu.math;
+
+
+/*
+ * Кватернион q = w + xi + yj + zk для представления поворотов.
+ * Поворот хранится четырьмя числами вместо девяти элементов матрицы, композиция двух поворотов
+ * стоит 16 умножений против 27 у матриц 3x3, а плавная интерполяция (slerp) не зависит
+ * от порядка осей и не страдает от складывания рамок (gimbal lock).
+ * Объекты неизменяемы, как и Vector3f. Углы передаются в градусах.
+ */
+public class Quaternion {
+    private static final float EPSILON = 1e-6f;
+    // Порог, после которого кватернионы считаются почти совпадающими и slerp заменяется линейной интерполяцией
+    private static final float SLERP_THRESHOLD = 0.9995f;
+
+    public static final Quaternion IDENTITY = new Quaternion(1, 0, 0, 0);
+
+    public final float w;
+    public final float x;
+    public final float y;
+    public final float z;
+
+    public Quaternion(float w, float x, float y, float z) {
+        this.w = w;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public static Quaternion identity() {
+        return IDENTITY;
+    }
+
+    // Поворот на angleDegrees вокруг оси axis (ось нормализуется)
+    public static Quaternion fromAxisAngle(Vector3f axis, float angleDegrees) {
+        float length = axis.length();
+        if (length < EPSILON) {
+            return IDENTITY;
+        }
+        double half = Math.toRadians(angleDegrees) / 2;
+        float s = (float) Math.sin(half) / length;
+        return new Quaternion((float) Math.cos(half), axis.x * s, axis.y * s, axis.z * s);
+    }
+
+    /**
+     * Поворот, совпадающий с матрицей Rx * Ry * Rz (тот же порядок, что в Transformation)
+     * @param xDeg угол вокруг оси X в градусах
+     * @param yDeg угол вокруг оси Y в градусах
+     * @param zDeg угол вокруг оси Z в градусах
+     * @return
+     */
+    public static Quaternion fromEuler(float xDeg, float yDeg, float zDeg) {
+        double hx = Math.toRadians(xDeg) / 2;
+        double hy = Math.toRadians(yDeg) / 2;
+        double hz = Math.toRadians(zDeg) / 2;
+        double cx = Math.cos(hx), sx = Math.sin(hx);
+        double cy = Math.cos(hy), sy = Math.sin(hy);
+        double cz = Math.cos(hz), sz = Math.sin(hz);
+        // Раскрытое произведение qx * qy * qz
+        return new Quaternion(
+            (float) (cx * cy * cz - sx * sy * sz),
+            (float) (sx * cy * cz + cx * sy * sz),
+            (float) (cx * sy * cz - sx * cy * sz),
+            (float) (cx * cy * sz + sx * sy * cz)
+        );
+    }
+
+    // Кратчайший поворот, переводящий направление from в направление to
+    public static Quaternion fromTo(Vector3f from, Vector3f to) {
+        Vector3f a = from.normalize();
+        Vector3f b = to.normalize();
+        float d = a.dot(b);
+        if (d < -1 + EPSILON) {
+            // Противоположные направления: поворот на 180 градусов вокруг любой перпендикулярной оси
+            Vector3f axis = a.cross(new Vector3f(1, 0, 0));
+            if (axis.length() < EPSILON) {
+                axis = a.cross(new Vector3f(0, 1, 0));
+            }
+            axis = axis.normalize();
+            return new Quaternion(0, axis.x, axis.y, axis.z);
+        }
+        Vector3f c = a.cross(b);
+        return new Quaternion(1 + d, c.x, c.y, c.z).normalize();
+    }
+
+    // Произведение this * other: сначала применяется other, затем this
+    public Quaternion multiply(Quaternion other) {
+        return new Quaternion(
+            w * other.w - x * other.x - y * other.y - z * other.z,
+            w * other.x + x * other.w + y * other.z - z * other.y,
+            w * other.y - x * other.z + y * other.w + z * other.x,
+            w * other.z + x * other.y - y * other.x + z * other.w
+        );
+    }
+
+    // Сопряженный кватернион; для единичного кватерниона это обратный поворот
+    public Quaternion conjugate() {
+        return new Quaternion(w, -x, -y, -z);
+    }
+
+    public Quaternion inverse() {
+        float norm = lengthSquared();
+        if (norm < EPSILON) {
+            throw new ArithmeticException("Cannot invert zero quaternion");
+        }
+        return new Quaternion(w / norm, -x / norm, -y / norm, -z / norm);
+    }
+
+    public float dot(Quaternion other) {
+        return w * other.w + x * other.x + y * other.y + z * other.z;
+    }
+
+    public float lengthSquared() {
+        return w * w + x * x + y * y + z * z;
+    }
+
+    public float length() {
+        return (float) Math.sqrt(lengthSquared());
+    }
+
+    public Quaternion normalize() {
+        float len = length();
+        if (len < EPSILON) {
+            return IDENTITY;
+        }
+        return new Quaternion(w / len, x / len, y / len, z / len);
+    }
+
+    /**
+     * Поворот вектора единичным кватернионом без построения матрицы:
+     * v' = v + w * t + q.xyz x t, где t = 2 * (q.xyz x v)
+     * @param v
+     * @return
+     */
+    public Vector3f rotate(Vector3f v) {
+        float tx = 2 * (y * v.z - z * v.y);
+        float ty = 2 * (z * v.x - x * v.z);
+        float tz = 2 * (x * v.y - y * v.x);
+        return new Vector3f(
+            v.x + w * tx + (y * tz - z * ty),
+            v.y + w * ty + (z * tx - x * tz),
+            v.z + w * tz + (x * ty - y * tx)
+        );
+    }
+
+    /**
+     * Сферическая линейная интерполяция между единичными кватернионами по кратчайшей дуге
+     * @param from поворот при t = 0
+     * @param to поворот при t = 1
+     * @param t параметр интерполяции
+     * @return единичный кватернион
+     */
+    public static Quaternion slerp(Quaternion from, Quaternion to, float t) {
+        float cos = from.dot(to);
+        float sign = 1;
+        // q и -q задают один поворот; выбирается тот, к которому дуга короче
+        if (cos < 0) {
+            cos = -cos;
+            sign = -1;
+        }
+        float a;
+        float b;
+        if (cos > SLERP_THRESHOLD) {
+            // Почти совпадающие повороты: синус угла близок к нулю, линейная интерполяция точнее
+            a = 1 - t;
+            b = t;
+        } else {
+            double theta = Math.acos(cos);
+            double sin = Math.sin(theta);
+            a = (float) (Math.sin((1 - t) * theta) / sin);
+            b = (float) (Math.sin(t * theta) / sin);
+        }
+        b *= sign;
+        return new Quaternion(
+            a * from.w + b * to.w,
+            a * from.x + b * to.x,
+            a * from.y + b * to.y,
+            a * from.z + b * to.z
+        ).normalize();
+    }
+
+    /**
+     * Углы Эйлера в градусах для порядка Rx * Ry * Rz (обратно к fromEuler).
+     * При угле Y, близком к ±90 градусам, поворот вокруг Z переносится в X
+     * @return вектор углов (x, y, z)
+     */
+    public Vector3f toEuler() {
+        double ww = w, xx = x, yy = y, zz = z;
+        // Нужные элементы матрицы поворота R = Rx * Ry * Rz
+        double m02 = 2 * (xx * zz + ww * yy);
+        double m12 = 2 * (yy * zz - ww * xx);
+        double m22 = 1 - 2 * (xx * xx + yy * yy);
+        double m01 = 2 * (xx * yy - ww * zz);
+        double m00 = 1 - 2 * (yy * yy + zz * zz);
+        double sinY = Math.max(-1, Math.min(1, m02));
+        double ry = Math.asin(sinY);
+        double rx;
+        double rz;
+        if (Math.abs(sinY) < 1 - 1e-6) {
+            rx = Math.atan2(-m12, m22);
+            rz = Math.atan2(-m01, m00);
+        } else {
+            double m21 = 2 * (yy * zz + ww * xx);
+            double m11 = 1 - 2 * (xx * xx + zz * zz);
+            rx = Math.atan2(m21, m11);
+            rz = 0;
+        }
+        return new Vector3f((float) Math.toDegrees(rx), (float) Math.toDegrees(ry), (float) Math.toDegrees(rz));
+    }
+
+    // Матрица поворота 4x4
+    public Matrix4f toMatrix() {
+        return new Matrix4f().setRotation(this);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        Quaternion other = (Quaternion) obj;
+        return Math.abs(w - other.w) < EPSILON &&
+               Math.abs(x - other.x) < EPSILON &&
+               Math.abs(y - other.y) < EPSILON &&
+               Math.abs(z - other.z) < EPSILON;
+    }
+
+    // equals сравнивает с допуском EPSILON, поэтому почти равные кватернионы
+    // могут отличаться в любом бите; согласованным с ним остается только постоянный хеш
+    @Override
+    public int hashCode() {
+        return Quaternion.class.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Quaternion(%.4f, %.4f, %.4f, %.4f)", w, x, y, z);
+    }
+}
@@ -4,84 +4,273 @@ package com.cgvsu.math;
 /*
  * Класс для управления аффинными преобразованиями.
  * Обеспечивает правильный порядок преобразований для векторов-столбцов.
+ * Хранит компоненты: перенос T, поворот R в виде единичного кватерниона и масштаб S,
+ * а также матрицу A, в которую попадают преобразования из apply*. Итоговая матрица M = T * R * S * A.
+ * Поворот можно задать углами Эйлера (R = Rx * Ry * Rz, в градусах) или кватернионом;
+ * T * R * S строится за один проход без перемножения матриц отдельных осей.
+ * M, обратная к ней матрица и матрица нормалей строятся при первом обращении после изменения,
+ * поэтому преобразование N нормалей требует одного обращения матрицы, а не N.
  */
 public class Transformation {
-    private Matrix4f transformationMatrix;
-    
+    // Компоненты
+    private float translationX, translationY, translationZ;
+    private Quaternion orientation = Quaternion.IDENTITY;
+    // Углы Эйлера в том виде, в каком их задали; null, если поворот задан кватернионом
+    private Vector3f eulerDegrees = new Vector3f(0, 0, 0);
+    private float scaleX = 1, scaleY = 1, scaleZ = 1;
+    // Преобразования, заданные через apply*, применяются до S
+    private final Matrix4f applied = Matrix4f.identity();
+
+    // Производные матрицы и признаки их актуальности
+    private final Matrix4f composite = Matrix4f.identity();
+    private final Matrix4f inverse = Matrix4f.identity();
+    private Matrix3f normalMatrix;
+    private boolean compositeValid = true;
+    private boolean inverseValid = true;
+
+    // Рабочая матрица очередного шага, чтобы не создавать новую
+    private final Matrix4f step = new Matrix4f();
+
     public Transformation() {
-        transformationMatrix = Matrix4f.identity();
     }
-    
+
+    // Компоненты TRS
+
+    public void setTranslation(float tx, float ty, float tz) {
+        translationX = tx;
+        translationY = ty;
+        translationZ = tz;
+        invalidate();
+    }
+
+    // Углы поворота вокруг осей X, Y, Z в градусах
+    public void setRotation(float xDeg, float yDeg, float zDeg) {
+        orientation = Quaternion.fromEuler(xDeg, yDeg, zDeg);
+        eulerDegrees = new Vector3f(xDeg, yDeg, zDeg);
+        invalidate();
+    }
+
+    // Поворот, заданный кватернионом (нормализуется)
+    public void setOrientation(Quaternion rotation) {
+        orientation = rotation.normalize();
+        eulerDegrees = null;
+        invalidate();
+    }
+
+    public Quaternion getOrientation() {
+        return orientation;
+    }
+
+    // Дополнительный поворот в мировых осях: R' = rotation * R
+    public void rotate(Quaternion rotation) {
+        setOrientation(rotation.multiply(orientation));
+    }
+
+    public void setScale(float sx, float sy, float sz) {
+        scaleX = sx;
+        scaleY = sy;
+        scaleZ = sz;
+        invalidate();
+    }
+
+    /**
+     * Заменяет преобразование целиком: M = T * R * S, матрица apply* сбрасывается
+     * @param translation перенос
+     * @param rotationDegrees углы Эйлера в градусах
+     * @param scale масштаб по осям
+     */
+    public void set(Vector3f translation, Vector3f rotationDegrees, Vector3f scale) {
+        translationX = translation.getX();
+        translationY = translation.getY();
+        translationZ = translation.getZ();
+        orientation = Quaternion.fromEuler(rotationDegrees.getX(), rotationDegrees.getY(), rotationDegrees.getZ());
+        eulerDegrees = new Vector3f(rotationDegrees.getX(), rotationDegrees.getY(), rotationDegrees.getZ());
+        scaleX = scale.getX();
+        scaleY = scale.getY();
+        scaleZ = scale.getZ();
+        applied.setIdentity();
+        invalidate();
+    }
+
+    public Vector3f getTranslation() {
+        return new Vector3f(translationX, translationY, translationZ);
+    }
+
+    // Углы Эйлера в градусах; для поворота, заданного кватернионом, вычисляются из него
+    public Vector3f getRotation() {
+        if (eulerDegrees == null) {
+            eulerDegrees = orientation.toEuler();
+        }
+        return new Vector3f(eulerDegrees.getX(), eulerDegrees.getY(), eulerDegrees.getZ());
+    }
+
+    public Vector3f getScale() {
+        return new Vector3f(scaleX, scaleY, scaleZ);
+    }
+
     // Применение преобразований в правильном порядке для векторов-столбцов
     // Порядок: M = Translation * Rotation * Scaling
     public void applyTranslation(float tx, float ty, float tz) {
-        Matrix4f translation = Matrix4f.translation(tx, ty, tz);
-        // Для векторов-столбцов новые преобразования умножаются слева
-        transformationMatrix = translation.mul(transformationMatrix);
+        // Для векторов-столбцов новые преобразования умножаются слева: T' * T = перенос на сумму
+        setTranslation(translationX + tx, translationY + ty, translationZ + tz);
     }
-    
+
     public void applyScaling(float sx, float sy, float sz) {
-        Matrix4f scaling = Matrix4f.scaling(sx, sy, sz);
         // Масштабирование применяется первым (умножается справа)
-        transformationMatrix = transformationMatrix.mul(scaling);
+        step.setScaling(sx, sy, sz);
+        applied.mulInto(step, applied);
+        invalidate();
     }
-    
+
     public void applyRotationX(float angleDegrees) {
-        Matrix4f rotation = Matrix4f.rotationX(angleDegrees);
         // Вращение применяется после масштабирования, но до переноса
-        transformationMatrix = transformationMatrix.mul(rotation);
+        step.setRotationX(angleDegrees);
+        applied.mulInto(step, applied);
+        invalidate();
     }
-    
+
     public void applyRotationY(float angleDegrees) {
-        Matrix4f rotation = Matrix4f.rotationY(angleDegrees);
-        transformationMatrix = transformationMatrix.mul(rotation);
+        step.setRotationY(angleDegrees);
+        applied.mulInto(step, applied);
+        invalidate();
     }
-    
+
     public void applyRotationZ(float angleDegrees) {
-        Matrix4f rotation = Matrix4f.rotationZ(angleDegrees);
-        transformationMatrix = transformationMatrix.mul(rotation);
+        step.setRotationZ(angleDegrees);
+        applied.mulInto(step, applied);
+        invalidate();
     }
-    
+
     // Комбинированное вращение по осям XYZ (в градусах)
+    // Одна матрица из кватерниона вместо трех последовательных умножений
     public void applyRotation(float xDeg, float yDeg, float zDeg) {
-        applyRotationX(xDeg);
-        applyRotationY(yDeg);
-        applyRotationZ(zDeg);
+        applyRotation(Quaternion.fromEuler(xDeg, yDeg, zDeg));
     }
-    
-    // Применение произвольной матрицы преобразования
+
+    public void applyRotation(Quaternion rotation) {
+        step.setRotation(rotation.normalize());
+        applied.mulInto(step, applied);
+        invalidate();
+    }
+
+    // Применение произвольной матрицы преобразования (умножается слева)
     public void applyTransformation(Matrix4f matrix) {
-        transformationMatrix = matrix.mul(transformationMatrix);
+        bakeLeft(matrix);
+    }
+
+    // Умножение слева на произвольную матрицу не выражается через компоненты:
+    // итоговая матрица переносится в A, компоненты становятся единичными
+    private void bakeLeft(Matrix4f matrix) {
+        matrix.mulInto(getComposite(), applied);
+        translationX = translationY = translationZ = 0;
+        orientation = Quaternion.IDENTITY;
+        eulerDegrees = new Vector3f(0, 0, 0);
+        scaleX = scaleY = scaleZ = 1;
+        invalidate();
+    }
+
+    private void invalidate() {
+        compositeValid = false;
+        inverseValid = false;
+        normalMatrix = null;
     }
-    
+
+    // Итоговая матрица M = T * R * S * A
+    private Matrix4f getComposite() {
+        if (!compositeValid) {
+            composite.setTranslationRotationScale(translationX, translationY, translationZ, orientation,
+                    scaleX, scaleY, scaleZ);
+            composite.mulInto(applied, composite);
+            compositeValid = true;
+        }
+        return composite;
+    }
+
+    private Matrix4f getInverse() {
+        if (!inverseValid) {
+            getComposite().invertInto(inverse);
+            inverseValid = true;
+        }
+        return inverse;
+    }
+
+    private Matrix3f getNormalMatrix() {
+        if (normalMatrix == null) {
+            normalMatrix = Matrix3f.normalMatrix(getComposite());
+        }
+        return normalMatrix;
+    }
+
     // Преобразование вектора
     public Vector3f transform(Vector3f vector) {
-        return transformationMatrix.mul(vector);
+        return getComposite().mul(vector);
     }
-    
+
+    // Преобразование count точек из src в dst (по три координаты) без создания объектов
+    public void transformInto(float[] src, float[] dst, int offset, int count) {
+        getComposite().transformInto(src, dst, offset, count);
+    }
+
+    // Обратное преобразование точки (например, из мировых координат в координаты модели)
+    public Vector3f inverseTransform(Vector3f vector) {
+        return getInverse().mul(vector);
+    }
+
     // Преобразование нормали (использует специальную матрицу для нормалей)
     public Vector3f transformNormal(Vector3f normal) {
-        Matrix3f normalMat = Matrix3f.normalMatrix(transformationMatrix);
-        return normalMat.mul(normal);
+        return getNormalMatrix().mul(normal);
     }
-    
+
+    // Преобразование count нормалей из src в dst без создания объектов
+    public void transformNormalsInto(float[] src, float[] dst, int offset, int count) {
+        if (count == 0) {
+            return;
+        }
+        getNormalMatrix().transformInto(src, dst, offset, count);
+    }
+
     // Получение текущей матрицы преобразования
     public Matrix4f getMatrix() {
-        return new Matrix4f(transformationMatrix);
+        return new Matrix4f(getComposite());
     }
-    
+
+    // Получение обратной матрицы; для вырожденного преобразования (нулевой масштаб) - ArithmeticException
+    public Matrix4f getInverseMatrix() {
+        return new Matrix4f(getInverse());
+    }
+
+    /**
+     * Заменяет компоненты промежуточным значением между from и to: перенос и масштаб
+     * интерполируются линейно, поворот - по кратчайшей дуге (slerp). Матрица apply* сбрасывается,
+     * преобразования из apply* у from и to не учитываются
+     * @param t 0 - from, 1 - to
+     */
+    public void interpolate(Transformation from, Transformation to, float t) {
+        float s = 1 - t;
+        translationX = from.translationX * s + to.translationX * t;
+        translationY = from.translationY * s + to.translationY * t;
+        translationZ = from.translationZ * s + to.translationZ * t;
+        scaleX = from.scaleX * s + to.scaleX * t;
+        scaleY = from.scaleY * s + to.scaleY * t;
+        scaleZ = from.scaleZ * s + to.scaleZ * t;
+        orientation = Quaternion.slerp(from.orientation, to.orientation, t);
+        eulerDegrees = null;
+        applied.setIdentity();
+        invalidate();
+    }
+
     // Сброс к единичной матрице
     public void reset() {
-        transformationMatrix = Matrix4f.identity();
+        set(new Vector3f(0, 0, 0), new Vector3f(0, 0, 0), new Vector3f(1, 1, 1));
     }
-    
+
     // Комбинирование преобразований (умножение матриц)
     public void combine(Transformation other) {
-        transformationMatrix = other.transformationMatrix.mul(transformationMatrix);
+        bakeLeft(other.getComposite());
     }
-    
+
     @Override
     public String toString() {
-        return transformationMatrix.toString();
+        return getComposite().toString();
     }
 }
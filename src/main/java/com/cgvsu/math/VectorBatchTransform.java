@@ -0,0 +1,54 @@
+package com.cgvsu.math;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Векторная часть BatchTransform. Класс загружается только если модуль jdk.incubator.vector
+ * есть при запуске, поэтому без него приложение работает через обычный цикл.
+ */
+final class VectorBatchTransform {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private VectorBatchTransform() {
+    }
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    /**
+     * Обрабатывает вершины полными векторами
+     * @return количество обработанных вершин; остальные обрабатываются обычным циклом
+     */
+    static int toScreen(float[] m, float[] xs, float[] ys, float[] zs, int count,
+                        int width, int height, float[] screenX, float[] screenY) {
+        final int bound = SPECIES.loopBound(count);
+        final FloatVector widthVector = FloatVector.broadcast(SPECIES, (float) width);
+        final FloatVector heightVector = FloatVector.broadcast(SPECIES, (float) -height);
+        final FloatVector halfWidth = FloatVector.broadcast(SPECIES, width / 2.0F);
+        final FloatVector halfHeight = FloatVector.broadcast(SPECIES, height / 2.0F);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(SPECIES, xs, i);
+            FloatVector y = FloatVector.fromArray(SPECIES, ys, i);
+            FloatVector z = FloatVector.fromArray(SPECIES, zs, i);
+            FloatVector w = row(m, 12, x, y, z);
+            FloatVector sx = row(m, 0, x, y, z).div(w);
+            FloatVector sy = row(m, 4, x, y, z).div(w);
+            // Без fma, чтобы результат совпадал с обычным циклом до бита
+            sx.mul(widthVector).add(halfWidth).intoArray(screenX, i);
+            sy.mul(heightVector).add(halfHeight).intoArray(screenY, i);
+        }
+        return bound;
+    }
+
+    // m[row] x + m[row + 1] y + m[row + 2] z + m[row + 3]
+    private static FloatVector row(float[] m, int row, FloatVector x, FloatVector y, FloatVector z) {
+        return x.mul(m[row])
+                .lanewise(VectorOperators.ADD, y.mul(m[row + 1]))
+                .lanewise(VectorOperators.ADD, z.mul(m[row + 2]))
+                .add(m[row + 3]);
+    }
+}
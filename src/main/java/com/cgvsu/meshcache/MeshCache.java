@@ -0,0 +1,206 @@
+package com.cgvsu.meshcache;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.OffHeapMesh;
+import com.cgvsu.objreader.ObjGroupIndex;
+import com.cgvsu.objreader.ObjReadListener;
+import com.cgvsu.objreader.ObjReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Загрузка OBJ-файла через бинарный кэш, который лежит рядом с исходным файлом (model.obj.cgmesh).
+ * Кэш привязан к пути, размеру и времени изменения исходного файла: если любое из них изменилось,
+ * файл разбирается заново, а кэш перезаписывается.
+ */
+public class MeshCache {
+
+    public static final String SIDECAR_EXTENSION = ".cgmesh";
+    public static final String GROUP_INDEX_EXTENSION = ".cggroups";
+
+    private static final Logger log = LoggerFactory.getLogger(MeshCache.class);
+
+    private MeshCache() {
+    }
+
+    public static Model load(Path objFile) throws IOException {
+        return load(objFile, null);
+    }
+
+    /**
+     * Загрузка с наблюдателем за разбором текста. Если кэш актуален, наблюдатель не вызывается.
+     * С наблюдателем файл читается последовательно, чтобы модель дополнялась в порядке файла,
+     * без наблюдателя (null) - параллельно на всех ядрах.
+     */
+    public static Model load(Path objFile, ObjReadListener listener) throws IOException {
+        return load(objFile, listener, listener == null);
+    }
+
+    /**
+     * Параллельная загрузка с наблюдателем, который может прервать чтение (см. ObjReader.readParallel).
+     * Частично прочитанная модель наблюдателю не передается
+     */
+    public static Model loadParallel(Path objFile, ObjReadListener listener) throws IOException {
+        return load(objFile, listener, true);
+    }
+
+    private static Model load(Path objFile, ObjReadListener listener, boolean parallel) throws IOException {
+        Path source = objFile.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        Path cacheFile = sidecarPath(source);
+
+        if (Files.isRegularFile(cacheFile)) {
+            try {
+                Model cached = MeshCacheReader.read(cacheFile, source.toString(), size, modified);
+                if (cached != null) {
+                    log.info("MESH_CACHE_HIT: {}", cacheFile);
+                    return cached;
+                }
+            } catch (IOException e) {
+                log.warn("MESH_CACHE_READ_FAILED: {}, {}", cacheFile, e.getMessage());
+            }
+        }
+
+        GroupCapture capture = new GroupCapture(listener);
+        Model model = parallel ? ObjReader.readParallel(source, capture) : ObjReader.read(source, capture);
+        capture.write(source, size, modified);
+        if (!MeshCacheWriter.canWrite(model)) {
+            log.info("MESH_CACHE_SKIPPED: {}, model has null elements", cacheFile);
+            return model;
+        }
+        try {
+            MeshCacheWriter.write(model, cacheFile, source.toString(), size, modified);
+            log.info("MESH_CACHE_WRITTEN: {}", cacheFile);
+        } catch (IOException e) {
+            // Без кэша модель все равно загружена, например, если каталог только для чтения
+            log.warn("MESH_CACHE_WRITE_FAILED: {}, {}", cacheFile, e.getMessage());
+        }
+        return model;
+    }
+
+    /**
+     * Геометрия модели вне кучи: секции кэша отображаются в память без копирования.
+     * Если кэша нет или он устарел, файл один раз читается в кучу и по нему строится кэш.
+     * Возвращенную модель нужно закрыть после использования.
+     */
+    public static OffHeapMesh map(Path objFile) throws IOException {
+        Path source = objFile.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        Path cacheFile = sidecarPath(source);
+        String name = source.getFileName().toString();
+
+        if (Files.isRegularFile(cacheFile)) {
+            try {
+                OffHeapMesh mapped = MeshCacheReader.map(cacheFile, name, source.toString(), size, modified);
+                if (mapped != null) {
+                    log.info("MESH_CACHE_MAPPED: {}", cacheFile);
+                    return mapped;
+                }
+            } catch (IOException e) {
+                log.warn("MESH_CACHE_READ_FAILED: {}, {}", cacheFile, e.getMessage());
+            }
+        }
+
+        GroupCapture capture = new GroupCapture(null);
+        Model model = ObjReader.readParallel(source, capture);
+        capture.write(source, size, modified);
+        if (!MeshCacheWriter.canWrite(model)) {
+            log.info("MESH_CACHE_SKIPPED: {}, model has null elements", cacheFile);
+            return OffHeapMesh.allocate(model);
+        }
+        try {
+            MeshCacheWriter.write(model, cacheFile, source.toString(), size, modified);
+            log.info("MESH_CACHE_WRITTEN: {}", cacheFile);
+        } catch (IOException e) {
+            // Без кэша отображать нечего, модель копируется в прямые буферы
+            log.warn("MESH_CACHE_WRITE_FAILED: {}, {}", cacheFile, e.getMessage());
+            return OffHeapMesh.allocate(model);
+        }
+        OffHeapMesh mapped = MeshCacheReader.map(cacheFile, name, source.toString(), size, modified);
+        return mapped != null ? mapped : OffHeapMesh.allocate(model);
+    }
+
+    /**
+     * Сохраненный рядом индекс групп o/g для загрузки по частям. Индекс записывается при разборе
+     * текста в load() и map(), если в файле больше одной группы; текст здесь не читается
+     * @param objFile несжатый OBJ-файл
+     * @return индекс групп или null, если актуального индекса нет
+     * @throws IOException
+     */
+    public static ObjGroupIndex cachedGroups(Path objFile) throws IOException {
+        Path source = objFile.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        Path groupsFile = groupIndexPath(source);
+        if (!Files.isRegularFile(groupsFile)) {
+            return null;
+        }
+        try {
+            ObjGroupIndex cached = MeshCacheReader.readGroups(groupsFile, source, attributes.size(),
+                    attributes.lastModifiedTime().toMillis());
+            if (cached != null) {
+                log.info("MESH_CACHE_GROUPS_HIT: {}", groupsFile);
+            }
+            return cached;
+        } catch (IOException e) {
+            log.warn("MESH_CACHE_READ_FAILED: {}, {}", groupsFile, e.getMessage());
+            return null;
+        }
+    }
+
+    public static Path groupIndexPath(Path objFile) {
+        return objFile.resolveSibling(objFile.getFileName() + GROUP_INDEX_EXTENSION);
+    }
+
+    public static Path sidecarPath(Path objFile) {
+        return objFile.resolveSibling(objFile.getFileName() + SIDECAR_EXTENSION);
+    }
+
+    // Передает события разбора дальше и запоминает индекс групп, построенный при том же разборе
+    private static final class GroupCapture implements ObjReadListener {
+
+        private final ObjReadListener listener;
+        private ObjGroupIndex index;
+
+        GroupCapture(ObjReadListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onProgress(Model partial, long bytesRead) {
+            if (listener != null) {
+                listener.onProgress(partial, bytesRead);
+            }
+        }
+
+        @Override
+        public void onGroups(ObjGroupIndex index) {
+            this.index = index;
+            if (listener != null) {
+                listener.onGroups(index);
+            }
+        }
+
+        // Индекс сохраняется рядом, только если файл делится на несколько групп
+        void write(Path source, long size, long modified) {
+            if (index == null || index.getGroupCount() < 2) {
+                return;
+            }
+            Path groupsFile = groupIndexPath(source);
+            try {
+                MeshCacheWriter.writeGroups(index, groupsFile, source.toString(), size, modified);
+                log.info("MESH_CACHE_WRITTEN: {}", groupsFile);
+            } catch (IOException e) {
+                log.warn("MESH_CACHE_WRITE_FAILED: {}, {}", groupsFile, e.getMessage());
+            }
+        }
+    }
+}
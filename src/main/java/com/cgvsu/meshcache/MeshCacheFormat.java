@@ -0,0 +1,32 @@
+package com.cgvsu.meshcache;
+
+import java.nio.ByteOrder;
+
+/**
+ * Формат бинарного кэша модели.
+ *
+ * Заголовок: сигнатура, версия, ключ исходного файла (размер, время изменения, путь)
+ * и количества элементов. Затем подряд идут секции:
+ * вершины (3 float), текстурные вершины (2 float), нормали (3 float),
+ * смещения полигонов в массивах индексов вершин, текстур и нормалей (по polygonCount + 1 int)
+ * и сами массивы индексов. Все числа записаны в порядке little-endian.
+ *
+ * Индекс групп o/g хранится в отдельном файле рядом (model.obj.cggroups): сигнатура, версия,
+ * тот же ключ исходного файла и данные ObjGroupIndex.write. Этот файл небольшой
+ * и пишется через DataOutputStream (big-endian).
+ */
+final class MeshCacheFormat {
+
+    static final int MAGIC = 0x434D4743; // "CGMC"
+    static final int VERSION = 1;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int GROUPS_MAGIC = 0x49474743; // "CGGI"
+    static final int GROUPS_VERSION = 1;
+
+    // Количество int-полей со счетчиками после ключа
+    static final int COUNT_FIELDS = 7;
+
+    private MeshCacheFormat() {
+    }
+}
@@ -0,0 +1,293 @@
+package com.cgvsu.meshcache;
+
+import com.cgvsu.model.IndexList;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.OffHeapMesh;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ObjGroupIndex;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Чтение модели из бинарного кэша. Секции массивов отображаются в память
+ * и копируются в массивы одним вызовом, без разбора текста.
+ */
+public class MeshCacheReader {
+
+    private MeshCacheReader() {
+    }
+
+    /**
+     * Читает кэш, если он построен для указанного исходного файла.
+     *
+     * @return модель или null, если кэш устарел, построен для другого файла или другой версией формата
+     * @throws IOException если файл кэша не читается или поврежден
+     */
+    public static Model read(Path cacheFile, String sourcePath, long sourceSize, long sourceModified)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            Layout layout = readLayout(channel, cacheFile, sourcePath, sourceSize, sourceModified);
+            if (layout == null) {
+                return null;
+            }
+
+            Sections sections = new Sections(channel, layout.position);
+            float[] vertices = sections.floats(3 * layout.vertexCount);
+            float[] textures = sections.floats(2 * layout.textureCount);
+            float[] normals = sections.floats(3 * layout.normalCount);
+            int[] vertexOffsets = sections.ints(layout.polygonCount + 1);
+            int[] textureOffsets = sections.ints(layout.polygonCount + 1);
+            int[] normalOffsets = sections.ints(layout.polygonCount + 1);
+            int[] vertexIndices = sections.ints(layout.vertexIndexCount);
+            int[] textureIndices = sections.ints(layout.textureIndexCount);
+            int[] normalIndices = sections.ints(layout.normalIndexCount);
+            checkPolygons(cacheFile, IntBuffer.wrap(vertexOffsets), IntBuffer.wrap(vertexIndices), layout.vertexCount);
+            checkPolygons(cacheFile, IntBuffer.wrap(textureOffsets), IntBuffer.wrap(textureIndices), layout.textureCount);
+            checkPolygons(cacheFile, IntBuffer.wrap(normalOffsets), IntBuffer.wrap(normalIndices), layout.normalCount);
+
+            // Массивы координат передаются в модель без создания объектов векторов
+            Model model = new Model();
+            model.getVertices().setCoordinates(vertices, layout.vertexCount);
+            model.getTextureVertices().setCoordinates(textures, layout.textureCount);
+            model.getNormals().setCoordinates(normals, layout.normalCount);
+
+            model.getPolygons().ensureCapacity(layout.polygonCount);
+            for (int i = 0; i < layout.polygonCount; i++) {
+                model.getPolygons().add(new Polygon(
+                        slice(vertexIndices, vertexOffsets[i], vertexOffsets[i + 1]),
+                        slice(textureIndices, textureOffsets[i], textureOffsets[i + 1]),
+                        slice(normalIndices, normalOffsets[i], normalOffsets[i + 1])));
+            }
+            return model;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Mesh cache is corrupted: " + cacheFile, e);
+        }
+    }
+
+    /**
+     * Проверяет, построен ли кэш для указанного исходного файла, не читая секции
+     * @return true, если кэш актуален
+     * @throws IOException если файл кэша не читается или поврежден
+     */
+    public static boolean isCurrent(Path cacheFile, String sourcePath, long sourceSize, long sourceModified)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            return readLayout(channel, cacheFile, sourcePath, sourceSize, sourceModified) != null;
+        }
+    }
+
+    /**
+     * Читает индекс групп o/g, если он построен для указанного исходного файла
+     * @param source исходный файл, для которого будут загружаться группы
+     * @return индекс или null, если файл индекса устарел или записан другой версией формата
+     * @throws IOException если файл индекса не читается или поврежден
+     */
+    public static ObjGroupIndex readGroups(Path groupsFile, Path source, long sourceSize, long sourceModified)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(groupsFile)))) {
+            if (in.readInt() != MeshCacheFormat.GROUPS_MAGIC || in.readInt() != MeshCacheFormat.GROUPS_VERSION
+                    || in.readLong() != sourceSize || in.readLong() != sourceModified
+                    || !source.toString().equals(in.readUTF())) {
+                return null;
+            }
+            ObjGroupIndex index = ObjGroupIndex.read(source, in);
+            if (in.read() >= 0) {
+                throw new IOException("Group index is corrupted: " + groupsFile);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Отображает секции кэша в память без копирования в кучу.
+     * Отображение остается действительным после закрытия файла, пока на буферы есть ссылки.
+     *
+     * @return геометрия вне кучи или null, если кэш устарел, построен для другого файла или другой версией формата
+     * @throws IOException если файл кэша не читается или поврежден
+     */
+    public static OffHeapMesh map(Path cacheFile, String name, String sourcePath, long sourceSize, long sourceModified)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            Layout layout = readLayout(channel, cacheFile, sourcePath, sourceSize, sourceModified);
+            if (layout == null) {
+                return null;
+            }
+            // Секции отображаются в порядке записи: координаты, смещения, индексы
+            Sections sections = new Sections(channel, layout.position);
+            FloatBuffer vertices = sections.map(3 * layout.vertexCount).asFloatBuffer();
+            FloatBuffer textures = sections.map(2 * layout.textureCount).asFloatBuffer();
+            FloatBuffer normals = sections.map(3 * layout.normalCount).asFloatBuffer();
+            IntBuffer vertexOffsets = sections.map(layout.polygonCount + 1).asIntBuffer();
+            IntBuffer textureOffsets = sections.map(layout.polygonCount + 1).asIntBuffer();
+            IntBuffer normalOffsets = sections.map(layout.polygonCount + 1).asIntBuffer();
+            IntBuffer vertexIndices = sections.map(layout.vertexIndexCount).asIntBuffer();
+            IntBuffer textureIndices = sections.map(layout.textureIndexCount).asIntBuffer();
+            IntBuffer normalIndices = sections.map(layout.normalIndexCount).asIntBuffer();
+            checkPolygons(cacheFile, vertexOffsets, vertexIndices, layout.vertexCount);
+            checkPolygons(cacheFile, textureOffsets, textureIndices, layout.textureCount);
+            checkPolygons(cacheFile, normalOffsets, normalIndices, layout.normalCount);
+            return OffHeapMesh.wrap(name, vertices, textures, normals,
+                    vertexOffsets, vertexIndices, textureOffsets, textureIndices, normalOffsets, normalIndices);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Mesh cache is corrupted: " + cacheFile, e);
+        }
+    }
+
+    /**
+     * Проверяет, что смещения начинаются с нуля, не убывают и заканчиваются длиной массива индексов,
+     * а каждый индекс указывает на существующий элемент. Поврежденный кэш не должен давать модель
+     * с индексами за пределами массивов
+     */
+    private static void checkPolygons(Path cacheFile, IntBuffer offsets, IntBuffer indices, int elementCount)
+            throws IOException {
+        int previous = 0;
+        for (int i = 0; i < offsets.limit(); i++) {
+            int offset = offsets.get(i);
+            if (offset < previous || (i == 0 && offset != 0)) {
+                throw new IOException("Mesh cache is corrupted: " + cacheFile + ", bad polygon offset " + i);
+            }
+            previous = offset;
+        }
+        if (previous != indices.limit()) {
+            throw new IOException("Mesh cache is corrupted: " + cacheFile + ", polygon offsets do not match indices");
+        }
+        for (int i = 0; i < indices.limit(); i++) {
+            int index = indices.get(i);
+            if (index < 0 || index >= elementCount) {
+                throw new IOException("Mesh cache is corrupted: " + cacheFile + ", index out of range " + index);
+            }
+        }
+    }
+
+    // Количества элементов и начало секций
+    private static final class Layout {
+        long position;
+        int vertexCount;
+        int textureCount;
+        int normalCount;
+        int polygonCount;
+        int vertexIndexCount;
+        int textureIndexCount;
+        int normalIndexCount;
+    }
+
+    private static Layout readLayout(FileChannel channel, Path cacheFile, String sourcePath,
+                                     long sourceSize, long sourceModified) throws IOException {
+        ByteBuffer head = readFully(channel, 0, 2 * Integer.BYTES + 2 * Long.BYTES + Integer.BYTES);
+        if (head.getInt() != MeshCacheFormat.MAGIC || head.getInt() != MeshCacheFormat.VERSION) {
+            return null;
+        }
+        if (head.getLong() != sourceSize || head.getLong() != sourceModified) {
+            return null;
+        }
+        int pathLength = head.getInt();
+        long position = head.limit();
+        if (pathLength < 0 || pathLength > channel.size() - position) {
+            throw new IOException("Mesh cache is corrupted: " + cacheFile + ", bad path length " + pathLength);
+        }
+        byte[] path = new byte[pathLength];
+        readFully(channel, position, pathLength).get(path);
+        position += pathLength;
+        if (!sourcePath.equals(new String(path, StandardCharsets.UTF_8))) {
+            return null;
+        }
+
+        ByteBuffer counts = readFully(channel, position, MeshCacheFormat.COUNT_FIELDS * Integer.BYTES);
+        Layout layout = new Layout();
+        layout.position = position + counts.limit();
+        layout.vertexCount = counts.getInt();
+        layout.textureCount = counts.getInt();
+        layout.normalCount = counts.getInt();
+        layout.polygonCount = counts.getInt();
+        layout.vertexIndexCount = counts.getInt();
+        layout.textureIndexCount = counts.getInt();
+        layout.normalIndexCount = counts.getInt();
+
+        // Количества проверяются до выделения массивов: отрицательное или слишком большое значение
+        // означает поврежденный файл, а не повод для NegativeArraySizeException или OutOfMemoryError
+        long expectedSize = layout.position
+                + Float.BYTES * (3L * layout.vertexCount + 2L * layout.textureCount + 3L * layout.normalCount)
+                + Integer.BYTES * (3L * (layout.polygonCount + 1L)
+                + layout.vertexIndexCount + layout.textureIndexCount + layout.normalIndexCount);
+        if (layout.vertexCount < 0 || layout.textureCount < 0 || layout.normalCount < 0 || layout.polygonCount < 0
+                || layout.vertexIndexCount < 0 || layout.textureIndexCount < 0 || layout.normalIndexCount < 0
+                || layout.polygonCount == Integer.MAX_VALUE || expectedSize != channel.size()) {
+            throw new IOException("Mesh cache is corrupted: " + cacheFile);
+        }
+        return layout;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(MeshCacheFormat.ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of mesh cache");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // Последовательное чтение секций через отображение файла в память
+    private static final class Sections {
+        private final FileChannel channel;
+        private long position;
+
+        Sections(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        float[] floats(int count) throws IOException {
+            checkCount(count);
+            float[] values = new float[count];
+            if (count > 0) {
+                map(count).asFloatBuffer().get(values);
+            }
+            return values;
+        }
+
+        int[] ints(int count) throws IOException {
+            checkCount(count);
+            int[] values = new int[count];
+            if (count > 0) {
+                map(count).asIntBuffer().get(values);
+            }
+            return values;
+        }
+
+        // Секция из count чисел по 4 байта
+        ByteBuffer map(int count) throws IOException {
+            checkCount(count);
+            long length = 4L * count;
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Mesh cache section is too large to map: " + length + " bytes");
+            }
+            ByteBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(MeshCacheFormat.ORDER);
+            position += length;
+            return section;
+        }
+
+        // Секция должна целиком лежать в файле
+        private void checkCount(int count) throws IOException {
+            if (count < 0 || 4L * count > channel.size() - position) {
+                throw new IOException("Mesh cache section is out of file bounds: " + count + " values at " + position);
+            }
+        }
+    }
+
+    private static IndexList slice(int[] indices, int from, int to) {
+        return IndexList.wrap(Arrays.copyOfRange(indices, from, to), to - from);
+    }
+}
@@ -0,0 +1,196 @@
+package com.cgvsu.meshcache;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PackedPolygons;
+import com.cgvsu.objreader.ObjGroupIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Запись модели в бинарный кэш. Файл сначала пишется во временный файл рядом
+ * и только потом переименовывается, поэтому недописанный кэш никогда не будет прочитан.
+ * Имя временного файла уникально, так что параллельные загрузки одного файла не мешают друг другу.
+ */
+public class MeshCacheWriter {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(MeshCacheFormat.ORDER);
+
+    private MeshCacheWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Можно ли сохранить модель в кэш. Формат хранит координаты подряд без отметок
+     * пустых элементов, поэтому списки с null в кэш не пишутся. Отсутствующий список
+     * текстурных координат или нормалей сохраняется как пустой
+     * @param model
+     * @return true, если кэш восстановит модель без потерь
+     */
+    public static boolean canWrite(Model model) {
+        return model != null && model.getVertices() != null && !model.getVertices().hasNulls()
+                && (model.getTextureVertices() == null || !model.getTextureVertices().hasNulls())
+                && (model.getNormals() == null || !model.getNormals().hasNulls());
+    }
+
+    public static void write(Model model, Path cacheFile, String sourcePath, long sourceSize, long sourceModified)
+            throws IOException {
+        if (model == null) {
+            throw new IllegalArgumentException("Model cannot be null");
+        }
+        if (!canWrite(model)) {
+            throw new IllegalArgumentException("Model with null vertices cannot be cached");
+        }
+        Path temp = createTemp(cacheFile);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            MeshCacheWriter writer = new MeshCacheWriter(channel);
+            PackedPolygons polygons = model.packPolygons();
+            writer.writeHeader(model, polygons, sourcePath, sourceSize, sourceModified);
+            writer.writeSections(model, polygons);
+            writer.flush();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        replace(temp, cacheFile);
+    }
+
+    /**
+     * Запись индекса групп o/g исходного файла
+     * @param index
+     * @param groupsFile
+     * @param sourcePath
+     * @param sourceSize
+     * @param sourceModified
+     * @throws IOException
+     */
+    public static void writeGroups(ObjGroupIndex index, Path groupsFile, String sourcePath, long sourceSize,
+                                   long sourceModified) throws IOException {
+        Path temp = createTemp(groupsFile);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MeshCacheFormat.GROUPS_MAGIC);
+            out.writeInt(MeshCacheFormat.GROUPS_VERSION);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceModified);
+            out.writeUTF(sourcePath);
+            index.write(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        replace(temp, groupsFile);
+    }
+
+    // Временный файл в том же каталоге, чтобы переименование оставалось атомарным
+    private static Path createTemp(Path target) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        return Files.createTempFile(absolute.getParent(), absolute.getFileName() + ".", ".tmp");
+    }
+
+    // Готовый временный файл заменяет кэш целиком
+    private static void replace(Path temp, Path cacheFile) throws IOException {
+        try {
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void writeHeader(Model model, PackedPolygons polygons, String sourcePath, long sourceSize,
+                             long sourceModified) throws IOException {
+        byte[] path = sourcePath.getBytes(StandardCharsets.UTF_8);
+        putInt(MeshCacheFormat.MAGIC);
+        putInt(MeshCacheFormat.VERSION);
+        putLong(sourceSize);
+        putLong(sourceModified);
+        putInt(path.length);
+        for (byte b : path) {
+            ensure(1);
+            buffer.put(b);
+        }
+
+        putInt(model.getVertices().size());
+        putInt(model.getTextureVertices() != null ? model.getTextureVertices().size() : 0);
+        putInt(model.getNormals() != null ? model.getNormals().size() : 0);
+        putInt(polygons.polygonCount());
+        putInt(polygons.vertexIndices.length);
+        putInt(polygons.textureIndices.length);
+        putInt(polygons.normalIndices.length);
+    }
+
+    // Секции пишутся прямо из упакованных массивов модели
+    private void writeSections(Model model, PackedPolygons polygons) throws IOException {
+        putFloats(model.getVertices().coordinates(), 3 * model.getVertices().size());
+        // Отсутствующий список пишется пустой секцией
+        if (model.getTextureVertices() != null) {
+            putFloats(model.getTextureVertices().coordinates(), 2 * model.getTextureVertices().size());
+        }
+        if (model.getNormals() != null) {
+            putFloats(model.getNormals().coordinates(), 3 * model.getNormals().size());
+        }
+        putInts(polygons.vertexOffsets);
+        putInts(polygons.textureOffsets);
+        putInts(polygons.normalOffsets);
+        putInts(polygons.vertexIndices);
+        putInts(polygons.textureIndices);
+        putInts(polygons.normalIndices);
+    }
+
+    private void putFloats(float[] values, int count) throws IOException {
+        int written = 0;
+        while (written < count) {
+            ensure(Float.BYTES);
+            int batch = Math.min(count - written, buffer.remaining() / Float.BYTES);
+            buffer.asFloatBuffer().put(values, written, batch);
+            buffer.position(buffer.position() + batch * Float.BYTES);
+            written += batch;
+        }
+    }
+
+    private void putInts(int[] values) throws IOException {
+        int written = 0;
+        while (written < values.length) {
+            ensure(Integer.BYTES);
+            int batch = Math.min(values.length - written, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, written, batch);
+            buffer.position(buffer.position() + batch * Integer.BYTES);
+            written += batch;
+        }
+    }
+
+    private void putInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    private void putLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
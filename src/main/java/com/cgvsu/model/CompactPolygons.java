@@ -0,0 +1,190 @@
+package com.cgvsu.model;
+
+import java.util.ArrayList;
+
+/**
+ * Индексы полигонов в компактном виде для долгого хранения больших моделей.
+ * Индексы хранятся в char[] (2 байта), если вершин, текстурных координат или нормалей меньше 65536,
+ * иначе в int[]. Если все полигоны имеют одинаковое число вершин (например, только треугольники
+ * или только четырехугольники) и каждый вид индексов есть либо у всех полигонов, либо ни у одного,
+ * смещения полигонов не хранятся: полигон p начинается с индекса p * getFixedArity().
+ * Снимок не связан с моделью и не изменяется; модель может хранить полигоны в этом виде (Model.compact).
+ */
+public final class CompactPolygons {
+
+    private final int polygonCount;
+    private final Channel vertices;
+    private final Channel textures;
+    private final Channel normals;
+
+    private CompactPolygons(int polygonCount, Channel vertices, Channel textures, Channel normals) {
+        this.polygonCount = polygonCount;
+        this.vertices = vertices;
+        this.textures = textures;
+        this.normals = normals;
+    }
+
+    /**
+     * @param packed индексы полигонов
+     * @param vertexCount количество вершин модели
+     * @param textureVertexCount количество текстурных координат
+     * @param normalCount количество нормалей
+     * @return
+     */
+    public static CompactPolygons of(PackedPolygons packed, int vertexCount, int textureVertexCount, int normalCount) {
+        return new CompactPolygons(packed.polygonCount(),
+                Channel.of(packed.vertexOffsets, packed.vertexIndices, vertexCount),
+                Channel.of(packed.textureOffsets, packed.textureIndices, textureVertexCount),
+                Channel.of(packed.normalOffsets, packed.normalIndices, normalCount));
+    }
+
+    public int polygonCount() {
+        return polygonCount;
+    }
+
+    /**
+     * Число вершин каждого полигона, если оно у всех одинаково, иначе 0
+     */
+    public int getFixedArity() {
+        boolean attributesFixed = textures.offsets == null && normals.offsets == null;
+        return attributesFixed && vertices.offsets == null ? vertices.arity : 0;
+    }
+
+    // Ширина индекса вершины в байтах: 2 или 4
+    public int getVertexIndexWidth() {
+        return vertices.indices.width();
+    }
+
+    // Память, занятая индексами и смещениями, в байтах
+    public long indexBytes() {
+        return vertices.bytes() + textures.bytes() + normals.bytes();
+    }
+
+    public int vertexCount(int polygon) {
+        return vertices.size(polygon);
+    }
+
+    public int vertexIndex(int polygon, int i) {
+        return vertices.get(polygon, i);
+    }
+
+    public int textureIndexCount(int polygon) {
+        return textures.size(polygon);
+    }
+
+    public int textureIndex(int polygon, int i) {
+        return textures.get(polygon, i);
+    }
+
+    public int normalIndexCount(int polygon) {
+        return normals.size(polygon);
+    }
+
+    public int normalIndex(int polygon, int i) {
+        return normals.get(polygon, i);
+    }
+
+    /**
+     * Разворачивает индексы обратно в массивы int
+     * @return
+     */
+    public PackedPolygons toPacked() {
+        return new PackedPolygons(vertices.offsets(polygonCount), vertices.ints(),
+                textures.offsets(polygonCount), textures.ints(),
+                normals.offsets(polygonCount), normals.ints());
+    }
+
+    /**
+     * Восстанавливает объекты полигонов, индексы каждого полигона копируются в свой массив int
+     * @return
+     */
+    ArrayList<Polygon> toPolygons() {
+        ArrayList<Polygon> result = new ArrayList<>(polygonCount);
+        for (int p = 0; p < polygonCount; p++) {
+            result.add(new Polygon(vertices.list(p), textures.list(p), normals.list(p)));
+        }
+        return result;
+    }
+
+    long footprintBytes() {
+        return ModelFootprint.object(3 * ModelFootprint.REFERENCE + Integer.BYTES)
+                + vertices.footprintBytes() + textures.footprintBytes() + normals.footprintBytes();
+    }
+
+    // Индексы одного вида: смещения (или фиксированное число на полигон) и сами индексы
+    private static final class Channel {
+        final IndexArray offsets;
+        final int arity;
+        final IndexArray indices;
+
+        private Channel(IndexArray offsets, int arity, IndexArray indices) {
+            this.offsets = offsets;
+            this.arity = arity;
+            this.indices = indices;
+        }
+
+        static Channel of(int[] offsets, int[] indices, int range) {
+            IndexArray compactIndices = IndexArray.of(indices, indices.length, range);
+            int count = offsets.length - 1;
+            int arity = count > 0 ? offsets[1] - offsets[0] : 0;
+            for (int p = 1; p < count && arity >= 0; p++) {
+                if (offsets[p + 1] - offsets[p] != arity) {
+                    arity = -1;
+                }
+            }
+            if (arity >= 0) {
+                return new Channel(null, arity, compactIndices);
+            }
+            return new Channel(IndexArray.of(offsets, offsets.length, indices.length + 1), 0, compactIndices);
+        }
+
+        int start(int polygon) {
+            return offsets == null ? polygon * arity : offsets.get(polygon);
+        }
+
+        int size(int polygon) {
+            return offsets == null ? arity : offsets.get(polygon + 1) - offsets.get(polygon);
+        }
+
+        int get(int polygon, int i) {
+            if (i < 0 || i >= size(polygon)) {
+                throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size(polygon));
+            }
+            return indices.get(start(polygon) + i);
+        }
+
+        long bytes() {
+            return indices.bytes() + (offsets == null ? 0 : offsets.bytes());
+        }
+
+        long footprintBytes() {
+            return ModelFootprint.object(2 * ModelFootprint.REFERENCE + Integer.BYTES)
+                    + indices.footprintBytes() + (offsets == null ? 0 : offsets.footprintBytes());
+        }
+
+        IndexList list(int polygon) {
+            int start = start(polygon);
+            int[] values = new int[size(polygon)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = indices.get(start + i);
+            }
+            return IndexList.wrap(values, values.length);
+        }
+
+        int[] offsets(int polygonCount) {
+            int[] result = new int[polygonCount + 1];
+            for (int p = 0; p <= polygonCount; p++) {
+                result[p] = offsets == null ? p * arity : offsets.get(p);
+            }
+            return result;
+        }
+
+        int[] ints() {
+            int[] result = new int[indices.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = indices.get(i);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.cgvsu.model;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Представление модели в куче через буферы поверх ее упакованных массивов
+ */
+final class HeapMeshBuffers implements MeshBuffers {
+    private static final float[] NO_COORDINATES = new float[0];
+
+    private final int vertexCount;
+    private final FloatBuffer vertices;
+    private final int textureVertexCount;
+    private final FloatBuffer textureVertices;
+    private final int normalCount;
+    private final FloatBuffer normals;
+    private final PackedPolygons polygons;
+
+    HeapMeshBuffers(Model model) {
+        this(model, model.packPolygons());
+    }
+
+    // Представление с готовым снимком индексов, например достроенным из предыдущего (PackedPolygons.append)
+    HeapMeshBuffers(Model model, PackedPolygons polygons) {
+        vertexCount = size(model.getVertices());
+        vertices = wrap(model.getVertices(), 3);
+        textureVertexCount = size(model.getTextureVertices());
+        textureVertices = wrap(model.getTextureVertices(), 2);
+        normalCount = size(model.getNormals());
+        normals = wrap(model.getNormals(), 3);
+        this.polygons = polygons;
+    }
+
+    private static int size(PackedVectorList<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
+    private static FloatBuffer wrap(PackedVectorList<?> list, int components) {
+        if (list == null) {
+            return FloatBuffer.wrap(NO_COORDINATES);
+        }
+        return FloatBuffer.wrap(list.coordinates(), 0, list.size() * components).slice();
+    }
+
+    // Снимок индексов; его же использует индекс смежности модели (Model.getTopology)
+    PackedPolygons polygons() {
+        return polygons;
+    }
+
+    // Координаты общие с моделью, собственные у представления только индексы полигонов
+    long footprintBytes() {
+        return polygons.footprintBytes();
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public FloatBuffer vertices() {
+        return vertices;
+    }
+
+    @Override
+    public int textureVertexCount() {
+        return textureVertexCount;
+    }
+
+    @Override
+    public FloatBuffer textureVertices() {
+        return textureVertices;
+    }
+
+    @Override
+    public int normalCount() {
+        return normalCount;
+    }
+
+    @Override
+    public FloatBuffer normals() {
+        return normals;
+    }
+
+    @Override
+    public int polygonCount() {
+        return polygons.polygonCount();
+    }
+
+    @Override
+    public IntBuffer vertexOffsets() {
+        return IntBuffer.wrap(polygons.vertexOffsets);
+    }
+
+    @Override
+    public IntBuffer vertexIndices() {
+        return IntBuffer.wrap(polygons.vertexIndices);
+    }
+
+    @Override
+    public IntBuffer textureOffsets() {
+        return IntBuffer.wrap(polygons.textureOffsets);
+    }
+
+    @Override
+    public IntBuffer textureIndices() {
+        return IntBuffer.wrap(polygons.textureIndices);
+    }
+
+    @Override
+    public IntBuffer normalOffsets() {
+        return IntBuffer.wrap(polygons.normalOffsets);
+    }
+
+    @Override
+    public IntBuffer normalIndices() {
+        return IntBuffer.wrap(polygons.normalIndices);
+    }
+}
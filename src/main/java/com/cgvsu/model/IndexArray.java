@@ -0,0 +1,95 @@
+package com.cgvsu.model;
+
+import java.util.Arrays;
+
+/**
+ * Неизменяемый массив неотрицательных индексов наименьшей подходящей ширины:
+ * char (2 байта) для значений меньше 65536, иначе int
+ */
+abstract class IndexArray {
+
+    static final int CHAR_RANGE = Character.MAX_VALUE + 1;
+
+    abstract int get(int index);
+
+    abstract int size();
+
+    // 2 или 4
+    abstract int width();
+
+    long bytes() {
+        return (long) size() * width();
+    }
+
+    long footprintBytes() {
+        return ModelFootprint.object(ModelFootprint.REFERENCE) + ModelFootprint.array(size(), width());
+    }
+
+    /**
+     * Выбирает ширину по range - количеству допустимых значений (например, числу вершин модели)
+     * @param values
+     * @param count
+     * @param range
+     * @return
+     */
+    static IndexArray of(int[] values, int count, int range) {
+        int max = -1;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, values[i]);
+        }
+        if (Math.max(range, max + 1) <= CHAR_RANGE) {
+            char[] narrow = new char[count];
+            for (int i = 0; i < count; i++) {
+                narrow[i] = (char) values[i];
+            }
+            return new CharIndexArray(narrow);
+        }
+        return new IntIndexArray(values.length == count ? values : Arrays.copyOf(values, count));
+    }
+
+    private static final class CharIndexArray extends IndexArray {
+        private final char[] data;
+
+        CharIndexArray(char[] data) {
+            this.data = data;
+        }
+
+        @Override
+        int get(int index) {
+            return data[index];
+        }
+
+        @Override
+        int size() {
+            return data.length;
+        }
+
+        @Override
+        int width() {
+            return Character.BYTES;
+        }
+    }
+
+    private static final class IntIndexArray extends IndexArray {
+        private final int[] data;
+
+        IntIndexArray(int[] data) {
+            this.data = data;
+        }
+
+        @Override
+        int get(int index) {
+            return data[index];
+        }
+
+        @Override
+        int size() {
+            return data.length;
+        }
+
+        @Override
+        int width() {
+            return Integer.BYTES;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.cgvsu.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Список индексов полигона в массиве int без упаковки каждого индекса в Integer.
+ * Для быстрых циклов индексы читаются через getInt без создания объектов.
+ * Копия списка (copy) использует тот же массив до первого изменения одного из списков.
+ */
+public final class IndexList extends AbstractList<Integer> implements RandomAccess {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] data;
+    private int size;
+    // Массив data может использоваться копией списка, перед записью его нужно скопировать
+    private boolean shared;
+
+    public IndexList() {
+        data = EMPTY;
+    }
+
+    public IndexList(int capacity) {
+        data = capacity > 0 ? new int[capacity] : EMPTY;
+    }
+
+    public IndexList(Collection<Integer> source) {
+        this(source.size());
+        addAll(source);
+    }
+
+    /**
+     * Создает список поверх готового массива без копирования
+     * @param indices
+     * @param count
+     * @return
+     */
+    public static IndexList wrap(int[] indices, int count) {
+        IndexList list = new IndexList();
+        list.data = indices;
+        list.size = count;
+        return list;
+    }
+
+    /**
+     * Копия списка за O(1): массив индексов общий, пока один из списков не изменится
+     * @return
+     */
+    public IndexList copy() {
+        shared = true;
+        IndexList copy = wrap(data, size);
+        copy.shared = true;
+        return copy;
+    }
+
+    // Перед записью отделяет общий массив от копий списка
+    private void beforeWrite() {
+        if (shared) {
+            data = Arrays.copyOf(data, data.length);
+            shared = false;
+        }
+    }
+
+    // Копия в список этого типа; null остается null
+    static IndexList copyOf(Collection<Integer> source) {
+        return source == null ? null : new IndexList(source);
+    }
+
+    public int getInt(int index) {
+        PackedVectorList.checkIndex(index, size);
+        return data[index];
+    }
+
+    public void setInt(int index, int value) {
+        PackedVectorList.checkIndex(index, size);
+        beforeWrite();
+        data[index] = value;
+    }
+
+    public void addInt(int value) {
+        beforeWrite();
+        if (size == data.length) {
+            data = Arrays.copyOf(data, Math.max(4, size + (size >> 1)));
+        }
+        data[size++] = value;
+        modCount++;
+    }
+
+    /**
+     * Копирует индексы в массив, начиная с offset
+     * @param target
+     * @param offset
+     */
+    public void copyTo(int[] target, int offset) {
+        System.arraycopy(data, 0, target, offset, size);
+    }
+
+    public int[] toIntArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    // Оценка памяти списка с массивом индексов
+    long footprintBytes() {
+        return ModelFootprint.object(2 * Integer.BYTES + ModelFootprint.REFERENCE + 1)
+                + (data.length == 0 ? 0 : ModelFootprint.array(data.length, Integer.BYTES));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer element) {
+        int previous = getInt(index);
+        beforeWrite();
+        data[index] = element;
+        return previous;
+    }
+
+    @Override
+    public boolean add(Integer element) {
+        addInt(element);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Integer element) {
+        PackedVectorList.checkIndex(index, size + 1);
+        int value = element;
+        beforeWrite();
+        if (size == data.length) {
+            data = Arrays.copyOf(data, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(data, index, data, index + 1, size - index);
+        data[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Integer remove(int index) {
+        int previous = getInt(index);
+        beforeWrite();
+        System.arraycopy(data, index + 1, data, index, size - index - 1);
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        if (shared) {
+            data = EMPTY;
+            shared = false;
+        }
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        beforeWrite();
+        System.arraycopy(data, toIndex, data, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+        modCount++;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Integer)) {
+            return -1;
+        }
+        int value = (Integer) o;
+        for (int i = 0; i < size; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
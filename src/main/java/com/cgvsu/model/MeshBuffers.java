@@ -0,0 +1,51 @@
+package com.cgvsu.model;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Геометрия модели только для чтения в виде буферов: координаты подряд (x, y, z или u, v)
+ * и индексы полигонов в сжатом построчном виде, как в PackedPolygons.
+ * Буферы могут лежать как в куче, так и вне ее (OffHeapMesh), элементы читаются по абсолютному индексу.
+ */
+public interface MeshBuffers {
+
+    int vertexCount();
+
+    FloatBuffer vertices();
+
+    int textureVertexCount();
+
+    FloatBuffer textureVertices();
+
+    int normalCount();
+
+    FloatBuffer normals();
+
+    int polygonCount();
+
+    // polygonCount() + 1 смещений в vertexIndices()
+    IntBuffer vertexOffsets();
+
+    IntBuffer vertexIndices();
+
+    IntBuffer textureOffsets();
+
+    IntBuffer textureIndices();
+
+    IntBuffer normalOffsets();
+
+    IntBuffer normalIndices();
+
+    /**
+     * Буферы поверх массивов модели без копирования координат.
+     * Индексы полигонов берутся из снимка packPolygons(), поэтому после изменения полигонов
+     * представление нужно получить заново. Для модели с геометрией в буферах (Model.storeGeometry)
+     * возвращаются сами эти буферы
+     * @param model
+     * @return
+     */
+    static MeshBuffers of(Model model) {
+        return model.hasStoredGeometry() ? model.getMeshBuffers() : new HeapMeshBuffers(model);
+    }
+}
@@ -0,0 +1,233 @@
+package com.cgvsu.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Индекс смежности модели: для каждой вершины - полигоны, в которые она входит (в сжатом построчном виде).
+ * Строится за линейное время подсчетом, без хеш-таблиц. Полигоны ребра и соседние полигоны
+ * находятся пересечением списков двух вершин, то есть за время, пропорциональное числу
+ * полигонов у этих вершин, а не у всей модели.
+ * Индекс - снимок: Model.getTopology() строит его заново после изменения полигонов (getTopologyVersion)
+ * поверх тех же индексов полигонов, что и буферы отрисовки, без отдельной копии.
+ * Исключение - удаление полигонов через Model.removePolygons: индекс модели обновляется на месте.
+ */
+public final class MeshTopology {
+
+    private static final int[] NONE = new int[0];
+
+    private final int vertexCount;
+    private PackedPolygons polygons;
+    // Полигоны вершины v: vertexPolygons с vertexPolygonOffsets[v] до vertexPolygonOffsets[v + 1], по возрастанию.
+    // После удаления полигонов хвост vertexPolygons не используется
+    private final int[] vertexPolygonOffsets;
+    private final int[] vertexPolygons;
+
+    private MeshTopology(int vertexCount, PackedPolygons polygons) {
+        this.vertexCount = vertexCount;
+        this.polygons = polygons;
+
+        int[] offsets = new int[vertexCount + 1];
+        int[] lastPolygon = new int[vertexCount];
+        Arrays.fill(lastPolygon, -1);
+        for (int p = 0; p < polygons.polygonCount(); p++) {
+            for (int i = polygons.vertexOffsets[p]; i < polygons.vertexOffsets[p + 1]; i++) {
+                int v = polygons.vertexIndices[i];
+                // Повтор вершины в одном полигоне учитывается один раз, неверные индексы пропускаются
+                if (v >= 0 && v < vertexCount && lastPolygon[v] != p) {
+                    lastPolygon[v] = p;
+                    offsets[v + 1]++;
+                }
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] incident = new int[offsets[vertexCount]];
+        int[] next = Arrays.copyOf(offsets, vertexCount);
+        Arrays.fill(lastPolygon, -1);
+        for (int p = 0; p < polygons.polygonCount(); p++) {
+            for (int i = polygons.vertexOffsets[p]; i < polygons.vertexOffsets[p + 1]; i++) {
+                int v = polygons.vertexIndices[i];
+                if (v >= 0 && v < vertexCount && lastPolygon[v] != p) {
+                    lastPolygon[v] = p;
+                    incident[next[v]++] = p;
+                }
+            }
+        }
+        this.vertexPolygonOffsets = offsets;
+        this.vertexPolygons = incident;
+    }
+
+    public static MeshTopology of(Model model) {
+        return new MeshTopology(model.getVertices().size(), model.packPolygons());
+    }
+
+    public static MeshTopology of(PackedPolygons polygons, int vertexCount) {
+        return new MeshTopology(vertexCount, polygons);
+    }
+
+    /**
+     * Удаляет полигоны из индекса на месте: строки вершин сжимаются в тех же массивах, номера оставшихся
+     * полигонов уменьшаются на число удаленных перед ними. Полигоны модели заново не просматриваются
+     * @param newIndex новый номер каждого полигона или -1 для удаленного
+     * @param remaining снимок индексов оставшихся полигонов (PackedPolygons.without)
+     */
+    void removePolygons(int[] newIndex, PackedPolygons remaining) {
+        int write = 0;
+        int start = vertexPolygonOffsets[0];
+        for (int v = 0; v < vertexCount; v++) {
+            int end = vertexPolygonOffsets[v + 1];
+            vertexPolygonOffsets[v] = write;
+            for (int i = start; i < end; i++) {
+                int p = newIndex[vertexPolygons[i]];
+                if (p >= 0) {
+                    vertexPolygons[write++] = p;
+                }
+            }
+            start = end;
+        }
+        vertexPolygonOffsets[vertexCount] = write;
+        polygons = remaining;
+    }
+
+    // Память индекса; снимок полигонов учитывается, только если он не общий с буферами отрисовки
+    long footprintBytes(boolean includePolygons) {
+        return ModelFootprint.object(Integer.BYTES + 3 * ModelFootprint.REFERENCE)
+                + ModelFootprint.bytes(vertexPolygonOffsets) + ModelFootprint.bytes(vertexPolygons)
+                + (includePolygons ? polygons.footprintBytes() : 0);
+    }
+
+    PackedPolygons polygons() {
+        return polygons;
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int polygonCount() {
+        return polygons.polygonCount();
+    }
+
+    public int polygonCountOfVertex(int vertex) {
+        checkVertex(vertex);
+        return vertexPolygonOffsets[vertex + 1] - vertexPolygonOffsets[vertex];
+    }
+
+    /**
+     * Полигоны, содержащие вершину, по возрастанию индекса
+     */
+    public int[] polygonsOfVertex(int vertex) {
+        checkVertex(vertex);
+        return Arrays.copyOfRange(vertexPolygons, vertexPolygonOffsets[vertex], vertexPolygonOffsets[vertex + 1]);
+    }
+
+    /**
+     * Полигоны, в которых вершины a и b соседние (образуют ребро), по возрастанию индекса
+     */
+    public int[] polygonsOfEdge(int a, int b) {
+        checkVertex(a);
+        checkVertex(b);
+        int[] result = new int[Math.min(polygonCountOfVertex(a), polygonCountOfVertex(b))];
+        int count = 0;
+        int i = vertexPolygonOffsets[a];
+        int j = vertexPolygonOffsets[b];
+        while (i < vertexPolygonOffsets[a + 1] && j < vertexPolygonOffsets[b + 1]) {
+            int pa = vertexPolygons[i];
+            int pb = vertexPolygons[j];
+            if (pa < pb) {
+                i++;
+            } else if (pb < pa) {
+                j++;
+            } else {
+                if (hasEdge(pa, a, b)) {
+                    result[count++] = pa;
+                }
+                i++;
+                j++;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Полигоны, имеющие с данным общее ребро, по возрастанию индекса
+     */
+    public int[] neighbours(int polygon) {
+        if (polygon < 0 || polygon >= polygons.polygonCount()) {
+            throw new IndexOutOfBoundsException("Polygon " + polygon + " out of bounds for length " + polygons.polygonCount());
+        }
+        int start = polygons.vertexOffsets[polygon];
+        int size = polygons.vertexOffsets[polygon + 1] - start;
+        if (size < 2) {
+            return NONE;
+        }
+        int[] found = NONE;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int a = polygons.vertexIndices[start + i];
+            int b = polygons.vertexIndices[start + (i + 1) % size];
+            if (a < 0 || a >= vertexCount || b < 0 || b >= vertexCount || a == b) {
+                continue;
+            }
+            for (int other : polygonsOfEdge(a, b)) {
+                if (other != polygon) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, Math.max(4, count * 2));
+                    }
+                    found[count++] = other;
+                }
+            }
+        }
+        int[] result = Arrays.copyOf(found, count);
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    /**
+     * Полигоны, содержащие хотя бы одну из вершин; просматриваются только полигоны этих вершин.
+     * Индексы вне модели пропускаются
+     */
+    public Set<Integer> polygonsContainingAny(Collection<Integer> vertices) {
+        Set<Integer> result = new HashSet<>();
+        for (int vertex : vertices) {
+            if (vertex < 0 || vertex >= vertexCount) {
+                continue;
+            }
+            for (int i = vertexPolygonOffsets[vertex]; i < vertexPolygonOffsets[vertex + 1]; i++) {
+                result.add(vertexPolygons[i]);
+            }
+        }
+        return result;
+    }
+
+    // Вершины a и b идут в полигоне подряд (с учетом замыкания)
+    private boolean hasEdge(int polygon, int a, int b) {
+        int start = polygons.vertexOffsets[polygon];
+        int size = polygons.vertexOffsets[polygon + 1] - start;
+        for (int i = 0; i < size; i++) {
+            int u = polygons.vertexIndices[start + i];
+            int w = polygons.vertexIndices[start + (i + 1) % size];
+            if ((u == a && w == b) || (u == b && w == a)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkVertex(int vertex) {
+        if (vertex < 0 || vertex >= vertexCount) {
+            throw new IndexOutOfBoundsException("Vertex " + vertex + " out of bounds for length " + vertexCount);
+        }
+    }
+}
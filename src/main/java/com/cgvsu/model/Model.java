@@ -4,19 +4,48 @@ import com.cgvsu.math.Transformation;
 import com.cgvsu.math.Vector2f;
 import com.cgvsu.math.Vector3f;
 
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.*;
 
 
 public class Model {
-    private ArrayList<Vector3f> vertices = new ArrayList<Vector3f>();
-    private ArrayList<Vector2f> textureVertices = new ArrayList<Vector2f>();
-    private ArrayList<Vector3f> normals = new ArrayList<Vector3f>();
+    // Координаты хранятся в массивах float, объекты векторов создаются только при обращении к элементу
+    private Vector3fList vertices = new Vector3fList();
+    private Vector2fList textureVertices = new Vector2fList();
+    private Vector3fList normals = new Vector3fList();
     private ArrayList<Polygon> polygons = new ArrayList<Polygon>();
+    // Полигоны загруженной модели в компактном виде (compact); пока он задан, polygons равен null
+    // и список объектов полигонов создается только при первом вызове getPolygons()
+    private CompactPolygons compactStorage;
+    // Список polygons может использоваться копией модели, перед выдачей наружу его нужно скопировать
+    private boolean polygonsShared;
+    // Геометрия в буферах только для чтения (storeGeometry); пока она задана, списки пусты,
+    // а полигонов нет ни в каком виде
+    private MeshBuffers storedGeometry;
 
     // Трансформация модели (опционально)
     private Transformation transformation;
     private String name;
 
+    // Счетчик изменений модели; для каждой части хранится его значение в момент последнего изменения.
+    // Списки отдаются наружу как есть, поэтому код, меняющий их напрямую, должен вызвать mark*Changed
+    private long version;
+    private long vertexVersion;
+    private long attributeVersion;
+    private long topologyVersion;
+    private long transformationVersion;
+
+    // Представление в виде буферов, построенное для geometryVersion() == meshBuffersVersion
+    private MeshBuffers meshBuffers;
+    private long meshBuffersVersion = -1;
+    // С номера appendStartVersion по appendEndVersion геометрия только дописывалась (markGeometryAppended)
+    private long appendStartVersion = -1;
+    private long appendEndVersion = -1;
+    // Индекс смежности, построенный для topologyVersion == topologyIndexVersion
+    private MeshTopology topology;
+    private long topologyIndexVersion = -1;
+
     public Model() {
         this.transformation = new Transformation();
         this.name = "Unnamed Model";
@@ -33,100 +62,492 @@ public class Model {
             return this;
         }
 
+        restoreGeometry();
         Model transformed = new Model(this.name + " (transformed)");
 
-        // Трансформируем вершины
-        for (Vector3f vertex : vertices) {
-            transformed.getVertices().add(transformation.transform(vertex));
+        // Трансформируем вершины: без пустых элементов - одним проходом по массиву координат
+        if (!vertices.hasNulls()) {
+            float[] coordinates = new float[vertices.size() * 3];
+            transformation.transformInto(vertices.coordinates(), coordinates, 0, vertices.size());
+            transformed.getVertices().setCoordinates(coordinates, vertices.size());
+        } else {
+            transformed.getVertices().ensureCapacity(vertices.size());
+            for (Vector3f vertex : vertices) {
+                transformed.getVertices().add(transformation.transform(vertex));
+            }
         }
 
-        // Копируем текстурные координаты (не трансформируются)
-        transformed.setTextureVertices(new ArrayList<>(textureVertices));
+        // Текстурные координаты не трансформируются, массив остается общим до изменения
+        transformed.setTextureVertices(textureVertices == null ? null : textureVertices.copy());
 
         // Трансформируем нормали
-        for (Vector3f normal : normals) {
-            transformed.getNormals().add(transformation.transformNormal(normal));
+        if (!normals.hasNulls()) {
+            float[] coordinates = new float[normals.size() * 3];
+            transformation.transformNormalsInto(normals.coordinates(), coordinates, 0, normals.size());
+            transformed.getNormals().setCoordinates(coordinates, normals.size());
+        } else {
+            transformed.getNormals().ensureCapacity(normals.size());
+            for (Vector3f normal : normals) {
+                transformed.getNormals().add(transformation.transformNormal(normal));
+            }
         }
 
-        // Копируем полигоны
-        transformed.setPolygons(new ArrayList<>(polygons));
+        // Полигоны общие с исходной моделью до первого getPolygons() в любой из моделей
+        sharePolygonsInto(transformed);
+        transformed.markTopologyChanged();
 
         return transformed;
     }
 
-    // Создание копии модели
+    /**
+     * Создание копии модели за O(1). Массивы координат не копируются сразу: они общие с исходной
+     * моделью, и каждый список копирует свой массив при первом изменении в любой из моделей.
+     * Список полигонов тоже общий: модель копирует его (вместе с объектами полигонов, индексы которых
+     * остаются общими) при первом вызове getPolygons(), а буферы отрисовки и индекс смежности
+     * строятся без копирования. Поэтому список, полученный до copy(), нужно получить заново
+     * @return
+     */
     public Model copy() {
+        restoreGeometry();
         Model copy = new Model(this.name);
+        copy.vertices = vertices == null ? null : vertices.copy();
+        copy.textureVertices = textureVertices == null ? null : textureVertices.copy();
+        copy.normals = normals == null ? null : normals.copy();
+        sharePolygonsInto(copy);
+        return copy;
+    }
 
-        // Копируем вершины
-        for (Vector3f vertex : vertices) {
-            copy.getVertices().add(new Vector3f(vertex.getX(), vertex.getY(), vertex.getZ()));
+    // Компактные полигоны неизменяемы и просто становятся общими, список помечается общим в обеих моделях
+    private void sharePolygonsInto(Model target) {
+        target.compactStorage = compactStorage;
+        target.polygons = polygons;
+        if (polygons != null) {
+            polygonsShared = true;
+            target.polygonsShared = true;
         }
+    }
 
-        // Копируем текстурные координаты
-        if (textureVertices != null) {
-            for (Vector2f texVert : textureVertices) {
-                copy.getTextureVertices().add(new Vector2f(texVert.getX(), texVert.getY()));
-            }
+    private ArrayList<Polygon> copyPolygons() {
+        ArrayList<Polygon> copies = new ArrayList<>(polygons.size());
+        for (Polygon polygon : polygons) {
+            copies.add(polygon == null ? null : polygon.copy());
         }
+        return copies;
+    }
 
-        // Копируем нормали
-        if (normals != null) {
-            for (Vector3f normal : normals) {
-                copy.getNormals().add(new Vector3f(normal.getX(), normal.getY(), normal.getZ()));
+    /**
+     * Номер последнего изменения любой части модели, включая трансформацию.
+     * Производные данные (границы, триангуляция, нормали, проекции) можно хранить вместе с номером
+     * нужной части и пересчитывать только если он изменился
+     * @return
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    // Координаты вершин
+    public long getVertexVersion() {
+        return vertexVersion;
+    }
+
+    // Текстурные координаты и нормали
+    public long getAttributeVersion() {
+        return attributeVersion;
+    }
+
+    // Состав полигонов и их индексы
+    public long getTopologyVersion() {
+        return topologyVersion;
+    }
+
+    public long getTransformationVersion() {
+        return transformationVersion;
+    }
+
+    // Номер последнего изменения вершин, атрибутов или полигонов
+    public long getGeometryVersion() {
+        return Math.max(vertexVersion, Math.max(attributeVersion, topologyVersion));
+    }
+
+    public void markVerticesChanged() {
+        vertexVersion = ++version;
+    }
+
+    public void markAttributesChanged() {
+        attributeVersion = ++version;
+    }
+
+    public void markTopologyChanged() {
+        topologyVersion = ++version;
+    }
+
+    public void markTransformationChanged() {
+        transformationVersion = ++version;
+    }
+
+    // Вершины, атрибуты и полигоны изменились вместе, например при чтении или удалении элементов
+    public void markGeometryChanged() {
+        version++;
+        vertexVersion = version;
+        attributeVersion = version;
+        topologyVersion = version;
+    }
+
+    /**
+     * Вершины, атрибуты и полигоны только дописаны в конец списков, прежние элементы не менялись,
+     * например при показе модели по мере чтения файла. Номер геометрии меняется, как в markGeometryChanged,
+     * но буферы отрисовки при следующем обращении достраиваются из предыдущих: индексы прежних полигонов
+     * копируются массивами, упаковываются только новые полигоны
+     */
+    public void markGeometryAppended() {
+        long previous = getGeometryVersion();
+        if (appendEndVersion != previous) {
+            appendStartVersion = previous;
+        }
+        markGeometryChanged();
+        appendEndVersion = getGeometryVersion();
+    }
+
+    /**
+     * Буферы геометрии для отрисовки. Представление строится заново, только если
+     * с прошлого вызова изменился номер геометрии (getGeometryVersion)
+     * @return
+     */
+    public MeshBuffers getMeshBuffers() {
+        if (storedGeometry != null) {
+            return storedGeometry;
+        }
+        long current = getGeometryVersion();
+        if (meshBuffers == null || meshBuffersVersion != current) {
+            if (isAppendedTo(meshBuffers, meshBuffersVersion)) {
+                meshBuffers = new HeapMeshBuffers(this, ((HeapMeshBuffers) meshBuffers).polygons().append(polygons));
+            } else {
+                meshBuffers = MeshBuffers.of(this);
             }
+            meshBuffersVersion = current;
         }
+        return meshBuffers;
+    }
+
+    // После построения буферов геометрия только дописывалась, и их индексы - начало списка полигонов
+    private boolean isAppendedTo(MeshBuffers buffers, long buffersVersion) {
+        return buffers instanceof HeapMeshBuffers && polygons != null
+                && appendEndVersion == getGeometryVersion()
+                && buffersVersion >= appendStartVersion && buffersVersion < appendEndVersion
+                && buffers.polygonCount() <= polygons.size();
+    }
 
-        // Копируем полигоны (нужно глубокое копирование)
-        for (Polygon poly : polygons) {
-            Polygon polyCopy = new Polygon();
-            polyCopy.setVertexIndices(new ArrayList<>(poly.getVertexIndices()));
+    /**
+     * Индекс смежности вершин и полигонов. Строится за линейное время при первом обращении
+     * и заново после изменения полигонов (getTopologyVersion) или числа вершин.
+     * Индексы полигонов берутся из буферов отрисовки (getMeshBuffers): после удаления элементов
+     * они все равно строятся заново для следующего кадра, и второй копии не создается
+     * @return
+     */
+    public MeshTopology getTopology() {
+        restoreGeometry();
+        if (topology == null || topologyIndexVersion != topologyVersion
+                || topology.vertexCount() != vertices.size() || topology.polygonCount() != getPolygonCount()) {
+            topology = MeshTopology.of(sharedPolygons(), vertices.size());
+            topologyIndexVersion = topologyVersion;
+        }
+        return topology;
+    }
 
-            if (poly.getTextureVertexIndices() != null) {
-                polyCopy.setTextureVertexIndices(new ArrayList<>(poly.getTextureVertexIndices()));
+    /**
+     * Удаляет полигоны с указанными индексами за один проход по списку; неверные индексы и повторы пропускаются.
+     * Индекс смежности и буферы отрисовки, построенные для текущих полигонов, остаются действительными:
+     * индекс обновляется на месте, а индексы полигонов в буферах копируются без удаленных,
+     * без повторного обхода объектов полигонов
+     * @param indices
+     * @return количество удаленных полигонов
+     */
+    public int removePolygons(Collection<Integer> indices) {
+        ArrayList<Polygon> list = getPolygons();
+        final int count = list.size();
+        int[] newIndex = new int[count];
+        int removed = 0;
+        for (Integer index : indices) {
+            if (index != null && index >= 0 && index < count && newIndex[index] == 0) {
+                newIndex[index] = -1;
+                removed++;
+            }
+        }
+        if (removed == 0) {
+            return 0;
+        }
+        int kept = 0;
+        for (int p = 0; p < count; p++) {
+            if (newIndex[p] == 0) {
+                list.set(kept, list.get(p));
+                newIndex[p] = kept++;
             }
+        }
+        list.subList(kept, count).clear();
+
+        boolean buffersCurrent = meshBuffers instanceof HeapMeshBuffers
+                && meshBuffersVersion == getGeometryVersion() && meshBuffers.polygonCount() == count;
+        boolean topologyCurrent = topology != null && topologyIndexVersion == topologyVersion
+                && topology.vertexCount() == vertices.size() && topology.polygonCount() == count;
+        PackedPolygons remaining = null;
+        if (buffersCurrent) {
+            remaining = ((HeapMeshBuffers) meshBuffers).polygons().without(newIndex, kept);
+        } else if (topologyCurrent) {
+            remaining = topology.polygons().without(newIndex, kept);
+        }
 
-            if (poly.getNormalIndices() != null) {
-                polyCopy.setNormalIndices(new ArrayList<>(poly.getNormalIndices()));
+        markTopologyChanged();
+        if (buffersCurrent) {
+            meshBuffers = new HeapMeshBuffers(this, remaining);
+            meshBuffersVersion = getGeometryVersion();
+        }
+        if (topologyCurrent) {
+            topology.removePolygons(newIndex, remaining);
+            topologyIndexVersion = topologyVersion;
+        }
+        return removed;
+    }
+
+    // Снимок индексов из текущих буферов отрисовки, если он соответствует списку полигонов
+    private PackedPolygons sharedPolygons() {
+        MeshBuffers buffers = getMeshBuffers();
+        if (buffers instanceof HeapMeshBuffers) {
+            PackedPolygons packed = ((HeapMeshBuffers) buffers).polygons();
+            if (packed.polygonCount() == getPolygonCount()) {
+                return packed;
             }
+        }
+        return packPolygons();
+    }
+
+    /**
+     * Освобождает производные данные (буферы для отрисовки, индекс смежности).
+     * При следующем обращении они будут построены заново
+     */
+    public void releaseDerivedCaches() {
+        meshBuffers = null;
+        meshBuffersVersion = -1;
+        topology = null;
+        topologyIndexVersion = -1;
+    }
 
-            copy.getPolygons().add(polyCopy);
+    /**
+     * Переводит индексы полигонов в компактный вид (CompactPolygons) для долгого хранения:
+     * объекты полигонов освобождаются, буферы отрисовки и индекс смежности строятся из компактного
+     * вида, а список полигонов создается заново при первом вызове getPolygons(), например перед
+     * удалением элементов. Содержимое модели и номера версий не меняются
+     * @return false, если в списке есть пустые полигоны (null), которые компактный вид не хранит
+     */
+    public boolean compact() {
+        if (compactStorage != null || storedGeometry != null) {
+            return true;
         }
+        if (polygons.contains(null)) {
+            return false;
+        }
+        compactStorage = compactPolygons();
+        polygons = null;
+        polygonsShared = false;
+        return true;
+    }
 
-        return copy;
+    public boolean isCompact() {
+        return compactStorage != null;
+    }
+
+    /**
+     * Заменяет геометрию модели готовыми буферами только для чтения, например вне кучи (OffHeapMesh)
+     * или квантованными (QuantizedMesh): списки вершин, атрибутов и полигонов освобождаются, а отрисовка
+     * и запись читают буферы (getMeshBuffers). Первое обращение к спискам или полигонам, например
+     * перед удалением элементов, возвращает геометрию в кучу (из квантованных буферов - с их погрешностью)
+     * и закрывает буферы OffHeapMesh
+     * @param buffers
+     */
+    public void storeGeometry(MeshBuffers buffers) {
+        if (buffers == null) {
+            throw new IllegalArgumentException("Mesh buffers cannot be null");
+        }
+        if (storedGeometry instanceof OffHeapMesh && storedGeometry != buffers) {
+            ((OffHeapMesh) storedGeometry).close();
+        }
+        storedGeometry = buffers;
+        vertices = new Vector3fList();
+        textureVertices = new Vector2fList();
+        normals = new Vector3fList();
+        polygons = null;
+        compactStorage = null;
+        polygonsShared = false;
+        releaseDerivedCaches();
+        markGeometryChanged();
+    }
+
+    public boolean hasStoredGeometry() {
+        return storedGeometry != null;
+    }
+
+    // Возвращает геометрию из буферов (storeGeometry) в списки; полигоны остаются в компактном виде
+    private void restoreGeometry() {
+        if (storedGeometry == null) {
+            return;
+        }
+        MeshBuffers stored = storedGeometry;
+        storedGeometry = null;
+        vertices.setCoordinates(floats(stored.vertices(), 3 * stored.vertexCount()), stored.vertexCount());
+        textureVertices.setCoordinates(floats(stored.textureVertices(), 2 * stored.textureVertexCount()),
+                stored.textureVertexCount());
+        normals.setCoordinates(floats(stored.normals(), 3 * stored.normalCount()), stored.normalCount());
+        int offsets = stored.polygonCount() + 1;
+        PackedPolygons packed = new PackedPolygons(
+                ints(stored.vertexOffsets(), offsets), ints(stored.vertexIndices(), stored.vertexOffsets().get(offsets - 1)),
+                ints(stored.textureOffsets(), offsets), ints(stored.textureIndices(), stored.textureOffsets().get(offsets - 1)),
+                ints(stored.normalOffsets(), offsets), ints(stored.normalIndices(), stored.normalOffsets().get(offsets - 1)));
+        compactStorage = CompactPolygons.of(packed, vertices.size(), textureVertices.size(), normals.size());
+        if (stored instanceof OffHeapMesh) {
+            ((OffHeapMesh) stored).close();
+        }
+        // Содержимое не изменилось, но проекции и буферы, посчитанные по квантованным координатам, устарели
+        markGeometryChanged();
+    }
+
+    // Массив буфера в куче может быть общим с копией модели, поэтому координаты всегда копируются
+    private static float[] floats(FloatBuffer buffer, int count) {
+        float[] values = new float[count];
+        buffer.get(0, values, 0, count);
+        return values;
     }
 
-    // Геттеры и сеттеры
-    public ArrayList<Vector3f> getVertices() {
+    private static int[] ints(IntBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.get(0, values, 0, count);
+        return values;
+    }
+
+    CompactPolygons compactStorage() {
+        return compactStorage;
+    }
+
+    // Список полигонов без копирования общего списка, только для чтения (ModelFootprint)
+    List<Polygon> polygonList() {
+        return polygons;
+    }
+
+    // Память производных кэшей, см. ModelFootprint
+    long derivedCacheBytes() {
+        long bytes = 0;
+        if (meshBuffers instanceof HeapMeshBuffers) {
+            bytes += ((HeapMeshBuffers) meshBuffers).footprintBytes();
+        }
+        if (topology != null) {
+            boolean shared = meshBuffers instanceof HeapMeshBuffers
+                    && ((HeapMeshBuffers) meshBuffers).polygons() == topology.polygons();
+            bytes += topology.footprintBytes(!shared);
+        }
+        return bytes;
+    }
+
+    /**
+     * Индексы всех полигонов в виде плоских массивов для быстрых циклов отрисовки и записи
+     * @return новый снимок индексов
+     */
+    public PackedPolygons packPolygons() {
+        restoreGeometry();
+        return compactStorage != null ? compactStorage.toPacked() : PackedPolygons.of(polygons);
+    }
+
+    /**
+     * Индексы всех полигонов в компактном виде: 16-битные индексы для частей меньше 65536 элементов
+     * и без смещений для моделей из полигонов одинаковой длины
+     * @return новый снимок индексов
+     */
+    public CompactPolygons compactPolygons() {
+        restoreGeometry();
+        if (compactStorage != null) {
+            return compactStorage;
+        }
+        return CompactPolygons.of(packPolygons(), size(vertices), size(textureVertices), size(normals));
+    }
+
+    private static int size(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
+    // Геттеры и сеттеры. Списки других типов копируются в упакованные списки, null сохраняется
+    public Vector3fList getVertices() {
+        restoreGeometry();
         return vertices;
     }
 
-    public void setVertices(ArrayList<Vector3f> vertices) {
-        this.vertices = vertices;
+    public void setVertices(List<Vector3f> vertices) {
+        restoreGeometry();
+        this.vertices = toVector3fList(vertices);
+        markVerticesChanged();
     }
 
-    public ArrayList<Vector2f> getTextureVertices() {
+    public Vector2fList getTextureVertices() {
+        restoreGeometry();
         return textureVertices;
     }
 
-    public void setTextureVertices(ArrayList<Vector2f> textureVertices) {
-        this.textureVertices = textureVertices;
+    public void setTextureVertices(List<Vector2f> textureVertices) {
+        restoreGeometry();
+        if (textureVertices == null || textureVertices instanceof Vector2fList) {
+            this.textureVertices = (Vector2fList) textureVertices;
+        } else {
+            this.textureVertices = new Vector2fList(textureVertices);
+        }
+        markAttributesChanged();
     }
 
-    public ArrayList<Vector3f> getNormals() {
+    public Vector3fList getNormals() {
+        restoreGeometry();
         return normals;
     }
 
-    public void setNormals(ArrayList<Vector3f> normals) {
-        this.normals = normals;
+    public void setNormals(List<Vector3f> normals) {
+        restoreGeometry();
+        this.normals = toVector3fList(normals);
+        markAttributesChanged();
     }
 
+    private static Vector3fList toVector3fList(List<Vector3f> list) {
+        if (list == null || list instanceof Vector3fList) {
+            return (Vector3fList) list;
+        }
+        return new Vector3fList(list);
+    }
+
+    /**
+     * Список полигонов для чтения и изменения. Если модель хранит полигоны в компактном виде (compact),
+     * список создается из него и модель возвращается к обычному хранению; список, общий с копией
+     * модели (copy), сначала копируется
+     * @return
+     */
     public ArrayList<Polygon> getPolygons() {
+        restoreGeometry();
+        if (compactStorage != null) {
+            polygons = compactStorage.toPolygons();
+            compactStorage = null;
+        } else if (polygonsShared) {
+            polygons = copyPolygons();
+            polygonsShared = false;
+        }
         return polygons;
     }
 
+    // Количество полигонов без перехода от компактного хранения к списку
+    public int getPolygonCount() {
+        if (storedGeometry != null) {
+            return storedGeometry.polygonCount();
+        }
+        return compactStorage != null ? compactStorage.polygonCount() : polygons.size();
+    }
+
     public void setPolygons(ArrayList<Polygon> polygons) {
+        restoreGeometry();
         this.polygons = polygons;
+        this.compactStorage = null;
+        this.polygonsShared = false;
+        markTopologyChanged();
     }
 
     public Transformation getTransformation() {
@@ -135,6 +556,7 @@ public class Model {
 
     public void setTransformation(Transformation transformation) {
         this.transformation = transformation;
+        markTransformationChanged();
     }
 
     public String getName() {
@@ -148,7 +570,7 @@ public class Model {
     @Override
     public String toString() {
         return String.format("Model[name=%s, vertices=%d, polygons=%d, hasTex=%b, hasNormals=%b]",
-                name, vertices.size(), polygons.size(),
+                name, storedGeometry != null ? storedGeometry.vertexCount() : vertices.size(), getPolygonCount(),
                 textureVertices != null && !textureVertices.isEmpty(),
                 normals != null && !normals.isEmpty());
     }
@@ -0,0 +1,214 @@
+package com.cgvsu.model;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Оценка памяти, занятой моделью в куче: координаты, индексы полигонов и производные кэши
+ * (буферы для отрисовки, индекс смежности). Размеры считаются для 64-битной JVM со сжатыми ссылками:
+ * заголовок объекта 12 байт, массива 16 байт, ссылка 4 байта, выравнивание по 8 байт.
+ * Массивы, общие у копий модели (Model.copy), учитываются в каждой копии.
+ */
+public final class ModelFootprint {
+
+    static final int OBJECT_HEADER = 12;
+    static final int ARRAY_HEADER = 16;
+    static final int REFERENCE = 4;
+
+    private final String name;
+    private final long vertexBytes;
+    private final long attributeBytes;
+    private final long polygonBytes;
+    private final long cacheBytes;
+
+    private ModelFootprint(String name, long vertexBytes, long attributeBytes, long polygonBytes, long cacheBytes) {
+        this.name = name;
+        this.vertexBytes = vertexBytes;
+        this.attributeBytes = attributeBytes;
+        this.polygonBytes = polygonBytes;
+        this.cacheBytes = cacheBytes;
+    }
+
+    public static ModelFootprint of(Model model) {
+        if (model == null) {
+            throw new IllegalArgumentException("Model cannot be null");
+        }
+        if (model.hasStoredGeometry()) {
+            // Геометрия в буферах (Model.storeGeometry), списки модели пусты
+            return ofBuffers(model.getName(), model.getMeshBuffers());
+        }
+        long polygons;
+        if (model.isCompact()) {
+            // Список полигонов не создается ради оценки
+            polygons = model.compactStorage().footprintBytes();
+        } else {
+            // Общий с копией список не копируется ради оценки
+            List<Polygon> list = model.polygonList();
+            polygons = object(REFERENCE * 2 + Integer.BYTES * 2) + array(list.size(), REFERENCE);
+            for (Polygon polygon : list) {
+                if (polygon != null) {
+                    polygons += object(3 * REFERENCE) + bytes(polygon.getVertexIndices())
+                            + bytes(polygon.getTextureVertexIndices()) + bytes(polygon.getNormalIndices());
+                }
+            }
+        }
+        return new ModelFootprint(model.getName(),
+                bytes(model.getVertices()),
+                bytes(model.getTextureVertices()) + bytes(model.getNormals()),
+                polygons,
+                model.derivedCacheBytes());
+    }
+
+    // Буферы вне кучи (OffHeapMesh) в оценку не входят, у квантованных (QuantizedMesh) учитываются 16-битные массивы
+    private static ModelFootprint ofBuffers(String name, MeshBuffers mesh) {
+        long vertices;
+        long attributes;
+        if (mesh instanceof QuantizedMesh) {
+            vertices = array(3L * mesh.vertexCount(), Character.BYTES);
+            attributes = array(2L * mesh.normalCount(), Short.BYTES) + bytes(mesh.textureVertices());
+        } else {
+            vertices = bytes(mesh.vertices());
+            attributes = bytes(mesh.textureVertices()) + bytes(mesh.normals());
+        }
+        long polygons = bytes(mesh.vertexOffsets()) + bytes(mesh.vertexIndices())
+                + bytes(mesh.textureOffsets()) + bytes(mesh.textureIndices())
+                + bytes(mesh.normalOffsets()) + bytes(mesh.normalIndices());
+        return new ModelFootprint(name, vertices, attributes, polygons, 0);
+    }
+
+    /**
+     * Суммарная оценка для нескольких моделей
+     */
+    public static long totalBytes(Collection<Model> models) {
+        long total = 0;
+        for (Model model : models) {
+            total += of(model).getTotalBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Выбирает модели для выгрузки, чтобы уложиться в бюджет: сначала самые большие.
+     * Если бюджет уже соблюден, список пуст
+     * @param models
+     * @param budgetBytes
+     * @return модели в порядке выгрузки
+     */
+    public static List<Model> selectForEviction(Collection<Model> models, long budgetBytes) {
+        Map<Model, Long> sizes = new IdentityHashMap<>();
+        long total = 0;
+        for (Model model : models) {
+            long size = of(model).getTotalBytes();
+            sizes.put(model, size);
+            total += size;
+        }
+        List<Model> largestFirst = new ArrayList<>(sizes.keySet());
+        largestFirst.sort(Comparator.comparingLong(sizes::get).reversed());
+
+        List<Model> evicted = new ArrayList<>();
+        for (Model model : largestFirst) {
+            if (total <= budgetBytes) {
+                break;
+            }
+            evicted.add(model);
+            total -= sizes.get(model);
+        }
+        return evicted;
+    }
+
+    static long object(int fieldBytes) {
+        return align(OBJECT_HEADER + fieldBytes);
+    }
+
+    static long array(long length, int elementBytes) {
+        return align(ARRAY_HEADER + length * elementBytes);
+    }
+
+    static long bytes(BitSet bits) {
+        return bits == null ? 0 : object(REFERENCE + Integer.BYTES + 1) + array(bits.size() / Long.SIZE, Long.BYTES);
+    }
+
+    static long bytes(int[] values) {
+        return values == null ? 0 : array(values.length, Integer.BYTES);
+    }
+
+    // Буфер в куче занимает весь свой массив, прямой или отображенный в память - ничего
+    private static long bytes(FloatBuffer buffer) {
+        return buffer.hasArray() ? array(buffer.array().length, Float.BYTES) : 0;
+    }
+
+    private static long bytes(IntBuffer buffer) {
+        return buffer.hasArray() ? array(buffer.array().length, Integer.BYTES) : 0;
+    }
+
+    private static long bytes(PackedVectorList<?> list) {
+        return list == null ? 0 : list.footprintBytes();
+    }
+
+    private static long bytes(IndexList list) {
+        return list == null ? 0 : list.footprintBytes();
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Координаты вершин
+    public long getVertexBytes() {
+        return vertexBytes;
+    }
+
+    // Текстурные координаты и нормали
+    public long getAttributeBytes() {
+        return attributeBytes;
+    }
+
+    // Список полигонов и их индексы
+    public long getPolygonBytes() {
+        return polygonBytes;
+    }
+
+    // Производные кэши модели, которые можно освободить через Model.releaseDerivedCaches()
+    public long getCacheBytes() {
+        return cacheBytes;
+    }
+
+    public long getTotalBytes() {
+        return vertexBytes + attributeBytes + polygonBytes + cacheBytes;
+    }
+
+    /**
+     * Размер в удобных единицах, например "12.4 МБ"
+     */
+    public static String format(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " Б";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f КБ", bytes / 1024.0);
+        }
+        if (bytes < 1024L * 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f МБ", bytes / (1024.0 * 1024));
+        }
+        return String.format(Locale.ROOT, "%.2f ГБ", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s (вершины %s, атрибуты %s, полигоны %s, кэши %s)",
+                name, format(getTotalBytes()), format(vertexBytes), format(attributeBytes),
+                format(polygonBytes), format(cacheBytes));
+    }
+}
@@ -0,0 +1,211 @@
+package com.cgvsu.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Геометрия модели вне кучи: координаты и индексы лежат в прямых (allocateDirect)
+ * или отображенных в память буферах, поэтому большая модель не увеличивает кучу и не нагружает сборщик мусора.
+ * После close() обращение к буферам запрещено; память освобождается, когда на буферы,
+ * полученные до закрытия, не остается ссылок.
+ */
+public final class OffHeapMesh implements MeshBuffers, AutoCloseable {
+
+    private final String name;
+    private final int vertexCount;
+    private final int textureVertexCount;
+    private final int normalCount;
+    private final int polygonCount;
+
+    private FloatBuffer vertices;
+    private FloatBuffer textureVertices;
+    private FloatBuffer normals;
+    private IntBuffer vertexOffsets;
+    private IntBuffer vertexIndices;
+    private IntBuffer textureOffsets;
+    private IntBuffer textureIndices;
+    private IntBuffer normalOffsets;
+    private IntBuffer normalIndices;
+    private volatile boolean closed;
+
+    private OffHeapMesh(String name, FloatBuffer vertices, FloatBuffer textureVertices, FloatBuffer normals,
+                        IntBuffer vertexOffsets, IntBuffer vertexIndices,
+                        IntBuffer textureOffsets, IntBuffer textureIndices,
+                        IntBuffer normalOffsets, IntBuffer normalIndices) {
+        if (vertexOffsets.capacity() < 1
+                || textureOffsets.capacity() != vertexOffsets.capacity()
+                || normalOffsets.capacity() != vertexOffsets.capacity()) {
+            throw new IllegalArgumentException("Polygon offset buffers must have polygonCount + 1 elements");
+        }
+        this.name = name;
+        this.vertexCount = vertices.capacity() / 3;
+        this.textureVertexCount = textureVertices.capacity() / 2;
+        this.normalCount = normals.capacity() / 3;
+        this.polygonCount = vertexOffsets.capacity() - 1;
+        this.vertices = vertices.asReadOnlyBuffer();
+        this.textureVertices = textureVertices.asReadOnlyBuffer();
+        this.normals = normals.asReadOnlyBuffer();
+        this.vertexOffsets = vertexOffsets.asReadOnlyBuffer();
+        this.vertexIndices = vertexIndices.asReadOnlyBuffer();
+        this.textureOffsets = textureOffsets.asReadOnlyBuffer();
+        this.textureIndices = textureIndices.asReadOnlyBuffer();
+        this.normalOffsets = normalOffsets.asReadOnlyBuffer();
+        this.normalIndices = normalIndices.asReadOnlyBuffer();
+    }
+
+    /**
+     * Создает модель поверх готовых буферов, например отображенных секций файла кэша.
+     * Количества элементов определяются по емкости буферов
+     */
+    public static OffHeapMesh wrap(String name, FloatBuffer vertices, FloatBuffer textureVertices, FloatBuffer normals,
+                                   IntBuffer vertexOffsets, IntBuffer vertexIndices,
+                                   IntBuffer textureOffsets, IntBuffer textureIndices,
+                                   IntBuffer normalOffsets, IntBuffer normalIndices) {
+        return new OffHeapMesh(name, vertices, textureVertices, normals, vertexOffsets, vertexIndices,
+                textureOffsets, textureIndices, normalOffsets, normalIndices);
+    }
+
+    /**
+     * Копирует геометрию модели в прямые буферы вне кучи
+     * @param model
+     * @return
+     */
+    public static OffHeapMesh allocate(Model model) {
+        if (model == null) {
+            throw new IllegalArgumentException("Model cannot be null");
+        }
+        MeshBuffers source = MeshBuffers.of(model);
+        return new OffHeapMesh(model.getName(),
+                copy(source.vertices()), copy(source.textureVertices()), copy(source.normals()),
+                copy(source.vertexOffsets()), copy(source.vertexIndices()),
+                copy(source.textureOffsets()), copy(source.textureIndices()),
+                copy(source.normalOffsets()), copy(source.normalIndices()));
+    }
+
+    private static FloatBuffer copy(FloatBuffer source) {
+        FloatBuffer target = ByteBuffer.allocateDirect(source.capacity() * Float.BYTES)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        target.put(source.duplicate().clear());
+        return target.clear();
+    }
+
+    private static IntBuffer copy(IntBuffer source) {
+        IntBuffer target = ByteBuffer.allocateDirect(source.capacity() * Integer.BYTES)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+        target.put(source.duplicate().clear());
+        return target.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Запрещает дальнейшее чтение и отпускает ссылки на буферы
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        vertices = null;
+        textureVertices = null;
+        normals = null;
+        vertexOffsets = null;
+        vertexIndices = null;
+        textureOffsets = null;
+        textureIndices = null;
+        normalOffsets = null;
+        normalIndices = null;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Off-heap mesh is closed: " + name);
+        }
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public synchronized FloatBuffer vertices() {
+        checkOpen();
+        return vertices;
+    }
+
+    @Override
+    public int textureVertexCount() {
+        return textureVertexCount;
+    }
+
+    @Override
+    public synchronized FloatBuffer textureVertices() {
+        checkOpen();
+        return textureVertices;
+    }
+
+    @Override
+    public int normalCount() {
+        return normalCount;
+    }
+
+    @Override
+    public synchronized FloatBuffer normals() {
+        checkOpen();
+        return normals;
+    }
+
+    @Override
+    public int polygonCount() {
+        return polygonCount;
+    }
+
+    @Override
+    public synchronized IntBuffer vertexOffsets() {
+        checkOpen();
+        return vertexOffsets;
+    }
+
+    @Override
+    public synchronized IntBuffer vertexIndices() {
+        checkOpen();
+        return vertexIndices;
+    }
+
+    @Override
+    public synchronized IntBuffer textureOffsets() {
+        checkOpen();
+        return textureOffsets;
+    }
+
+    @Override
+    public synchronized IntBuffer textureIndices() {
+        checkOpen();
+        return textureIndices;
+    }
+
+    @Override
+    public synchronized IntBuffer normalOffsets() {
+        checkOpen();
+        return normalOffsets;
+    }
+
+    @Override
+    public synchronized IntBuffer normalIndices() {
+        checkOpen();
+        return normalIndices;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OffHeapMesh[name=%s, vertices=%d, polygons=%d, closed=%b]",
+                name, vertexCount, polygonCount, closed);
+    }
+}
@@ -0,0 +1,129 @@
+package com.cgvsu.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Индексы всех полигонов модели в сжатом построчном виде (CSR).
+ * Индексы вершин полигона i лежат в vertexIndices с vertexOffsets[i] до vertexOffsets[i + 1],
+ * так же устроены индексы текстурных координат и нормалей. Пустой полигон (null) имеет пустые диапазоны.
+ * Снимок не связан с моделью: после изменения полигонов его нужно построить заново.
+ */
+public final class PackedPolygons {
+    private static final PackedPolygons EMPTY = new PackedPolygons(new int[1], new int[0],
+            new int[1], new int[0], new int[1], new int[0]);
+
+    public final int[] vertexOffsets;
+    public final int[] vertexIndices;
+    public final int[] textureOffsets;
+    public final int[] textureIndices;
+    public final int[] normalOffsets;
+    public final int[] normalIndices;
+
+    PackedPolygons(int[] vertexOffsets, int[] vertexIndices,
+                   int[] textureOffsets, int[] textureIndices,
+                   int[] normalOffsets, int[] normalIndices) {
+        this.vertexOffsets = vertexOffsets;
+        this.vertexIndices = vertexIndices;
+        this.textureOffsets = textureOffsets;
+        this.textureIndices = textureIndices;
+        this.normalOffsets = normalOffsets;
+        this.normalIndices = normalIndices;
+    }
+
+    public static PackedPolygons of(List<Polygon> polygons) {
+        return EMPTY.append(polygons);
+    }
+
+    /**
+     * Снимок, дополненный полигонами списка начиная с polygonCount(). Первые polygonCount() полигонов
+     * списка должны совпадать со снимком: их индексы копируются из него массивами, без обхода полигонов
+     * @param polygons
+     * @return новый снимок
+     */
+    PackedPolygons append(List<Polygon> polygons) {
+        final int from = polygonCount();
+        final int count = polygons.size();
+        int[] vertexOffsets = Arrays.copyOf(this.vertexOffsets, count + 1);
+        int[] textureOffsets = Arrays.copyOf(this.textureOffsets, count + 1);
+        int[] normalOffsets = Arrays.copyOf(this.normalOffsets, count + 1);
+        for (int i = from; i < count; i++) {
+            Polygon polygon = polygons.get(i);
+            vertexOffsets[i + 1] = vertexOffsets[i] + size(polygon == null ? null : polygon.getVertexIndices());
+            textureOffsets[i + 1] = textureOffsets[i] + size(polygon == null ? null : polygon.getTextureVertexIndices());
+            normalOffsets[i + 1] = normalOffsets[i] + size(polygon == null ? null : polygon.getNormalIndices());
+        }
+
+        int[] vertexIndices = Arrays.copyOf(this.vertexIndices, vertexOffsets[count]);
+        int[] textureIndices = Arrays.copyOf(this.textureIndices, textureOffsets[count]);
+        int[] normalIndices = Arrays.copyOf(this.normalIndices, normalOffsets[count]);
+        for (int i = from; i < count; i++) {
+            Polygon polygon = polygons.get(i);
+            if (polygon == null) {
+                continue;
+            }
+            copy(polygon.getVertexIndices(), vertexIndices, vertexOffsets[i]);
+            copy(polygon.getTextureVertexIndices(), textureIndices, textureOffsets[i]);
+            copy(polygon.getNormalIndices(), normalIndices, normalOffsets[i]);
+        }
+        return new PackedPolygons(vertexOffsets, vertexIndices, textureOffsets, textureIndices,
+                normalOffsets, normalIndices);
+    }
+
+    /**
+     * Снимок без удаленных полигонов: индексы оставшихся копируются массивами по порядку
+     * @param newIndex новый номер каждого полигона или -1 для удаленного
+     * @param keptCount количество оставшихся полигонов
+     * @return новый снимок
+     */
+    PackedPolygons without(int[] newIndex, int keptCount) {
+        int[][] vertices = without(vertexOffsets, vertexIndices, newIndex, keptCount);
+        int[][] textures = without(textureOffsets, textureIndices, newIndex, keptCount);
+        int[][] normals = without(normalOffsets, normalIndices, newIndex, keptCount);
+        return new PackedPolygons(vertices[0], vertices[1], textures[0], textures[1], normals[0], normals[1]);
+    }
+
+    private static int[][] without(int[] offsets, int[] indices, int[] newIndex, int keptCount) {
+        int[] keptOffsets = new int[keptCount + 1];
+        int size = 0;
+        for (int p = 0; p < newIndex.length; p++) {
+            if (newIndex[p] >= 0) {
+                size += offsets[p + 1] - offsets[p];
+                keptOffsets[newIndex[p] + 1] = size;
+            }
+        }
+        int[] keptIndices = new int[size];
+        for (int p = 0; p < newIndex.length; p++) {
+            if (newIndex[p] >= 0) {
+                int start = keptOffsets[newIndex[p]];
+                System.arraycopy(indices, offsets[p], keptIndices, start, keptOffsets[newIndex[p] + 1] - start);
+            }
+        }
+        return new int[][]{keptOffsets, keptIndices};
+    }
+
+    long footprintBytes() {
+        return ModelFootprint.object(6 * ModelFootprint.REFERENCE)
+                + ModelFootprint.bytes(vertexOffsets) + ModelFootprint.bytes(vertexIndices)
+                + ModelFootprint.bytes(textureOffsets) + ModelFootprint.bytes(textureIndices)
+                + ModelFootprint.bytes(normalOffsets) + ModelFootprint.bytes(normalIndices);
+    }
+
+    public int polygonCount() {
+        return vertexOffsets.length - 1;
+    }
+
+    public int vertexCount(int polygon) {
+        return vertexOffsets[polygon + 1] - vertexOffsets[polygon];
+    }
+
+    private static int size(IndexList indices) {
+        return indices == null ? 0 : indices.size();
+    }
+
+    private static void copy(IndexList indices, int[] target, int offset) {
+        if (indices != null) {
+            indices.copyTo(target, offset);
+        }
+    }
+}
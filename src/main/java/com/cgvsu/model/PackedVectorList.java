@@ -0,0 +1,272 @@
+package com.cgvsu.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Список векторов, координаты которых хранятся подряд в одном массиве float.
+ * Вместо объекта на каждый элемент хранится только components чисел, объект вектора
+ * создается при обращении через get. Пустые (null) элементы отмечаются отдельной битовой маской,
+ * которая создается только если такой элемент появился.
+ * Копия списка (shareInto) использует тот же массив, пока один из списков не изменится:
+ * при первом изменении список копирует массив себе (копирование при записи).
+ */
+abstract class PackedVectorList<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private final int components;
+    private float[] data;
+    private int size;
+    private BitSet nulls;
+    // Массив data (и nulls) может использоваться другим списком, перед записью его нужно скопировать
+    private boolean shared;
+
+    PackedVectorList(int components, int capacity) {
+        this.components = components;
+        this.data = new float[Math.max(0, capacity) * components];
+    }
+
+    // Создает вектор из координат, начиная с offset
+    abstract E read(float[] data, int offset);
+
+    // Записывает координаты вектора, начиная с offset
+    abstract void write(float[] data, int offset, E element);
+
+    /**
+     * Возвращает массив координат. Действительны первые size() * components элементов,
+     * массив заменяется при росте списка. Массив может быть общим с копиями списка,
+     * поэтому изменять его напрямую нельзя
+     */
+    public float[] coordinates() {
+        return data;
+    }
+
+    public boolean isNullAt(int index) {
+        return nulls != null && nulls.get(index);
+    }
+
+    // Есть ли в списке пустые элементы; без них все координаты в coordinates() действительны
+    public boolean hasNulls() {
+        return nulls != null && !nulls.isEmpty();
+    }
+
+    /**
+     * Заменяет содержимое списка координатами из массива без создания объектов
+     * @param coordinates
+     * @param count количество векторов
+     */
+    public void setCoordinates(float[] coordinates, int count) {
+        if (coordinates.length < count * components) {
+            throw new IllegalArgumentException("Coordinate array is too short");
+        }
+        data = coordinates;
+        size = count;
+        nulls = null;
+        shared = false;
+        modCount++;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity * components > data.length) {
+            int grown = Math.max(capacity, Math.max(DEFAULT_CAPACITY, size + (size >> 1)));
+            data = Arrays.copyOf(data, grown * components);
+            if (shared && nulls != null) {
+                nulls = (BitSet) nulls.clone();
+            }
+            shared = false;
+        }
+    }
+
+    // Делает target копией этого списка без копирования массива координат
+    void shareInto(PackedVectorList<E> target) {
+        shared = true;
+        target.data = data;
+        target.size = size;
+        target.nulls = nulls;
+        target.shared = true;
+        target.modCount++;
+    }
+
+    // Перед записью отделяет общий массив от копий списка
+    private void beforeWrite() {
+        if (shared) {
+            data = Arrays.copyOf(data, data.length);
+            if (nulls != null) {
+                nulls = (BitSet) nulls.clone();
+            }
+            shared = false;
+        }
+    }
+
+    // Добавляет элемент в конец и возвращает смещение его координат в массиве
+    int appendSlot() {
+        beforeWrite();
+        ensureCapacity(size + 1);
+        size++;
+        modCount++;
+        return (size - 1) * components;
+    }
+
+    // Оценка памяти списка с массивом координат и маской пустых элементов
+    long footprintBytes() {
+        return ModelFootprint.object(3 * Integer.BYTES + 2 * ModelFootprint.REFERENCE + 1)
+                + ModelFootprint.array(data.length, Float.BYTES) + ModelFootprint.bytes(nulls);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E get(int index) {
+        checkIndex(index, size);
+        return isNullAt(index) ? null : read(data, index * components);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        checkIndex(index, size);
+        E previous = get(index);
+        store(index, element);
+        return previous;
+    }
+
+    @Override
+    public boolean add(E element) {
+        beforeWrite();
+        ensureCapacity(size + 1);
+        size++;
+        store(size - 1, element);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkIndex(index, size + 1);
+        beforeWrite();
+        ensureCapacity(size + 1);
+        System.arraycopy(data, index * components, data, (index + 1) * components, (size - index) * components);
+        if (nulls != null) {
+            shiftNulls(index, 1);
+        }
+        size++;
+        store(index, element);
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean addAll(Collection<? extends E> collection) {
+        int count = collection.size();
+        beforeWrite();
+        ensureCapacity(size + count);
+        if (collection instanceof PackedVectorList && collection.getClass() == getClass()
+                && ((PackedVectorList<?>) collection).nulls == null) {
+            // Координаты копируются без создания объектов
+            System.arraycopy(((PackedVectorList<?>) collection).data, 0, data, size * components, count * components);
+            size += count;
+        } else {
+            for (Object element : collection.toArray()) {
+                size++;
+                store(size - 1, (E) element);
+            }
+        }
+        modCount++;
+        return count > 0;
+    }
+
+    /**
+     * Добавляет в конец элементы source с from до to, копируя координаты без создания объектов векторов
+     * @param source список того же типа, может совпадать с этим списком
+     * @param from первый элемент
+     * @param to элемент после последнего
+     */
+    public void addAll(PackedVectorList<E> source, int from, int to) {
+        if (source.getClass() != getClass()) {
+            throw new IllegalArgumentException("Source list has a different element type");
+        }
+        if (from < 0 || to > source.size || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + ".." + to + " out of bounds for length " + source.size);
+        }
+        final int count = to - from;
+        beforeWrite();
+        ensureCapacity(size + count);
+        System.arraycopy(source.data, from * components, data, size * components, count * components);
+        if (source.nulls != null) {
+            for (int i = source.nulls.nextSetBit(from); i >= 0 && i < to; i = source.nulls.nextSetBit(i + 1)) {
+                if (nulls == null) {
+                    nulls = new BitSet();
+                }
+                nulls.set(size + i - from);
+            }
+        }
+        size += count;
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        E previous = get(index);
+        removeRange(index, index + 1);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        if (shared) {
+            data = new float[0];
+            shared = false;
+        }
+        size = 0;
+        nulls = null;
+        modCount++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        int removed = toIndex - fromIndex;
+        beforeWrite();
+        System.arraycopy(data, toIndex * components, data, fromIndex * components, (size - toIndex) * components);
+        if (nulls != null) {
+            shiftNulls(toIndex, -removed);
+        }
+        size -= removed;
+        modCount++;
+    }
+
+    private void store(int index, E element) {
+        beforeWrite();
+        if (element == null) {
+            if (nulls == null) {
+                nulls = new BitSet();
+            }
+            nulls.set(index);
+            return;
+        }
+        if (nulls != null) {
+            nulls.clear(index);
+        }
+        write(data, index * components, element);
+    }
+
+    // Сдвигает отметки null начиная с from на shift позиций
+    private void shiftNulls(int from, int shift) {
+        BitSet shifted = nulls.get(0, Math.max(0, from + Math.min(0, shift)));
+        for (int i = nulls.nextSetBit(from); i >= 0; i = nulls.nextSetBit(i + 1)) {
+            shifted.set(i + shift);
+        }
+        nulls = shifted;
+    }
+
+    static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+}
@@ -1,44 +1,73 @@
 package com.cgvsu.model;
 
-import java.util.ArrayList;
+import java.util.List;
 
 public class Polygon {
 
-    private ArrayList<Integer> vertexIndices;
-    private ArrayList<Integer> textureVertexIndices;
-    private ArrayList<Integer> normalIndices;
+    // Индексы хранятся в массивах int (IndexList); переданные списки других типов копируются
+    private IndexList vertexIndices;
+    private IndexList textureVertexIndices;
+    private IndexList normalIndices;
 
 
     public Polygon() {
-        vertexIndices = new ArrayList<Integer>();
-        textureVertexIndices = new ArrayList<Integer>();
-        normalIndices = new ArrayList<Integer>();
+        vertexIndices = new IndexList();
+        textureVertexIndices = new IndexList();
+        normalIndices = new IndexList();
     }
 
-    public void setVertexIndices(ArrayList<Integer> vertexIndices) {
+    public Polygon(List<Integer> vertexIndices,
+                   List<Integer> textureVertexIndices,
+                   List<Integer> normalIndices) {
+        this.vertexIndices = adopt(vertexIndices);
+        this.textureVertexIndices = adopt(textureVertexIndices);
+        this.normalIndices = adopt(normalIndices);
+    }
+
+    /**
+     * Копия полигона, индексы которой общие с исходным полигоном до первого изменения
+     * @return
+     */
+    public Polygon copy() {
+        Polygon copy = new Polygon();
+        copy.vertexIndices = copyOf(vertexIndices);
+        copy.textureVertexIndices = copyOf(textureVertexIndices);
+        copy.normalIndices = copyOf(normalIndices);
+        return copy;
+    }
+
+    public void setVertexIndices(List<Integer> vertexIndices) {
         assert vertexIndices.size() >= 3;
-        this.vertexIndices = vertexIndices;
+        this.vertexIndices = adopt(vertexIndices);
     }
 
-    public void setTextureVertexIndices(ArrayList<Integer> textureVertexIndices) {
+    public void setTextureVertexIndices(List<Integer> textureVertexIndices) {
         assert textureVertexIndices.size() >= 3;
-        this.textureVertexIndices = textureVertexIndices;
+        this.textureVertexIndices = adopt(textureVertexIndices);
     }
 
-    public void setNormalIndices(ArrayList<Integer> normalIndices) {
+    public void setNormalIndices(List<Integer> normalIndices) {
         assert normalIndices.size() >= 3;
-        this.normalIndices = normalIndices;
+        this.normalIndices = adopt(normalIndices);
     }
 
-    public ArrayList<Integer> getVertexIndices() {
+    public IndexList getVertexIndices() {
         return vertexIndices;
     }
 
-    public ArrayList<Integer> getTextureVertexIndices() {
+    public IndexList getTextureVertexIndices() {
         return textureVertexIndices;
     }
 
-    public ArrayList<Integer> getNormalIndices() {
+    public IndexList getNormalIndices() {
         return normalIndices;
     }
+
+    private static IndexList copyOf(IndexList indices) {
+        return indices == null ? null : indices.copy();
+    }
+
+    private static IndexList adopt(List<Integer> indices) {
+        return indices instanceof IndexList ? (IndexList) indices : IndexList.copyOf(indices);
+    }
 }
@@ -0,0 +1,255 @@
+package com.cgvsu.model;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Геометрия с квантованными координатами для очень больших моделей.
+ * Позиции хранятся 16-битными числами без знака относительно ограничивающего параллелепипеда модели
+ * (6 байт на вершину вместо 12), нормали - в октаэдрическом представлении двумя 16-битными числами
+ * (4 байта вместо 12). Текстурные координаты и индексы полигонов берутся из исходных буферов без изменений.
+ * <p>
+ * Погрешность: координата по оси восстанавливается с ошибкой не больше (max - min) / 131070,
+ * то есть половины шага сетки, плюс несколько единиц младшего разряда float, направление нормали - с ошибкой не больше 1e-4 по длине разности
+ * единичных векторов (около 0.006 градуса). Нулевая нормаль восстанавливается как (0, 0, 1).
+ * <p>
+ * При отрисовке координаты не декодируются: RenderEngine подает квантованные значения
+ * и переводит их в координаты модели матрицей origin + q * step, умноженной на матрицу преобразования.
+ * vertices() и normals() декодируют данные в новые буферы и нужны для записи и проверки модели.
+ */
+public final class QuantizedMesh implements MeshBuffers {
+
+    private static final int POSITION_LEVELS = 65535;
+    private static final float NORMAL_SCALE = Short.MAX_VALUE;
+
+    private final int vertexCount;
+    private final char[] positions;
+    private final float[] origin = new float[3];
+    private final float[] step = new float[3];
+
+    private final int normalCount;
+    private final short[] normals;
+
+    private final int textureVertexCount;
+    private final FloatBuffer textureVertices;
+    private final int polygonCount;
+    private final IntBuffer vertexOffsets;
+    private final IntBuffer vertexIndices;
+    private final IntBuffer textureOffsets;
+    private final IntBuffer textureIndices;
+    private final IntBuffer normalOffsets;
+    private final IntBuffer normalIndices;
+
+    private QuantizedMesh(MeshBuffers source) {
+        vertexCount = source.vertexCount();
+        positions = quantizePositions(source.vertices(), vertexCount, origin, step);
+        normalCount = source.normalCount();
+        normals = encodeNormals(source.normals(), normalCount);
+
+        textureVertexCount = source.textureVertexCount();
+        textureVertices = source.textureVertices();
+        polygonCount = source.polygonCount();
+        vertexOffsets = source.vertexOffsets();
+        vertexIndices = source.vertexIndices();
+        textureOffsets = source.textureOffsets();
+        textureIndices = source.textureIndices();
+        normalOffsets = source.normalOffsets();
+        normalIndices = source.normalIndices();
+    }
+
+    /**
+     * Квантует позиции и нормали модели. После этого модель можно не хранить:
+     * из нее остаются только текстурные координаты и снимок индексов полигонов
+     * @param model
+     * @return
+     */
+    public static QuantizedMesh of(Model model) {
+        if (model == null) {
+            throw new IllegalArgumentException("Model cannot be null");
+        }
+        return new QuantizedMesh(MeshBuffers.of(model));
+    }
+
+    public static QuantizedMesh of(MeshBuffers source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Mesh cannot be null");
+        }
+        return new QuantizedMesh(source);
+    }
+
+    private static char[] quantizePositions(FloatBuffer source, int count, float[] origin, float[] step) {
+        float[] max = new float[3];
+        for (int axis = 0; axis < 3; axis++) {
+            origin[axis] = Float.POSITIVE_INFINITY;
+            max[axis] = Float.NEGATIVE_INFINITY;
+        }
+        for (int i = 0; i < count * 3; i++) {
+            float value = source.get(i);
+            origin[i % 3] = Math.min(origin[i % 3], value);
+            max[i % 3] = Math.max(max[i % 3], value);
+        }
+        for (int axis = 0; axis < 3; axis++) {
+            if (count == 0) {
+                origin[axis] = 0;
+                max[axis] = 0;
+            }
+            step[axis] = (max[axis] - origin[axis]) / POSITION_LEVELS;
+        }
+
+        char[] quantized = new char[count * 3];
+        for (int i = 0; i < quantized.length; i++) {
+            int axis = i % 3;
+            quantized[i] = step[axis] == 0 ? 0
+                    : (char) Math.min(POSITION_LEVELS, Math.round((source.get(i) - origin[axis]) / step[axis]));
+        }
+        return quantized;
+    }
+
+    // Октаэдрическое кодирование: проекция на октаэдр |x| + |y| + |z| = 1 и развертка нижней половины
+    private static short[] encodeNormals(FloatBuffer source, int count) {
+        short[] encoded = new short[count * 2];
+        for (int i = 0; i < count; i++) {
+            float x = source.get(i * 3);
+            float y = source.get(i * 3 + 1);
+            float z = source.get(i * 3 + 2);
+            float sum = Math.abs(x) + Math.abs(y) + Math.abs(z);
+            if (sum == 0) {
+                continue;
+            }
+            float u = x / sum;
+            float v = y / sum;
+            if (z < 0) {
+                float folded = (1 - Math.abs(v)) * signNotZero(u);
+                v = (1 - Math.abs(u)) * signNotZero(v);
+                u = folded;
+            }
+            encoded[i * 2] = (short) Math.round(Math.max(-1, Math.min(1, u)) * NORMAL_SCALE);
+            encoded[i * 2 + 1] = (short) Math.round(Math.max(-1, Math.min(1, v)) * NORMAL_SCALE);
+        }
+        return encoded;
+    }
+
+    private static float signNotZero(float value) {
+        return value >= 0 ? 1 : -1;
+    }
+
+    /**
+     * Квантованная координата: элемент 3 * i + axis, значение от 0 до 65535
+     */
+    public int quantizedCoordinate(int index) {
+        return positions[index];
+    }
+
+    // Начало сетки квантования по оси 0, 1 или 2
+    public float origin(int axis) {
+        return origin[axis];
+    }
+
+    // Шаг сетки квантования по оси
+    public float step(int axis) {
+        return step[axis];
+    }
+
+    public float decodeCoordinate(int index) {
+        int axis = index % 3;
+        return origin[axis] + positions[index] * step[axis];
+    }
+
+    /**
+     * Декодирует нормаль i в target, начиная с offset
+     */
+    public void decodeNormal(int i, float[] target, int offset) {
+        float u = normals[i * 2] / NORMAL_SCALE;
+        float v = normals[i * 2 + 1] / NORMAL_SCALE;
+        float z = 1 - Math.abs(u) - Math.abs(v);
+        if (z < 0) {
+            float folded = (1 - Math.abs(v)) * signNotZero(u);
+            v = (1 - Math.abs(u)) * signNotZero(v);
+            u = folded;
+        }
+        float length = (float) Math.sqrt(u * u + v * v + z * z);
+        target[offset] = u / length;
+        target[offset + 1] = v / length;
+        target[offset + 2] = z / length;
+    }
+
+    // Память, занятая квантованными позициями и нормалями, в байтах
+    public long quantizedBytes() {
+        return (long) positions.length * Character.BYTES + (long) normals.length * Short.BYTES;
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    // Декодированные позиции в новом буфере
+    @Override
+    public FloatBuffer vertices() {
+        float[] decoded = new float[positions.length];
+        for (int i = 0; i < decoded.length; i++) {
+            decoded[i] = decodeCoordinate(i);
+        }
+        return FloatBuffer.wrap(decoded);
+    }
+
+    @Override
+    public int textureVertexCount() {
+        return textureVertexCount;
+    }
+
+    @Override
+    public FloatBuffer textureVertices() {
+        return textureVertices;
+    }
+
+    @Override
+    public int normalCount() {
+        return normalCount;
+    }
+
+    // Декодированные нормали в новом буфере
+    @Override
+    public FloatBuffer normals() {
+        float[] decoded = new float[normalCount * 3];
+        for (int i = 0; i < normalCount; i++) {
+            decodeNormal(i, decoded, i * 3);
+        }
+        return FloatBuffer.wrap(decoded);
+    }
+
+    @Override
+    public int polygonCount() {
+        return polygonCount;
+    }
+
+    @Override
+    public IntBuffer vertexOffsets() {
+        return vertexOffsets;
+    }
+
+    @Override
+    public IntBuffer vertexIndices() {
+        return vertexIndices;
+    }
+
+    @Override
+    public IntBuffer textureOffsets() {
+        return textureOffsets;
+    }
+
+    @Override
+    public IntBuffer textureIndices() {
+        return textureIndices;
+    }
+
+    @Override
+    public IntBuffer normalOffsets() {
+        return normalOffsets;
+    }
+
+    @Override
+    public IntBuffer normalIndices() {
+        return normalIndices;
+    }
+}
@@ -0,0 +1,60 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector2f;
+
+import java.util.Collection;
+
+/**
+ * Список текстурных координат с парами u, v подряд в одном массиве.
+ */
+public final class Vector2fList extends PackedVectorList<Vector2f> {
+
+    public Vector2fList() {
+        super(2, 10);
+    }
+
+    public Vector2fList(int capacity) {
+        super(2, capacity);
+    }
+
+    public Vector2fList(Collection<? extends Vector2f> source) {
+        super(2, source.size());
+        addAll(source);
+    }
+
+    /**
+     * Копия списка за O(1): массив координат общий, пока одна из копий не изменится
+     * @return
+     */
+    public Vector2fList copy() {
+        Vector2fList copy = new Vector2fList(0);
+        shareInto(copy);
+        return copy;
+    }
+
+    public void add(float x, float y) {
+        int offset = appendSlot();
+        float[] data = coordinates();
+        data[offset] = x;
+        data[offset + 1] = y;
+    }
+
+    public float x(int index) {
+        return coordinates()[index * 2];
+    }
+
+    public float y(int index) {
+        return coordinates()[index * 2 + 1];
+    }
+
+    @Override
+    Vector2f read(float[] data, int offset) {
+        return new Vector2f(data[offset], data[offset + 1]);
+    }
+
+    @Override
+    void write(float[] data, int offset, Vector2f element) {
+        data[offset] = element.getX();
+        data[offset + 1] = element.getY();
+    }
+}
@@ -0,0 +1,67 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector3f;
+
+import java.util.Collection;
+
+/**
+ * Список трехмерных векторов (вершин или нормалей) с координатами x, y, z подряд в одном массиве.
+ * Для быстрых циклов координаты можно читать напрямую через coordinates(), x(i), y(i), z(i).
+ */
+public final class Vector3fList extends PackedVectorList<Vector3f> {
+
+    public Vector3fList() {
+        super(3, 10);
+    }
+
+    public Vector3fList(int capacity) {
+        super(3, capacity);
+    }
+
+    public Vector3fList(Collection<? extends Vector3f> source) {
+        super(3, source.size());
+        addAll(source);
+    }
+
+    /**
+     * Копия списка за O(1): массив координат общий, пока одна из копий не изменится
+     * @return
+     */
+    public Vector3fList copy() {
+        Vector3fList copy = new Vector3fList(0);
+        shareInto(copy);
+        return copy;
+    }
+
+    public void add(float x, float y, float z) {
+        int offset = appendSlot();
+        float[] data = coordinates();
+        data[offset] = x;
+        data[offset + 1] = y;
+        data[offset + 2] = z;
+    }
+
+    public float x(int index) {
+        return coordinates()[index * 3];
+    }
+
+    public float y(int index) {
+        return coordinates()[index * 3 + 1];
+    }
+
+    public float z(int index) {
+        return coordinates()[index * 3 + 2];
+    }
+
+    @Override
+    Vector3f read(float[] data, int offset) {
+        return new Vector3f(data[offset], data[offset + 1], data[offset + 2]);
+    }
+
+    @Override
+    void write(float[] data, int offset, Vector3f element) {
+        data[offset] = element.x;
+        data[offset + 1] = element.y;
+        data[offset + 2] = element.z;
+    }
+}
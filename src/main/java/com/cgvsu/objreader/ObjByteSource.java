@@ -0,0 +1,261 @@
+package com.cgvsu.objreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Источник байтов OBJ-файла для потокового чтения.
+ * Отдает содержимое блоками, каждый из которых состоит только из целых строк,
+ * поэтому парсеру не нужно склеивать строку из двух соседних блоков.
+ * Весь файл целиком в памяти никогда не держится.
+ */
+final class ObjByteSource {
+
+	// Размер окна отображения файла в память. Окно не может превышать 2 ГБ,
+	// а файлы бывают больше, поэтому файл отображается по частям
+	static final int MAPPED_WINDOW_SIZE = 64 * 1024 * 1024;
+	// Начальный размер буфера при чтении из произвольного канала
+	static final int CHANNEL_BUFFER_SIZE = 1024 * 1024;
+	// Распаковка gzip: размер блока, буфер потока и сколько блоков может ждать разбора
+	static final int GZIP_BLOCK_SIZE = 4 * 1024 * 1024;
+	static final int GZIP_STREAM_BUFFER_SIZE = 256 * 1024;
+	static final int GZIP_QUEUE_DEPTH = 4;
+
+	private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+	interface BlockConsumer {
+		// Блок содержит целые строки от position до limit.
+		// Последняя строка может не заканчиваться переводом строки только в конце файла
+		void accept(ByteBuffer block);
+	}
+
+	private ObjByteSource() {
+	}
+
+	static void readFile(Path path, BlockConsumer consumer) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			long position = 0;
+			int windowSize = MAPPED_WINDOW_SIZE;
+
+			while (position < size) {
+				long length = Math.min(windowSize, size - position);
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+				int blockEnd = (int) length;
+				if (position + length < size) {
+					blockEnd = lastLineEnd(window, 0, (int) length);
+					if (blockEnd < 0) {
+						// Строка длиннее окна: увеличиваем окно и отображаем заново
+						if (windowSize > Integer.MAX_VALUE / 2) {
+							throw new IOException("OBJ line is too long: " + path);
+						}
+						windowSize *= 2;
+						continue;
+					}
+				}
+
+				window.limit(blockEnd);
+				consumer.accept(window);
+				position += blockEnd;
+			}
+		}
+	}
+
+	static void readChannel(ReadableByteChannel channel, BlockConsumer consumer) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(CHANNEL_BUFFER_SIZE);
+		boolean endOfStream = false;
+
+		while (!endOfStream) {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					endOfStream = true;
+					break;
+				}
+			}
+			buffer.flip();
+
+			int blockEnd = endOfStream ? buffer.limit() : lastLineEnd(buffer, 0, buffer.limit());
+			if (blockEnd < 0) {
+				// В буфере нет ни одной целой строки, расширяем его
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				larger.put(buffer);
+				buffer = larger;
+				continue;
+			}
+
+			ByteBuffer block = buffer.duplicate();
+			block.limit(blockEnd);
+			consumer.accept(block);
+
+			buffer.position(blockEnd);
+			buffer.compact();
+		}
+	}
+
+	// Файл или gzip-архив, определяется по сигнатуре, а не по расширению
+	static void read(Path path, BlockConsumer consumer) throws IOException {
+		if (isGzip(path)) {
+			readGzip(path, consumer);
+		} else {
+			readFile(path, consumer);
+		}
+	}
+
+	static boolean isGzip(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(2);
+			while (magic.hasRemaining() && channel.read(magic) >= 0) {
+			}
+			return magic.position() == 2
+					&& (magic.get(0) & 0xFF) == 0x1F && (magic.get(1) & 0xFF) == 0x8B;
+		}
+	}
+
+	// Размер текста файла: для gzip берется из поля ISIZE в конце файла (размер по модулю 2^32)
+	static long contentLength(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < 18 || !isGzip(path)) {
+				return size;
+			}
+			ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			while (trailer.hasRemaining() && channel.read(trailer, size - 4 + trailer.position()) >= 0) {
+			}
+			return trailer.getInt(0) & 0xFFFFFFFFL;
+		}
+	}
+
+	// Чтение gzip: распаковка идет в отдельном потоке и опережает разбор на несколько блоков.
+	// Каждый блок - новый массив из целых строк, хвост незаконченной строки переносится в следующий блок
+	static void readGzip(Path path, BlockConsumer consumer) throws IOException {
+		BlockingQueue<ByteBuffer> queue = new ArrayBlockingQueue<>(GZIP_QUEUE_DEPTH);
+		Throwable[] failure = new Throwable[1];
+
+		Thread inflater = new Thread(() -> {
+			try (InputStream input = new GZIPInputStream(Files.newInputStream(path), GZIP_STREAM_BUFFER_SIZE)) {
+				inflateBlocks(input, queue);
+			} catch (InterruptedException e) {
+				// Разбор остановлен, очередь больше никто не читает: маркер конца не нужен
+				return;
+			} catch (Throwable e) {
+				// Любая ошибка, в том числе непроверяемая, передается потоку разбора
+				failure[0] = e;
+			}
+			// Маркер ставится после полной распаковки или ошибки. Если разбор уже ушел, он прервал
+			// этот поток, и put сразу завершится исключением вместо вечного ожидания в полной очереди
+			try {
+				queue.put(END_OF_STREAM);
+			} catch (InterruptedException ignored) {
+			}
+		}, "obj-gzip-inflater");
+		inflater.setDaemon(true);
+		inflater.start();
+
+		try {
+			while (true) {
+				ByteBuffer block = queue.take();
+				if (block == END_OF_STREAM) {
+					break;
+				}
+				consumer.accept(block);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("OBJ reading was interrupted");
+		} finally {
+			// И при ошибке разбора или отмене поток распаковки завершается до выхода из метода
+			inflater.interrupt();
+			queue.clear();
+			awaitTermination(inflater);
+		}
+		rethrow(failure[0], path);
+	}
+
+	private static void awaitTermination(Thread thread) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				thread.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void rethrow(Throwable failure, Path path) throws IOException {
+		if (failure == null) {
+			return;
+		}
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		throw new IOException("Failed to inflate " + path, failure);
+	}
+
+	private static void inflateBlocks(InputStream input, BlockingQueue<ByteBuffer> queue)
+			throws IOException, InterruptedException {
+		byte[] block = new byte[GZIP_BLOCK_SIZE];
+		int filled = 0;
+		boolean endOfStream = false;
+
+		while (!endOfStream) {
+			while (filled < block.length) {
+				int read = input.read(block, filled, block.length - filled);
+				if (read < 0) {
+					endOfStream = true;
+					break;
+				}
+				filled += read;
+			}
+
+			ByteBuffer buffer = ByteBuffer.wrap(block, 0, filled);
+			int blockEnd = endOfStream ? filled : lastLineEnd(buffer, 0, filled);
+			if (blockEnd < 0) {
+				// Строка длиннее блока
+				block = Arrays.copyOf(block, block.length * 2);
+				continue;
+			}
+			byte[] nextBlock = new byte[Math.max(GZIP_BLOCK_SIZE, filled - blockEnd)];
+			System.arraycopy(block, blockEnd, nextBlock, 0, filled - blockEnd);
+			if (blockEnd > 0) {
+				queue.put(ByteBuffer.wrap(block, 0, blockEnd));
+			}
+			filled -= blockEnd;
+			block = nextBlock;
+		}
+	}
+
+	// Возвращает позицию сразу после последнего перевода строки в диапазоне или -1, если его нет
+	private static int lastLineEnd(ByteBuffer buffer, int from, int to) {
+		for (int i = to - 1; i >= from; i--) {
+			if (buffer.get(i) == '\n' || buffer.get(i) == '\r') {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,535 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.IndexList;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.model.Vector2fList;
+import com.cgvsu.model.Vector3fList;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индекс групп OBJ-файла (записи o и g).
+ * Границы групп записывает ObjScanner при обычном чтении файла (ObjReadListener.onGroups), а отдельный
+ * быстрый проход (build) только находит границы и считает в каждой части файла строки v/vt/vn/f,
+ * не разбирая числа. Группы уже прочитанной модели выделяются из нее без повторного разбора (extractGroup).
+ * Иначе геометрия группы разбирается при первом обращении к ней:
+ * читаются только части файла этой группы и те части, на вершины которых ссылаются ее грани.
+ * Индексы, номера строк и сообщения об ошибках такие же, как при чтении всего файла.
+ * Индекс можно сохранить (write) и восстановить (read) без повторного прохода по тексту.
+ */
+public class ObjGroupIndex {
+
+	private static final int VERTICES = 0;
+	private static final int TEXTURES = 1;
+	private static final int NORMALS = 2;
+
+	// Часть файла от одной записи o/g до следующей
+	private static final class Segment {
+		long start;
+		long end;
+		// Количества вершин, текстур и нормалей в части и во всех предыдущих частях
+		final int[] count = new int[3];
+		final int[] base = new int[3];
+		int lineCount;
+		int lineBase;
+		int faceCount;
+		int faceBase;
+	}
+
+	/**
+	 * Записи o/g, найденные при разборе текста: смещение начала строки, имя (может быть пустым)
+	 * и количества вершин, текстур, нормалей, непустых строк и граней до этой строки
+	 */
+	static final class Boundaries {
+		private static final int FIELDS = 5;
+
+		private long[] offsets = new long[8];
+		private int[] counts = new int[8 * FIELDS];
+		private final ArrayList<String> names = new ArrayList<>();
+		private int size;
+
+		void add(long offset, String name, int vertices, int textures, int normals, int lines, int faces) {
+			if (size == offsets.length) {
+				offsets = Arrays.copyOf(offsets, size * 2);
+				counts = Arrays.copyOf(counts, size * 2 * FIELDS);
+			}
+			offsets[size] = offset;
+			int field = size * FIELDS;
+			counts[field] = vertices;
+			counts[field + 1] = textures;
+			counts[field + 2] = normals;
+			counts[field + 3] = lines;
+			counts[field + 4] = faces;
+			names.add(name);
+			size++;
+		}
+
+		// Добавляет записи части файла, разобранной отдельно, со смещениями всех предыдущих частей
+		void addAll(Boundaries part, long offset, int vertices, int textures, int normals, int lines, int faces) {
+			for (int i = 0; i < part.size; i++) {
+				int field = i * FIELDS;
+				add(offset + part.offsets[i], part.names.get(i), vertices + part.counts[field],
+						textures + part.counts[field + 1], normals + part.counts[field + 2],
+						lines + part.counts[field + 3], faces + part.counts[field + 4]);
+			}
+		}
+	}
+
+	private final Path path;
+	private final ArrayList<Segment> segments;
+	private final ArrayList<String> segmentNames;
+	private final ArrayList<String> groupNames = new ArrayList<>();
+	private final ArrayList<int[]> groupSegments = new ArrayList<>();
+
+	private ObjGroupIndex(Path path, ArrayList<Segment> segments, ArrayList<String> segmentNames) {
+		this.path = path;
+		this.segments = segments;
+		this.segmentNames = segmentNames;
+
+		int[] base = new int[3];
+		int lineBase = 0;
+		int faceBase = 0;
+		for (Segment segment : segments) {
+			for (int kind = VERTICES; kind <= NORMALS; kind++) {
+				segment.base[kind] = base[kind];
+				base[kind] += segment.count[kind];
+			}
+			segment.lineBase = lineBase;
+			lineBase += segment.lineCount;
+			segment.faceBase = faceBase;
+			faceBase += segment.faceCount;
+		}
+
+		// Части с одинаковым именем (повторные g) объединяются в одну группу.
+		// Части без граней группами не считаются, но их вершины доступны остальным группам
+		LinkedHashMap<String, ArrayList<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < segments.size(); i++) {
+			if (segments.get(i).faceCount > 0) {
+				groups.computeIfAbsent(segmentNames.get(i), name -> new ArrayList<>()).add(i);
+			}
+		}
+		for (Map.Entry<String, ArrayList<Integer>> group : groups.entrySet()) {
+			groupNames.add(group.getKey());
+			groupSegments.add(group.getValue().stream().mapToInt(Integer::intValue).toArray());
+		}
+	}
+
+	public static ObjGroupIndex build(Path path) throws IOException {
+		// Группы читаются по смещениям в файле, в сжатом файле таких смещений нет
+		if (ObjByteSource.isGzip(path)) {
+			throw new IOException("Compressed OBJ file cannot be indexed by groups: " + path);
+		}
+		Indexer indexer = new Indexer();
+		ObjByteSource.readFile(path, indexer::scan);
+		indexer.finish();
+		return new ObjGroupIndex(path, indexer.segments, indexer.names);
+	}
+
+	/**
+	 * Индекс по записям o/g, найденным при чтении всего файла
+	 * @param path     прочитанный файл
+	 * @param length   длина текста в байтах
+	 * @param boundaries записи o/g
+	 * @param totals   количества вершин, текстур, нормалей, непустых строк и граней во всем файле
+	 */
+	static ObjGroupIndex of(Path path, long length, Boundaries boundaries, int... totals) {
+		ArrayList<Segment> segments = new ArrayList<>();
+		ArrayList<String> names = new ArrayList<>();
+		long start = 0;
+		int[] previous = new int[Boundaries.FIELDS];
+		for (int i = 0; i <= boundaries.size; i++) {
+			Segment segment = new Segment();
+			segment.start = start;
+			segment.end = i < boundaries.size ? boundaries.offsets[i] : length;
+			int[] next = i < boundaries.size
+					? Arrays.copyOfRange(boundaries.counts, i * Boundaries.FIELDS, (i + 1) * Boundaries.FIELDS)
+					: totals;
+			for (int kind = VERTICES; kind <= NORMALS; kind++) {
+				segment.count[kind] = next[kind] - previous[kind];
+			}
+			segment.lineCount = next[3] - previous[3];
+			segment.faceCount = next[4] - previous[4];
+			segments.add(segment);
+			// Имена как в build: часть до первой записи - default, безымянная - по номеру части
+			String name = i == 0 ? "default" : boundaries.names.get(i - 1);
+			names.add(name.isEmpty() ? "group " + (i + 1) : name);
+			start = segment.end;
+			previous = next;
+		}
+		return new ObjGroupIndex(path, segments, names);
+	}
+
+	/**
+	 * Записывает границы и счетчики частей файла. Путь не записывается, его передают в read
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(segments.size());
+		for (int i = 0; i < segments.size(); i++) {
+			Segment segment = segments.get(i);
+			out.writeLong(segment.start);
+			out.writeLong(segment.end);
+			for (int kind = VERTICES; kind <= NORMALS; kind++) {
+				out.writeInt(segment.count[kind]);
+			}
+			out.writeInt(segment.lineCount);
+			out.writeInt(segment.faceCount);
+			out.writeUTF(segmentNames.get(i));
+		}
+	}
+
+	/**
+	 * Восстанавливает индекс, записанный методом write, для файла path
+	 * @param path
+	 * @param in
+	 * @return
+	 * @throws IOException если данные повреждены
+	 */
+	public static ObjGroupIndex read(Path path, DataInput in) throws IOException {
+		int count = in.readInt();
+		if (count < 1) {
+			throw new IOException("Corrupted OBJ group index: " + count + " segments");
+		}
+		ArrayList<Segment> segments = new ArrayList<>();
+		ArrayList<String> names = new ArrayList<>();
+		long previousEnd = 0;
+		for (int i = 0; i < count; i++) {
+			Segment segment = new Segment();
+			segment.start = in.readLong();
+			segment.end = in.readLong();
+			for (int kind = VERTICES; kind <= NORMALS; kind++) {
+				segment.count[kind] = in.readInt();
+			}
+			segment.lineCount = in.readInt();
+			segment.faceCount = in.readInt();
+			if (segment.start != previousEnd || segment.end < segment.start || segment.lineCount < 0
+					|| segment.faceCount < 0 || segment.count[VERTICES] < 0 || segment.count[TEXTURES] < 0
+					|| segment.count[NORMALS] < 0) {
+				throw new IOException("Corrupted OBJ group index: segment " + i);
+			}
+			previousEnd = segment.end;
+			segments.add(segment);
+			names.add(in.readUTF());
+		}
+		return new ObjGroupIndex(path, segments, names);
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public int getGroupCount() {
+		return groupNames.size();
+	}
+
+	public List<String> getGroupNames() {
+		return Collections.unmodifiableList(groupNames);
+	}
+
+	public int getPolygonCount(int group) {
+		int count = 0;
+		for (int segment : groupSegments.get(group)) {
+			count += segments.get(segment).faceCount;
+		}
+		return count;
+	}
+
+	/**
+	 * Разбирает геометрию группы. В модель попадают только вершины, текстуры и нормали,
+	 * на которые ссылаются грани группы, в порядке их следования в файле.
+	 */
+	public Model loadGroup(int group) throws IOException {
+		// Разобранные части нужны только на время загрузки группы: общие вершины разбираются
+		// один раз для этой группы, но не держатся в памяти рядом с уже загруженными моделями
+		Map<Integer, ObjScanner> parsedSegments = new HashMap<>();
+		ArrayList<Polygon> polygons = new ArrayList<>();
+		for (int segment : groupSegments.get(group)) {
+			polygons.addAll(parsed(parsedSegments, segment).model().getPolygons());
+		}
+		return assemble(group, polygons, new Lookup() {
+			@Override
+			public Model model(int global, int kind) throws IOException {
+				return parsed(parsedSegments, segmentOf(global, kind)).model();
+			}
+
+			@Override
+			public int local(int global, int kind) {
+				return global - segments.get(segmentOf(global, kind)).base[kind];
+			}
+		});
+	}
+
+	/**
+	 * Выделяет группу из модели, прочитанной из этого же файла целиком, без повторного разбора текста.
+	 * Результат совпадает с loadGroup
+	 * @param full модель всего файла, полигоны которой еще не переставлялись
+	 * @param group
+	 * @return
+	 */
+	public Model extractGroup(Model full, int group) {
+		Segment last = segments.get(segments.size() - 1);
+		if (full.getPolygonCount() != last.faceBase + last.faceCount) {
+			throw new IllegalArgumentException("Model does not match the OBJ group index: " + path);
+		}
+		List<Polygon> all = full.getPolygons();
+		ArrayList<Polygon> polygons = new ArrayList<>(getPolygonCount(group));
+		for (int index : groupSegments.get(group)) {
+			Segment segment = segments.get(index);
+			polygons.addAll(all.subList(segment.faceBase, segment.faceBase + segment.faceCount));
+		}
+		try {
+			return assemble(group, polygons, new Lookup() {
+				@Override
+				public Model model(int global, int kind) {
+					return full;
+				}
+
+				@Override
+				public int local(int global, int kind) {
+					return global;
+				}
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Модель, в которой лежит элемент с глобальным индексом, и его индекс в ней
+	private interface Lookup {
+		Model model(int global, int kind) throws IOException;
+
+		int local(int global, int kind);
+	}
+
+	private Model assemble(int group, List<Polygon> polygons, Lookup lookup) throws IOException {
+		Remap vertices = new Remap();
+		Remap textures = new Remap();
+		Remap normals = new Remap();
+		for (Polygon polygon : polygons) {
+			vertices.collect(polygon.getVertexIndices());
+			textures.collect(polygon.getTextureVertexIndices());
+			normals.collect(polygon.getNormalIndices());
+		}
+		vertices.seal();
+		textures.seal();
+		normals.seal();
+
+		Model model = new Model(groupNames.get(group));
+		model.getVertices().ensureCapacity(vertices.size());
+		for (int i = 0; i < vertices.size(); i++) {
+			int global = vertices.global(i);
+			Vector3fList source = lookup.model(global, VERTICES).getVertices();
+			int local = lookup.local(global, VERTICES);
+			model.getVertices().add(source.x(local), source.y(local), source.z(local));
+		}
+		for (int i = 0; i < textures.size(); i++) {
+			int global = textures.global(i);
+			Vector2fList source = lookup.model(global, TEXTURES).getTextureVertices();
+			int local = lookup.local(global, TEXTURES);
+			model.getTextureVertices().add(source.x(local), source.y(local));
+		}
+		for (int i = 0; i < normals.size(); i++) {
+			int global = normals.global(i);
+			Vector3fList source = lookup.model(global, NORMALS).getNormals();
+			int local = lookup.local(global, NORMALS);
+			model.getNormals().add(source.x(local), source.y(local), source.z(local));
+		}
+		model.getPolygons().ensureCapacity(polygons.size());
+		for (Polygon polygon : polygons) {
+			model.getPolygons().add(new Polygon(
+					vertices.apply(polygon.getVertexIndices()),
+					textures.apply(polygon.getTextureVertexIndices()),
+					normals.apply(polygon.getNormalIndices())));
+		}
+		ObjReader.validateModel(model);
+		return model;
+	}
+
+	// Разбор одной части файла со смещениями всех предыдущих частей
+	private ObjScanner parsed(Map<Integer, ObjScanner> parsedSegments, int index) throws IOException {
+		ObjScanner scanner = parsedSegments.get(index);
+		if (scanner != null) {
+			return scanner;
+		}
+		Segment segment = segments.get(index);
+		if (segment.end - segment.start > Integer.MAX_VALUE) {
+			throw new IOException("OBJ group is too large to map: " + path);
+		}
+		scanner = new ObjScanner(true);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			scanner.parse(channel.map(FileChannel.MapMode.READ_ONLY, segment.start, segment.end - segment.start));
+		}
+		scanner.replay(segment.base[VERTICES], segment.base[TEXTURES], segment.base[NORMALS], segment.lineBase);
+		parsedSegments.put(index, scanner);
+		return scanner;
+	}
+
+	// Последняя часть, смещение которой не больше индекса, содержит элемент с этим индексом
+	private int segmentOf(int global, int kind) {
+		int low = 0;
+		int high = segments.size() - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (segments.get(middle).base[kind] <= global) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	// Переход от глобальных индексов файла к плотным индексам модели группы
+	private static final class Remap {
+		private int[] indices = new int[64];
+		private int count;
+
+		void collect(IndexList list) {
+			if (count + list.size() > indices.length) {
+				indices = Arrays.copyOf(indices, Math.max(count + list.size(), count * 2));
+			}
+			list.copyTo(indices, count);
+			count += list.size();
+		}
+
+		void seal() {
+			Arrays.sort(indices, 0, count);
+			int unique = 0;
+			for (int i = 0; i < count; i++) {
+				if (unique == 0 || indices[unique - 1] != indices[i]) {
+					indices[unique++] = indices[i];
+				}
+			}
+			count = unique;
+		}
+
+		int size() {
+			return count;
+		}
+
+		int global(int local) {
+			return indices[local];
+		}
+
+		IndexList apply(IndexList list) {
+			int[] result = new int[list.size()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = Arrays.binarySearch(indices, 0, count, list.getInt(i));
+			}
+			return IndexList.wrap(result, result.length);
+		}
+	}
+
+	// Имя группы в строке o/g после токена: от первого непробельного символа до конца строки
+	static String name(ByteBuffer block, int from, int to) {
+		while (from < to && Indexer.isWhitespace(block.get(from))) {
+			from++;
+		}
+		byte[] bytes = new byte[to - from];
+		block.get(from, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// Первый проход: границы частей и количества записей без разбора чисел.
+	// Строки очищаются от комментариев и пробелов так же, как в ObjScanner
+	private static final class Indexer {
+		final ArrayList<Segment> segments = new ArrayList<>();
+		final ArrayList<String> names = new ArrayList<>();
+		private Segment current = new Segment();
+		private long consumed;
+
+		Indexer() {
+			segments.add(current);
+			names.add("default");
+		}
+
+		void scan(ByteBuffer block) {
+			final int blockStart = block.position();
+			final int end = block.limit();
+			int pos = blockStart;
+
+			while (pos < end) {
+				final int lineStart = pos;
+				int contentEnd = pos;
+				int commentStart = -1;
+				while (contentEnd < end) {
+					byte b = block.get(contentEnd);
+					if (b == '\n' || b == '\r') {
+						break;
+					}
+					if (b == '#' && commentStart < 0) {
+						commentStart = contentEnd;
+					}
+					contentEnd++;
+				}
+				int lineEnd = commentStart >= 0 ? commentStart : contentEnd;
+				pos = contentEnd + 1;
+
+				int first = lineStart;
+				while (first < lineEnd && (block.get(first) & 0xFF) <= ' ') {
+					first++;
+				}
+				while (lineEnd > first && (block.get(lineEnd - 1) & 0xFF) <= ' ') {
+					lineEnd--;
+				}
+				if (first == lineEnd) {
+					continue;
+				}
+
+				int tokenEnd = first;
+				while (tokenEnd < lineEnd && !isWhitespace(block.get(tokenEnd))) {
+					tokenEnd++;
+				}
+				final int tokenLength = tokenEnd - first;
+				final byte token = block.get(first);
+				if (tokenLength == 1 && (token == 'o' || token == 'g')) {
+					startSegment(consumed + lineStart - blockStart, name(block, tokenEnd, lineEnd));
+				}
+				current.lineCount++;
+				if (tokenLength == 1 && token == 'v') {
+					current.count[VERTICES]++;
+				} else if (tokenLength == 2 && token == 'v' && block.get(first + 1) == 't') {
+					current.count[TEXTURES]++;
+				} else if (tokenLength == 2 && token == 'v' && block.get(first + 1) == 'n') {
+					current.count[NORMALS]++;
+				} else if (tokenLength == 1 && token == 'f') {
+					current.faceCount++;
+				}
+			}
+			consumed += end - blockStart;
+		}
+
+		void finish() {
+			current.end = consumed;
+		}
+
+		private void startSegment(long offset, String name) {
+			current.end = offset;
+			current = new Segment();
+			current.start = offset;
+			segments.add(current);
+			names.add(name.isEmpty() ? "group " + segments.size() : name);
+		}
+
+		private static boolean isWhitespace(byte b) {
+			return b == ' ' || b == '\t' || b == '\f' || b == 0x0B || b == '\r' || b == '\n';
+		}
+	}
+}
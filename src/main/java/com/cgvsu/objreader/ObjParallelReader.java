@@ -0,0 +1,246 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Параллельное чтение OBJ-файла.
+ * Файл делится на части по границам строк, части разбираются независимо в отложенном режиме ObjScanner,
+ * затем по префиксным суммам количеств v/vt/vn и строк индексы граней (в том числе отрицательные)
+ * разрешаются так, как если бы файл читался подряд, и результаты склеиваются по порядку.
+ * Модель и сообщения об ошибках совпадают с последовательным ObjReader.read(Path).
+ * Наблюдатель (если задан) вызывается из потоков пула по ходу разбора частей с partial == null,
+ * так как модель собирается только в конце; исключение из него прерывает чтение всех частей.
+ * Индекс групп склеивается из записей o/g всех частей и передается наблюдателю в конце.
+ */
+final class ObjParallelReader {
+
+	static final int MIN_CHUNK_SIZE = 1024 * 1024;
+	static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+	// На каждый поток приходится несколько частей, чтобы неравномерные части не простаивали
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int BOUNDARY_SCAN_SIZE = 64 * 1024;
+
+	private ObjParallelReader() {
+	}
+
+	static Model read(Path path, ForkJoinPool pool, ObjReadListener listener) throws IOException {
+		// На одном потоке запись и воспроизведение граней только добавляют работу.
+		// Сжатый файл нельзя разделить на части без распаковки, он читается последовательно
+		if (pool.getParallelism() < 2 || ObjByteSource.isGzip(path)) {
+			return readSequential(path, listener);
+		}
+		final ArrayList<Chunk> chunks;
+		final AtomicLong scannedBytes = new AtomicLong();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			chunks = split(channel, pool.getParallelism());
+			if (chunks.size() < 2) {
+				return readSequential(path, listener);
+			}
+
+			// Первый проход: независимый разбор частей
+			ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.size());
+			for (Chunk chunk : chunks) {
+				if (listener != null) {
+					chunk.observe(listener, scannedBytes);
+				}
+				tasks.add(pool.submit(() -> chunk.scan(channel)));
+			}
+			join(tasks);
+		}
+		if (listener != null) {
+			listener.onProgress(null, scannedBytes.get());
+		}
+
+		// Префиксные суммы: сколько вершин, текстур, нормалей и строк было до каждой части
+		int vertexBase = 0;
+		int textureBase = 0;
+		int normalBase = 0;
+		int lineBase = 0;
+		for (Chunk chunk : chunks) {
+			chunk.vertexBase = vertexBase;
+			chunk.textureBase = textureBase;
+			chunk.normalBase = normalBase;
+			chunk.lineBase = lineBase;
+			Model part = chunk.scanner.model();
+			vertexBase += part.getVertices().size();
+			textureBase += part.getTextureVertices().size();
+			normalBase += part.getNormals().size();
+			lineBase += chunk.scanner.lineCount();
+		}
+
+		// Второй проход: разрешение индексов граней. Ошибки собираются по частям,
+		// выбрасывается ошибка самой ранней части, как при последовательном чтении
+		ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.size());
+		for (Chunk chunk : chunks) {
+			tasks.add(pool.submit(chunk::replay));
+		}
+		join(tasks);
+		for (Chunk chunk : chunks) {
+			if (chunk.error != null) {
+				throw chunk.error;
+			}
+		}
+
+		Model model = stitch(chunks, vertexBase, textureBase, normalBase);
+		if (listener != null) {
+			listener.onGroups(groupIndex(path, chunks, model, lineBase));
+		}
+		return model;
+	}
+
+	// Записи o/g всех частей со смещениями предыдущих частей
+	private static ObjGroupIndex groupIndex(Path path, ArrayList<Chunk> chunks, Model model, int lineCount) {
+		ObjGroupIndex.Boundaries boundaries = new ObjGroupIndex.Boundaries();
+		int faceBase = 0;
+		for (Chunk chunk : chunks) {
+			boundaries.addAll(chunk.scanner.boundaries(), chunk.start, chunk.vertexBase, chunk.textureBase,
+					chunk.normalBase, chunk.lineBase, faceBase);
+			faceBase += chunk.scanner.faceCount();
+		}
+		Chunk last = chunks.get(chunks.size() - 1);
+		return ObjGroupIndex.of(path, last.start + last.length, boundaries, model.getVertices().size(),
+				model.getTextureVertices().size(), model.getNormals().size(), lineCount, model.getPolygonCount());
+	}
+
+	private static Model readSequential(Path path, ObjReadListener listener) throws IOException {
+		return listener == null ? ObjReader.read(path) : ObjReader.read(path, listener);
+	}
+
+	private static Model stitch(ArrayList<Chunk> chunks, int vertexCount, int textureCount, int normalCount) {
+		Model result = new Model();
+		int polygonCount = 0;
+		for (Chunk chunk : chunks) {
+			polygonCount += chunk.scanner.model().getPolygons().size();
+		}
+		result.getVertices().ensureCapacity(vertexCount);
+		result.getTextureVertices().ensureCapacity(textureCount);
+		result.getNormals().ensureCapacity(normalCount);
+		result.getPolygons().ensureCapacity(polygonCount);
+
+		for (Chunk chunk : chunks) {
+			Model part = chunk.scanner.model();
+			result.getVertices().addAll(part.getVertices());
+			result.getTextureVertices().addAll(part.getTextureVertices());
+			result.getNormals().addAll(part.getNormals());
+			result.getPolygons().addAll(part.getPolygons());
+		}
+
+		ObjReader.validateModel(result);
+		result.markGeometryChanged();
+		return result;
+	}
+
+	private static ArrayList<Chunk> split(FileChannel channel, int parallelism) throws IOException {
+		final long size = channel.size();
+		final long chunkSize = Math.max(MIN_CHUNK_SIZE,
+				Math.min(MAX_CHUNK_SIZE, size / ((long) parallelism * CHUNKS_PER_THREAD)));
+
+		ArrayList<Chunk> chunks = new ArrayList<>();
+		long start = 0;
+		while (start < size) {
+			long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size);
+			if (end - start > Integer.MAX_VALUE) {
+				throw new IOException("OBJ line is too long");
+			}
+			chunks.add(new Chunk(start, (int) (end - start)));
+			start = end;
+		}
+		return chunks;
+	}
+
+	// Возвращает позицию сразу после первого перевода строки, начиная с from, или конец файла
+	private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+		long position = from;
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				byte b = buffer.get(i);
+				if (b == '\n' || b == '\r') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	// При ошибке или отмене еще не начатые части не разбираются
+	private static void join(ArrayList<ForkJoinTask<?>> tasks) throws IOException {
+		try {
+			for (ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+		} catch (UncheckedIOException e) {
+			cancel(tasks);
+			throw e.getCause();
+		} catch (RuntimeException | Error e) {
+			cancel(tasks);
+			throw e;
+		}
+	}
+
+	private static void cancel(ArrayList<ForkJoinTask<?>> tasks) {
+		for (ForkJoinTask<?> task : tasks) {
+			task.cancel(false);
+		}
+	}
+
+	// Часть файла и результат ее разбора
+	private static final class Chunk {
+		final long start;
+		final int length;
+		final ObjScanner scanner = new ObjScanner(true);
+		int vertexBase;
+		int textureBase;
+		int normalBase;
+		int lineBase;
+		ObjReaderException error;
+
+		Chunk(long start, int length) {
+			this.start = start;
+			this.length = length;
+		}
+
+		// Передает наблюдателю общее число разобранных байтов всех частей
+		void observe(ObjReadListener listener, AtomicLong scannedBytes) {
+			long[] reported = new long[1];
+			scanner.setListener((partial, bytesRead) -> {
+				long total = scannedBytes.addAndGet(bytesRead - reported[0]);
+				reported[0] = bytesRead;
+				listener.onProgress(null, total);
+			});
+		}
+
+		void scan(FileChannel channel) {
+			try {
+				scanner.parse(channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		void replay() {
+			try {
+				scanner.replay(vertexBase, textureBase, normalBase, lineBase);
+			} catch (ObjReaderException e) {
+				error = e;
+			}
+		}
+	}
+}
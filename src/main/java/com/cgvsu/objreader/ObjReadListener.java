@@ -0,0 +1,28 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+
+/**
+ * Наблюдатель за ходом чтения OBJ-файла.
+ * Вызывается в потоке чтения примерно каждые 65 тысяч строк и после каждого прочитанного блока.
+ * Частично прочитанную модель можно читать только внутри вызова: после возврата чтение продолжит
+ * ее дополнять. Все уже добавленные вершины и полигоны не меняются, а индексы полигонов
+ * ссылаются только на уже добавленные вершины, текстуры и нормали.
+ * При параллельном чтении (ObjReader.readParallel) наблюдатель вызывается из потоков пула, в том числе
+ * одновременно; модель собирается только в конце, поэтому partial равен null, а bytesRead - сумма
+ * разобранных байтов всех частей.
+ * Чтобы прервать чтение, достаточно выбросить из onProgress непроверяемое исключение.
+ */
+public interface ObjReadListener {
+
+	void onProgress(Model partial, long bytesRead);
+
+	/**
+	 * Вызывается один раз после успешного чтения несжатого файла с индексом групп o/g,
+	 * границы которых найдены при этом же разборе; по индексу группы можно выделить
+	 * из прочитанной модели (ObjGroupIndex.extractGroup) или загружать по одной позже
+	 * @param index
+	 */
+	default void onGroups(ObjGroupIndex index) {
+	}
+}
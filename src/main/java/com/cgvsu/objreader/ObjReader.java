@@ -5,80 +5,82 @@ import com.cgvsu.math.Vector3f;
 import com.cgvsu.model.Model;
 import com.cgvsu.model.Polygon;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 public class ObjReader {
 
-	private static final String OBJ_VERTEX_TOKEN = "v";
-	private static final String OBJ_TEXTURE_TOKEN = "vt";
-	private static final String OBJ_NORMAL_TOKEN = "vn";
-	private static final String OBJ_FACE_TOKEN = "f";
-
 	public static Model read(String fileContent) {
-		Model result = new Model();
-		ArrayList<Integer> polygonLine = new ArrayList<>(); // исправлено
+		ObjScanner scanner = new ObjScanner();
+		scanner.parse(ByteBuffer.wrap(fileContent.getBytes(StandardCharsets.UTF_8)));
+		return scanner.finish();
+	}
 
-		int lineInd = 0;
-		Scanner scanner = new Scanner(fileContent);
-		while (scanner.hasNextLine()) {
-			String line = scanner.nextLine();
+	// Потоковое чтение файла: файл отображается в память окнами и разбирается построчно,
+	// поэтому расход памяти определяется размером модели, а не размером текста.
+	// Сжатый gzip файл распаковывается в отдельном потоке параллельно с разбором
+	public static Model read(Path path) throws IOException {
+		ObjScanner scanner = new ObjScanner();
+		ObjByteSource.read(path, scanner::parse);
+		return scanner.finish();
+	}
 
-			int y = line.indexOf('#');
-			if (line.indexOf('#') !=  -1){
-				line = line.substring(0, y);
-			}
-			line = line.trim();
-			if (line.isEmpty()){
-				continue;
-			}
+	// Последовательное чтение с уведомлениями о ходе чтения, например для показа модели по частям.
+	// После чтения несжатого файла наблюдатель получает индекс групп (ObjReadListener.onGroups)
+	public static Model read(Path path, ObjReadListener listener) throws IOException {
+		ObjScanner scanner = new ObjScanner();
+		scanner.setListener(listener);
+		boolean gzip = ObjByteSource.isGzip(path);
+		ObjByteSource.read(path, scanner::parse);
+		Model model = scanner.finish();
+		if (!gzip) {
+			listener.onGroups(scanner.groupIndex(path));
+		}
+		return model;
+	}
 
-			++lineInd;
-			String[] tokens = line.split("\\s+");
+	public static boolean isGzip(Path path) throws IOException {
+		return ObjByteSource.isGzip(path);
+	}
 
-			ArrayList<String> wordsInLine = new ArrayList<>();
-			for (String token : tokens) {
+	// Размер текста OBJ в байтах; для gzip - размер после распаковки, записанный в конце архива
+	public static long contentLength(Path path) throws IOException {
+		return ObjByteSource.contentLength(path);
+	}
 
-				if (!token.isEmpty()) {
-					wordsInLine.add(token);
-				}
-			}
-			if (wordsInLine.isEmpty()) {
-				continue;
-			}
+	// Отдельный быстрый проход по группам o/g без разбора чисел: геометрия каждой группы разбирается
+	// при обращении к ней. При чтении всего файла индекс групп строится попутно (ObjReadListener.onGroups)
+	public static ObjGroupIndex indexGroups(Path path) throws IOException {
+		return ObjGroupIndex.build(path);
+	}
 
-			final String token = wordsInLine.get(0);
-
-			wordsInLine.remove(0);
-
-
-			switch (token) {
-				// Для структур типа вершин методы написаны так, чтобы ничего не знать о внешней среде.
-				// Они принимают только то, что им нужно для работы, а возвращают только то, что могут создать.
-				// Исключение - индекс строки. Он прокидывается, чтобы выводить сообщение об ошибке.
-				// Могло быть иначе. Например, метод parseVertex мог вместо возвращения вершины принимать вектор вершин
-				// модели или сам класс модели, работать с ним.
-				// Но такой подход может привести к большему количеству ошибок в коде. Например, в нем что-то может
-				// тайно сделаться с классом модели.
-				// А еще это портит читаемость
-				// И не стоит забывать про тесты. Чем проще вам задать данные для теста, проверить, что метод рабочий,
-				// тем лучше.
-				case OBJ_VERTEX_TOKEN -> result.getVertices().add(parseVertex(wordsInLine, lineInd));
-				case OBJ_TEXTURE_TOKEN -> result.getTextureVertices().add(parseTextureVertex(wordsInLine, lineInd));
-				case OBJ_NORMAL_TOKEN -> result.getNormals().add(parseNormal(wordsInLine, lineInd));
-				case OBJ_FACE_TOKEN -> {
-					Polygon p = parseFace(wordsInLine, lineInd, result.getVertices().size(), result.getTextureVertices().size(), result.getNormals().size());
-					result.getPolygons().add(p);
-					polygonLine.add(lineInd);
-				}
-			}
-		}
-		validateModel(result, polygonLine);
-//		for (int i = 0; i < result.polygons.size(); i++) {
-//			validatePolygon(result, result.polygons.get(i), i);
-//		}
+	public static Model read(ReadableByteChannel channel) throws IOException {
+		ObjScanner scanner = new ObjScanner();
+		ObjByteSource.readChannel(channel, scanner::parse);
+		return scanner.finish();
+	}
 
-		return result;
+	// Параллельное чтение на всех ядрах: результат и ошибки такие же, как у read(Path)
+	public static Model readParallel(Path path) throws IOException {
+		return readParallel(path, ForkJoinPool.commonPool());
+	}
+
+	public static Model readParallel(Path path, ForkJoinPool pool) throws IOException {
+		return ObjParallelReader.read(path, pool, null);
+	}
+
+	// Параллельное чтение с наблюдателем: partial равен null, исключение из наблюдателя прерывает чтение
+	public static Model readParallel(Path path, ObjReadListener listener) throws IOException {
+		return readParallel(path, ForkJoinPool.commonPool(), listener);
+	}
+
+	public static Model readParallel(Path path, ForkJoinPool pool, ObjReadListener listener) throws IOException {
+		return ObjParallelReader.read(path, pool, listener);
 	}
 
 	// Всем методам кроме основного я поставил модификатор доступа protected, чтобы обращаться к ним в тестах
@@ -200,76 +202,55 @@ public class ObjReader {
 
 	public static int parseIndex(String indexStr, int arrSize, int lineInd){
 		try {
-			int index =Integer.parseInt(indexStr);
-			if(index < 0){
-				if (arrSize == 0) {//справлено
-					throw new ObjReaderException("Index 0 is invalid in OBJ format.", lineInd);
-				}
-				index = arrSize + index;
-				if (index < 0){
-					throw new ObjReaderException("Invalid index format." ,lineInd);
-				}
-			}else {
-				index = index - 1;
-			}
+			return resolveIndex(Integer.parseInt(indexStr), arrSize, lineInd);
+		}catch (NumberFormatException e){
+			throw new ObjReaderException("Failed to parse int value.", lineInd);
+		}
+	}
 
-			if(index >= arrSize){
-				throw new ObjReaderException("Invalid index.", lineInd);
+	// Переводит индекс из файла (с единицы или отрицательный относительный) в индекс массива модели
+	static int resolveIndex(int index, int arrSize, int lineInd){
+		if(index < 0){
+			if (arrSize == 0) {//справлено
+				throw new ObjReaderException("Index 0 is invalid in OBJ format.", lineInd);
 			}
-			if(index < 0){
-				throw new ObjReaderException("Incorrect index.", lineInd);
+			index = arrSize + index;
+			if (index < 0){
+				throw new ObjReaderException("Invalid index format." ,lineInd);
 			}
-			return index;
-		}catch (NumberFormatException e){
-			throw new ObjReaderException("Failed to parse int value.", lineInd);
+		}else {
+			index = index - 1;
 		}
+
+		if(index >= arrSize){
+			throw new ObjReaderException("Invalid index.", lineInd);
+		}
+		if(index < 0){
+			throw new ObjReaderException("Incorrect index.", lineInd);
+		}
+		return index;
 	}
-	private static void validateModel(Model model, ArrayList<Integer> polygonLineNumbers){
+
+	static void validateModel(Model model){
 		if (model.getVertices().isEmpty()){
 			throw new ObjReaderException("Model has no vertices.", -1);
 		}
 		if(model.getPolygons().isEmpty()){
 			throw new ObjReaderException("Model has no polygons.", -1);
 		}
-		for (int i = 0; i < model.getPolygons().size(); i++) {
-			Polygon polygon = model.getPolygons().get(i);
-			int lineInd = polygonLineNumbers.get(i);
-			validatePolygon(model, polygon, lineInd);
-		}
 	}
-	private static void validatePolygon(Model model, Polygon polygon, int lineInd){
-		if(polygon.getVertexIndices().size() < 3){
-			throw new ObjReaderException("Polygon has less than 3 vertices.", lineInd);
-		}
-		for(int vertInd : polygon.getVertexIndices()){
-			if (vertInd < 0 || vertInd >= model.getVertices().size()){
-				throw new ObjReaderException("Invalid vertex index.", lineInd);
-			}
-		}
 
-		if (!polygon.getTextureVertexIndices().isEmpty()){
-			if (polygon.getTextureVertexIndices().size() != polygon.getVertexIndices().size()){
-				throw new ObjReaderException("Not all vertices have textures.", lineInd);
-			}
+	// Проверка грани в момент ее чтения. Индексы уже проверены в resolveIndex
+	// на количествах, известных к началу грани, поэтому повторно их проверять не нужно
+	static void validatePolygon(int vertexCount, int textureCount, int normalCount, int lineInd){
+		if(vertexCount < 3){
+			throw new ObjReaderException("Polygon has less than 3 vertices.", lineInd);
 		}
-
-		for(int texInd : polygon.getTextureVertexIndices()){
-			if (texInd < 0 || texInd >= model.getTextureVertices().size()){
-				throw new ObjReaderException("Invalid texture index.", lineInd);
-			}
+		if (textureCount != 0 && textureCount != vertexCount){
+			throw new ObjReaderException("Not all vertices have textures.", lineInd);
 		}
-
-		if (!polygon.getNormalIndices().isEmpty()){
-			if(polygon.getNormalIndices().size() != polygon.getVertexIndices().size()){
-				throw  new ObjReaderException("The number of normals and vertices does not match.", lineInd);
-			}
-			for(int normalInd : polygon.getNormalIndices()){
-				if (normalInd < 0 || normalInd >= model.getNormals().size()){
-					throw new ObjReaderException("Invalid normals index.", lineInd);
-				}
-			}
+		if (normalCount != 0 && normalCount != vertexCount){
+			throw  new ObjReaderException("The number of normals and vertices does not match.", lineInd);
 		}
-
-
 	}
-}
\ No newline at end of file
+}
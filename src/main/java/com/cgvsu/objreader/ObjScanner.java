@@ -0,0 +1,662 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.IndexList;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Побайтовый разборщик OBJ.
+ * Записи v/vt/vn/f и числа в них разбираются прямо в буфере, без создания строк на каждый токен,
+ * без регулярных выражений и промежуточных списков. Поведение и сообщения об ошибках совпадают
+ * со строковыми методами ObjReader (parseVertex, parseFaceWord, parseIndex и т.д.).
+ *
+ * В отложенном режиме (для параллельного чтения по частям) индексы граней не разрешаются сразу:
+ * грани записываются как последовательность операций и воспроизводятся в replay,
+ * когда становятся известны количества вершин, текстур, нормалей и строк во всех предыдущих частях.
+ *
+ * Попутно записываются границы групп (строки o/g) со смещениями в тексте, из которых без отдельного
+ * прохода по файлу строится ObjGroupIndex.
+ */
+final class ObjScanner {
+
+	private static final int MAX_FAST_DIGITS = 18;
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	// Степени десяти, которые представимы в double точно
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private final Model result = new Model();
+	private int lineInd = 0;
+
+	// Буфер текущего блока и позиция разбора в нем
+	private ByteBuffer buf;
+	private int pos;
+	private int lineEnd;
+
+	// Переиспользуемые массивы индексов текущей грани
+	private int[] faceVertices = new int[8];
+	private int[] faceTextures = new int[8];
+	private int[] faceNormals = new int[8];
+	private int faceVertexCount;
+	private int faceTextureCount;
+	private int faceNormalCount;
+	// Границы частей текущего слова грани вида v/vt/vn
+	private final int[] partStarts = new int[3];
+	private final int[] partEnds = new int[3];
+	// Количества вершин, текстур и нормалей на момент начала текущей грани
+	private int faceVertCnt;
+	private int faceTexVertCnt;
+	private int faceNormalsCnt;
+
+	// Операции отложенного режима, по два числа на операцию: вид и сырой индекс
+	private static final int OP_VERTEX = 0;
+	private static final int OP_TEXTURE = 1;
+	private static final int OP_NORMAL = 2;
+	private static final int OP_TEXTURE_USED = 3;
+	private static final int OP_NORMAL_USED = 4;
+	// Заголовок записанной грани: строка, количества v/vt/vn на ее начало и конец ее операций
+	private static final int FACE_RECORD_SIZE = 5;
+
+	private final boolean deferred;
+	private int[] ops;
+	private int opCount;
+	private int[] faces;
+	private int faceCount;
+	// Первая синтаксическая ошибка отложенного режима; разбор на ней останавливается
+	private String pendingMessage;
+	private int pendingLine;
+
+	// Через сколько непустых строк сообщать наблюдателю о ходе чтения
+	private static final int PROGRESS_LINES = 1 << 16;
+	private ObjReadListener listener;
+	private int nextProgressLine = PROGRESS_LINES;
+	// Байты всех полностью разобранных блоков
+	private long consumedBytes;
+	// Смещение начала текущей строки от начала текста и найденные записи o/g
+	private long lineOffset;
+	private final ObjGroupIndex.Boundaries boundaries = new ObjGroupIndex.Boundaries();
+
+	ObjScanner() {
+		this(false);
+	}
+
+	ObjScanner(boolean deferred) {
+		this.deferred = deferred;
+		if (deferred) {
+			ops = new int[256];
+			faces = new int[64 * FACE_RECORD_SIZE];
+		}
+	}
+
+	void setListener(ObjReadListener listener) {
+		this.listener = listener;
+	}
+
+	void parse(ByteBuffer block) {
+		if (pendingMessage != null) {
+			return;
+		}
+		buf = block;
+		pos = block.position();
+		final int blockStart = pos;
+		final int end = block.limit();
+
+		while (pos < end) {
+			int contentEnd = pos;
+			int commentStart = -1;
+			while (contentEnd < end) {
+				byte b = buf.get(contentEnd);
+				if (b == '\n' || b == '\r') {
+					break;
+				}
+				if (b == '#' && commentStart < 0) {
+					commentStart = contentEnd;
+				}
+				contentEnd++;
+			}
+			final int next = contentEnd + 1;
+			lineEnd = commentStart >= 0 ? commentStart : contentEnd;
+			lineOffset = consumedBytes + pos - blockStart;
+
+			if (deferred) {
+				try {
+					parseLine();
+				} catch (ObjReaderException e) {
+					// Ошибка уже сохранена в fail и будет выброшена в replay после предшествующих граней
+					break;
+				}
+			} else {
+				parseLine();
+			}
+			pos = next;
+
+			if (listener != null && lineInd >= nextProgressLine) {
+				nextProgressLine = lineInd + PROGRESS_LINES;
+				result.markGeometryChanged();
+				listener.onProgress(result, consumedBytes + Math.min(pos, end) - blockStart);
+			}
+		}
+		buf = null;
+		consumedBytes += end - blockStart;
+		if (listener != null) {
+			result.markGeometryChanged();
+			listener.onProgress(result, consumedBytes);
+		}
+	}
+
+	Model finish() {
+		ObjReader.validateModel(result);
+		result.markGeometryChanged();
+		return result;
+	}
+
+	// Разрешает записанные в отложенном режиме грани со смещениями предыдущих частей файла.
+	// Ошибки выбрасываются в том же порядке и с теми же номерами строк, что и при последовательном чтении
+	void replay(int vertexBase, int textureBase, int normalBase, int lineBase) {
+		int opIndex = 0;
+		for (int face = 0; face <= faceCount; face++) {
+			final int record = face * FACE_RECORD_SIZE;
+			final int opsEnd = face < faceCount ? faces[record + 4] : opCount;
+			if (face == faceCount && opIndex == opsEnd) {
+				break;
+			}
+			// Последняя незавершенная грань воспроизводится только до места синтаксической ошибки
+			lineInd = lineBase + faces[record];
+			faceVertCnt = vertexBase + faces[record + 1];
+			faceTexVertCnt = textureBase + faces[record + 2];
+			faceNormalsCnt = normalBase + faces[record + 3];
+			faceVertexCount = 0;
+			faceTextureCount = 0;
+			faceNormalCount = 0;
+
+			for (; opIndex < opsEnd; opIndex += 2) {
+				final int index = ops[opIndex + 1];
+				switch (ops[opIndex]) {
+					case OP_VERTEX -> resolveVertex(index);
+					case OP_TEXTURE -> resolveTexture(index);
+					case OP_NORMAL -> resolveNormal(index);
+					case OP_TEXTURE_USED -> checkTexturesDefined();
+					case OP_NORMAL_USED -> checkNormalsDefined();
+				}
+			}
+			if (face < faceCount) {
+				addPolygon();
+			}
+		}
+		ops = null;
+		faces = null;
+		if (pendingMessage != null) {
+			throw new ObjReaderException(pendingMessage, lineBase + pendingLine);
+		}
+	}
+
+	Model model() {
+		return result;
+	}
+
+	// Количество непустых строк, которое получает номер в сообщениях об ошибках
+	int lineCount() {
+		return lineInd;
+	}
+
+	// Количество граней; в отложенном режиме до replay полигоны еще не созданы
+	int faceCount() {
+		return deferred && faces != null ? faceCount : result.getPolygons().size();
+	}
+
+	long consumedBytes() {
+		return consumedBytes;
+	}
+
+	ObjGroupIndex.Boundaries boundaries() {
+		return boundaries;
+	}
+
+	// Индекс групп всего разобранного текста файла path
+	ObjGroupIndex groupIndex(Path path) {
+		return ObjGroupIndex.of(path, consumedBytes, boundaries, result.getVertices().size(),
+				result.getTextureVertices().size(), result.getNormals().size(), lineInd, faceCount());
+	}
+
+	private void parseLine() {
+		// Как String.trim(): управляющие символы и пробелы по краям строки отбрасываются
+		while (pos < lineEnd && (buf.get(pos) & 0xFF) <= ' ') {
+			pos++;
+		}
+		while (lineEnd > pos && (buf.get(lineEnd - 1) & 0xFF) <= ' ') {
+			lineEnd--;
+		}
+		if (pos == lineEnd) {
+			return;
+		}
+		++lineInd;
+
+		final int tokenStart = pos;
+		final int tokenEnd = tokenEnd(tokenStart);
+		final int tokenLength = tokenEnd - tokenStart;
+		pos = tokenEnd;
+
+		final byte first = buf.get(tokenStart);
+		if (tokenLength == 1 && first == 'v') {
+			float x = nextVertexCoordinate();
+			float y = nextVertexCoordinate();
+			float z = nextVertexCoordinate();
+			result.getVertices().add(x, y, z);
+		} else if (tokenLength == 2 && first == 'v' && buf.get(tokenStart + 1) == 't') {
+			float u = nextTextureCoordinate();
+			float v = nextTextureCoordinate();
+			result.getTextureVertices().add(u, v);
+		} else if (tokenLength == 2 && first == 'v' && buf.get(tokenStart + 1) == 'n') {
+			float x = nextNormalCoordinate();
+			float y = nextNormalCoordinate();
+			float z = nextNormalCoordinate();
+			result.getNormals().add(x, y, z);
+		} else if (tokenLength == 1 && first == 'f') {
+			parseFace();
+		} else if (tokenLength == 1 && (first == 'o' || first == 'g')) {
+			// Строка o/g уже относится к новой группе
+			boundaries.add(lineOffset, ObjGroupIndex.name(buf, tokenEnd, lineEnd),
+					result.getVertices().size(), result.getTextureVertices().size(), result.getNormals().size(),
+					lineInd - 1, faceCount());
+		}
+	}
+
+	private float nextVertexCoordinate() {
+		if (!skipWhitespace()) {
+			throw fail("Too few arguments for vertex definition.");
+		}
+		try {
+			return nextFloat();
+		} catch (NumberFormatException e) {
+			throw fail("Failed to parse float value in vertex coordinates");
+		}
+	}
+
+	private float nextTextureCoordinate() {
+		if (!skipWhitespace()) {
+			throw fail("Too few arguments for texture vertex..");
+		}
+		try {
+			return nextFloat();
+		} catch (NumberFormatException e) {
+			throw fail("Failed to parse float value in texture coordinate.");
+		}
+	}
+
+	private float nextNormalCoordinate() {
+		if (!skipWhitespace()) {
+			throw fail("Too few arguments for normal vector.");
+		}
+		try {
+			return nextFloat();
+		} catch (NumberFormatException e) {
+			throw fail("Failed to parse float value in normal vector.");
+		}
+	}
+
+	private void parseFace() {
+		faceVertexCount = 0;
+		faceTextureCount = 0;
+		faceNormalCount = 0;
+
+		faceVertCnt = result.getVertices().size();
+		faceTexVertCnt = result.getTextureVertices().size();
+		faceNormalsCnt = result.getNormals().size();
+
+		int record = 0;
+		if (deferred) {
+			// Заголовок пишется заранее, чтобы replay мог воспроизвести и грань, оборванную ошибкой
+			record = faceCount * FACE_RECORD_SIZE;
+			if (record + FACE_RECORD_SIZE > faces.length) {
+				faces = grow(faces);
+			}
+			faces[record] = lineInd;
+			faces[record + 1] = faceVertCnt;
+			faces[record + 2] = faceTexVertCnt;
+			faces[record + 3] = faceNormalsCnt;
+		}
+
+		while (skipWhitespace()) {
+			final int wordStart = pos;
+			final int wordEnd = tokenEnd(wordStart);
+			parseFaceWord(wordStart, wordEnd);
+			pos = wordEnd;
+		}
+
+		if (deferred) {
+			faces[record + 4] = opCount;
+			faceCount++;
+		} else {
+			addPolygon();
+		}
+	}
+
+	private void addPolygon() {
+		ObjReader.validatePolygon(faceVertexCount, faceTextureCount, faceNormalCount, lineInd);
+		result.getPolygons().add(new Polygon(
+				toList(faceVertices, faceVertexCount),
+				toList(faceTextures, faceTextureCount),
+				toList(faceNormals, faceNormalCount)));
+	}
+
+	// Повторяет ObjReader.parseFaceWord: слово делится по '/', пустые хвостовые части отбрасываются,
+	// как это делает String.split
+	private void parseFaceWord(int wordStart, int wordEnd) {
+		int partCount = 0;
+		int lastNonEmpty = -1;
+		int partStart = wordStart;
+		for (int i = wordStart; i <= wordEnd; i++) {
+			if (i < wordEnd && buf.get(i) != '/') {
+				continue;
+			}
+			if (partCount < 3) {
+				partStarts[partCount] = partStart;
+				partEnds[partCount] = i;
+			}
+			if (i > partStart) {
+				lastNonEmpty = partCount;
+			}
+			partCount++;
+			partStart = i + 1;
+		}
+
+		// Порядок разбора и проверок тот же, что в ObjReader.parseFaceWord,
+		// поэтому при нескольких ошибках в слове сообщается та же самая
+		switch (lastNonEmpty + 1) {
+			case 1 -> vertexIndex(parseIndex(0));
+			case 2 -> {
+				vertexIndex(parseIndex(0));
+				textureIndex(parseIndex(1));
+			}
+			case 3 -> {
+				vertexIndex(parseIndex(0));
+
+				// Текстура (может быть пустой)
+				if (partStarts[1] < partEnds[1]) {
+					if (deferred) {
+						record(OP_TEXTURE_USED, 0);
+					} else {
+						checkTexturesDefined();
+					}
+					textureIndex(parseIndex(1));
+				}
+				if (partStarts[2] < partEnds[2]) {
+					if (deferred) {
+						record(OP_NORMAL_USED, 0);
+					} else {
+						checkNormalsDefined();
+					}
+					normalIndex(parseIndex(2));
+				}
+			}
+		}
+	}
+
+	private int parseIndex(int part) {
+		try {
+			return parseInt(partStarts[part], partEnds[part]);
+		} catch (NumberFormatException e) {
+			throw fail("Failed to parse int value.");
+		}
+	}
+
+	private void vertexIndex(int index) {
+		if (deferred) {
+			record(OP_VERTEX, index);
+		} else {
+			resolveVertex(index);
+		}
+	}
+
+	private void textureIndex(int index) {
+		if (deferred) {
+			record(OP_TEXTURE, index);
+		} else {
+			resolveTexture(index);
+		}
+	}
+
+	private void normalIndex(int index) {
+		if (deferred) {
+			record(OP_NORMAL, index);
+		} else {
+			resolveNormal(index);
+		}
+	}
+
+	private void resolveVertex(int index) {
+		addVertex(ObjReader.resolveIndex(index, faceVertCnt, lineInd));
+	}
+
+	private void resolveTexture(int index) {
+		addTexture(ObjReader.resolveIndex(index, faceTexVertCnt, lineInd));
+	}
+
+	private void resolveNormal(int index) {
+		addNormal(ObjReader.resolveIndex(index, faceNormalsCnt, lineInd));
+	}
+
+	private void checkTexturesDefined() {
+		if (faceTexVertCnt == 0) {
+			throw new ObjReaderException("Texture index used, but no 'vt' defined.", lineInd);
+		}
+	}
+
+	private void checkNormalsDefined() {
+		if (faceNormalsCnt == 0) {
+			throw new ObjReaderException("Normal index used, but no 'vn' defined.", lineInd);
+		}
+	}
+
+	private void record(int kind, int index) {
+		if (opCount + 2 > ops.length) {
+			ops = grow(ops);
+		}
+		ops[opCount++] = kind;
+		ops[opCount++] = index;
+	}
+
+	// Синтаксическая ошибка строки. В отложенном режиме запоминается локальный номер строки,
+	// итоговый номер становится известен только в replay
+	private ObjReaderException fail(String message) {
+		if (deferred) {
+			pendingMessage = message;
+			pendingLine = lineInd;
+		}
+		return new ObjReaderException(message, lineInd);
+	}
+
+	private void addVertex(int index) {
+		if (faceVertexCount == faceVertices.length) {
+			faceVertices = grow(faceVertices);
+		}
+		faceVertices[faceVertexCount++] = index;
+	}
+
+	private void addTexture(int index) {
+		if (faceTextureCount == faceTextures.length) {
+			faceTextures = grow(faceTextures);
+		}
+		faceTextures[faceTextureCount++] = index;
+	}
+
+	private void addNormal(int index) {
+		if (faceNormalCount == faceNormals.length) {
+			faceNormals = grow(faceNormals);
+		}
+		faceNormals[faceNormalCount++] = index;
+	}
+
+	// Пропускает пробелы; возвращает false, если до конца строки токенов больше нет
+	private boolean skipWhitespace() {
+		while (pos < lineEnd && isWhitespace(buf.get(pos))) {
+			pos++;
+		}
+		return pos < lineEnd;
+	}
+
+	private int tokenEnd(int start) {
+		int i = start;
+		while (i < lineEnd && !isWhitespace(buf.get(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	// Разбор числа с плавающей точкой на месте. Результат побитово совпадает с Float.parseFloat:
+	// быстрый путь используется только тогда, когда округление через double гарантированно точное,
+	// все остальные случаи (экспоненты, длинные мантиссы, NaN, hex и т.д.) уходят в Float.parseFloat
+	private float nextFloat() {
+		final int start = pos;
+		final int end = tokenEnd(start);
+		pos = end;
+
+		int i = start;
+		boolean negative = false;
+		if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+			negative = buf.get(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int significantDigits = 0;
+		int exponent = 0;
+		boolean hasDigits = false;
+
+		while (i < end) {
+			int d = buf.get(i) - '0';
+			if (d < 0 || d > 9) {
+				break;
+			}
+			hasDigits = true;
+			if (mantissa != 0 || d != 0) {
+				if (++significantDigits > MAX_FAST_DIGITS) {
+					return slowFloat(start, end);
+				}
+			}
+			mantissa = mantissa * 10 + d;
+			i++;
+		}
+		if (i < end && buf.get(i) == '.') {
+			i++;
+			while (i < end) {
+				int d = buf.get(i) - '0';
+				if (d < 0 || d > 9) {
+					break;
+				}
+				hasDigits = true;
+				if (mantissa != 0 || d != 0) {
+					if (++significantDigits > MAX_FAST_DIGITS) {
+						return slowFloat(start, end);
+					}
+				}
+				mantissa = mantissa * 10 + d;
+				exponent--;
+				i++;
+			}
+		}
+		if (!hasDigits) {
+			return slowFloat(start, end);
+		}
+		if (i < end) {
+			byte b = buf.get(i);
+			if (b != 'e' && b != 'E') {
+				return slowFloat(start, end);
+			}
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+				negativeExponent = buf.get(i) == '-';
+				i++;
+			}
+			if (i == end) {
+				return slowFloat(start, end);
+			}
+			int explicitExponent = 0;
+			while (i < end) {
+				int d = buf.get(i) - '0';
+				if (d < 0 || d > 9 || explicitExponent > 1000) {
+					return slowFloat(start, end);
+				}
+				explicitExponent = explicitExponent * 10 + d;
+				i++;
+			}
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+
+		if (mantissa == 0) {
+			return negative ? -0.0f : 0.0f;
+		}
+		if (mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+			return slowFloat(start, end);
+		}
+
+		// Одно корректное округление в double
+		double value = exponent < 0
+				? mantissa / POWERS_OF_TEN[-exponent]
+				: mantissa * POWERS_OF_TEN[exponent];
+		if (value < Float.MIN_NORMAL || value > Float.MAX_VALUE) {
+			return slowFloat(start, end);
+		}
+		// Второе округление (double -> float) может дать другой результат только тогда,
+		// когда double попал ровно в середину между двумя соседними float
+		if ((Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L) {
+			return slowFloat(start, end);
+		}
+		float f = (float) value;
+		return negative ? -f : f;
+	}
+
+	private float slowFloat(int start, int end) {
+		return Float.parseFloat(text(start, end));
+	}
+
+	// Разбор целого числа на месте с той же семантикой, что и Integer.parseInt
+	private int parseInt(int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+			negative = buf.get(i) == '-';
+			i++;
+		}
+		if (i == end || end - i > 9) {
+			return Integer.parseInt(text(start, end));
+		}
+		int value = 0;
+		while (i < end) {
+			int d = buf.get(i) - '0';
+			if (d < 0 || d > 9) {
+				return Integer.parseInt(text(start, end));
+			}
+			value = value * 10 + d;
+			i++;
+		}
+		return negative ? -value : value;
+	}
+
+	private String text(int start, int end) {
+		byte[] bytes = new byte[end - start];
+		buf.get(start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static boolean isWhitespace(byte b) {
+		// Те же символы, что и \s в регулярном выражении, которым раньше разбивалась строка
+		return b == ' ' || b == '\t' || b == '\f' || b == 0x0B || b == '\r' || b == '\n';
+	}
+
+	private static int[] grow(int[] array) {
+		return Arrays.copyOf(array, array.length * 2);
+	}
+
+	private static IndexList toList(int[] values, int count) {
+		return IndexList.wrap(Arrays.copyOf(values, count), count);
+	}
+}
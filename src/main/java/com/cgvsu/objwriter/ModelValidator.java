@@ -2,9 +2,12 @@ package com.cgvsu.objwriter;
 
 import com.cgvsu.math.Vector2f;
 import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.MeshBuffers;
 import com.cgvsu.model.Model;
 import com.cgvsu.model.Polygon;
 
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.List;
 
 public final class ModelValidator {
@@ -13,16 +16,105 @@ public final class ModelValidator {
 
     public static void validate(Model model) {
         validateModelNotNull(model);
+        if (model.hasStoredGeometry()) {
+            // Геометрия в буферах проверяется без возврата в списки модели
+            validateBuffers(model.getMeshBuffers());
+            return;
+        }
 
         List<Vector3f> vertices = model.getVertices();
         List<Vector2f> textureVertices = model.getTextureVertices();
         List<Vector3f> normals = model.getNormals();
-        List<Polygon> polygons = model.getPolygons();
 
         validateVertices(vertices);
         validateTextureVertices(textureVertices);
         validateNormals(normals);
-        validatePolygons(polygons, vertices, textureVertices, normals);
+        if (model.isCompact()) {
+            // Индексы компактной модели проверяются по буферам, без создания объектов полигонов
+            validateBuffers(model.getMeshBuffers());
+            return;
+        }
+        validatePolygons(model.getPolygons(), vertices, textureVertices, normals);
+    }
+
+    /**
+     * Проверяет геометрию в буферах по тем же правилам, что и модель
+     * @param mesh
+     */
+    public static void validateBuffers(MeshBuffers mesh) {
+        if (mesh == null) {
+            throw new ObjWriterException("Mesh cannot be null");
+        }
+        if (mesh.vertexCount() == 0) {
+            throw new ObjWriterException("Model must have at least one vertex");
+        }
+        if (mesh.polygonCount() == 0) {
+            throw new ObjWriterException("Model must have at least one polygon");
+        }
+
+        FloatBuffer vertices = mesh.vertices();
+        for (int i = 0; i < mesh.vertexCount(); i++) {
+            validateFloatValues(vertices.get(i * 3), vertices.get(i * 3 + 1), vertices.get(i * 3 + 2), "Vertex " + i);
+        }
+        FloatBuffer textureVertices = mesh.textureVertices();
+        for (int i = 0; i < mesh.textureVertexCount(); i++) {
+            validateFloatValues(textureVertices.get(i * 2), textureVertices.get(i * 2 + 1), "Texture vertex " + i);
+        }
+        FloatBuffer normals = mesh.normals();
+        for (int i = 0; i < mesh.normalCount(); i++) {
+            float x = normals.get(i * 3);
+            float y = normals.get(i * 3 + 1);
+            float z = normals.get(i * 3 + 2);
+            validateFloatValues(x, y, z, "Normal " + i);
+            validateNormalLength(x, y, z, i);
+        }
+
+        IntBuffer vertexOffsets = mesh.vertexOffsets();
+        IntBuffer textureOffsets = mesh.textureOffsets();
+        IntBuffer normalOffsets = mesh.normalOffsets();
+        for (int polygon = 0; polygon < mesh.polygonCount(); polygon++) {
+            int vertexStart = vertexOffsets.get(polygon);
+            int size = vertexOffsets.get(polygon + 1) - vertexStart;
+            if (size < 3) {
+                throw new ObjWriterException("Polygon " + polygon + " has less than 3 vertices");
+            }
+            validateIndexRange(mesh.vertexIndices(), vertexStart, size, polygon, "vertex", mesh.vertexCount());
+
+            int textureStart = textureOffsets.get(polygon);
+            int textureSize = textureOffsets.get(polygon + 1) - textureStart;
+            if (textureSize > 0) {
+                if (textureSize != size) {
+                    throw new ObjWriterException(
+                            "Polygon " + polygon + ": vertex and texture index counts differ (" +
+                                    size + " vs " + textureSize + ")");
+                }
+                validateIndexRange(mesh.textureIndices(), textureStart, size, polygon, "texture",
+                        mesh.textureVertexCount());
+            }
+
+            int normalStart = normalOffsets.get(polygon);
+            int normalSize = normalOffsets.get(polygon + 1) - normalStart;
+            if (normalSize > 0) {
+                if (normalSize != size) {
+                    throw new ObjWriterException(
+                            "Polygon " + polygon + ": vertex and normal index counts differ (" +
+                                    size + " vs " + normalSize + ")");
+                }
+                validateIndexRange(mesh.normalIndices(), normalStart, size, polygon, "normal", mesh.normalCount());
+            }
+        }
+    }
+
+    private static void validateIndexRange(IntBuffer indices, int start, int size, int polygonIndex,
+                                           String kind, int count) {
+        for (int i = start; i < start + size; i++) {
+            int index = indices.get(i);
+            if (index < 0 || index >= count) {
+                throw new ObjWriterException(
+                        "Polygon %d: invalid %s index %d (valid: 0–%d)",
+                        polygonIndex, kind, index, count - 1);
+            }
+        }
     }
 
     private static void validateModelNotNull(Model model) {
@@ -74,7 +166,7 @@ public final class ModelValidator {
             }
             validateFloatValues(normal.getX(), normal.getY(), normal.getZ(), "Normal " + i);
 
-            validateNormalLength(normal, i);
+            validateNormalLength(normal.getX(), normal.getY(), normal.getZ(), i);
         }
     }
 
@@ -190,10 +282,8 @@ public final class ModelValidator {
         }
     }
 
-    private static void validateNormalLength(Vector3f normal, int index) {
-        float lengthSquared = normal.getX() * normal.getX() +
-                normal.getY() * normal.getY() +
-                normal.getZ() * normal.getZ();
+    private static void validateNormalLength(float x, float y, float z, int index) {
+        float lengthSquared = x * x + y * y + z * z;
 
         if (Math.abs(lengthSquared - 1.0f) > 0.01f) {
             throw new ObjWriterException(
@@ -0,0 +1,111 @@
+package com.cgvsu.objwriter;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Потоковая запись текста OBJ в файл, для расширения .gz - со сжатием gzip.
+ * Текст передается порциями, кодирование и сжатие идут в отдельном потоке, пока формируются следующие порции,
+ * поэтому весь текст файла никогда не находится в памяти целиком.
+ * Ошибки записи запоминаются и выбрасываются при закрытии.
+ */
+final class ObjTextOutput implements Closeable {
+
+    // Примерный размер порции текста в символах
+    static final int CHUNK_CHARS = 1024 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 256 * 1024;
+    private static final int QUEUE_DEPTH = 4;
+    private static final byte[] END = new byte[0];
+
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_DEPTH);
+    private final Thread writerThread;
+    private volatile IOException failure;
+
+    ObjTextOutput(Path path) throws IOException {
+        OutputStream file = new BufferedOutputStream(Files.newOutputStream(path), STREAM_BUFFER_SIZE);
+        OutputStream output = isGzipPath(path) ? new GZIPOutputStream(file, STREAM_BUFFER_SIZE) : file;
+        writerThread = new Thread(() -> drainTo(output), "obj-text-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    static boolean isGzipPath(Path path) {
+        return path.getFileName() != null
+                && path.getFileName().toString().toLowerCase().endsWith(".gz");
+    }
+
+    /**
+     * Передает порцию текста на запись. Порция должна заканчиваться на целом символе
+     * @param chunk
+     */
+    void write(CharSequence chunk) {
+        if (failure != null || chunk.length() == 0) {
+            return;
+        }
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            queue.put(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writerThread.interrupt();
+            failure = new InterruptedIOException("OBJ writing was interrupted");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            queue.put(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writerThread.interrupt();
+            throw new InterruptedIOException("OBJ writing was interrupted");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void drainTo(OutputStream output) {
+        try {
+            while (true) {
+                byte[] chunk = queue.take();
+                if (chunk == END) {
+                    break;
+                }
+                output.write(chunk);
+            }
+        } catch (IOException e) {
+            failure = e;
+            drain();
+        } catch (InterruptedException e) {
+            // Запись прервана, файл остается неполным
+        }
+        try {
+            output.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    // После ошибки очередь только опустошается, чтобы пишущий поток не блокировался
+    private void drain() {
+        try {
+            while (queue.take() != END) {
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
@@ -1,39 +1,89 @@
 package com.cgvsu.objwriter;
 
-import com.cgvsu.math.Vector2f;
-import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.MeshBuffers;
 import com.cgvsu.model.Model;
-import com.cgvsu.model.Polygon;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.nio.file.Path;
-import java.util.List;
 import java.util.Locale;
 
 public class ObjWriter {
 
+    private static final String DEFAULT_COMMENT = "Exported by Team CG&Geom";
+
     public static void write(Model model, String filePath) throws IOException {
         write(model, Path.of(filePath));
     }
 
+    // Текст формируется порциями и пишется в отдельном потоке; файл с расширением .gz записывается сжатым
     public static void write(Model model, Path outputPath) throws IOException {
         validateArguments(model, outputPath);
 
         ModelValidator.validate(model);
-        String content = modelToString(model);
-        Files.writeString(outputPath, content);
+        try (ObjTextOutput output = new ObjTextOutput(outputPath)) {
+            buildObjContent(MeshBuffers.of(model), model.getName(), DEFAULT_COMMENT, output);
+        }
+    }
+
+    /**
+     * Записывает геометрию из буферов, например модель вне кучи, без копирования в объекты модели
+     * @param mesh
+     * @param name имя объекта для строки o или null
+     * @param outputPath
+     * @throws IOException
+     */
+    public static void write(MeshBuffers mesh, String name, Path outputPath) throws IOException {
+        if (mesh == null) {
+            throw new IllegalArgumentException("Mesh cannot be null");
+        }
+        if (outputPath == null) {
+            throw new IllegalArgumentException("Output path cannot be null");
+        }
+
+        ModelValidator.validateBuffers(mesh);
+        try (ObjTextOutput output = new ObjTextOutput(outputPath)) {
+            buildObjContent(mesh, name, DEFAULT_COMMENT, output);
+        }
+    }
+
+    /**
+     * Записывает готовый текст OBJ, для пути с расширением .gz - в сжатом виде
+     * @param content
+     * @param outputPath
+     * @throws IOException
+     */
+    public static void writeContent(CharSequence content, Path outputPath) throws IOException {
+        if (content == null) {
+            throw new IllegalArgumentException("Content cannot be null");
+        }
+        if (outputPath == null) {
+            throw new IllegalArgumentException("Output path cannot be null");
+        }
+        try (ObjTextOutput output = new ObjTextOutput(outputPath)) {
+            int start = 0;
+            while (start < content.length()) {
+                int end = Math.min(content.length(), start + ObjTextOutput.CHUNK_CHARS);
+                // Суррогатная пара не разрывается между порциями
+                if (end < content.length() && Character.isHighSurrogate(content.charAt(end - 1))) {
+                    end--;
+                }
+                output.write(content.subSequence(start, end));
+                start = end;
+            }
+        }
     }
 
     public static String modelToString(Model model) {
-        return modelToString(model, "Exported by Team CG&Geom");
+        return modelToString(model, DEFAULT_COMMENT);
     }
 
     public static String modelToString(Model model, String comment) {
         validateArguments(model);
 
         ModelValidator.validate(model);
-        return buildObjContent(model, comment);
+        return buildObjContent(MeshBuffers.of(model), model.getName(), comment, null).toString();
     }
 
     private static void validateArguments(Model model) {
@@ -49,106 +99,103 @@ public class ObjWriter {
         }
     }
 
-    private static String buildObjContent(Model model, String comment) {
+    // Если output не null, накопленный текст передается в него порциями по целым строкам
+    private static StringBuilder buildObjContent(MeshBuffers mesh, String name, String comment, ObjTextOutput output) {
         StringBuilder sb = new StringBuilder();
 
         appendComment(sb, comment);
 
-        if (model.getName() != null && !model.getName().trim().isEmpty()) {
-            sb.append("o ").append(model.getName().trim()).append('\n');
+        if (name != null && !name.trim().isEmpty()) {
+            sb.append("o ").append(name.trim()).append('\n');
         }
 
-        appendVertices(sb, model.getVertices());
-
-        appendTextureVertices(sb, model.getTextureVertices());
-
-        appendNormals(sb, model.getNormals());
+        appendVectors(sb, "v ", mesh.vertices(), mesh.vertexCount(), 3, output);
 
-        appendPolygons(sb, model.getPolygons());
-
-        return sb.toString();
-    }
+        if (mesh.textureVertexCount() > 0) {
+            sb.append('\n');
+            appendVectors(sb, "vt ", mesh.textureVertices(), mesh.textureVertexCount(), 2, output);
+        }
 
-    private static void appendComment(StringBuilder sb, String comment) {
-        if (comment != null && !comment.trim().isEmpty()) {
-            sb.append("# ").append(comment.trim()).append('\n');
+        if (mesh.normalCount() > 0) {
+            sb.append('\n');
+            appendVectors(sb, "vn ", mesh.normals(), mesh.normalCount(), 3, output);
         }
-    }
 
-    private static void appendVertices(StringBuilder sb, List<Vector3f> vertices) {
-        if (vertices == null || vertices.isEmpty()) return;
+        appendPolygons(sb, mesh, output);
 
-        for (Vector3f vertex : vertices) {
-            sb.append("v ")
-                    .append(formatFloat(vertex.getX())).append(' ')
-                    .append(formatFloat(vertex.getY())).append(' ')
-                    .append(formatFloat(vertex.getZ())).append('\n');
+        if (output != null) {
+            output.write(sb);
+            sb.setLength(0);
         }
+        return sb;
     }
 
-    private static void appendTextureVertices(StringBuilder sb, List<Vector2f> textureVertices) {
-        if (textureVertices == null || textureVertices.isEmpty()) return;
-
-        sb.append('\n');
-        for (Vector2f texCoord : textureVertices) {
-            sb.append("vt ")
-                    .append(formatFloat(texCoord.getX())).append(' ')
-                    .append(formatFloat(texCoord.getY())).append('\n');
+    private static void flushIfFull(StringBuilder sb, ObjTextOutput output) {
+        if (output != null && sb.length() >= ObjTextOutput.CHUNK_CHARS) {
+            output.write(sb);
+            sb.setLength(0);
         }
     }
 
-    private static void appendNormals(StringBuilder sb, List<Vector3f> normals) {
-        if (normals == null || normals.isEmpty()) return;
-
-        sb.append('\n');
-        for (Vector3f normal : normals) {
-            sb.append("vn ")
-                    .append(formatFloat(normal.getX())).append(' ')
-                    .append(formatFloat(normal.getY())).append(' ')
-                    .append(formatFloat(normal.getZ())).append('\n');
+    private static void appendComment(StringBuilder sb, String comment) {
+        if (comment != null && !comment.trim().isEmpty()) {
+            sb.append("# ").append(comment.trim()).append('\n');
         }
     }
 
-    private static void appendPolygons(StringBuilder sb, List<Polygon> polygons) {
-        if (polygons == null || polygons.isEmpty()) return;
-
-        sb.append('\n');
-        for (Polygon polygon : polygons) {
-            appendPolygon(sb, polygon);
+    // Координаты читаются из буферов без создания объектов векторов
+    private static void appendVectors(StringBuilder sb, String token, FloatBuffer coordinates, int count,
+                                      int components, ObjTextOutput output) {
+        for (int i = 0; i < count; i++) {
+            sb.append(token);
+            for (int c = 0; c < components; c++) {
+                if (c > 0) {
+                    sb.append(' ');
+                }
+                sb.append(formatFloat(coordinates.get(i * components + c)));
+            }
+            sb.append('\n');
+            flushIfFull(sb, output);
         }
     }
 
-    private static void appendPolygon(StringBuilder sb, Polygon polygon) {
-        if (polygon == null) return;
+    private static void appendPolygons(StringBuilder sb, MeshBuffers mesh, ObjTextOutput output) {
+        if (mesh.polygonCount() == 0) return;
 
-        sb.append("f");
+        IntBuffer vertexOffsets = mesh.vertexOffsets();
+        IntBuffer vertexIndices = mesh.vertexIndices();
+        IntBuffer textureOffsets = mesh.textureOffsets();
+        IntBuffer textureIndices = mesh.textureIndices();
+        IntBuffer normalOffsets = mesh.normalOffsets();
+        IntBuffer normalIndices = mesh.normalIndices();
 
-        List<Integer> vertexIndices = polygon.getVertexIndices();
-        List<Integer> textureIndices = polygon.getTextureVertexIndices();
-        List<Integer> normalIndices = polygon.getNormalIndices();
-
-        boolean hasTextures = textureIndices != null && !textureIndices.isEmpty();
-        boolean hasNormals = normalIndices != null && !normalIndices.isEmpty();
-
-        if (vertexIndices == null || vertexIndices.isEmpty()) {
-            return;
-        }
-
-        for (int i = 0; i < vertexIndices.size(); i++) {
-            sb.append(' ').append(vertexIndices.get(i) + 1);
-
-            if (hasTextures || hasNormals) {
-                sb.append('/');
-                if (hasTextures) {
-                    sb.append(textureIndices.get(i) + 1);
-                }
-                if (hasNormals) {
+        sb.append('\n');
+        for (int polygon = 0; polygon < mesh.polygonCount(); polygon++) {
+            final int vertexStart = vertexOffsets.get(polygon);
+            final int vertexCount = vertexOffsets.get(polygon + 1) - vertexStart;
+            final int textureStart = textureOffsets.get(polygon);
+            final int normalStart = normalOffsets.get(polygon);
+            boolean hasTextures = textureOffsets.get(polygon + 1) > textureStart;
+            boolean hasNormals = normalOffsets.get(polygon + 1) > normalStart;
+
+            sb.append("f");
+            for (int i = 0; i < vertexCount; i++) {
+                sb.append(' ').append(vertexIndices.get(vertexStart + i) + 1);
+
+                if (hasTextures || hasNormals) {
                     sb.append('/');
-                    sb.append(normalIndices.get(i) + 1);
+                    if (hasTextures) {
+                        sb.append(textureIndices.get(textureStart + i) + 1);
+                    }
+                    if (hasNormals) {
+                        sb.append('/');
+                        sb.append(normalIndices.get(normalStart + i) + 1);
+                    }
                 }
             }
+            sb.append('\n');
+            flushIfFull(sb, output);
         }
-        sb.append('\n');
     }
 
     private static String formatFloat(float value) {
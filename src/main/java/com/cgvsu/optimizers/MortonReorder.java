@@ -0,0 +1,151 @@
+package com.cgvsu.optimizers;
+
+import com.cgvsu.model.IndexList;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.model.Vector3fList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Пространственное упорядочивание модели вдоль кривой Мортона (Z-кривой).
+ * Вершины, близкие в пространстве, оказываются рядом в массиве координат, а полигоны
+ * идут в порядке кода Мортона своего центра, поэтому при обходе полигонов отрисовкой и выбором
+ * соседние обращения к координатам чаще попадают в уже загруженные строки кэша процессора.
+ * Индексы всех полигонов переписываются согласованно, текстурные координаты и нормали не меняются.
+ */
+public final class MortonReorder {
+    private static final Logger log = LoggerFactory.getLogger(MortonReorder.class);
+
+    // 10 бит на ось: код занимает 30 бит и упаковывается в long вместе с 32-битным индексом
+    private static final int AXIS_BITS = 10;
+    private static final int AXIS_MAX = (1 << AXIS_BITS) - 1;
+
+    private MortonReorder() {
+    }
+
+    /**
+     * Переупорядочивает вершины и полигоны модели на месте.
+     * Модель с пустыми (null) вершинами или полигонами не изменяется
+     *
+     * @param model Модель, которая изменяется на месте
+     * @return новый индекс каждой старой вершины или null, если модель не изменена
+     */
+    public static int[] reorder(Model model) {
+        if (model == null) {
+            throw new IllegalArgumentException("Модель не может быть null");
+        }
+        Vector3fList vertices = model.getVertices();
+        final int vertexCount = vertices.size();
+        for (int i = 0; i < vertexCount; i++) {
+            if (vertices.isNullAt(i)) {
+                log.warn("MORTON_REORDER_SKIPPED: пустая вершина {}", i);
+                return null;
+            }
+        }
+        if (model.getPolygons().contains(null)) {
+            log.warn("MORTON_REORDER_SKIPPED: модель содержит пустые полигоны");
+            return null;
+        }
+
+        final float[] coordinates = vertices.coordinates();
+        final float[] min = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+        final float[] scale = new float[3];
+        float[] max = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (int i = 0; i < vertexCount * 3; i++) {
+            min[i % 3] = Math.min(min[i % 3], coordinates[i]);
+            max[i % 3] = Math.max(max[i % 3], coordinates[i]);
+        }
+        for (int axis = 0; axis < 3; axis++) {
+            float extent = max[axis] - min[axis];
+            scale[axis] = extent > 0 && Float.isFinite(extent) ? AXIS_MAX / extent : 0;
+        }
+
+        // Вершины: сортировка пар (код, индекс), упакованных в long
+        long[] keys = new long[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            long code = mortonCode(coordinates[i * 3], coordinates[i * 3 + 1], coordinates[i * 3 + 2], min, scale);
+            keys[i] = code << Integer.SIZE | i;
+        }
+        Arrays.sort(keys);
+        int[] newIndex = new int[vertexCount];
+        float[] sorted = new float[vertexCount * 3];
+        for (int rank = 0; rank < vertexCount; rank++) {
+            int old = (int) keys[rank];
+            newIndex[old] = rank;
+            System.arraycopy(coordinates, old * 3, sorted, rank * 3, 3);
+        }
+        vertices.setCoordinates(sorted, vertexCount);
+
+        ArrayList<Polygon> polygons = model.getPolygons();
+        for (Polygon polygon : polygons) {
+            IndexList indices = polygon.getVertexIndices();
+            for (int i = 0; indices != null && i < indices.size(); i++) {
+                int old = indices.getInt(i);
+                if (old >= 0 && old < vertexCount) {
+                    indices.setInt(i, newIndex[old]);
+                }
+            }
+        }
+
+        // Полигоны: по коду центра, который считается по уже переставленным вершинам
+        long[] polygonKeys = new long[polygons.size()];
+        for (int p = 0; p < polygons.size(); p++) {
+            polygonKeys[p] = centroidCode(polygons.get(p).getVertexIndices(), sorted, vertexCount, min, scale)
+                    << Integer.SIZE | p;
+        }
+        Arrays.sort(polygonKeys);
+        ArrayList<Polygon> reordered = new ArrayList<>(polygons.size());
+        for (long key : polygonKeys) {
+            reordered.add(polygons.get((int) key));
+        }
+        polygons.clear();
+        polygons.addAll(reordered);
+
+        model.markGeometryChanged();
+        log.info("MORTON_REORDER_COMPLETE: вершин: {}, полигонов: {}", vertexCount, polygons.size());
+        return newIndex;
+    }
+
+    private static long centroidCode(IndexList indices, float[] coordinates, int vertexCount,
+                                     float[] min, float[] scale) {
+        float x = 0;
+        float y = 0;
+        float z = 0;
+        int count = 0;
+        for (int i = 0; indices != null && i < indices.size(); i++) {
+            int vertex = indices.getInt(i);
+            if (vertex >= 0 && vertex < vertexCount) {
+                x += coordinates[vertex * 3];
+                y += coordinates[vertex * 3 + 1];
+                z += coordinates[vertex * 3 + 2];
+                count++;
+            }
+        }
+        return count == 0 ? 0 : mortonCode(x / count, y / count, z / count, min, scale);
+    }
+
+    static long mortonCode(float x, float y, float z, float[] min, float[] scale) {
+        return spread(cell(x, min[0], scale[0]))
+                | spread(cell(y, min[1], scale[1])) << 1
+                | spread(cell(z, min[2], scale[2])) << 2;
+    }
+
+    private static int cell(float value, float min, float scale) {
+        int cell = (int) ((value - min) * scale);
+        return Math.max(0, Math.min(AXIS_MAX, cell));
+    }
+
+    // Раздвигает 10 бит так, что между соседними битами остается по два нулевых
+    private static long spread(int value) {
+        long bits = value & 0x3FF;
+        bits = (bits | bits << 16) & 0x30000FFL;
+        bits = (bits | bits << 8) & 0x300F00FL;
+        bits = (bits | bits << 4) & 0x30C30C3L;
+        bits = (bits | bits << 2) & 0x9249249L;
+        return bits;
+    }
+}
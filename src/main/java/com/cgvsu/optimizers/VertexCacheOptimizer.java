@@ -0,0 +1,258 @@
+package com.cgvsu.optimizers;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PackedPolygons;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.optimizers.dto.VertexCacheResult;
+import com.cgvsu.render_engine.PostTransformCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Перестановка полигонов под кэш преобразованных вершин (алгоритм Т. Форсайта, "Linear-Speed
+ * Vertex Cache Optimisation"). Полигоны выбираются жадно: следующим идет полигон с наибольшей суммой
+ * оценок вершин, где оценка выше у вершин, недавно попавших в кэш, и у вершин, которым осталось мало полигонов.
+ * Работает с полигонами любой длины, в том числе с результатом Triangulation.triangulate.
+ * Индексы внутри полигонов не меняются, меняется только порядок полигонов.
+ */
+public final class VertexCacheOptimizer {
+    private static final Logger log = LoggerFactory.getLogger(VertexCacheOptimizer.class);
+
+    // Размер моделируемого кэша при оценке, как в исходной статье
+    private static final int SCORE_CACHE_SIZE = 32;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    // Оценки по позиции в кэше и по числу оставшихся полигонов считаются один раз
+    private static final float[] CACHE_SCORES = new float[SCORE_CACHE_SIZE];
+    private static final float[] VALENCE_SCORES = new float[32];
+
+    static {
+        for (int position = 0; position < SCORE_CACHE_SIZE; position++) {
+            CACHE_SCORES[position] = position < 3
+                    ? LAST_TRIANGLE_SCORE
+                    : (float) Math.pow(1.0f - (position - 3) / (float) (SCORE_CACHE_SIZE - 3), CACHE_DECAY_POWER);
+        }
+        for (int remaining = 1; remaining < VALENCE_SCORES.length; remaining++) {
+            VALENCE_SCORES[remaining] = VALENCE_BOOST_SCALE * (float) Math.pow(remaining, -VALENCE_BOOST_POWER);
+        }
+    }
+
+    private VertexCacheOptimizer() {
+    }
+
+    /**
+     * Переставляет полигоны модели и отмечает изменение топологии
+     *
+     * @param model Модель, которая изменяется на месте
+     * @return ACMR до и после для кэша PostTransformCache размера по умолчанию
+     */
+    public static VertexCacheResult optimize(Model model) {
+        if (model == null) {
+            throw new IllegalArgumentException("Модель не может быть null");
+        }
+        VertexCacheResult result = optimize(model.getPolygons(), model.getVertices().size());
+        model.markTopologyChanged();
+        return result;
+    }
+
+    /**
+     * Переставляет полигоны списка на месте
+     *
+     * @param polygons    Полигоны, например результат Triangulation.triangulate
+     * @param vertexCount Количество вершин модели
+     * @return ACMR до и после
+     */
+    public static VertexCacheResult optimize(List<Polygon> polygons, int vertexCount) {
+        PackedPolygons packed = PackedPolygons.of(polygons);
+        final int cacheSize = PostTransformCache.DEFAULT_SIZE;
+        double before = acmr(packed, cacheSize);
+
+        int[] order = polygonOrder(packed, vertexCount);
+        List<Polygon> reordered = new ArrayList<>(polygons.size());
+        for (int polygon : order) {
+            reordered.add(polygons.get(polygon));
+        }
+        polygons.clear();
+        polygons.addAll(reordered);
+
+        double after = acmr(PackedPolygons.of(polygons), cacheSize);
+        VertexCacheResult result = new VertexCacheResult(polygons.size(), cacheSize, before, after);
+        log.info("VERTEX_CACHE_OPTIMIZED: {}", result);
+        return result;
+    }
+
+    /**
+     * Среднее число промахов кэша FIFO на треугольник при обходе полигонов по порядку.
+     * Полигон из n вершин считается как n - 2 треугольника веером
+     *
+     * @param polygons  Полигоны
+     * @param cacheSize Размер кэша
+     * @return ACMR или 0 для модели без треугольников
+     */
+    public static double acmr(PackedPolygons polygons, int cacheSize) {
+        PostTransformCache cache = new PostTransformCache(cacheSize);
+        long triangles = 0;
+        for (int p = 0; p < polygons.polygonCount(); p++) {
+            for (int i = polygons.vertexOffsets[p]; i < polygons.vertexOffsets[p + 1]; i++) {
+                int vertex = polygons.vertexIndices[i];
+                if (cache.find(vertex) < 0) {
+                    cache.put(vertex, 0, 0);
+                }
+            }
+            triangles += Math.max(0, polygons.vertexCount(p) - 2);
+        }
+        return triangles == 0 ? 0 : cache.getMisses() / (double) triangles;
+    }
+
+    /**
+     * Порядок полигонов для кэша вершин
+     *
+     * @param polygons    Полигоны
+     * @param vertexCount Количество вершин; индексы вне диапазона не учитываются в оценке
+     * @return order[k] - индекс полигона, который должен идти k-м
+     */
+    public static int[] polygonOrder(PackedPolygons polygons, int vertexCount) {
+        final int polygonCount = polygons.polygonCount();
+        final int[] offsets = polygons.vertexOffsets;
+        final int[] indices = polygons.vertexIndices;
+
+        // Полигоны каждой вершины (сжатый построчный вид) и число еще не выбранных из них
+        int[] remaining = new int[vertexCount];
+        for (int vertex : indices) {
+            if (vertex >= 0 && vertex < vertexCount) {
+                remaining[vertex]++;
+            }
+        }
+        int[] adjacencyOffsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            adjacencyOffsets[v + 1] = adjacencyOffsets[v] + remaining[v];
+        }
+        int[] adjacency = new int[adjacencyOffsets[vertexCount]];
+        int[] next = Arrays.copyOf(adjacencyOffsets, vertexCount);
+        for (int p = 0; p < polygonCount; p++) {
+            for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                int vertex = indices[i];
+                if (vertex >= 0 && vertex < vertexCount) {
+                    adjacency[next[vertex]++] = p;
+                }
+            }
+        }
+
+        int[] cachePosition = new int[vertexCount];
+        Arrays.fill(cachePosition, -1);
+        float[] vertexScore = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            vertexScore[v] = vertexScore(-1, remaining[v]);
+        }
+        float[] polygonScore = new float[polygonCount];
+        for (int p = 0; p < polygonCount; p++) {
+            for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                int vertex = indices[i];
+                if (vertex >= 0 && vertex < vertexCount) {
+                    polygonScore[p] += vertexScore[vertex];
+                }
+            }
+        }
+
+        boolean[] emitted = new boolean[polygonCount];
+        int[] order = new int[polygonCount];
+        int maxArity = 0;
+        for (int p = 0; p < polygonCount; p++) {
+            maxArity = Math.max(maxArity, polygons.vertexCount(p));
+        }
+        int[] cache = new int[SCORE_CACHE_SIZE + maxArity];
+        int[] newCache = new int[SCORE_CACHE_SIZE + maxArity];
+        int cacheLength = 0;
+        // Полигоны до scan уже выбраны: поиск следующего, когда в кэше нет кандидатов, идет вперед
+        int scan = 0;
+        int best = -1;
+
+        for (int k = 0; k < polygonCount; k++) {
+            if (best < 0) {
+                while (emitted[scan]) {
+                    scan++;
+                }
+                best = scan;
+            }
+            emitted[best] = true;
+            order[k] = best;
+
+            // Вершины выбранного полигона встают в начало кэша, остальные сдвигаются
+            int newLength = 0;
+            for (int i = offsets[best]; i < offsets[best + 1]; i++) {
+                int vertex = indices[i];
+                if (vertex < 0 || vertex >= vertexCount) {
+                    continue;
+                }
+                remaining[vertex]--;
+                if (!contains(newCache, newLength, vertex)) {
+                    newCache[newLength++] = vertex;
+                }
+            }
+            for (int i = 0; i < cacheLength; i++) {
+                int vertex = cache[i];
+                if (!contains(newCache, newLength, vertex)) {
+                    newCache[newLength++] = vertex;
+                }
+            }
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+            cacheLength = Math.min(newLength, SCORE_CACHE_SIZE);
+            for (int i = cacheLength; i < newLength; i++) {
+                cachePosition[cache[i]] = -1;
+            }
+
+            // Пересчет оценок вершин кэша (в том числе вытесненных) и их невыбранных полигонов
+            best = -1;
+            float bestScore = -1;
+            for (int i = 0; i < newLength; i++) {
+                int vertex = cache[i];
+                if (i < cacheLength) {
+                    cachePosition[vertex] = i;
+                }
+                float score = vertexScore(cachePosition[vertex], remaining[vertex]);
+                float delta = score - vertexScore[vertex];
+                vertexScore[vertex] = score;
+                for (int a = adjacencyOffsets[vertex]; a < adjacencyOffsets[vertex + 1]; a++) {
+                    int polygon = adjacency[a];
+                    if (emitted[polygon]) {
+                        continue;
+                    }
+                    polygonScore[polygon] += delta;
+                    if (polygonScore[polygon] > bestScore) {
+                        bestScore = polygonScore[polygon];
+                        best = polygon;
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    private static float vertexScore(int cachePosition, int remaining) {
+        if (remaining <= 0) {
+            return -1;
+        }
+        float score = cachePosition < 0 ? 0 : CACHE_SCORES[cachePosition];
+        return score + (remaining < VALENCE_SCORES.length
+                ? VALENCE_SCORES[remaining]
+                : VALENCE_BOOST_SCALE * (float) Math.pow(remaining, -VALENCE_BOOST_POWER));
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,259 @@
+package com.cgvsu.optimizers;
+
+import com.cgvsu.model.IndexList;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.model.Vector2fList;
+import com.cgvsu.model.Vector3fList;
+import com.cgvsu.optimizers.dto.WeldResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Сварка вершин модели после импорта.
+ * Вершины, расстояние между которыми не больше epsilon, объединяются в одну,
+ * одинаковые текстурные координаты и нормали объединяются точно.
+ * Поиск соседей идет по хеш-сетке с ячейкой размера epsilon и примитивными ключами,
+ * координаты читаются из упакованных списков (x(i), y(i), z(i)) без создания объектов векторов,
+ * индексы полигонов переписываются за один линейный проход.
+ * Отсутствующие списки (после удаления всех текстур или нормалей) пропускаются,
+ * пустые элементы и полигоны остаются на местах и ни с чем не объединяются.
+ */
+public final class VertexWelder {
+    private static final Logger log = LoggerFactory.getLogger(VertexWelder.class);
+
+    // Размер упакованных координат одного элемента в Vector3fList/Vector2fList
+    private static final int VECTOR3_BYTES = 3 * Float.BYTES;
+    private static final int VECTOR2_BYTES = 2 * Float.BYTES;
+
+    // 21 бит на координату ячейки, три координаты упаковываются в один long
+    private static final int CELL_BITS = 21;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    private static final int NO_VERTEX = LongIntHashMap.MISSING;
+
+    private VertexWelder() {
+    }
+
+    /**
+     * Сваривает вершины и удаляет повторяющиеся текстурные координаты и нормали.
+     *
+     * @param model   Модель, которая изменяется на месте
+     * @param epsilon Максимальное расстояние между свариваемыми вершинами; 0 - только совпадающие
+     * @return Результат сварки
+     */
+    public static WeldResult weld(Model model, float epsilon) {
+        if (model == null) {
+            throw new IllegalArgumentException("Модель не может быть null");
+        }
+        if (!(epsilon >= 0) || Float.isInfinite(epsilon)) {
+            throw new IllegalArgumentException("Epsilon должен быть конечным неотрицательным числом");
+        }
+
+        final int originalVertices = size(model.getVertices());
+        final int originalTextures = size(model.getTextureVertices());
+        final int originalNormals = size(model.getNormals());
+
+        int[] vertexRemap = model.getVertices() == null ? null : weldPositions(model, epsilon);
+        int[] textureRemap = model.getTextureVertices() == null ? null : dedupeTextureVertices(model);
+        int[] normalRemap = model.getNormals() == null ? null : dedupeNormals(model);
+
+        if (model.getPolygons() != null) {
+            for (Polygon polygon : model.getPolygons()) {
+                if (polygon == null) {
+                    continue;
+                }
+                remap(polygon.getVertexIndices(), vertexRemap);
+                remap(polygon.getTextureVertexIndices(), textureRemap);
+                remap(polygon.getNormalIndices(), normalRemap);
+            }
+        }
+        model.markTopologyChanged();
+
+        final int vertexCount = size(model.getVertices());
+        final int textureCount = size(model.getTextureVertices());
+        final int normalCount = size(model.getNormals());
+        long bytesSaved = (long) (originalVertices - vertexCount) * VECTOR3_BYTES
+                + (long) (originalTextures - textureCount) * VECTOR2_BYTES
+                + (long) (originalNormals - normalCount) * VECTOR3_BYTES;
+        WeldResult result = new WeldResult(
+                originalVertices, vertexCount,
+                originalTextures, textureCount,
+                originalNormals, normalCount,
+                bytesSaved);
+        log.info("VERTEX_WELDER_WELD_COMPLETE: epsilon: {}, {}", epsilon, result);
+        return result;
+    }
+
+    private static int[] weldPositions(Model model, float epsilon) {
+        Vector3fList vertices = model.getVertices();
+        if (epsilon == 0) {
+            return dedupeVectors3(vertices, model::setVertices);
+        }
+
+        final int count = vertices.size();
+        final double cellSize = epsilon;
+        final float epsilonSquared = epsilon * epsilon;
+        int[] remap = new int[count];
+        Vector3fList welded = new Vector3fList(count);
+        // Цепочки сваренных вершин по ячейкам: голова в таблице, продолжение в next
+        LongIntHashMap cells = new LongIntHashMap(count);
+        int[] next = new int[Math.max(1, count)];
+
+        for (int i = 0; i < count; i++) {
+            if (vertices.isNullAt(i)) {
+                remap[i] = welded.size();
+                welded.add(null);
+                continue;
+            }
+            final float x = vertices.x(i);
+            final float y = vertices.y(i);
+            final float z = vertices.z(i);
+            if (!Float.isFinite(x) || !Float.isFinite(y) || !Float.isFinite(z)) {
+                // Такие вершины не с чем сравнивать, они остаются как есть
+                remap[i] = welded.size();
+                welded.add(x, y, z);
+                continue;
+            }
+            long cx = (long) Math.floor(x / cellSize);
+            long cy = (long) Math.floor(y / cellSize);
+            long cz = (long) Math.floor(z / cellSize);
+
+            int found = NO_VERTEX;
+            search:
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    for (long dz = -1; dz <= 1; dz++) {
+                        int candidate = cells.get(cellKey(cx + dx, cy + dy, cz + dz));
+                        while (candidate != NO_VERTEX) {
+                            float ddx = x - welded.x(candidate);
+                            float ddy = y - welded.y(candidate);
+                            float ddz = z - welded.z(candidate);
+                            if (ddx * ddx + ddy * ddy + ddz * ddz <= epsilonSquared) {
+                                found = candidate;
+                                break search;
+                            }
+                            candidate = next[candidate];
+                        }
+                    }
+                }
+            }
+
+            if (found == NO_VERTEX) {
+                found = welded.size();
+                long key = cellKey(cx, cy, cz);
+                next[found] = cells.get(key);
+                cells.put(key, found);
+                welded.add(x, y, z);
+            }
+            remap[i] = found;
+        }
+        model.setVertices(welded);
+        return remap;
+    }
+
+    private static int[] dedupeTextureVertices(Model model) {
+        Vector2fList textures = model.getTextureVertices();
+        final int count = textures.size();
+        int[] remap = new int[count];
+        Vector2fList unique = new Vector2fList(count);
+        LongIntHashMap seen = new LongIntHashMap(count);
+        for (int i = 0; i < count; i++) {
+            if (textures.isNullAt(i)) {
+                remap[i] = unique.size();
+                unique.add(null);
+                continue;
+            }
+            final float u = textures.x(i);
+            final float v = textures.y(i);
+            long key = ((long) bits(u) << 32) | (bits(v) & 0xFFFFFFFFL);
+            int index = seen.get(key);
+            if (index == LongIntHashMap.MISSING) {
+                index = unique.size();
+                seen.put(key, index);
+                unique.add(u, v);
+            }
+            remap[i] = index;
+        }
+        model.setTextureVertices(unique);
+        return remap;
+    }
+
+    private static int[] dedupeNormals(Model model) {
+        return dedupeVectors3(model.getNormals(), model::setNormals);
+    }
+
+    private interface VectorListSetter {
+        void set(Vector3fList list);
+    }
+
+    // Точное совпадение трех координат. Ключ - хеш координат, совпадения хешей проверяются по цепочке
+    private static int[] dedupeVectors3(Vector3fList vectors, VectorListSetter setter) {
+        final int count = vectors.size();
+        int[] remap = new int[count];
+        Vector3fList unique = new Vector3fList(count);
+        LongIntHashMap heads = new LongIntHashMap(count);
+        int[] next = new int[Math.max(1, count)];
+
+        for (int i = 0; i < count; i++) {
+            if (vectors.isNullAt(i)) {
+                remap[i] = unique.size();
+                unique.add(null);
+                continue;
+            }
+            final int bx = bits(vectors.x(i));
+            final int by = bits(vectors.y(i));
+            final int bz = bits(vectors.z(i));
+            long key = exactKey(bx, by, bz);
+            int head = heads.get(key);
+            int found = NO_VERTEX;
+            for (int candidate = head; candidate != NO_VERTEX; candidate = next[candidate]) {
+                if (bits(unique.x(candidate)) == bx && bits(unique.y(candidate)) == by
+                        && bits(unique.z(candidate)) == bz) {
+                    found = candidate;
+                    break;
+                }
+            }
+            if (found == NO_VERTEX) {
+                found = unique.size();
+                next[found] = head;
+                heads.put(key, found);
+                unique.add(vectors.x(i), vectors.y(i), vectors.z(i));
+            }
+            remap[i] = found;
+        }
+        setter.set(unique);
+        return remap;
+    }
+
+    private static void remap(IndexList indices, int[] remap) {
+        if (indices == null || remap == null) {
+            return;
+        }
+        for (int i = 0; i < indices.size(); i++) {
+            indices.setInt(i, remap[indices.getInt(i)]);
+        }
+    }
+
+    private static int size(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
+    private static long cellKey(long x, long y, long z) {
+        return ((x & CELL_MASK) << (2 * CELL_BITS)) | ((y & CELL_MASK) << CELL_BITS) | (z & CELL_MASK);
+    }
+
+    private static long exactKey(int x, int y, int z) {
+        long hash = x;
+        hash = hash * 0x9E3779B97F4A7C15L + y;
+        hash = hash * 0x9E3779B97F4A7C15L + z;
+        return hash;
+    }
+
+    // -0.0 и 0.0 считаются одинаковыми
+    private static int bits(float value) {
+        return Float.floatToIntBits(value + 0.0f);
+    }
+}
@@ -0,0 +1,52 @@
+package com.cgvsu.optimizers.dto;
+
+import java.util.Locale;
+
+/**
+ * Результат перестановки полигонов под кэш преобразованных вершин.
+ * ACMR - среднее число промахов кэша на треугольник: 3 при полном отсутствии повторного использования,
+ * около 0.5-0.7 для хорошо упорядоченной сетки.
+ */
+public final class VertexCacheResult {
+    private final int polygonCount;
+    private final int cacheSize;
+    private final double acmrBefore;
+    private final double acmrAfter;
+
+    /**
+     * Конструктор результата перестановки.
+     *
+     * @param polygonCount Количество полигонов
+     * @param cacheSize    Размер кэша FIFO, для которого считался ACMR
+     * @param acmrBefore   ACMR до перестановки
+     * @param acmrAfter    ACMR после перестановки
+     */
+    public VertexCacheResult(int polygonCount, int cacheSize, double acmrBefore, double acmrAfter) {
+        this.polygonCount = polygonCount;
+        this.cacheSize = cacheSize;
+        this.acmrBefore = acmrBefore;
+        this.acmrAfter = acmrAfter;
+    }
+
+    public int getPolygonCount() {
+        return polygonCount;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public double getAcmrBefore() {
+        return acmrBefore;
+    }
+
+    public double getAcmrAfter() {
+        return acmrAfter;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "ACMR %.3f -> %.3f (кэш %d, полигонов %d)",
+                acmrBefore, acmrAfter, cacheSize, polygonCount);
+    }
+}
@@ -0,0 +1,80 @@
+package com.cgvsu.optimizers.dto;
+
+/**
+ * Результат сварки вершин и удаления повторяющихся текстурных координат и нормалей.
+ */
+public final class WeldResult {
+    private final int originalVertexCount;
+    private final int vertexCount;
+    private final int originalTextureVertexCount;
+    private final int textureVertexCount;
+    private final int originalNormalCount;
+    private final int normalCount;
+    private final long estimatedBytesSaved;
+
+    /**
+     * Конструктор результата сварки.
+     *
+     * @param originalVertexCount        Количество вершин до сварки
+     * @param vertexCount                Количество вершин после сварки
+     * @param originalTextureVertexCount Количество текстурных вершин до сварки
+     * @param textureVertexCount         Количество текстурных вершин после сварки
+     * @param originalNormalCount        Количество нормалей до сварки
+     * @param normalCount                Количество нормалей после сварки
+     * @param estimatedBytesSaved        Оценка освобожденной памяти в байтах
+     */
+    public WeldResult(int originalVertexCount, int vertexCount,
+                      int originalTextureVertexCount, int textureVertexCount,
+                      int originalNormalCount, int normalCount,
+                      long estimatedBytesSaved) {
+        this.originalVertexCount = originalVertexCount;
+        this.vertexCount = vertexCount;
+        this.originalTextureVertexCount = originalTextureVertexCount;
+        this.textureVertexCount = textureVertexCount;
+        this.originalNormalCount = originalNormalCount;
+        this.normalCount = normalCount;
+        this.estimatedBytesSaved = estimatedBytesSaved;
+    }
+
+    public int getOriginalVertexCount() {
+        return originalVertexCount;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getOriginalTextureVertexCount() {
+        return originalTextureVertexCount;
+    }
+
+    public int getTextureVertexCount() {
+        return textureVertexCount;
+    }
+
+    public int getOriginalNormalCount() {
+        return originalNormalCount;
+    }
+
+    public int getNormalCount() {
+        return normalCount;
+    }
+
+    /**
+     * Возвращает оценку памяти, освобожденной удаленными упакованными координатами.
+     *
+     * @return Количество байт
+     */
+    public long getEstimatedBytesSaved() {
+        return estimatedBytesSaved;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("вершины %d -> %d, текстуры %d -> %d, нормали %d -> %d, освобождено ~%d КБ",
+                originalVertexCount, vertexCount,
+                originalTextureVertexCount, textureVertexCount,
+                originalNormalCount, normalCount,
+                estimatedBytesSaved / 1024);
+    }
+}
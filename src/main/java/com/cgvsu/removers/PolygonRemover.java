@@ -19,10 +19,12 @@ public class PolygonRemover {
             originallyOrphaned = findOriginallyOrphanedElements(model);
         }
 
+        // Model.removePolygons сам отмечает изменение и сохраняет индекс смежности действительным
         removeSelectedPolygons(model, polygonIndicesToRemove);
 
         if (removeOrphanedVertices) {
             removeNewlyOrphanedElements(model, originallyOrphaned);
+            model.markTopologyChanged();
         }
 
         return model;
@@ -83,19 +85,10 @@ public class PolygonRemover {
     }
 
     private static void removeSelectedPolygons(Model model, List<Integer> indicesToRemove) {
-        List<Polygon> polygons = model.getPolygons();
         if (indicesToRemove == null || indicesToRemove.isEmpty()) {
             return;
         }
-
-        List<Integer> sortedIndices = new ArrayList<>(indicesToRemove);
-        sortedIndices.sort(Collections.reverseOrder());
-
-        for (int index : sortedIndices) {
-            if (index >= 0 && index < polygons.size()) {
-                polygons.remove(index);
-            }
-        }
+        model.removePolygons(indicesToRemove);
     }
 
     private static <T> RebuildResult<T> rebuildElementList(List<T> elements,
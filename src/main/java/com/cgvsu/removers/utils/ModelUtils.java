@@ -1,5 +1,6 @@
 package com.cgvsu.removers.utils;
 
+import com.cgvsu.model.MeshBuffers;
 import com.cgvsu.model.Model;
 import com.cgvsu.model.Polygon;
 import com.cgvsu.removers.utils.functional.PolygonDataExtractor;
@@ -7,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
+import java.nio.IntBuffer;
 import java.util.*;
 
 /**
@@ -31,16 +33,40 @@ public final class ModelUtils {
         log.info("VERTEX_REMOVAL_SERVICE_FIND_POLYGONS_CONTAINING_VERTICES_START: " +
                 "поиск полигонов, содержащих указанные вершины");
 
+        // Просматриваются только полигоны указанных вершин по индексу смежности модели
+        Set<Integer> polygonsToRemove = model.getTopology().polygonsContainingAny(vertexIndices);
+        log.debug("VERTEX_REMOVAL_SERVICE_POLYGONS_CONTAIN_VERTICES: " +
+                "вершины: {}, полигоны: {}", vertexIndices, polygonsToRemove);
+
+        log.info("VERTEX_REMOVAL_SERVICE_FIND_POLYGONS_CONTAINING_VERTICES_COMPLETE: " +
+                "найдено полигонов: {}", polygonsToRemove.size());
+
+        return polygonsToRemove;
+    }
+
+    /**
+     * Находит все полигоны, которые содержат указанные вершины, читая индексы прямо из буферов
+     * (например, модели вне кучи) без создания объектов полигонов.
+     *
+     * @param mesh Геометрия для поиска
+     * @param vertexIndices Набор индексов вершин для поиска
+     * @return Набор индексов полигонов, содержащих указанные вершины
+     */
+    public static Set<Integer> findPolygonsContainingVertices(MeshBuffers mesh, Set<Integer> vertexIndices) {
         Set<Integer> polygonsToRemove = new HashSet<>();
+        if (vertexIndices.isEmpty()) {
+            return polygonsToRemove;
+        }
 
-        for (int polygonIndex = 0; polygonIndex < model.getPolygons().size(); polygonIndex++) {
-            Polygon polygon = model.getPolygons().get(polygonIndex);
-            boolean contains = PolygonUtils.polygonContainsAnyVertex(polygon, vertexIndices);
-            if (contains) {
-                log.debug("VERTEX_REMOVAL_SERVICE_POLYGON_CONTAINS_VERTICES: " +
-                                "полигон {} содержит вершины: {}, вершины полигона: {}",
-                        polygonIndex, vertexIndices, polygon.getVertexIndices());
-                polygonsToRemove.add(polygonIndex);
+        IntBuffer offsets = mesh.vertexOffsets();
+        IntBuffer indices = mesh.vertexIndices();
+        for (int polygonIndex = 0; polygonIndex < mesh.polygonCount(); polygonIndex++) {
+            int end = offsets.get(polygonIndex + 1);
+            for (int i = offsets.get(polygonIndex); i < end; i++) {
+                if (vertexIndices.contains(indices.get(i))) {
+                    polygonsToRemove.add(polygonIndex);
+                    break;
+                }
             }
         }
 
@@ -64,7 +64,11 @@ public final class RemovalUtils {
                         "удаление полигонов из модели, количество: {}",
                 polygonIndices == null ? 0 : polygonIndices.size());
 
-        removeElementsByIndices(model.getPolygons(), polygonIndices);
+        if (polygonIndices == null || polygonIndices.isEmpty()) {
+            return;
+        }
+        // Один проход по списку; индекс смежности модели обновляется, а не строится заново
+        model.removePolygons(polygonIndices);
     }
 
     /**
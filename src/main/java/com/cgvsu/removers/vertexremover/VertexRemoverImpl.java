@@ -69,6 +69,7 @@ public final class VertexRemoverImpl implements VertexRemover {
 
         performCleanupAndReindex(model, allVerticesToRemove, textureIndicesToRemove,
                 normalIndicesToRemove, clearUnused);
+        model.markGeometryChanged();
 
         log.info("VERTEX_REMOVAL_SERVICE_REINDEX_MODEL_COMPLETE: " +
                         "модель переиндексирована, финальное количество вершин: {}, " +
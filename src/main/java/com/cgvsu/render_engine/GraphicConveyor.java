@@ -1,15 +1,18 @@
 package com.cgvsu.render_engine;
-import javax.vecmath.*;
 
+import com.cgvsu.math.Matrix4f;
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+
+/*
+ * Матрицы вида и проекции и перевод вершин в экранные координаты.
+ * Используются типы com.cgvsu.math, векторы - столбцы: MVP = P * V * M.
+ * Методы для отрисовки и выбора мышью пишут результат в массивы float и ничего не создают на вершину.
+ */
 public class GraphicConveyor {
 
     public static Matrix4f rotateScaleTranslate() {
-        float[] matrix = new float[]{
-                1, 0, 0, 0,
-                0, 1, 0, 0,
-                0, 0, 1, 0,
-                0, 0, 0, 1};
-        return new Matrix4f(matrix);
+        return Matrix4f.identity();
     }
 
     public static Matrix4f lookAt(Vector3f eye, Vector3f target) {
@@ -17,26 +20,22 @@ public class GraphicConveyor {
     }
 
     public static Matrix4f lookAt(Vector3f eye, Vector3f target, Vector3f up) {
-        Vector3f resultX = new Vector3f();
-        Vector3f resultY = new Vector3f();
-        Vector3f resultZ = new Vector3f();
-
-        resultZ.sub(target, eye);
-        resultX.cross(up, resultZ);
-        resultY.cross(resultZ, resultX);
+        Vector3f resultZ = target.subtract(eye);
+        Vector3f resultX = up.cross(resultZ);
+        Vector3f resultY = resultZ.cross(resultX);
 
-        resultX.normalize();
-        resultY.normalize();
-        resultZ.normalize();
+        resultX = resultX.normalize();
+        resultY = resultY.normalize();
+        resultZ = resultZ.normalize();
 
-        float[] matrix = new float[]{
-                resultX.x, resultY.x, resultZ.x, 0,
-                resultX.y, resultY.y, resultZ.y, 0,
-                resultX.z, resultY.z, resultZ.z, 0,
-                -resultX.dot(eye), -resultY.dot(eye), -resultZ.dot(eye), 1};
-        return new Matrix4f(matrix);
+        return new Matrix4f(new float[][]{
+                {resultX.x, resultX.y, resultX.z, -resultX.dot(eye)},
+                {resultY.x, resultY.y, resultY.z, -resultY.dot(eye)},
+                {resultZ.x, resultZ.y, resultZ.z, -resultZ.dot(eye)},
+                {0, 0, 0, 1}});
     }
 
+    // fov в радианах; w результата равна глубине z в пространстве камеры
     public static Matrix4f perspective(
             final float fov,
             final float aspectRatio,
@@ -44,23 +43,61 @@ public class GraphicConveyor {
             final float farPlane) {
         Matrix4f result = new Matrix4f();
         float tangentMinusOnDegree = (float) (1.0F / (Math.tan(fov * 0.5F)));
-        result.m00 = tangentMinusOnDegree / aspectRatio;
-        result.m11 = tangentMinusOnDegree;
-        result.m22 = (farPlane + nearPlane) / (farPlane - nearPlane);
-        result.m23 = 1.0F;
-        result.m32 = 2 * (nearPlane * farPlane) / (nearPlane - farPlane);
+        result.set(0, 0, tangentMinusOnDegree / aspectRatio);
+        result.set(1, 1, tangentMinusOnDegree);
+        result.set(2, 2, (farPlane + nearPlane) / (farPlane - nearPlane));
+        result.set(2, 3, 2 * (nearPlane * farPlane) / (nearPlane - farPlane));
+        result.set(3, 2, 1.0F);
+        result.set(3, 3, 0);
         return result;
     }
 
+    // Матрица модели-вида-проекции P * V * M
+    public static Matrix4f modelViewProjection(final Matrix4f model, final Camera camera) {
+        Matrix4f result = camera.getProjectionMatrix();
+        result.mulInto(camera.getViewMatrix(), result);
+        return result.mulInto(model, result);
+    }
+
     public static Vector3f multiplyMatrix4ByVector3(final Matrix4f matrix, final Vector3f vertex) {
-        final float x = (vertex.x * matrix.m00) + (vertex.y * matrix.m10) + (vertex.z * matrix.m20) + matrix.m30;
-        final float y = (vertex.x * matrix.m01) + (vertex.y * matrix.m11) + (vertex.z * matrix.m21) + matrix.m31;
-        final float z = (vertex.x * matrix.m02) + (vertex.y * matrix.m12) + (vertex.z * matrix.m22) + matrix.m32;
-        final float w = (vertex.x * matrix.m03) + (vertex.y * matrix.m13) + (vertex.z * matrix.m23) + matrix.m33;
+        final float x = (vertex.x * matrix.get(0, 0)) + (vertex.y * matrix.get(0, 1)) + (vertex.z * matrix.get(0, 2)) + matrix.get(0, 3);
+        final float y = (vertex.x * matrix.get(1, 0)) + (vertex.y * matrix.get(1, 1)) + (vertex.z * matrix.get(1, 2)) + matrix.get(1, 3);
+        final float z = (vertex.x * matrix.get(2, 0)) + (vertex.y * matrix.get(2, 1)) + (vertex.z * matrix.get(2, 2)) + matrix.get(2, 3);
+        final float w = (vertex.x * matrix.get(3, 0)) + (vertex.y * matrix.get(3, 1)) + (vertex.z * matrix.get(3, 2)) + matrix.get(3, 3);
         return new Vector3f(x / w, y / w, z / w);
     }
 
-    public static Point2f vertexToPoint(final Vector3f vertex, final int width, final int height) {
-        return new Point2f(vertex.x * width + width / 2.0F, -vertex.y * height + height / 2.0F);
+    public static Vector2f vertexToPoint(final Vector3f vertex, final int width, final int height) {
+        return new Vector2f(vertex.x * width + width / 2.0F, -vertex.y * height + height / 2.0F);
+    }
+
+    /**
+     * Экранные координаты одной вершины: x в dest[offset], y в dest[offset + 1].
+     * Порядок операций тот же, что в BatchTransform, результаты совпадают
+     * @param m элементы матрицы по строкам (Matrix4f.toFlatArray)
+     */
+    public static void toScreen(final float[] m, final float x, final float y, final float z,
+                                final int width, final int height, final float[] dest, final int offset) {
+        final float w = m[12] * x + m[13] * y + m[14] * z + m[15];
+        dest[offset] = (m[0] * x + m[1] * y + m[2] * z + m[3]) / w * width + width / 2.0F;
+        dest[offset + 1] = -((m[4] * x + m[5] * y + m[6] * z + m[7]) / w) * height + height / 2.0F;
+    }
+
+    /**
+     * Экранные координаты count вершин, координаты которых лежат подряд (x, y, z) в coordinates.
+     * Вершины читаются на месте, без раскладки по осям; для повторных проекций одной модели
+     * удобнее ScreenProjection, которая переиспользует массивы и пакетное преобразование
+     * @param screenX результат по оси X, не короче count
+     * @param screenY результат по оси Y, не короче count
+     */
+    public static void toScreen(final Matrix4f matrix, final float[] coordinates, final int count,
+                                final int width, final int height, final float[] screenX, final float[] screenY) {
+        final float[] m = matrix.toFlatArray(new float[16], 0);
+        final float[] point = new float[2];
+        for (int i = 0; i < count; i++) {
+            toScreen(m, coordinates[3 * i], coordinates[3 * i + 1], coordinates[3 * i + 2], width, height, point, 0);
+            screenX[i] = point[0];
+            screenY[i] = point[1];
+        }
     }
 }
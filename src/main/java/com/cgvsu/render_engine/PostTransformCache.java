@@ -0,0 +1,94 @@
+package com.cgvsu.render_engine;
+
+import java.util.Arrays;
+
+/**
+ * Небольшой кэш уже преобразованных вершин с вытеснением по очереди (FIFO).
+ * Хранит экранные координаты последних size вершин, чтобы вершина, общая для соседних полигонов,
+ * не умножалась на матрицу повторно. Доля попаданий зависит от порядка полигонов,
+ * его улучшает VertexCacheOptimizer. RenderEngine использует кэш только для моделей, где углов
+ * полигонов мало на вершину (RenderEngine.usesTransformCache); связные сетки рисуются пакетом
+ * (ScreenProjection), и кэш для них не нужен.
+ */
+public final class PostTransformCache {
+
+    public static final int DEFAULT_SIZE = 16;
+
+    private final int[] vertices;
+    private final float[] xs;
+    private final float[] ys;
+    // Слот, который будет заменен следующим
+    private int next;
+    private long hits;
+    private long misses;
+
+    public PostTransformCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    public PostTransformCache(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + size);
+        }
+        vertices = new int[size];
+        xs = new float[size];
+        ys = new float[size];
+        clear();
+    }
+
+    public int size() {
+        return vertices.length;
+    }
+
+    /**
+     * Ищет вершину в кэше и учитывает попадание или промах
+     * @param vertex
+     * @return слот вершины или -1
+     */
+    public int find(int vertex) {
+        for (int slot = 0; slot < vertices.length; slot++) {
+            if (vertices[slot] == vertex) {
+                hits++;
+                return slot;
+            }
+        }
+        misses++;
+        return -1;
+    }
+
+    /**
+     * Добавляет вершину вместо самой старой
+     * @return слот вершины
+     */
+    public int put(int vertex, float x, float y) {
+        int slot = next;
+        vertices[slot] = vertex;
+        xs[slot] = x;
+        ys[slot] = y;
+        next = (next + 1) % vertices.length;
+        return slot;
+    }
+
+    public float x(int slot) {
+        return xs[slot];
+    }
+
+    public float y(int slot) {
+        return ys[slot];
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void clear() {
+        Arrays.fill(vertices, -1);
+        next = 0;
+        hits = 0;
+        misses = 0;
+    }
+}
@@ -1,10 +1,13 @@
 package com.cgvsu.render_engine;
 
-import java.util.ArrayList;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 
-import com.cgvsu.math.Vector3f;
+import com.cgvsu.math.BatchTransform;
+import com.cgvsu.math.Matrix4f;
+import com.cgvsu.model.MeshBuffers;
+import com.cgvsu.model.QuantizedMesh;
 import javafx.scene.canvas.GraphicsContext;
-import javax.vecmath.*;
 import com.cgvsu.model.Model;
 import javafx.scene.paint.Color;
 
@@ -12,27 +15,119 @@ import static com.cgvsu.render_engine.GraphicConveyor.*;
 
 public class RenderEngine {
 
+    /*
+     * Доля углов полигонов на вершину, начиная с которой все вершины выгоднее преобразовать
+     * одним пакетом, чем углы по одному через PostTransformCache. Пакет обходит все вершины,
+     * в том числе ни в один полигон не входящие, а кэш - только углы, но промахивается на каждой
+     * новой вершине. Замер RenderPathBenchmark на сетке 400x400 с частью четырехугольников:
+     * обычный цикл и кэш стоят одинаково примерно при 0.85 угла на вершину,
+     * с jdk.incubator.vector - примерно при 0.45. У связной сетки углов в 4-6 раз больше,
+     * чем вершин, и выбирается пакет; кэш выигрывает, когда большая часть вершин не входит в полигоны.
+     * Поэтому порядок полигонов (VertexCacheOptimizer) влияет на отрисовку только таких моделей
+     */
+    private static final float BATCH_CORNERS_PER_VERTEX = 0.85f;
+    private static final float VECTORIZED_BATCH_CORNERS_PER_VERTEX = 0.45f;
+
+    public static void render(
+            final GraphicsContext graphicsContext,
+            final Camera camera,
+            final Model mesh,
+            final int width,
+            final int height,
+            final boolean showVertices,
+            final Integer highlightedPolygonIndex,
+            final Integer highlightedVertexIndex)
+    {
+        render(graphicsContext, camera, mesh, new ScreenProjection(), width, height,
+                showVertices, highlightedPolygonIndex, highlightedVertexIndex);
+    }
+
+    /**
+     * Отрисовка с проекцией, сохраненной для этой модели между кадрами: пока камера, окно и вершины
+     * не меняются, вершины заново не проецируются. У каждой модели должна быть своя проекция
+     */
     public static void render(
             final GraphicsContext graphicsContext,
             final Camera camera,
             final Model mesh,
+            final ScreenProjection projection,
             final int width,
             final int height,
             final boolean showVertices,
             final Integer highlightedPolygonIndex,
             final Integer highlightedVertexIndex)
     {
-        Matrix4f modelMatrix = rotateScaleTranslate();
-        Matrix4f viewMatrix = camera.getViewMatrix();
-        Matrix4f projectionMatrix = camera.getProjectionMatrix();
+        render(graphicsContext, camera, mesh.getMeshBuffers(), mesh, mesh.getGeometryVersion(), projection,
+                width, height, showVertices, highlightedPolygonIndex, highlightedVertexIndex);
+    }
 
-        Matrix4f modelViewProjectionMatrix = new Matrix4f(modelMatrix);
-        modelViewProjectionMatrix.mul(viewMatrix);
-        modelViewProjectionMatrix.mul(projectionMatrix);
+    // Отрисовка по буферам геометрии: так же рисуются модели, хранящиеся вне кучи (OffHeapMesh)
+    public static void render(
+            final GraphicsContext graphicsContext,
+            final Camera camera,
+            final MeshBuffers mesh,
+            final int width,
+            final int height,
+            final boolean showVertices,
+            final Integer highlightedPolygonIndex,
+            final Integer highlightedVertexIndex)
+    {
+        render(graphicsContext, camera, mesh, mesh, 0, new ScreenProjection(), width, height,
+                showVertices, highlightedPolygonIndex, highlightedVertexIndex);
+    }
 
-        final int nPolygons = mesh.getPolygons().size();
+    /**
+     * Вершины проецируются по ключу source и version: если они совпадают с прошлым вызовом для этой
+     * проекции, а камера и окно не менялись, используется сохраненный результат
+     */
+    private static void render(
+            final GraphicsContext graphicsContext,
+            final Camera camera,
+            final MeshBuffers mesh,
+            final Object source,
+            final long version,
+            final ScreenProjection projection,
+            final int width,
+            final int height,
+            final boolean showVertices,
+            final Integer highlightedPolygonIndex,
+            final Integer highlightedVertexIndex)
+    {
+        final Matrix4f modelViewProjectionMatrix = meshMatrix(mesh, camera);
+
+        // Координаты и индексы читаются из плоских буферов без создания объектов на каждый угол.
+        // Квантованные координаты не декодируются: перевод в координаты модели добавлен в матрицу
+        final ScreenProjection.Coordinates coordinates;
+        if (mesh instanceof QuantizedMesh) {
+            coordinates = ((QuantizedMesh) mesh)::quantizedCoordinate;
+        } else {
+            final FloatBuffer buffer = mesh.vertices();
+            coordinates = buffer::get;
+        }
+        final IntBuffer vertexOffsets = mesh.vertexOffsets();
+        final IntBuffer vertexIndices = mesh.vertexIndices();
+        final int nPolygons = mesh.polygonCount();
+        final int nVertices = mesh.vertexCount();
+
+        // Если углов полигонов достаточно много на вершину или нужны все точки, все вершины
+        // преобразуются одним пакетом (ScreenProjection), и при неподвижной камере пакет не пересчитывается.
+        // Иначе преобразуются только углы полигонов, а общие вершины соседних полигонов берутся из кэша
+        float[] screenX = null;
+        float[] screenY = null;
+        if (showVertices || isBatchCheaper(nVertices, vertexOffsets.get(nPolygons))) {
+            projectAll(mesh, source, version, modelViewProjectionMatrix, projection, width, height);
+            screenX = projection.screenX();
+            screenY = projection.screenY();
+        }
+        final PostTransformCache transformed = screenX == null ? new PostTransformCache() : null;
+        final float[] matrix = modelViewProjectionMatrix.toFlatArray(new float[16], 0);
+        final float[] point = new float[2];
+        // Экранные координаты углов текущего полигона
+        float[] pointsX = new float[8];
+        float[] pointsY = new float[8];
         for (int polygonInd = 0; polygonInd < nPolygons; ++polygonInd) {
-            final int nVerticesInPolygon = mesh.getPolygons().get(polygonInd).getVertexIndices().size();
+            final int firstIndex = vertexOffsets.get(polygonInd);
+            final int nVerticesInPolygon = vertexOffsets.get(polygonInd + 1) - firstIndex;
 
             if (highlightedPolygonIndex != null && polygonInd == highlightedPolygonIndex) {
                 graphicsContext.setStroke(Color.RED);
@@ -42,53 +137,118 @@ public class RenderEngine {
                 graphicsContext.setLineWidth(1.0);
             }
 
-            ArrayList<Point2f> resultPoints = new ArrayList<>();
-            for (int vertexInPolygonInd = 0; vertexInPolygonInd < nVerticesInPolygon; ++vertexInPolygonInd) {
-                Vector3f vertex = mesh.getVertices().get(mesh.getPolygons().get(polygonInd).getVertexIndices().get(vertexInPolygonInd));
-                javax.vecmath.Vector3f vertexVecmath = new javax.vecmath.Vector3f(vertex.x, vertex.y, vertex.z);
-                Point2f resultPoint = vertexToPoint(multiplyMatrix4ByVector3(modelViewProjectionMatrix, vertexVecmath), width, height);
-                resultPoints.add(resultPoint);
+            if (nVerticesInPolygon > pointsX.length) {
+                pointsX = new float[nVerticesInPolygon];
+                pointsY = new float[nVerticesInPolygon];
             }
             for (int vertexInPolygonInd = 0; vertexInPolygonInd < nVerticesInPolygon; ++vertexInPolygonInd) {
-                Vector3f vertex = mesh.getVertices().get(mesh.getPolygons().get(polygonInd).getVertexIndices().get(vertexInPolygonInd));
-
-                javax.vecmath.Vector3f vertexVecmath = new javax.vecmath.Vector3f(vertex.x, vertex.y, vertex.z);
-
-                Point2f resultPoint = vertexToPoint(multiplyMatrix4ByVector3(modelViewProjectionMatrix, vertexVecmath), width, height);
-                resultPoints.add(resultPoint);
+                final int vertex = vertexIndices.get(firstIndex + vertexInPolygonInd);
+                if (screenX != null) {
+                    pointsX[vertexInPolygonInd] = screenX[vertex];
+                    pointsY[vertexInPolygonInd] = screenY[vertex];
+                    continue;
+                }
+                int slot = transformed.find(vertex);
+                if (slot < 0) {
+                    final int offset = 3 * vertex;
+                    toScreen(matrix, coordinates.get(offset), coordinates.get(offset + 1), coordinates.get(offset + 2),
+                            width, height, point, 0);
+                    slot = transformed.put(vertex, point[0], point[1]);
+                }
+                pointsX[vertexInPolygonInd] = transformed.x(slot);
+                pointsY[vertexInPolygonInd] = transformed.y(slot);
             }
 
             for (int vertexInPolygonInd = 1; vertexInPolygonInd < nVerticesInPolygon; ++vertexInPolygonInd) {
                 graphicsContext.strokeLine(
-                        resultPoints.get(vertexInPolygonInd - 1).x,
-                        resultPoints.get(vertexInPolygonInd - 1).y,
-                        resultPoints.get(vertexInPolygonInd).x,
-                        resultPoints.get(vertexInPolygonInd).y);
+                        pointsX[vertexInPolygonInd - 1],
+                        pointsY[vertexInPolygonInd - 1],
+                        pointsX[vertexInPolygonInd],
+                        pointsY[vertexInPolygonInd]);
             }
 
             if (nVerticesInPolygon > 0)
                 graphicsContext.strokeLine(
-                        resultPoints.get(nVerticesInPolygon - 1).x,
-                        resultPoints.get(nVerticesInPolygon - 1).y,
-                        resultPoints.get(0).x,
-                        resultPoints.get(0).y);
+                        pointsX[nVerticesInPolygon - 1],
+                        pointsY[nVerticesInPolygon - 1],
+                        pointsX[0],
+                        pointsY[0]);
         }
-        if (showVertices && mesh.getVertices() != null) {
-            for (int i = 0; i < mesh.getVertices().size(); i++) {
-                Vector3f vertex = mesh.getVertices().get(i);
-                javax.vecmath.Vector3f v = new javax.vecmath.Vector3f(vertex.x, vertex.y, vertex.z);
-                Point2f screenPoint = vertexToPoint(multiplyMatrix4ByVector3(modelViewProjectionMatrix, v), width, height);
-                if (Float.isFinite(screenPoint.x) && Float.isFinite(screenPoint.y)) {
+        if (showVertices) {
+            for (int i = 0; i < nVertices; i++) {
+                if (Float.isFinite(screenX[i]) && Float.isFinite(screenY[i])) {
                     if (highlightedVertexIndex != null && i == highlightedVertexIndex) {
                         graphicsContext.setFill(Color.ORANGE);
-                        graphicsContext.fillOval(screenPoint.x - 4, screenPoint.y - 4, 8, 8);
+                        graphicsContext.fillOval(screenX[i] - 4, screenY[i] - 4, 8, 8);
                     } else {
                         graphicsContext.setFill(Color.RED);
-                        graphicsContext.fillOval(screenPoint.x - 2, screenPoint.y - 2, 4, 4);
+                        graphicsContext.fillOval(screenX[i] - 2, screenY[i] - 2, 4, 4);
                     }
                 }
             }
         }
 
     }
+
+    /**
+     * Экранные координаты всех вершин модели в ее проекции, как при отрисовке: если кадр уже
+     * посчитал проекцию при той же камере и размере окна, вершины заново не преобразуются.
+     * Модель с геометрией в буферах (Model.storeGeometry) проецируется по буферам, без возврата в кучу
+     * @param camera
+     * @param mesh
+     * @param projection проекция этой модели, сохраненная между кадрами
+     * @param width
+     * @param height
+     * @return projection
+     */
+    public static ScreenProjection project(Camera camera, Model mesh, ScreenProjection projection,
+                                           int width, int height) {
+        MeshBuffers buffers = mesh.getMeshBuffers();
+        projectAll(buffers, mesh, mesh.getGeometryVersion(), meshMatrix(buffers, camera), projection, width, height);
+        return projection;
+    }
+
+    // Координаты из буфера раскладываются по осям массивами, квантованные - по одной
+    private static void projectAll(MeshBuffers mesh, Object source, long version, Matrix4f matrix,
+                                   ScreenProjection projection, int width, int height) {
+        if (mesh instanceof QuantizedMesh) {
+            projection.project(source, version, ((QuantizedMesh) mesh)::quantizedCoordinate, mesh.vertexCount(),
+                    matrix, width, height);
+        } else {
+            projection.project(source, version, mesh.vertices(), mesh.vertexCount(), matrix, width, height);
+        }
+    }
+
+    // Матрица модели-вида-проекции; для квантованных координат в нее добавляется перевод в координаты модели
+    private static Matrix4f meshMatrix(MeshBuffers mesh, Camera camera) {
+        Matrix4f matrix = modelViewProjection(rotateScaleTranslate(), camera);
+        if (mesh instanceof QuantizedMesh) {
+            matrix.mulInto(dequantizationMatrix((QuantizedMesh) mesh), matrix);
+        }
+        return matrix;
+    }
+
+    /**
+     * Рисуется ли модель по углам полигонов через PostTransformCache, а не пакетом. Только в этом случае
+     * на отрисовку влияет порядок полигонов (VertexCacheOptimizer)
+     * @param mesh
+     * @return
+     */
+    public static boolean usesTransformCache(MeshBuffers mesh) {
+        return !isBatchCheaper(mesh.vertexCount(), mesh.vertexOffsets().get(mesh.polygonCount()));
+    }
+
+    private static boolean isBatchCheaper(int vertexCount, int cornerCount) {
+        float ratio = BatchTransform.isVectorized() ? VECTORIZED_BATCH_CORNERS_PER_VERTEX : BATCH_CORNERS_PER_VERTEX;
+        return cornerCount >= vertexCount * ratio;
+    }
+
+    // Матрица origin + q * step
+    private static Matrix4f dequantizationMatrix(QuantizedMesh mesh) {
+        Matrix4f matrix = Matrix4f.translation(mesh.origin(0), mesh.origin(1), mesh.origin(2));
+        matrix.set(0, 0, mesh.step(0));
+        matrix.set(1, 1, mesh.step(1));
+        matrix.set(2, 2, mesh.step(2));
+        return matrix;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.math.BatchTransform;
+import com.cgvsu.math.Matrix4f;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Экранные координаты всех вершин модели, посчитанные одним пакетом (BatchTransform).
+ * Массивы координат по осям (SoA) и результаты переиспользуются между вызовами и растут только
+ * при увеличении числа вершин. Проекция пересчитывается, только если сменились источник вершин,
+ * его номер версии, матрица или размер области вывода, поэтому повторные запросы при движении
+ * мыши над неподвижной моделью ничего не умножают на матрицу.
+ * Проекция хранит результат для одного источника, поэтому для нескольких моделей нужно по объекту на модель.
+ * Объект не потокобезопасен и используется из одного потока (потока JavaFX).
+ */
+public final class ScreenProjection {
+
+    // Координата с индексом 3 * вершина + ось
+    public interface Coordinates {
+        float get(int index);
+    }
+
+    private static final float[] EMPTY = new float[0];
+    // Сколько вершин буфера вне кучи читается в промежуточный массив за раз
+    private static final int BLOCK_VERTICES = 1024;
+
+    private float[] xs = EMPTY;
+    private float[] ys = EMPTY;
+    private float[] zs = EMPTY;
+    private float[] screenX = EMPTY;
+    private float[] screenY = EMPTY;
+    // Матрица последней проекции по строкам и временный массив для сравнения с ней
+    private final float[] matrix = new float[16];
+    private final float[] candidate = new float[16];
+    private float[] block;
+
+    private Object source;
+    private long version;
+    private int count = -1;
+    private int width;
+    private int height;
+
+    /**
+     * Проецирует count вершин, если проекция для тех же данных еще не посчитана
+     * @param source  объект, которому принадлежат вершины (модель или ее буферы)
+     * @param version номер версии вершин источника, например Model.getGeometryVersion()
+     * @param coordinates координаты вершин подряд (x, y, z)
+     * @param count   количество вершин
+     * @param mvp     матрица модели-вида-проекции
+     * @param width   ширина области вывода
+     * @param height  высота области вывода
+     * @return true, если проекция была пересчитана
+     */
+    public boolean project(Object source, long version, float[] coordinates, int count,
+                           Matrix4f mvp, int width, int height) {
+        if (isCurrent(source, version, count, mvp, width, height)) {
+            return false;
+        }
+        ensureCapacity(count);
+        deinterleave(coordinates, 0, 0, count);
+        transform(source, version, count, width, height);
+        return true;
+    }
+
+    /**
+     * То же для буфера координат: массив буфера в куче читается напрямую, буфер вне кучи - блоками
+     */
+    public boolean project(Object source, long version, FloatBuffer coordinates, int count,
+                           Matrix4f mvp, int width, int height) {
+        if (isCurrent(source, version, count, mvp, width, height)) {
+            return false;
+        }
+        ensureCapacity(count);
+        if (coordinates.hasArray()) {
+            deinterleave(coordinates.array(), coordinates.arrayOffset(), 0, count);
+        } else {
+            if (block == null) {
+                block = new float[3 * BLOCK_VERTICES];
+            }
+            for (int first = 0; first < count; first += BLOCK_VERTICES) {
+                int n = Math.min(BLOCK_VERTICES, count - first);
+                coordinates.get(3 * first, block, 0, 3 * n);
+                deinterleave(block, 0, first, n);
+            }
+        }
+        transform(source, version, count, width, height);
+        return true;
+    }
+
+    /**
+     * То же для координат, которые нужно вычислять по одной, например квантованных (QuantizedMesh)
+     */
+    public boolean project(Object source, long version, Coordinates coordinates, int count,
+                           Matrix4f mvp, int width, int height) {
+        if (isCurrent(source, version, count, mvp, width, height)) {
+            return false;
+        }
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            xs[i] = coordinates.get(3 * i);
+            ys[i] = coordinates.get(3 * i + 1);
+            zs[i] = coordinates.get(3 * i + 2);
+        }
+        transform(source, version, count, width, height);
+        return true;
+    }
+
+    // Заодно переводит матрицу в candidate для сравнения и последующего пересчета
+    private boolean isCurrent(Object source, long version, int count, Matrix4f mvp, int width, int height) {
+        mvp.toFlatArray(candidate, 0);
+        return source == this.source && version == this.version && count == this.count
+                && width == this.width && height == this.height && Arrays.equals(candidate, matrix);
+    }
+
+    private void ensureCapacity(int count) {
+        if (xs.length < count) {
+            xs = new float[count];
+            ys = new float[count];
+            zs = new float[count];
+            screenX = new float[count];
+            screenY = new float[count];
+        }
+    }
+
+    // Координаты вершин x, y, z подряд из source начиная с offset раскладываются по осям с вершины first
+    private void deinterleave(float[] source, int offset, int first, int count) {
+        for (int i = 0, k = offset; i < count; i++, k += 3) {
+            xs[first + i] = source[k];
+            ys[first + i] = source[k + 1];
+            zs[first + i] = source[k + 2];
+        }
+    }
+
+    private void transform(Object source, long version, int count, int width, int height) {
+        System.arraycopy(candidate, 0, matrix, 0, matrix.length);
+        BatchTransform.toScreen(matrix, xs, ys, zs, count, width, height, screenX, screenY);
+
+        this.source = source;
+        this.version = version;
+        this.count = count;
+        this.width = width;
+        this.height = height;
+    }
+
+    // Сбрасывает сохраненную проекцию; массивы остаются для следующего вызова
+    public void invalidate() {
+        source = null;
+        count = -1;
+    }
+
+    public int count() {
+        return Math.max(count, 0);
+    }
+
+    public float x(int vertex) {
+        return screenX[vertex];
+    }
+
+    public float y(int vertex) {
+        return screenY[vertex];
+    }
+
+    // Массивы результата длиной не меньше count(); элементы после count() не определены
+    public float[] screenX() {
+        return screenX;
+    }
+
+    public float[] screenY() {
+        return screenY;
+    }
+
+    /**
+     * Вершина лежит перед камерой: w = z в пространстве камеры больше нуля.
+     * Для вершин за камерой перспективное деление дает конечные, но зеркально отраженные координаты
+     * @param vertex
+     * @return
+     */
+    public boolean isInFront(int vertex) {
+        return matrix[12] * xs[vertex] + matrix[13] * ys[vertex] + matrix[14] * zs[vertex] + matrix[15] > 0;
+    }
+}
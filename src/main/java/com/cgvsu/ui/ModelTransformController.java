@@ -60,6 +60,10 @@ public class ModelTransformController {
             Transformation modelTransform = model.getTransformation();
             if (modelTransform != null) {
                 this.currentTransformation = modelTransform;
+                // Ползунки продолжают с текущих компонентов модели
+                this.translation = modelTransform.getTranslation();
+                this.rotation = modelTransform.getRotation();
+                this.scale = modelTransform.getScale();
             }
             
             saveInitialState();
@@ -138,16 +142,12 @@ public class ModelTransformController {
     
     // Обновление общей трансформации на основе отдельных компонентов
     private void updateTransformation() {
-        currentTransformation.reset();
-        
-        // Порядок применения: масштабирование -> вращение -> перемещение
-        currentTransformation.applyScaling(scale.getX(), scale.getY(), scale.getZ());
-        currentTransformation.applyRotationX(rotation.getX());
-        currentTransformation.applyRotationY(rotation.getY());
-        currentTransformation.applyRotationZ(rotation.getZ());
-        currentTransformation.applyTranslation(translation.getX(), translation.getY(), translation.getZ());
+        // Порядок применения: масштабирование -> вращение -> перемещение (M = T * R * S).
+        // Меняются только компоненты, матрицы пересчитываются при первом обращении
+        currentTransformation.set(translation, rotation, scale);
         
-        // Применяем трансформацию к модели
+        // Применяем трансформацию к модели; объект может быть тем же, что и у модели,
+        // setTransformation все равно отмечает изменение трансформации (getTransformationVersion)
         if (model != null) {
             model.setTransformation(currentTransformation);
         }
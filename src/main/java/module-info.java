@@ -1,12 +1,13 @@
 module com.cgvsu {
     requires javafx.controls;
     requires javafx.fxml;
-    requires vecmath;
     requires java.desktop;
     requires javafx.graphics;
     requires javafx.base;
     requires java.logging;
     requires org.slf4j;
+    // Векторный путь BatchTransform, только при запуске с --add-modules jdk.incubator.vector
+    requires static jdk.incubator.vector;
 
     opens com.cgvsu to javafx.fxml;
     exports com.cgvsu;
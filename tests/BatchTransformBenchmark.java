@@ -0,0 +1,77 @@
+import com.cgvsu.math.BatchTransform;
+import com.cgvsu.math.Matrix4f;
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.render_engine.GraphicConveyor;
+
+import java.util.Locale;
+import java.util.Random;
+
+/*
+ * Замер перевода вершин в экранные координаты: по одной вершине через
+ * GraphicConveyor.multiplyMatrix4ByVector3 + vertexToPoint против BatchTransform.toScreen.
+ * Векторный путь включается запуском с --add-modules jdk.incubator.vector.
+ * Запуск: java [--add-modules jdk.incubator.vector] BatchTransformBenchmark [число вершин]
+ */
+public class BatchTransformBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(1);
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        float[] zs = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = random.nextFloat() * 4 - 2;
+            ys[i] = random.nextFloat() * 4 - 2;
+            zs[i] = random.nextFloat() * 4 - 2;
+        }
+        Matrix4f mvp = GraphicConveyor.perspective(1.0f, 1.5f, 0.1f, 100)
+                .mul(GraphicConveyor.lookAt(new Vector3f(3, 4, 10), new Vector3f(0, 0, 0)));
+        float[] rows = mvp.toFlatArray(new float[16], 0);
+        float[] screenX = new float[count];
+        float[] screenY = new float[count];
+
+        System.out.println("=== Замер перевода вершин в экранные координаты ===");
+        System.out.printf(Locale.ROOT, "Вершин: %d, векторный путь: %b%n%n", count, BatchTransform.isVectorized());
+
+        double perVertex = measure("multiplyMatrix4ByVector3", count, () -> {
+            for (int i = 0; i < count; i++) {
+                Vector2f point = GraphicConveyor.vertexToPoint(
+                        GraphicConveyor.multiplyMatrix4ByVector3(mvp, new Vector3f(xs[i], ys[i], zs[i])), 800, 600);
+                screenX[i] = point.getX();
+                screenY[i] = point.getY();
+            }
+        });
+        float[] point = new float[2];
+        measure("GraphicConveyor.toScreen", count, () -> {
+            for (int i = 0; i < count; i++) {
+                GraphicConveyor.toScreen(rows, xs[i], ys[i], zs[i], 800, 600, point, 0);
+                screenX[i] = point[0];
+                screenY[i] = point[1];
+            }
+        });
+        double batch = measure("BatchTransform.toScreen", count,
+                () -> BatchTransform.toScreen(rows, xs, ys, zs, count, 800, 600, screenX, screenY));
+
+        System.out.printf(Locale.ROOT, "%nУскорение: %.1fx (контроль %.3f)%n", perVertex / batch, screenX[count / 2]);
+    }
+
+    // Возвращает лучшее время одного прохода в миллисекундах
+    private static double measure(String name, int count, Runnable pass) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            pass.run();
+        }
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            pass.run();
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        System.out.printf(Locale.ROOT, "%-28s %8.2f мс  %7.1f млн вершин/с%n", name, best, count / best / 1000.0);
+        return best;
+    }
+}
@@ -0,0 +1,82 @@
+import com.cgvsu.graphics.Camera;
+import com.cgvsu.math.Vector3f;
+
+import java.util.Locale;
+
+/*
+ * Замер одного шага орбиты камеры: прежний расчет через cos/sin/atan2 против
+ * Camera.rotateAroundTarget на кватернионах. Оба варианта поворачивают на одинаковый угол
+ * (прежний добавлял yaw дважды, поэтому получает половину) и обновляют матрицу вида.
+ * Запуск: java CameraOrbitBenchmark [число шагов]
+ */
+public class CameraOrbitBenchmark {
+
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Camera legacyCamera = new Camera();
+        Camera camera = new Camera();
+
+        System.out.println("=== Замер шага орбиты камеры ===");
+        System.out.printf(Locale.ROOT, "Шагов: %d%n%n", steps);
+
+        // Знак pitch чередуется, чтобы камера не упиралась в ограничение угла возвышения
+        double legacy = measure("cos/sin/atan2 (прежний)", steps, () -> {
+            for (int i = 0; i < steps; i++) {
+                legacyRotateAroundTarget(legacyCamera, 0.75f, (i & 1) == 0 ? 0.5f : -0.5f);
+            }
+        });
+        double quaternion = measure("Quaternion", steps, () -> {
+            for (int i = 0; i < steps; i++) {
+                camera.rotateAroundTarget(1.5f, (i & 1) == 0 ? 0.5f : -0.5f);
+            }
+        });
+
+        System.out.printf(Locale.ROOT, "%nОтношение прежний / кватернионы: %.2f%n", legacy / quaternion);
+        System.out.printf(Locale.ROOT, "(контроль: %s %s)%n", legacyCamera.getPosition(), camera.getPosition());
+    }
+
+    // Прежняя реализация Camera.rotateAroundTarget
+    private static void legacyRotateAroundTarget(Camera camera, float yaw, float pitch) {
+        Vector3f direction = camera.getPosition().subtract(camera.getTarget());
+        float yawRad = (float) Math.toRadians(yaw);
+        float pitchRad = (float) Math.toRadians(pitch);
+        float cosYaw = (float) Math.cos(yawRad);
+        float sinYaw = (float) Math.sin(yawRad);
+
+        float x = direction.getX() * cosYaw - direction.getZ() * sinYaw;
+        float z = direction.getX() * sinYaw + direction.getZ() * cosYaw;
+        direction = new Vector3f(x, direction.getY(), z);
+
+        float lengthXY = (float) Math.sqrt(direction.getX() * direction.getX()
+                + direction.getZ() * direction.getZ());
+        float newPitch = (float) Math.atan2(direction.getY(), lengthXY) + pitchRad;
+        float maxPitch = (float) Math.PI / 2 - 0.1f;
+        newPitch = Math.max(-maxPitch, Math.min(maxPitch, newPitch));
+
+        float newLength = direction.length();
+        direction = new Vector3f(
+                (float) (Math.cos(newPitch) * Math.cos(yawRad + Math.atan2(direction.getZ(), direction.getX()))) * newLength,
+                (float) Math.sin(newPitch) * newLength,
+                (float) (Math.cos(newPitch) * Math.sin(yawRad + Math.atan2(direction.getZ(), direction.getX()))) * newLength
+        );
+        camera.setPosition(camera.getTarget().add(direction));
+    }
+
+    // Возвращает лучшее время одного прохода в миллисекундах
+    private static double measure(String name, int steps, Runnable pass) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            pass.run();
+        }
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            pass.run();
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        System.out.printf(Locale.ROOT, "%-28s %8.2f мс  %6.1f нс/шаг%n", name, best, best * 1e6 / steps);
+        return best;
+    }
+}
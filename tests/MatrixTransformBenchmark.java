@@ -0,0 +1,83 @@
+import com.cgvsu.math.ColumnVector;
+import com.cgvsu.math.Matrix4f;
+import com.cgvsu.math.Vector3f;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Random;
+
+/*
+ * Замер преобразования вершин матрицей 4x4: прежний путь через ColumnVector,
+ * mul(Vector3f) с одним объектом результата и transformInto по массиву без создания объектов.
+ * Кроме времени выводится объем памяти, выделенной потоком на одну вершину.
+ * Запуск: java MatrixTransformBenchmark [число вершин]
+ */
+public class MatrixTransformBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(1);
+        float[] source = new float[count * 3];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = random.nextFloat() * 10 - 5;
+        }
+        float[] target = new float[count * 3];
+        Matrix4f matrix = Matrix4f.translation(1, 2, 3).mul(Matrix4f.rotationY(30)).mul(Matrix4f.scaling(2, 2, 2));
+
+        System.out.println("=== Замер преобразования вершин ===");
+        System.out.printf(Locale.ROOT, "Вершин: %d%n%n", count);
+
+        double legacy = measure("ColumnVector (прежний mul)", count, () -> {
+            for (int i = 0; i < count; i++) {
+                Vector3f v = new Vector3f(source[i * 3], source[i * 3 + 1], source[i * 3 + 2]);
+                Vector3f r = matrix.mul(new ColumnVector(v)).toVector3f();
+                target[i * 3] = r.getX();
+                target[i * 3 + 1] = r.getY();
+                target[i * 3 + 2] = r.getZ();
+            }
+        });
+        double single = measure("mul(Vector3f)", count, () -> {
+            for (int i = 0; i < count; i++) {
+                Vector3f r = matrix.mul(new Vector3f(source[i * 3], source[i * 3 + 1], source[i * 3 + 2]));
+                target[i * 3] = r.getX();
+                target[i * 3 + 1] = r.getY();
+                target[i * 3 + 2] = r.getZ();
+            }
+        });
+        double batch = measure("transformInto", count, () -> matrix.transformInto(source, target, 0, count));
+        Matrix4f product = new Matrix4f();
+        measure("mulInto (матрицы)", count, () -> {
+            for (int i = 0; i < count; i++) {
+                matrix.mulInto(matrix, product);
+            }
+        });
+
+        System.out.printf(Locale.ROOT, "%nУскорение mul(Vector3f): %.1fx%n", legacy / single);
+        System.out.printf(Locale.ROOT, "Ускорение transformInto: %.1fx%n", legacy / batch);
+        System.out.printf(Locale.ROOT, "(контроль: %.3f %.3f)%n", target[0], product.get(0, 3));
+    }
+
+    // Возвращает лучшее время одного прохода в миллисекундах
+    private static double measure(String name, int count, Runnable pass) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            pass.run();
+        }
+        double best = Double.MAX_VALUE;
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            pass.run();
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        double bytesPerVertex = (threads.getCurrentThreadAllocatedBytes() - allocatedBefore)
+                / (double) MEASURED_ROUNDS / count;
+        System.out.printf(Locale.ROOT, "%-28s %8.2f мс  %6.1f млн/с  %6.1f байт/вершину%n",
+                name, best, count / best / 1000.0, bytesPerVertex);
+        return best;
+    }
+}
@@ -0,0 +1,154 @@
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PackedPolygons;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.optimizers.MortonReorder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/*
+ * Замер влияния MortonReorder: сетка с перемешанными вершинами и полигонами
+ * до и после упорядочивания по кривой Мортона. Проходы повторяют обход отрисовки
+ * (преобразование вершин каждого полигона) и выбора полигона под курсором.
+ * Запуск: java MeshReorderBenchmark [размер сетки]
+ */
+public class MeshReorderBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : 700;
+        Model shuffled = generateShuffledGrid(gridSize, new Random(42));
+        Model reordered = shuffled.copy();
+        long start = System.nanoTime();
+        MortonReorder.reorder(reordered);
+        double reorderMillis = (System.nanoTime() - start) / 1e6;
+
+        System.out.println("=== Замер упорядочивания по кривой Мортона ===");
+        System.out.printf(Locale.ROOT, "Сетка %dx%d, полигонов %d, упорядочивание %.1f мс%n%n",
+                gridSize, gridSize, shuffled.getPolygons().size(), reorderMillis);
+
+        // Отрисовка читает индексы из упакованного снимка, поэтому и замер идет по нему
+        float[] shuffledCoordinates = shuffled.getVertices().coordinates();
+        float[] reorderedCoordinates = reordered.getVertices().coordinates();
+        PackedPolygons shuffledPolygons = shuffled.packPolygons();
+        PackedPolygons reorderedPolygons = reordered.packPolygons();
+
+        double transformBefore = measure("Преобразование (исходный порядок)",
+                () -> transformPass(shuffledCoordinates, shuffledPolygons));
+        double transformAfter = measure("Преобразование (кривая Мортона)",
+                () -> transformPass(reorderedCoordinates, reorderedPolygons));
+        double pickBefore = measure("Выбор полигона (исходный порядок)",
+                () -> pickPass(shuffledCoordinates, shuffledPolygons));
+        double pickAfter = measure("Выбор полигона (кривая Мортона)",
+                () -> pickPass(reorderedCoordinates, reorderedPolygons));
+
+        System.out.printf(Locale.ROOT, "%nУскорение преобразования: %.2fx%n", transformBefore / transformAfter);
+        System.out.printf(Locale.ROOT, "Ускорение выбора:         %.2fx%n", pickBefore / pickAfter);
+    }
+
+    private interface Pass {
+        double run();
+    }
+
+    // Возвращает лучшее время одного прохода в миллисекундах
+    private static double measure(String name, Pass pass) {
+        double checksum = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            checksum += pass.run();
+        }
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            checksum += pass.run();
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        System.out.printf(Locale.ROOT, "%-36s %8.1f мс  (%.0f)%n", name, best, checksum);
+        return best;
+    }
+
+    // Как при отрисовке: каждая вершина каждого полигона умножается на матрицу
+    private static double transformPass(float[] coordinates, PackedPolygons polygons) {
+        double sum = 0;
+        for (int p = 0; p < polygons.polygonCount(); p++) {
+            for (int i = polygons.vertexOffsets[p]; i < polygons.vertexOffsets[p + 1]; i++) {
+                int offset = polygons.vertexIndices[i] * 3;
+                float x = coordinates[offset];
+                float y = coordinates[offset + 1];
+                float z = coordinates[offset + 2];
+                float w = 0.1f * x + 0.2f * y + 0.3f * z + 1;
+                sum += (0.9f * x - 0.1f * z + 0.5f) / w + (0.8f * y + 0.2f * x - 0.5f) / w;
+            }
+        }
+        return sum;
+    }
+
+    // Как при выборе: проекция полигона и проверка попадания точки в его ограничивающий прямоугольник
+    private static double pickPass(float[] coordinates, PackedPolygons polygons) {
+        final float cursorX = 0.37f;
+        final float cursorY = 0.61f;
+        int hits = 0;
+        for (int p = 0; p < polygons.polygonCount(); p++) {
+            float minX = Float.POSITIVE_INFINITY;
+            float minY = Float.POSITIVE_INFINITY;
+            float maxX = Float.NEGATIVE_INFINITY;
+            float maxY = Float.NEGATIVE_INFINITY;
+            for (int i = polygons.vertexOffsets[p]; i < polygons.vertexOffsets[p + 1]; i++) {
+                int offset = polygons.vertexIndices[i] * 3;
+                float w = 1 + 0.1f * coordinates[offset + 2];
+                float x = coordinates[offset] / w;
+                float y = coordinates[offset + 1] / w;
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+            if (cursorX >= minX && cursorX <= maxX && cursorY >= minY && cursorY <= maxY) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    // Сетка, у которой вершины и полигоны перемешаны, как в файлах после сторонних конвертеров
+    private static Model generateShuffledGrid(int n, Random random) {
+        int[] order = new int[n * n];
+        List<Integer> permutation = new ArrayList<>();
+        for (int i = 0; i < n * n; i++) {
+            permutation.add(i);
+        }
+        Collections.shuffle(permutation, random);
+        for (int i = 0; i < n * n; i++) {
+            order[permutation.get(i)] = i;
+        }
+
+        Model model = new Model();
+        float[] coordinates = new float[n * n * 3];
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                int slot = order[y * n + x] * 3;
+                coordinates[slot] = x / (float) n;
+                coordinates[slot + 1] = y / (float) n;
+                coordinates[slot + 2] = (float) (Math.sin(x * 0.1) * Math.cos(y * 0.1)) * 0.1f;
+            }
+        }
+        model.getVertices().setCoordinates(coordinates, n * n);
+
+        List<Polygon> polygons = new ArrayList<>();
+        for (int y = 0; y < n - 1; y++) {
+            for (int x = 0; x < n - 1; x++) {
+                int a = y * n + x;
+                polygons.add(new Polygon(Arrays.asList(order[a], order[a + 1], order[a + n + 1], order[a + n]),
+                        new ArrayList<>(), new ArrayList<>()));
+            }
+        }
+        Collections.shuffle(polygons, random);
+        model.getPolygons().addAll(polygons);
+        return model;
+    }
+}
@@ -0,0 +1,163 @@
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.meshcache.MeshCache;
+import com.cgvsu.objreader.ObjReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+
+/*
+ * Замер скорости чтения OBJ: старый построчный разбор через split/Float.parseFloat
+ * против побайтового разборщика ObjReader и его параллельного варианта.
+ * Старый разбор складывает результат в списки объектов, как исходный Model (ArrayList<Vector3f>,
+ * ArrayList<Integer> в каждом полигоне), а не в упакованные списки нынешней модели:
+ * иначе точка отсчета ускоряется вместе с хранением, и отношение перестает сравнивать разборщики.
+ * На машине с шумным временем лучше смотреть лучшее из нескольких запусков.
+ * Запуск: java ObjReaderBenchmark [размер сетки]
+ */
+public class ObjReaderBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        String content = generateGrid(gridSize);
+        Path file = Files.createTempFile("benchmark", ".obj");
+        Files.writeString(file, content);
+        double megabytes = Files.size(file) / (1024.0 * 1024.0);
+
+        System.out.println("=== Замер чтения OBJ ===");
+        System.out.printf(Locale.ROOT, "Сетка %dx%d, размер файла %.1f МБ%n%n", gridSize, gridSize, megabytes);
+
+        double legacy = measure("split + Float.parseFloat", megabytes, () -> readLegacy(content));
+        double fromString = measure("ObjReader.read(String)", megabytes, () -> ObjReader.read(content).getPolygons().size());
+        double fromPath = measure("ObjReader.read(Path)", megabytes, () -> {
+            try {
+                return ObjReader.read(file).getPolygons().size();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        double parallel = measure("ObjReader.readParallel(Path)", megabytes, () -> {
+            try {
+                return ObjReader.readParallel(file).getPolygons().size();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        MeshCache.load(file);
+        double cached = measure("MeshCache.load (кэш)", megabytes, () -> {
+            try {
+                return MeshCache.load(file).getPolygons().size();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        System.out.printf(Locale.ROOT, "%nУскорение read(String): %.1fx%n", legacy / fromString);
+        System.out.printf(Locale.ROOT, "Ускорение read(Path):   %.1fx%n", legacy / fromPath);
+        System.out.printf(Locale.ROOT, "Ускорение readParallel: %.1fx%n", legacy / parallel);
+        System.out.printf(Locale.ROOT, "Ускорение кэша:         %.1fx%n", legacy / cached);
+        Files.delete(MeshCache.sidecarPath(file));
+        Files.delete(file);
+    }
+
+    // Возвращает количество прочитанных полигонов
+    private interface Reader {
+        int read();
+    }
+
+    // Возвращает лучшее время одного прохода в миллисекундах
+    private static double measure(String name, double megabytes, Reader reader) {
+        int polygons = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            polygons += reader.read();
+        }
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            System.gc();
+            long start = System.nanoTime();
+            polygons += reader.read();
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        System.out.printf(Locale.ROOT, "%-28s %8.1f мс  %7.1f МБ/с  (%d)%n",
+                name, best, megabytes / (best / 1000.0), polygons);
+        return best;
+    }
+
+    private static String generateGrid(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                sb.append(String.format(Locale.ROOT, "v %.6f %.6f %.6f%n", x * 0.01, y * 0.01, Math.sin(x * 0.1) * Math.cos(y * 0.1)));
+                sb.append(String.format(Locale.ROOT, "vt %.6f %.6f%n", x / (double) n, y / (double) n));
+                sb.append(String.format(Locale.ROOT, "vn %.6f %.6f %.6f%n", 0.0, 0.0, 1.0));
+            }
+        }
+        for (int y = 0; y < n - 1; y++) {
+            for (int x = 0; x < n - 1; x++) {
+                int a = y * n + x + 1;
+                int b = a + 1;
+                int c = a + n + 1;
+                int d = a + n;
+                sb.append("f ")
+                        .append(a).append('/').append(a).append('/').append(a).append(' ')
+                        .append(b).append('/').append(b).append('/').append(b).append(' ')
+                        .append(c).append('/').append(c).append('/').append(c).append(' ')
+                        .append(d).append('/').append(d).append('/').append(d).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    // Прежний алгоритм ObjReader.read: Scanner, split("\\s+"), копия в ArrayList и разбор строк.
+    // Результат хранится так же, как в исходном Model: объект на каждую вершину и на каждый индекс
+    private static int readLegacy(String content) {
+        List<Vector3f> vertices = new ArrayList<>();
+        List<Vector2f> textureVertices = new ArrayList<>();
+        List<Vector3f> normals = new ArrayList<>();
+        List<List<List<Integer>>> polygons = new ArrayList<>();
+        int lineInd = 0;
+        Scanner scanner = new Scanner(content);
+        while (scanner.hasNextLine()) {
+            String line = scanner.nextLine();
+            int comment = line.indexOf('#');
+            if (comment != -1) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            ++lineInd;
+            ArrayList<String> words = new ArrayList<>(Arrays.asList(line.split("\\s+")));
+            String token = words.remove(0);
+            switch (token) {
+                case "v" -> vertices.add(ObjReader.parseVertex(words, lineInd));
+                case "vt" -> textureVertices.add(new Vector2f(
+                        Float.parseFloat(words.get(0)), Float.parseFloat(words.get(1))));
+                case "vn" -> normals.add(new Vector3f(
+                        Float.parseFloat(words.get(0)), Float.parseFloat(words.get(1)), Float.parseFloat(words.get(2))));
+                case "f" -> {
+                    ArrayList<Integer> v = new ArrayList<>();
+                    ArrayList<Integer> vt = new ArrayList<>();
+                    ArrayList<Integer> vn = new ArrayList<>();
+                    for (String word : words) {
+                        ObjReader.parseFaceWord(word, v, vt, vn, lineInd, vertices.size(),
+                                textureVertices.size(), normals.size());
+                    }
+                    polygons.add(List.of(v, vt, vn));
+                }
+            }
+        }
+        return polygons.size();
+    }
+}
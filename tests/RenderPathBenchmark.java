@@ -0,0 +1,99 @@
+import com.cgvsu.math.BatchTransform;
+import com.cgvsu.math.Matrix4f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.render_engine.Camera;
+import com.cgvsu.render_engine.GraphicConveyor;
+import com.cgvsu.render_engine.PostTransformCache;
+import com.cgvsu.render_engine.ScreenProjection;
+
+import java.util.Locale;
+
+/*
+ * Выбор пути в RenderEngine: все вершины одним пакетом (ScreenProjection) против углов полигонов
+ * по одному через PostTransformCache. У сетки n x n оставляется часть четырехугольников, вершины
+ * не удаляются, так что число углов на вершину меняется от 4 до долей единицы.
+ * Порог RenderEngine - отношение, при котором оба пути стоят одинаково.
+ * Запуск: java [--add-modules jdk.incubator.vector] RenderPathBenchmark [размер сетки]
+ */
+public class RenderPathBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 20;
+    private static final double[] KEPT_FRACTIONS = {1.0, 0.5, 0.25, 0.18, 0.12, 0.1, 0.07, 0.05, 0.02};
+
+    private static float checksum;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int vertexCount = n * n;
+        float[] coordinates = new float[vertexCount * 3];
+        for (int i = 0; i < vertexCount; i++) {
+            coordinates[3 * i] = (i % n) / (float) n;
+            coordinates[3 * i + 1] = (i / n) / (float) n;
+            coordinates[3 * i + 2] = 0.1f * (i % 7);
+        }
+        int quadCount = (n - 1) * (n - 1);
+        int[] indices = new int[quadCount * 4];
+        for (int y = 0, q = 0; y < n - 1; y++) {
+            for (int x = 0; x < n - 1; x++, q++) {
+                int a = y * n + x;
+                indices[4 * q] = a;
+                indices[4 * q + 1] = a + 1;
+                indices[4 * q + 2] = a + n + 1;
+                indices[4 * q + 3] = a + n;
+            }
+        }
+        Camera camera = new Camera(new Vector3f(0.5f, 0.5f, 3), new Vector3f(0.5f, 0.5f, 0), 1.0f, 1, 0.01f, 100);
+        Matrix4f mvp = GraphicConveyor.modelViewProjection(GraphicConveyor.rotateScaleTranslate(), camera);
+        ScreenProjection projection = new ScreenProjection();
+
+        System.out.println("=== Пакет против кэша FIFO в RenderEngine ===");
+        System.out.printf(Locale.ROOT, "Вершин: %d, векторный путь: %b%n%n", vertexCount, BatchTransform.isVectorized());
+        for (double fraction : KEPT_FRACTIONS) {
+            int corners = 4 * (int) (quadCount * fraction);
+            double batch = measure(() -> {
+                projection.invalidate();
+                projection.project(coordinates, 0, coordinates, vertexCount, mvp, 800, 600);
+                float sum = 0;
+                for (int k = 0; k < corners; k++) {
+                    sum += projection.x(indices[k]) + projection.y(indices[k]);
+                }
+                checksum += sum;
+            });
+            double fifo = measure(() -> {
+                PostTransformCache cache = new PostTransformCache();
+                float[] rows = mvp.toFlatArray(new float[16], 0);
+                float[] point = new float[2];
+                float sum = 0;
+                for (int k = 0; k < corners; k++) {
+                    int vertex = indices[k];
+                    int slot = cache.find(vertex);
+                    if (slot < 0) {
+                        GraphicConveyor.toScreen(rows, coordinates[3 * vertex], coordinates[3 * vertex + 1],
+                                coordinates[3 * vertex + 2], 800, 600, point, 0);
+                        slot = cache.put(vertex, point[0], point[1]);
+                    }
+                    sum += cache.x(slot) + cache.y(slot);
+                }
+                checksum += sum;
+            });
+            System.out.printf(Locale.ROOT, "углов на вершину %5.3f  пакет %6.2f мс  кэш %6.2f мс%n",
+                    corners / (double) vertexCount, batch, fifo);
+        }
+        System.out.printf(Locale.ROOT, "%n(контроль %.1f)%n", checksum);
+    }
+
+    // Возвращает лучшее время одного прохода в миллисекундах
+    private static double measure(Runnable pass) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            pass.run();
+        }
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            pass.run();
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,81 @@
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PackedPolygons;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.optimizers.MortonReorder;
+import com.cgvsu.optimizers.VertexCacheOptimizer;
+import com.cgvsu.optimizers.dto.VertexCacheResult;
+import com.cgvsu.render_engine.PostTransformCache;
+import com.cgvsu.triangulation.Triangulation;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/*
+ * ACMR (промахи кэша преобразованных вершин на треугольник) до и после VertexCacheOptimizer
+ * для моделей из каталога и для перемешанной сетки, а также время перестановки.
+ * Запуск: java VertexCacheBenchmark [каталог с OBJ] [размер сетки]
+ */
+public class VertexCacheBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "tests/resources");
+        int gridSize = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+        System.out.println("=== ACMR до и после перестановки полигонов ===");
+        System.out.printf(Locale.ROOT, "Кэш FIFO на %d вершин%n%n", PostTransformCache.DEFAULT_SIZE);
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.obj")) {
+                for (Path file : files) {
+                    report(file.getFileName().toString(), ObjReader.read(file));
+                }
+            }
+        }
+        report(String.format(Locale.ROOT, "сетка %dx%d (перемешана)", gridSize, gridSize),
+                generateShuffledGrid(gridSize, new Random(42)));
+        Model morton = generateShuffledGrid(gridSize, new Random(42));
+        MortonReorder.reorder(morton);
+        report(String.format(Locale.ROOT, "сетка %dx%d (кривая Мортона)", gridSize, gridSize), morton);
+    }
+
+    // Модель триангулируется, как перед растеризацией, затем переставляются треугольники
+    private static void report(String name, Model model) {
+        List<Polygon> triangles = new ArrayList<>(Triangulation.triangulate(model.getPolygons()));
+        double fifo32 = VertexCacheOptimizer.acmr(PackedPolygons.of(triangles), 32);
+        long start = System.nanoTime();
+        VertexCacheResult result = VertexCacheOptimizer.optimize(triangles, model.getVertices().size());
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf(Locale.ROOT, "%-36s %-44s кэш 32: %.3f -> %.3f  %8.1f мс%n", name, result,
+                fifo32, VertexCacheOptimizer.acmr(PackedPolygons.of(triangles), 32), millis);
+    }
+
+    private static Model generateShuffledGrid(int n, Random random) {
+        Model model = new Model();
+        float[] coordinates = new float[n * n * 3];
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                coordinates[(y * n + x) * 3] = x / (float) n;
+                coordinates[(y * n + x) * 3 + 1] = y / (float) n;
+            }
+        }
+        model.getVertices().setCoordinates(coordinates, n * n);
+        List<Polygon> polygons = new ArrayList<>();
+        for (int y = 0; y < n - 1; y++) {
+            for (int x = 0; x < n - 1; x++) {
+                int a = y * n + x;
+                polygons.add(new Polygon(Arrays.asList(a, a + 1, a + n + 1, a + n), new ArrayList<>(), new ArrayList<>()));
+            }
+        }
+        Collections.shuffle(polygons, random);
+        model.getPolygons().addAll(polygons);
+        return model;
+    }
+}
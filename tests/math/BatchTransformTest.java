@@ -0,0 +1,150 @@
+package math;
+
+import com.cgvsu.math.BatchTransform;
+import com.cgvsu.math.Matrix4f;
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.render_engine.Camera;
+import com.cgvsu.render_engine.GraphicConveyor;
+import com.cgvsu.render_engine.ScreenProjection;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchTransformTest {
+
+    @Test
+    void testMatchesConveyorPerVertex() {
+        Matrix4f mvp = GraphicConveyor.perspective(1.0f, 1.5f, 0.1f, 100)
+                .mul(GraphicConveyor.lookAt(new Vector3f(3, 4, 10), new Vector3f(0, 0, 0)));
+        float[] rows = mvp.toFlatArray(new float[16], 0);
+
+        // Количество не кратно длине вектора: проверяется и хвост
+        int count = 37;
+        Random random = new Random(3);
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        float[] zs = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = random.nextFloat() * 4 - 2;
+            ys[i] = random.nextFloat() * 4 - 2;
+            zs[i] = random.nextFloat() * 4 - 2;
+        }
+        float[] screenX = new float[count];
+        float[] screenY = new float[count];
+        BatchTransform.toScreen(rows, xs, ys, zs, count, 800, 600, screenX, screenY);
+
+        float[] point = new float[2];
+        for (int i = 0; i < count; i++) {
+            Vector2f expected = GraphicConveyor.vertexToPoint(
+                    GraphicConveyor.multiplyMatrix4ByVector3(mvp, new Vector3f(xs[i], ys[i], zs[i])), 800, 600);
+            assertEquals(expected.getX(), screenX[i], Math.ulp(expected.getX()) * 4, "x " + i);
+            assertEquals(expected.getY(), screenY[i], Math.ulp(expected.getY()) * 4, "y " + i);
+
+            // Путь по одной вершине без создания объектов дает те же числа, что и пакет
+            GraphicConveyor.toScreen(rows, xs[i], ys[i], zs[i], 800, 600, point, 0);
+            assertEquals(screenX[i], point[0], "x " + i);
+            assertEquals(screenY[i], point[1], "y " + i);
+        }
+    }
+
+    @Test
+    void testConveyorProjectsTargetToCenter() {
+        Camera camera = new Camera(new Vector3f(0, 0, 100), new Vector3f(0, 0, 0), 1.0f, 1, 0.01f, 100);
+        Matrix4f mvp = GraphicConveyor.modelViewProjection(GraphicConveyor.rotateScaleTranslate(), camera);
+        float[] coordinates = {0, 0, 0, 10, 0, 0, 0, 10, 0};
+        float[] screenX = new float[3];
+        float[] screenY = new float[3];
+        GraphicConveyor.toScreen(mvp, coordinates, 3, 200, 100, screenX, screenY);
+
+        assertEquals(100, screenX[0], 1e-4f);
+        assertEquals(50, screenY[0], 1e-4f);
+        // Камера смотрит вдоль -Z, ось X модели уходит на экране влево, ось Y - вверх
+        assertTrue(screenX[1] < 100);
+        assertTrue(screenY[2] < 50);
+    }
+
+    @Test
+    void testMatrixOverloadUsesColumnVectors() {
+        Matrix4f translation = Matrix4f.translation(0.5f, 0.25f, 0);
+        float[] screenX = new float[1];
+        float[] screenY = new float[1];
+        BatchTransform.toScreen(translation, new float[]{0}, new float[]{0}, new float[]{0}, 1,
+                100, 200, screenX, screenY);
+        assertEquals(0.5f * 100 + 50, screenX[0]);
+        assertEquals(-0.25f * 200 + 100, screenY[0]);
+    }
+
+    @Test
+    void testRejectsShortArrays() {
+        assertThrows(IllegalArgumentException.class, () -> BatchTransform.toScreen(new float[16],
+                new float[2], new float[2], new float[1], 2, 10, 10, new float[2], new float[2]));
+        assertThrows(IllegalArgumentException.class, () -> BatchTransform.toScreen(new float[15],
+                new float[1], new float[1], new float[1], 1, 10, 10, new float[1], new float[1]));
+    }
+
+    @Test
+    void testScreenProjectionReusesResultUntilInputsChange() {
+        Camera camera = new Camera(new Vector3f(0, 0, 100), new Vector3f(0, 0, 0), 1.0f, 1, 0.01f, 1000);
+        Matrix4f mvp = GraphicConveyor.modelViewProjection(GraphicConveyor.rotateScaleTranslate(), camera);
+        // Третья вершина позади камеры
+        float[] coordinates = {0, 0, 0, 10, 0, 0, 0, 0, 200};
+        Object model = new Object();
+        ScreenProjection projection = new ScreenProjection();
+
+        assertTrue(projection.project(model, 1, i -> coordinates[i], 3, mvp, 200, 100));
+        float[] screenX = new float[3];
+        float[] screenY = new float[3];
+        GraphicConveyor.toScreen(mvp, coordinates, 3, 200, 100, screenX, screenY);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(screenX[i], projection.x(i), 1e-3f);
+            assertEquals(screenY[i], projection.y(i), 1e-3f);
+        }
+        assertTrue(projection.isInFront(0));
+        assertFalse(projection.isInFront(2));
+        assertTrue(Float.isFinite(projection.x(2)));
+
+        Matrix4f same = GraphicConveyor.modelViewProjection(GraphicConveyor.rotateScaleTranslate(), camera);
+        assertFalse(projection.project(model, 1, i -> coordinates[i], 3, same, 200, 100));
+        assertTrue(projection.project(model, 2, i -> coordinates[i], 3, same, 200, 100));
+        camera.movePosition(new Vector3f(1, 0, 0));
+        Matrix4f moved = GraphicConveyor.modelViewProjection(GraphicConveyor.rotateScaleTranslate(), camera);
+        assertTrue(projection.project(model, 2, i -> coordinates[i], 3, moved, 200, 100));
+        assertTrue(projection.project(model, 2, i -> coordinates[i], 3, moved, 300, 100));
+    }
+
+    @Test
+    void testScreenProjectionBulkCopyMatchesPerCoordinate() {
+        Camera camera = new Camera(new Vector3f(0, 0, 100), new Vector3f(0, 0, 0), 1.0f, 1, 0.01f, 1000);
+        Matrix4f mvp = GraphicConveyor.modelViewProjection(GraphicConveyor.rotateScaleTranslate(), camera);
+        // Больше одного блока буфера вне кучи
+        int count = 2500;
+        float[] coordinates = new float[3 * count];
+        Random random = new Random(3);
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = random.nextFloat() * 20 - 10;
+        }
+        FloatBuffer direct = ByteBuffer.allocateDirect(4 * coordinates.length).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        direct.put(coordinates).clear();
+        FloatBuffer slice = FloatBuffer.wrap(new float[coordinates.length + 3], 3, coordinates.length).slice();
+        slice.put(coordinates).clear();
+
+        ScreenProjection expected = new ScreenProjection();
+        expected.project(coordinates, 0, i -> coordinates[i], count, mvp, 200, 100);
+        ScreenProjection[] projections = {new ScreenProjection(), new ScreenProjection(), new ScreenProjection()};
+        assertTrue(projections[0].project(coordinates, 0, coordinates, count, mvp, 200, 100));
+        assertTrue(projections[1].project(direct, 0, direct, count, mvp, 200, 100));
+        assertTrue(projections[2].project(slice, 0, slice, count, mvp, 200, 100));
+        for (ScreenProjection projection : projections) {
+            for (int i = 0; i < count; i++) {
+                assertEquals(expected.x(i), projection.x(i));
+                assertEquals(expected.y(i), projection.y(i));
+            }
+        }
+    }
+}
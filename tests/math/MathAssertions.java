@@ -0,0 +1,27 @@
+package math;
+
+import com.cgvsu.math.Matrix4f;
+import com.cgvsu.math.Vector3f;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Поэлементное сравнение матриц и векторов с допуском для тестов пакета math
+final class MathAssertions {
+
+    private MathAssertions() {
+    }
+
+    static void assertMatrixEquals(Matrix4f expected, Matrix4f actual, float epsilon) {
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+                assertEquals(expected.get(row, col), actual.get(row, col), epsilon, "(" + row + ", " + col + ")");
+            }
+        }
+    }
+
+    static void assertVectorEquals(Vector3f expected, Vector3f actual, float epsilon) {
+        assertEquals(expected.getX(), actual.getX(), epsilon);
+        assertEquals(expected.getY(), actual.getY(), epsilon);
+        assertEquals(expected.getZ(), actual.getZ(), epsilon);
+    }
+}
@@ -0,0 +1,126 @@
+package math;
+
+import com.cgvsu.graphics.GraphicPipeline;
+import com.cgvsu.math.Matrix4f;
+import com.cgvsu.math.Transformation;
+import com.cgvsu.math.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import static math.MathAssertions.assertMatrixEquals;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Matrix4fTest {
+
+    private static final float EPS = 1e-5f;
+
+    private static Matrix4f sample() {
+        return Matrix4f.translation(1, -2, 3)
+                .mul(Matrix4f.rotationY(30))
+                .mul(Matrix4f.rotationX(-45))
+                .mul(Matrix4f.scaling(2, 0.5f, 1.5f));
+    }
+
+    @Test
+    void testMulIntoMatchesMulWhenDestinationAliasesOperand() {
+        Matrix4f a = sample();
+        Matrix4f b = Matrix4f.perspective(60, 1.5f, 0.1f, 100).mul(Matrix4f.rotationZ(10));
+        Matrix4f expected = a.mul(b);
+
+        assertMatrixEquals(expected, a.mulInto(b, new Matrix4f()), EPS);
+        Matrix4f left = new Matrix4f(a);
+        assertSame(left, left.mulInto(b, left));
+        assertMatrixEquals(expected, left, EPS);
+        Matrix4f right = new Matrix4f(b);
+        a.mulInto(right, right);
+        assertMatrixEquals(expected, right, EPS);
+
+        Matrix4f square = new Matrix4f(a);
+        square.mulInto(square, square);
+        assertMatrixEquals(a.mul(a), square, EPS);
+    }
+
+    @Test
+    void testTransformIntoMatchesVectorMul() {
+        Matrix4f matrix = sample();
+        float[] points = {1, 2, 3, -4, 0.5f, 7, 0, 0, 0};
+        float[] result = new float[points.length];
+        matrix.transformInto(points, result, 0, 3);
+        for (int i = 0; i < 3; i++) {
+            Vector3f expected = matrix.mul(new Vector3f(points[i * 3], points[i * 3 + 1], points[i * 3 + 2]));
+            assertEquals(expected.getX(), result[i * 3], EPS);
+            assertEquals(expected.getY(), result[i * 3 + 1], EPS);
+            assertEquals(expected.getZ(), result[i * 3 + 2], EPS);
+        }
+
+        // На месте и с отдельными смещениями
+        matrix.transformInto(points, points, 1, 1);
+        assertEquals(result[3], points[3], EPS);
+        assertEquals(1, points[0]);
+        float[] shifted = new float[4];
+        matrix.transformInto(points, 6, shifted, 1, 1);
+        assertEquals(result[6], shifted[1], EPS);
+    }
+
+    @Test
+    void testProjectIntoDividesByW() {
+        Matrix4f projection = Matrix4f.perspective(90, 1, 1, 10);
+        float[] point = {1, 1, -2};
+        projection.projectInto(point, 0, point, 0, 1);
+        assertEquals(0.5f, point[0], EPS);
+        assertEquals(0.5f, point[1], EPS);
+    }
+
+    @Test
+    void testInPlaceElementwiseOperations() {
+        Matrix4f a = sample();
+        Matrix4f transposed = new Matrix4f(a).transposeInto(new Matrix4f(a));
+        assertMatrixEquals(a.transpose(), transposed, EPS);
+        Matrix4f inPlace = new Matrix4f(a);
+        inPlace.transposeInto(inPlace);
+        assertMatrixEquals(a.transpose(), inPlace, EPS);
+
+        assertMatrixEquals(a.add(a), a.addInto(a, new Matrix4f()), EPS);
+        assertMatrixEquals(a.multiply(2), a.multiplyInto(2, new Matrix4f()), EPS);
+        assertMatrixEquals(new Matrix4f(new float[4][4]), a.subtractInto(a, new Matrix4f()), EPS);
+        assertMatrixEquals(Matrix4f.rotationZ(25), new Matrix4f(a).setRotationZ(25), EPS);
+    }
+
+    @Test
+    void testTransformationBatchMatchesSingleVertexAndTracksNormalMatrix() {
+        Transformation transformation = new Transformation();
+        transformation.applyScaling(2, 1, 1);
+        float[] normals = {1, 1, 0};
+        float[] result = new float[3];
+        transformation.transformNormalsInto(normals, result, 0, 1);
+        assertEquals(0.5f, result[0], EPS);
+
+        // Матрица нормалей пересчитывается после изменения
+        transformation.applyScaling(0.5f, 1, 1);
+        transformation.transformNormalsInto(normals, result, 0, 1);
+        assertEquals(1, result[0], EPS);
+
+        transformation.applyRotationZ(90);
+        transformation.applyTranslation(1, 2, 3);
+        float[] vertex = {1, 0, 0};
+        transformation.transformInto(vertex, vertex, 0, 1);
+        Vector3f expected = transformation.transform(new Vector3f(1, 0, 0));
+        assertEquals(expected.getX(), vertex[0], EPS);
+        assertEquals(expected.getY(), vertex[1], EPS);
+        assertEquals(3, vertex[2], EPS);
+    }
+
+    @Test
+    void testPipelineBatchMatchesSingleVertex() {
+        GraphicPipeline pipeline = new GraphicPipeline(800, 600);
+        float[] vertices = {1, 1, 1, -1, 0.5f, 2};
+        float[] screen = new float[6];
+        pipeline.transformVertices(vertices, screen, 2, GraphicPipeline.TransformSpace.SCREEN_SPACE);
+        for (int i = 0; i < 2; i++) {
+            Vector3f expected = pipeline.transformVertex(
+                    new Vector3f(vertices[i * 3], vertices[i * 3 + 1], vertices[i * 3 + 2]),
+                    GraphicPipeline.TransformSpace.SCREEN_SPACE);
+            assertEquals(expected.getX(), screen[i * 3], 1e-3f);
+            assertEquals(expected.getY(), screen[i * 3 + 1], 1e-3f);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package math;
+
+import com.cgvsu.graphics.Camera;
+import com.cgvsu.input.CameraController;
+import com.cgvsu.math.Matrix4f;
+import com.cgvsu.math.Quaternion;
+import com.cgvsu.math.Transformation;
+import com.cgvsu.math.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Canvas;
+import java.awt.event.KeyEvent;
+
+import static math.MathAssertions.assertMatrixEquals;
+import static math.MathAssertions.assertVectorEquals;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuaternionTest {
+
+    private static final float EPS = 1e-4f;
+
+    @Test
+    void testEulerMatchesChainedMatrices() {
+        float[][] angles = {{10, 20, 30}, {-45, 80, 170}, {90, 0, -90}, {0, 0, 0}};
+        for (float[] a : angles) {
+            Matrix4f expected = Matrix4f.rotationX(a[0]).mul(Matrix4f.rotationY(a[1])).mul(Matrix4f.rotationZ(a[2]));
+            assertMatrixEquals(expected, Quaternion.fromEuler(a[0], a[1], a[2]).toMatrix(), EPS);
+        }
+    }
+
+    @Test
+    void testRotateMatchesMatrix() {
+        Quaternion q = Quaternion.fromAxisAngle(new Vector3f(1, 2, 3), 73);
+        Vector3f v = new Vector3f(0.5f, -2, 4);
+        assertVectorEquals(q.toMatrix().mul(v), q.rotate(v), EPS);
+        assertVectorEquals(v, q.conjugate().rotate(q.rotate(v)), EPS);
+    }
+
+    @Test
+    void testMultiplyComposesRotations() {
+        Quaternion a = Quaternion.fromAxisAngle(new Vector3f(0, 1, 0), 30);
+        Quaternion b = Quaternion.fromAxisAngle(new Vector3f(1, 0, 0), 60);
+        assertMatrixEquals(a.toMatrix().mul(b.toMatrix()), a.multiply(b).toMatrix(), EPS);
+        assertEquals(Quaternion.IDENTITY, a.multiply(a.inverse()));
+        assertEquals(Quaternion.IDENTITY.hashCode(), a.multiply(a.inverse()).hashCode());
+    }
+
+    @Test
+    void testToEulerRoundTrip() {
+        Vector3f angles = Quaternion.fromEuler(15, -40, 120).toEuler();
+        assertVectorEquals(new Vector3f(15, -40, 120), angles, EPS);
+
+        // Складывание рамок: поворот сохраняется, хотя углы другие
+        Quaternion gimbal = Quaternion.fromEuler(30, 90, 20);
+        Vector3f e = gimbal.toEuler();
+        assertMatrixEquals(gimbal.toMatrix(), Quaternion.fromEuler(e.getX(), e.getY(), e.getZ()).toMatrix(), EPS);
+    }
+
+    @Test
+    void testSlerpFollowsShortestArc() {
+        Vector3f axis = new Vector3f(0, 0, 1);
+        Quaternion from = Quaternion.fromAxisAngle(axis, 10);
+        Quaternion to = Quaternion.fromAxisAngle(axis, 90);
+        assertEquals(Quaternion.fromAxisAngle(axis, 50), Quaternion.slerp(from, to, 0.5f));
+        assertEquals(from, Quaternion.slerp(from, to, 0));
+
+        // -q задает тот же поворот; интерполяция не должна идти длинным путем
+        Quaternion negated = new Quaternion(-to.w, -to.x, -to.y, -to.z);
+        Vector3f expected = Quaternion.fromAxisAngle(axis, 50).rotate(new Vector3f(1, 0, 0));
+        assertVectorEquals(expected, Quaternion.slerp(from, negated, 0.5f).rotate(new Vector3f(1, 0, 0)), EPS);
+
+        Quaternion close = Quaternion.fromAxisAngle(axis, 10.01f);
+        assertEquals(1, Quaternion.slerp(from, close, 0.3f).length(), EPS);
+    }
+
+    @Test
+    void testFromToRotatesDirection() {
+        Vector3f from = new Vector3f(1, 0, 0);
+        Vector3f to = new Vector3f(0, 3, 4);
+        assertVectorEquals(to.normalize(), Quaternion.fromTo(from, to).rotate(from), EPS);
+        assertVectorEquals(new Vector3f(-1, 0, 0), Quaternion.fromTo(from, new Vector3f(-2, 0, 0)).rotate(from), EPS);
+    }
+
+    @Test
+    void testTransformationOrientationAndInterpolation() {
+        Transformation a = new Transformation();
+        a.set(new Vector3f(0, 0, 0), new Vector3f(0, 0, 0), new Vector3f(1, 1, 1));
+        Transformation b = new Transformation();
+        b.set(new Vector3f(2, 4, 6), new Vector3f(0, 90, 0), new Vector3f(3, 3, 3));
+
+        Transformation mid = new Transformation();
+        mid.interpolate(a, b, 0.5f);
+        Matrix4f expected = Matrix4f.translation(1, 2, 3).mul(Matrix4f.rotationY(45)).mul(Matrix4f.scaling(2, 2, 2));
+        assertMatrixEquals(expected, mid.getMatrix(), EPS);
+        assertVectorEquals(new Vector3f(0, 45, 0), mid.getRotation(), EPS);
+        assertNotSame(mid.getRotation(), mid.getRotation());
+
+        Transformation rotated = new Transformation();
+        rotated.setOrientation(Quaternion.fromAxisAngle(new Vector3f(0, 0, 1), 90));
+        assertVectorEquals(new Vector3f(0, 1, 0), rotated.transform(new Vector3f(1, 0, 0)), EPS);
+        rotated.applyRotation(0, 0, 90);
+        assertVectorEquals(new Vector3f(-1, 0, 0), rotated.transform(new Vector3f(1, 0, 0)), EPS);
+    }
+
+    @Test
+    void testCameraOrbitKeepsDistanceAndClampsPitch() {
+        Camera camera = new Camera();
+        camera.rotateAroundTarget(90, 0);
+        assertVectorEquals(new Vector3f(-5, 0, 0), camera.getPosition(), EPS);
+
+        camera.rotateAroundTarget(0, 30);
+        assertEquals(5, camera.getPosition().length(), EPS);
+        assertEquals(5 * (float) Math.sin(Math.toRadians(30)), camera.getPosition().getY(), EPS);
+
+        camera.rotateAroundTarget(0, 200);
+        float maxY = 5 * (float) Math.sin(Math.PI / 2 - 0.1);
+        assertEquals(maxY, camera.getPosition().getY(), EPS);
+        assertEquals(5, camera.getPosition().length(), EPS);
+    }
+
+    @Test
+    void testOrbitKeyKeepsYawSensitivity() {
+        // Прежняя реализация орбиты поворачивала на 2 * 0.5 * 5 = 5 градусов за нажатие стрелки
+        Camera camera = new Camera();
+        CameraController controller = new CameraController(camera);
+        controller.keyPressed(new KeyEvent(new Canvas(), KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_LEFT,
+                KeyEvent.CHAR_UNDEFINED));
+        double azimuth = Math.toRadians(95);
+        assertVectorEquals(new Vector3f(5 * (float) Math.cos(azimuth), 0, 5 * (float) Math.sin(azimuth)),
+                camera.getPosition(), EPS);
+    }
+
+    @Test
+    void testCameraInterpolateOrbit() {
+        Camera camera = new Camera();
+        camera.interpolateOrbit(new Vector3f(0, 0, 5), new Vector3f(10, 0, 0), 0.5f);
+        float d = 7.5f / (float) Math.sqrt(2);
+        assertVectorEquals(new Vector3f(d, 0, d), camera.getPosition(), EPS);
+    }
+}
@@ -0,0 +1,100 @@
+package math;
+
+import com.cgvsu.math.Matrix4f;
+import com.cgvsu.math.Transformation;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
+import com.cgvsu.ui.ModelTransformController;
+import org.junit.jupiter.api.Test;
+
+import static math.MathAssertions.assertMatrixEquals;
+import static math.MathAssertions.assertVectorEquals;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransformationTest {
+
+    private static final float EPS = 1e-4f;
+
+    @Test
+    void testComponentsBuildTranslationRotationScale() {
+        Transformation transformation = new Transformation();
+        transformation.set(new Vector3f(1, 2, 3), new Vector3f(10, 20, 30), new Vector3f(2, 3, 4));
+
+        Matrix4f expected = Matrix4f.translation(1, 2, 3)
+                .mul(Matrix4f.rotationX(10)).mul(Matrix4f.rotationY(20)).mul(Matrix4f.rotationZ(30))
+                .mul(Matrix4f.scaling(2, 3, 4));
+        assertMatrixEquals(expected, transformation.getMatrix(), EPS);
+        assertVectorEquals(new Vector3f(10, 20, 30), transformation.getRotation(), EPS);
+
+        transformation.setTranslation(0, 0, 0);
+        assertEquals(0, transformation.getMatrix().get(0, 3), EPS);
+        assertEquals(expected.get(0, 0), transformation.getMatrix().get(0, 0), EPS);
+    }
+
+    @Test
+    void testApplyMethodsKeepMatrixSemantics() {
+        Transformation transformation = new Transformation();
+        transformation.applyScaling(2, 1, 1);
+        transformation.applyRotationY(45);
+        transformation.applyTranslation(5, 0, 0);
+        transformation.applyScaling(1, 3, 1);
+        Matrix4f skew = new Matrix4f();
+        skew.set(0, 1, 0.5f);
+        transformation.applyTransformation(skew);
+        transformation.applyTranslation(0, 1, 0);
+
+        // Перенос и произвольная матрица умножаются слева, масштаб и поворот - справа
+        Matrix4f expected = Matrix4f.scaling(2, 1, 1).mul(Matrix4f.rotationY(45));
+        expected = Matrix4f.translation(5, 0, 0).mul(expected).mul(Matrix4f.scaling(1, 3, 1));
+        expected = Matrix4f.translation(0, 1, 0).mul(skew.mul(expected));
+        assertMatrixEquals(expected, transformation.getMatrix(), EPS);
+
+        Transformation other = new Transformation();
+        other.setScale(2, 2, 2);
+        transformation.combine(other);
+        assertMatrixEquals(Matrix4f.scaling(2, 2, 2).mul(expected), transformation.getMatrix(), EPS);
+    }
+
+    @Test
+    void testInverseAndNormalsFollowChanges() {
+        Transformation transformation = new Transformation();
+        transformation.set(new Vector3f(1, -2, 3), new Vector3f(30, 0, 60), new Vector3f(2, 2, 0.5f));
+        Vector3f point = new Vector3f(0.3f, 0.7f, -1.1f);
+        assertVectorEquals(point, transformation.inverseTransform(transformation.transform(point)), EPS);
+        assertMatrixEquals(new Matrix4f(), transformation.getMatrix().mul(transformation.getInverseMatrix()), EPS);
+
+        transformation.set(new Vector3f(0, 0, 0), new Vector3f(0, 0, 0), new Vector3f(2, 1, 1));
+        assertVectorEquals(new Vector3f(0.5f, 1, 0), transformation.transformNormal(new Vector3f(1, 1, 0)), EPS);
+        assertVectorEquals(new Vector3f(0.5f, 0, 0), transformation.inverseTransform(new Vector3f(1, 0, 0)), EPS);
+
+        transformation.setScale(0, 1, 1);
+        assertThrows(ArithmeticException.class, transformation::getInverseMatrix);
+        // Преобразование точек вырожденной матрицей по-прежнему работает
+        assertVectorEquals(new Vector3f(0, 1, 0), transformation.transform(new Vector3f(1, 1, 0)), EPS);
+    }
+
+    @Test
+    void testMatrixInverse() {
+        Matrix4f matrix = Matrix4f.perspective(60, 1.3f, 0.1f, 50).mul(Matrix4f.translation(1, 2, 3));
+        assertMatrixEquals(new Matrix4f(), matrix.mul(matrix.inverse()), EPS);
+        Matrix4f inPlace = new Matrix4f(matrix);
+        inPlace.invertInto(inPlace);
+        assertMatrixEquals(matrix.inverse(), inPlace, EPS);
+        assertThrows(ArithmeticException.class, () -> new Matrix4f(new float[4][4]).inverse());
+    }
+
+    @Test
+    void testControllerContinuesFromModelComponents() {
+        Model model = new Model();
+        model.getTransformation().setTranslation(4, 5, 6);
+        ModelTransformController controller = new ModelTransformController(model);
+        assertVectorEquals(new Vector3f(4, 5, 6), controller.getTranslation(), EPS);
+
+        long version = model.getTransformationVersion();
+        controller.setScale(2, 1, 1);
+        controller.setRotation(0, 0, 90);
+        assertTrue(model.getTransformationVersion() > version);
+        // M = T * R * S: масштаб по x применяется до поворота
+        assertVectorEquals(new Vector3f(4, 7, 6), model.getTransformation().transform(new Vector3f(1, 0, 0)), EPS);
+    }
+}
@@ -0,0 +1,274 @@
+package meshcache;
+
+import com.cgvsu.meshcache.MeshCache;
+import com.cgvsu.meshcache.MeshCacheReader;
+import com.cgvsu.meshcache.MeshCacheWriter;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.OffHeapMesh;
+import com.cgvsu.objreader.ObjGroupIndex;
+import com.cgvsu.objwriter.ObjWriter;
+import com.cgvsu.objreader.ObjReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MeshCacheTest {
+
+    // Сигнатура, версия, размер и время изменения исходного файла
+    private static final int PATH_LENGTH_OFFSET = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    private static final String OBJ = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            vt 0 0
+            vt 1 0
+            vt 1 1
+            vn 0 0 1
+            f 1/1/1 2/2/1 3/3/1
+            f 1 3 4
+            f 1//1 2//1 3//1 4//1
+            """;
+
+    @Test
+    void testWriteAndReadRoundTrip(@TempDir Path tempDir) throws IOException {
+        Model model = ObjReader.read(OBJ);
+        Path cacheFile = tempDir.resolve("model.cgmesh");
+        MeshCacheWriter.write(model, cacheFile, "model.obj", 10, 20);
+
+        assertSameModel(model, MeshCacheReader.read(cacheFile, "model.obj", 10, 20));
+        // Временный файл переименован в кэш
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(cacheFile), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testConcurrentWritesUseSeparateTempFiles(@TempDir Path tempDir) throws Exception {
+        Model model = ObjReader.read(OBJ);
+        Path cacheFile = tempDir.resolve("model.cgmesh");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                writes.add(pool.submit(() -> {
+                    MeshCacheWriter.write(model, cacheFile, "model.obj", 10, 20);
+                    return null;
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertSameModel(model, MeshCacheReader.read(cacheFile, "model.obj", 10, 20));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(cacheFile), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testMissingAttributeListsAreWrittenEmpty(@TempDir Path tempDir) throws IOException {
+        Model model = ObjReader.read("v 0 0 0\nv 1 0 0\nv 1 1 0\nf 1 2 3\n");
+        model.setTextureVertices(null);
+        model.setNormals(null);
+        Path cacheFile = tempDir.resolve("model.cgmesh");
+        MeshCacheWriter.write(model, cacheFile, "model.obj", 10, 20);
+
+        Model read = MeshCacheReader.read(cacheFile, "model.obj", 10, 20);
+        assertEquals(model.getVertices(), read.getVertices());
+        assertTrue(read.getTextureVertices().isEmpty());
+        assertTrue(read.getNormals().isEmpty());
+        assertEquals(List.of(0, 1, 2), read.getPolygons().get(0).getVertexIndices());
+    }
+
+    @Test
+    void testModelWithNullElementsIsNotCached(@TempDir Path tempDir) throws IOException {
+        Model model = ObjReader.read(OBJ);
+        model.getNormals().add(null);
+        Path cacheFile = tempDir.resolve("model.cgmesh");
+
+        assertFalse(MeshCacheWriter.canWrite(model));
+        assertThrows(IllegalArgumentException.class,
+                () -> MeshCacheWriter.write(model, cacheFile, "model.obj", 10, 20));
+        assertFalse(Files.exists(cacheFile));
+    }
+
+    @Test
+    void testReadReturnsNullForDifferentSource(@TempDir Path tempDir) throws IOException {
+        Path cacheFile = tempDir.resolve("model.cgmesh");
+        MeshCacheWriter.write(ObjReader.read(OBJ), cacheFile, "model.obj", 10, 20);
+
+        assertNull(MeshCacheReader.read(cacheFile, "other.obj", 10, 20));
+        assertNull(MeshCacheReader.read(cacheFile, "model.obj", 11, 20));
+        assertNull(MeshCacheReader.read(cacheFile, "model.obj", 10, 21));
+    }
+
+    @Test
+    void testReadRejectsTruncatedCache(@TempDir Path tempDir) throws IOException {
+        Path cacheFile = tempDir.resolve("model.cgmesh");
+        MeshCacheWriter.write(ObjReader.read(OBJ), cacheFile, "model.obj", 10, 20);
+        byte[] bytes = Files.readAllBytes(cacheFile);
+        Files.write(cacheFile, Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertThrows(IOException.class, () -> MeshCacheReader.read(cacheFile, "model.obj", 10, 20));
+    }
+
+    @Test
+    void testReadRejectsCorruptedHeaderAndOffsets(@TempDir Path tempDir) throws IOException {
+        Path cacheFile = tempDir.resolve("model.cgmesh");
+        MeshCacheWriter.write(ObjReader.read(OBJ), cacheFile, "model.obj", 10, 20);
+        byte[] original = Files.readAllBytes(cacheFile);
+
+        // Длина пути: отрицательная и больше файла
+        for (int pathLength : new int[]{-1, Integer.MAX_VALUE}) {
+            byte[] bytes = original.clone();
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(PATH_LENGTH_OFFSET, pathLength);
+            Files.write(cacheFile, bytes);
+            assertThrows(IOException.class, () -> MeshCacheReader.read(cacheFile, "model.obj", 10, 20));
+        }
+
+        // Второе смещение полигонов больше третьего
+        byte[] bytes = original.clone();
+        int offsets = PATH_LENGTH_OFFSET + Integer.BYTES + "model.obj".length() + 7 * Integer.BYTES
+                + Float.BYTES * (3 * 4 + 2 * 3 + 3);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(offsets + Integer.BYTES, 9);
+        Files.write(cacheFile, bytes);
+        assertThrows(IOException.class, () -> MeshCacheReader.read(cacheFile, "model.obj", 10, 20));
+        assertThrows(IOException.class, () -> MeshCacheReader.map(cacheFile, "model", "model.obj", 10, 20));
+    }
+
+    @Test
+    void testLoadParsesObjWhenSidecarIsCorrupted(@TempDir Path tempDir) throws IOException {
+        Path objFile = tempDir.resolve("model.obj");
+        Files.writeString(objFile, OBJ);
+        MeshCache.load(objFile);
+        Path cacheFile = MeshCache.sidecarPath(objFile);
+        byte[] bytes = Files.readAllBytes(cacheFile);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(PATH_LENGTH_OFFSET, -5);
+        Files.write(cacheFile, bytes);
+
+        assertSameModel(ObjReader.read(OBJ), MeshCache.load(objFile));
+        // Кэш перезаписан и снова читается
+        assertNotNull(MeshCacheReader.read(cacheFile, objFile.toAbsolutePath().normalize().toString(),
+                Files.size(objFile), Files.getLastModifiedTime(objFile).toMillis()));
+    }
+
+    @Test
+    void testLoadCreatesSidecarAndReusesIt(@TempDir Path tempDir) throws IOException {
+        Path objFile = tempDir.resolve("model.obj");
+        Files.writeString(objFile, OBJ);
+        FileTime modified = Files.getLastModifiedTime(objFile);
+
+        assertSameModel(ObjReader.read(OBJ), MeshCache.load(objFile));
+        assertTrue(Files.isRegularFile(MeshCache.sidecarPath(objFile)));
+
+        // Тот же размер и время изменения: модель берется из кэша, а не из текста
+        String changed = OBJ.replace("v 1 1 0", "v 2 2 0");
+        Files.writeString(objFile, changed);
+        Files.setLastModifiedTime(objFile, modified);
+        assertSameModel(ObjReader.read(OBJ), MeshCache.load(objFile));
+
+        // Время изменения другое: файл разбирается заново
+        Files.setLastModifiedTime(objFile, FileTime.fromMillis(modified.toMillis() + 5000));
+        assertSameModel(ObjReader.read(changed), MeshCache.load(objFile));
+    }
+
+    @Test
+    void testMapReadsCacheWithoutHeapModel(@TempDir Path tempDir) throws IOException {
+        Path objFile = tempDir.resolve("model.obj");
+        Files.writeString(objFile, OBJ);
+        Model model = ObjReader.read(OBJ);
+
+        // Первый вызов создает кэш, второй отображает уже готовый файл
+        try (OffHeapMesh first = MeshCache.map(objFile)) {
+            assertEquals(model.getVertices().size(), first.vertexCount());
+        }
+        try (OffHeapMesh mapped = MeshCache.map(objFile)) {
+            assertEquals(model.getVertices().size(), mapped.vertexCount());
+            assertEquals(model.getPolygons().size(), mapped.polygonCount());
+            assertEquals(1, mapped.vertices().get(6));
+            assertTrue(mapped.vertices().isDirect());
+
+            Path fromMapped = tempDir.resolve("mapped.obj");
+            Path fromModel = tempDir.resolve("heap.obj");
+            ObjWriter.write(mapped, model.getName(), fromMapped);
+            ObjWriter.write(model, fromModel);
+            assertEquals(Files.readString(fromModel), Files.readString(fromMapped));
+        }
+    }
+
+    @Test
+    void testLoadWritesGroupIndexSidecar(@TempDir Path tempDir) throws IOException {
+        Path objFile = tempDir.resolve("grouped.obj");
+        String grouped = OBJ.replace("f 1 3 4", "o Second\nf 1 3 4");
+        Files.writeString(objFile, grouped);
+        FileTime modified = Files.getLastModifiedTime(objFile);
+
+        // Индекс групп строится при разборе текста, отдельного прохода нет
+        assertNull(MeshCache.cachedGroups(objFile));
+        MeshCache.load(objFile);
+        assertTrue(Files.isRegularFile(MeshCache.groupIndexPath(objFile)));
+        ObjGroupIndex built = ObjReader.indexGroups(objFile);
+
+        // Тот же размер и время изменения: индекс читается из файла рядом, текст не сканируется,
+        // поэтому у группы остается прежнее имя
+        Files.writeString(objFile, grouped.replace("o Second", "o Renamd"));
+        Files.setLastModifiedTime(objFile, modified);
+        ObjGroupIndex cached = MeshCache.cachedGroups(objFile);
+        assertNotNull(cached);
+        assertEquals(Arrays.asList("default", "Second"), cached.getGroupNames());
+        for (int group = 0; group < built.getGroupCount(); group++) {
+            assertSameModel(built.loadGroup(group), cached.loadGroup(group));
+        }
+
+        // После изменения файла индекс устарел
+        Files.writeString(objFile, grouped + "f 1 2 3\n");
+        assertNull(MeshCache.cachedGroups(objFile));
+    }
+
+    @Test
+    void testSingleGroupWritesNoGroupIndex(@TempDir Path tempDir) throws IOException {
+        Path objFile = tempDir.resolve("model.obj");
+        Files.writeString(objFile, OBJ);
+        MeshCache.load(objFile);
+
+        assertNull(MeshCache.cachedGroups(objFile));
+        assertFalse(Files.exists(MeshCache.groupIndexPath(objFile)));
+
+        Files.write(MeshCache.groupIndexPath(objFile), new byte[]{1, 2, 3});
+        assertNull(MeshCache.cachedGroups(objFile));
+    }
+
+    private static void assertSameModel(Model expected, Model actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getVertices(), actual.getVertices());
+        assertEquals(expected.getTextureVertices(), actual.getTextureVertices());
+        assertEquals(expected.getNormals(), actual.getNormals());
+        assertEquals(expected.getPolygons().size(), actual.getPolygons().size());
+        for (int i = 0; i < expected.getPolygons().size(); i++) {
+            assertEquals(expected.getPolygons().get(i).getVertexIndices(), actual.getPolygons().get(i).getVertexIndices());
+            assertEquals(expected.getPolygons().get(i).getTextureVertexIndices(), actual.getPolygons().get(i).getTextureVertexIndices());
+            assertEquals(expected.getPolygons().get(i).getNormalIndices(), actual.getPolygons().get(i).getNormalIndices());
+        }
+    }
+}
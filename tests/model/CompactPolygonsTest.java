@@ -0,0 +1,130 @@
+package model;
+
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.CompactPolygons;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.ModelFootprint;
+import com.cgvsu.model.PackedPolygons;
+import com.cgvsu.model.Polygon;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactPolygonsTest {
+
+    @Test
+    @DisplayName("Треугольная модель хранит 16-битные индексы без смещений")
+    public void testTriangleMeshUsesFixedArityAndCharIndices() {
+        Model model = grid(100, 100);
+        CompactPolygons compact = model.compactPolygons();
+        PackedPolygons packed = model.packPolygons();
+
+        assertEquals(3, compact.getFixedArity());
+        assertEquals(2, compact.getVertexIndexWidth());
+        assertEquals(2L * packed.vertexIndices.length, compact.indexBytes());
+        assertEquals(model.getPolygons().get(77).getVertexIndices().getInt(2), compact.vertexIndex(77, 2));
+        assertEquals(0, compact.textureIndexCount(77));
+
+        long packedBytes = 4L * (packed.vertexOffsets.length + packed.vertexIndices.length
+                + packed.textureOffsets.length + packed.normalOffsets.length);
+        assertTrue(packedBytes >= 4 * compact.indexBytes());
+    }
+
+    @Test
+    @DisplayName("Модель из разных полигонов хранит смещения и разворачивается без потерь")
+    public void testMixedPolygonsRoundTrip() {
+        Model model = new Model();
+        for (int i = 0; i < 6; i++) {
+            model.getVertices().add(i, 0, 0);
+        }
+        model.getNormals().add(0, 0, 1);
+        model.getPolygons().add(new Polygon(Arrays.asList(0, 1, 2), new ArrayList<>(), Arrays.asList(0, 0, 0)));
+        model.getPolygons().add(new Polygon(Arrays.asList(2, 3, 4, 5), new ArrayList<>(), new ArrayList<>()));
+
+        CompactPolygons compact = model.compactPolygons();
+        PackedPolygons expected = model.packPolygons();
+        PackedPolygons actual = compact.toPacked();
+
+        assertEquals(0, compact.getFixedArity());
+        assertEquals(4, compact.vertexCount(1));
+        assertEquals(0, compact.normalIndexCount(1));
+        assertArrayEquals(expected.vertexOffsets, actual.vertexOffsets);
+        assertArrayEquals(expected.vertexIndices, actual.vertexIndices);
+        assertArrayEquals(expected.normalOffsets, actual.normalOffsets);
+        assertArrayEquals(expected.normalIndices, actual.normalIndices);
+        assertThrows(IndexOutOfBoundsException.class, () -> compact.vertexIndex(0, 3));
+    }
+
+    @Test
+    @DisplayName("Для 65536 и более вершин индексы хранятся в int")
+    public void testWideIndicesForLargeParts() {
+        Model model = grid(300, 300);
+        CompactPolygons compact = model.compactPolygons();
+        int last = model.getPolygons().size() - 1;
+
+        assertEquals(4, compact.getVertexIndexWidth());
+        assertEquals(model.getPolygons().get(last).getVertexIndices().getInt(2), compact.vertexIndex(last, 2));
+    }
+
+    @Test
+    @DisplayName("Модель хранит полигоны в компактном виде до первого обращения к списку")
+    public void testModelCompactStorage() {
+        Model model = grid(100, 100);
+        PackedPolygons expected = model.packPolygons();
+        long listBytes = ModelFootprint.of(model).getPolygonBytes();
+        long version = model.getTopologyVersion();
+
+        assertTrue(model.compact());
+        assertTrue(model.isCompact());
+        assertEquals(version, model.getTopologyVersion());
+        assertTrue(ModelFootprint.of(model).getPolygonBytes() * 8 < listBytes);
+        assertArrayEquals(expected.vertexIndices, model.packPolygons().vertexIndices);
+        assertEquals(expected.polygonCount(), model.getMeshBuffers().polygonCount());
+        assertEquals(expected.polygonCount(), model.getPolygonCount());
+
+        Model copy = model.copy();
+        assertTrue(copy.isCompact());
+        assertSame(model.compactPolygons(), copy.compactPolygons());
+
+        assertEquals(expected.polygonCount(), model.getPolygons().size());
+        assertFalse(model.isCompact());
+        assertEquals(Arrays.asList(0, 1, 100), model.getPolygons().get(0).getVertexIndices());
+        assertTrue(copy.isCompact());
+    }
+
+    @Test
+    @DisplayName("Модель с пустым полигоном не переводится в компактный вид")
+    public void testCompactRejectsNullPolygons() {
+        Model model = grid(3, 3);
+        model.getPolygons().add(null);
+
+        assertFalse(model.compact());
+        assertFalse(model.isCompact());
+        assertNull(model.getPolygons().get(model.getPolygons().size() - 1));
+    }
+
+    // Сетка из columns x rows вершин, разбитая на треугольники
+    private static Model grid(int columns, int rows) {
+        Model model = new Model();
+        List<Vector3f> vertices = new ArrayList<>();
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                vertices.add(new Vector3f(x, y, 0));
+            }
+        }
+        model.setVertices(vertices);
+        for (int y = 0; y + 1 < rows; y++) {
+            for (int x = 0; x + 1 < columns; x++) {
+                int i = y * columns + x;
+                model.getPolygons().add(new Polygon(Arrays.asList(i, i + 1, i + columns), new ArrayList<>(), new ArrayList<>()));
+                model.getPolygons().add(new Polygon(Arrays.asList(i + 1, i + columns + 1, i + columns), new ArrayList<>(), new ArrayList<>()));
+            }
+        }
+        return model;
+    }
+}
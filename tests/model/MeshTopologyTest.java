@@ -0,0 +1,89 @@
+package model;
+
+import com.cgvsu.model.MeshBuffers;
+import com.cgvsu.model.MeshTopology;
+import com.cgvsu.model.Model;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.removers.PolygonRemover;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MeshTopologyTest {
+
+    // Квадрат из двух треугольников и отдельный треугольник, касающийся его вершиной 3
+    private static final String OBJ = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            v 2 2 0
+            v 3 2 0
+            f 1 2 3
+            f 1 3 4
+            f 3 5 6
+            """;
+
+    @Test
+    @DisplayName("Для вершины известны все ее полигоны")
+    public void testPolygonsOfVertex() {
+        MeshTopology topology = MeshTopology.of(ObjReader.read(OBJ));
+
+        assertArrayEquals(new int[]{0, 1, 2}, topology.polygonsOfVertex(2));
+        assertArrayEquals(new int[]{2}, topology.polygonsOfVertex(5));
+        assertEquals(2, topology.polygonCountOfVertex(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> topology.polygonsOfVertex(6));
+    }
+
+    @Test
+    @DisplayName("Ребро и соседи определяются по общим ребрам, а не по общим вершинам")
+    public void testEdgesAndNeighbours() {
+        MeshTopology topology = MeshTopology.of(ObjReader.read(OBJ));
+
+        assertArrayEquals(new int[]{0, 1}, topology.polygonsOfEdge(0, 2));
+        assertArrayEquals(new int[]{0}, topology.polygonsOfEdge(1, 0));
+        assertArrayEquals(new int[0], topology.polygonsOfEdge(1, 3));
+        assertArrayEquals(new int[]{1}, topology.neighbours(0));
+        assertArrayEquals(new int[0], topology.neighbours(2));
+    }
+
+    @Test
+    @DisplayName("Индекс модели обновляется на месте после удаления полигонов")
+    public void testModelTopologyFollowsRemovers() {
+        Model model = ObjReader.read(OBJ);
+        MeshTopology before = model.getTopology();
+        MeshBuffers buffers = model.getMeshBuffers();
+        assertSame(before, model.getTopology());
+        assertEquals(Set.of(0, 1, 2), before.polygonsContainingAny(List.of(2)));
+
+        PolygonRemover.removePolygons(model, List.of(0), false);
+
+        MeshTopology after = model.getTopology();
+        assertSame(before, after);
+        assertNotSame(buffers, model.getMeshBuffers());
+        assertEquals(Set.of(0, 1), after.polygonsContainingAny(List.of(2)));
+        assertEquals(model.getMeshBuffers().polygonCount(), after.polygonCount());
+        assertSameIndex(MeshTopology.of(model), after);
+
+        // Повторы и неверные индексы пропускаются, удаляется только полигон 1
+        assertEquals(1, model.removePolygons(List.of(1, 1, 7, -1)));
+        assertSame(before, model.getTopology());
+        assertSameIndex(MeshTopology.of(model), model.getTopology());
+        assertArrayEquals(new int[]{0}, model.getTopology().polygonsOfVertex(3));
+        assertArrayEquals(new int[0], model.getTopology().polygonsOfVertex(4));
+    }
+
+    private static void assertSameIndex(MeshTopology expected, MeshTopology actual) {
+        assertEquals(expected.polygonCount(), actual.polygonCount());
+        for (int v = 0; v < expected.vertexCount(); v++) {
+            assertArrayEquals(expected.polygonsOfVertex(v), actual.polygonsOfVertex(v));
+        }
+        for (int p = 0; p < expected.polygonCount(); p++) {
+            assertArrayEquals(expected.neighbours(p), actual.neighbours(p));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package model;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.ModelFootprint;
+import com.cgvsu.model.Polygon;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelFootprintTest {
+
+    @Test
+    @DisplayName("Оценка растет с числом вершин и полигонов")
+    public void testFootprintGrowsWithGeometry() {
+        Model small = triangles(10);
+        Model large = triangles(1000);
+
+        ModelFootprint smallFootprint = ModelFootprint.of(small);
+        ModelFootprint largeFootprint = ModelFootprint.of(large);
+
+        assertTrue(largeFootprint.getVertexBytes() >= 1000 * 3 * 3 * Float.BYTES);
+        assertTrue(largeFootprint.getPolygonBytes() > 50 * smallFootprint.getPolygonBytes());
+        assertEquals(largeFootprint.getVertexBytes() + largeFootprint.getAttributeBytes()
+                        + largeFootprint.getPolygonBytes() + largeFootprint.getCacheBytes(),
+                largeFootprint.getTotalBytes());
+    }
+
+    @Test
+    @DisplayName("Производные кэши учитываются и освобождаются")
+    public void testDerivedCachesAreCounted() {
+        Model model = triangles(100);
+        assertEquals(0, ModelFootprint.of(model).getCacheBytes());
+
+        model.getMeshBuffers();
+        model.getTopology();
+        assertTrue(ModelFootprint.of(model).getCacheBytes() > 100 * 3 * Integer.BYTES);
+
+        model.releaseDerivedCaches();
+        assertEquals(0, ModelFootprint.of(model).getCacheBytes());
+    }
+
+    @Test
+    @DisplayName("Для бюджета выгружаются сначала самые большие модели")
+    public void testSelectForEviction() {
+        Model small = triangles(10);
+        Model medium = triangles(100);
+        Model large = triangles(1000);
+        List<Model> models = List.of(small, medium, large);
+        long total = ModelFootprint.totalBytes(models);
+
+        assertEquals(List.of(), ModelFootprint.selectForEviction(models, total));
+        assertEquals(List.of(large), ModelFootprint.selectForEviction(models, total - 1));
+        assertEquals(List.of(large, medium, small), ModelFootprint.selectForEviction(models, 0));
+        assertEquals("1.5 КБ", ModelFootprint.format(1536));
+    }
+
+    private static Model triangles(int count) {
+        Model model = new Model();
+        for (int i = 0; i < count; i++) {
+            model.getVertices().add(i, 0, 0);
+            model.getVertices().add(i, 1, 0);
+            model.getVertices().add(i, 0, 1);
+            model.getPolygons().add(new Polygon(Arrays.asList(3 * i, 3 * i + 1, 3 * i + 2),
+                    new ArrayList<>(), new ArrayList<>()));
+        }
+        return model;
+    }
+}
@@ -0,0 +1,129 @@
+package model;
+
+import com.cgvsu.math.Transformation;
+import com.cgvsu.model.MeshBuffers;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.removers.PolygonRemover;
+import com.cgvsu.removers.vertexremover.VertexRemoverImpl;
+import com.cgvsu.ui.ModelTransformController;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelVersionTest {
+
+    private static final String OBJ = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            f 1 2 3
+            f 1 3 4
+            """;
+
+    @Test
+    @DisplayName("Каждая часть модели имеет свой номер изменения")
+    public void testMarksAreIndependent() {
+        Model model = new Model();
+        long topology = model.getTopologyVersion();
+
+        model.markVerticesChanged();
+        assertEquals(model.getVersion(), model.getVertexVersion());
+        assertEquals(topology, model.getTopologyVersion());
+
+        long vertices = model.getVertexVersion();
+        model.setTransformation(new Transformation());
+        assertEquals(vertices, model.getVertexVersion());
+        assertEquals(model.getVersion(), model.getTransformationVersion());
+        assertEquals(vertices, model.getGeometryVersion());
+
+        model.markGeometryChanged();
+        assertEquals(model.getVersion(), model.getTopologyVersion());
+        assertEquals(model.getVersion(), model.getAttributeVersion());
+    }
+
+    @Test
+    @DisplayName("Буферы для отрисовки строятся заново только после изменения геометрии")
+    public void testMeshBuffersCachedByVersion() {
+        Model model = ObjReader.read(OBJ);
+        MeshBuffers buffers = model.getMeshBuffers();
+        assertSame(buffers, model.getMeshBuffers());
+
+        model.setTransformation(new Transformation());
+        assertSame(buffers, model.getMeshBuffers());
+
+        model.getPolygons().remove(1);
+        model.markTopologyChanged();
+        assertNotSame(buffers, model.getMeshBuffers());
+        assertEquals(1, model.getMeshBuffers().polygonCount());
+    }
+
+    @Test
+    @DisplayName("После дописывания геометрии буферы достраиваются и совпадают с построенными заново")
+    public void testMeshBuffersExtendedAfterAppend() {
+        Model model = ObjReader.read(OBJ);
+        int[] before = indices(model.getMeshBuffers().vertexIndices());
+
+        model.getVertices().add(2, 2, 0);
+        model.getPolygons().add(new Polygon(Arrays.asList(2, 4, 3), new ArrayList<>(), new ArrayList<>()));
+        model.markGeometryAppended();
+        model.getPolygons().add(new Polygon(Arrays.asList(1, 4, 2), new ArrayList<>(), new ArrayList<>()));
+        model.markGeometryAppended();
+
+        MeshBuffers appended = model.getMeshBuffers();
+        assertEquals(4, appended.polygonCount());
+        assertEquals(5, appended.vertexCount());
+        assertArrayEquals(before, Arrays.copyOf(indices(appended.vertexIndices()), before.length));
+        assertArrayEquals(model.packPolygons().vertexIndices, indices(appended.vertexIndices()));
+        assertArrayEquals(model.packPolygons().vertexOffsets, indices(appended.vertexOffsets()));
+
+        // Изменение прежних полигонов обрывает цепочку дописываний
+        model.getPolygons().remove(0);
+        model.markTopologyChanged();
+        model.markGeometryAppended();
+        assertEquals(3, model.getMeshBuffers().polygonCount());
+        assertArrayEquals(model.packPolygons().vertexIndices, indices(model.getMeshBuffers().vertexIndices()));
+    }
+
+    private static int[] indices(IntBuffer buffer) {
+        int[] result = new int[buffer.remaining()];
+        buffer.duplicate().get(result);
+        return result;
+    }
+
+    @Test
+    @DisplayName("Удаление полигонов и вершин отмечает изменение модели")
+    public void testRemoversBumpVersions() throws Exception {
+        Model model = ObjReader.read(OBJ);
+        long topology = model.getTopologyVersion();
+        PolygonRemover.removePolygons(model, List.of(0), false);
+        assertTrue(model.getTopologyVersion() > topology);
+
+        long vertices = model.getVertexVersion();
+        new VertexRemoverImpl().removeVertices(model, Set.of(3), true);
+        assertTrue(model.getVertexVersion() > vertices);
+    }
+
+    @Test
+    @DisplayName("Изменение трансформации через контроллер отмечается в модели")
+    public void testTransformControllerBumpsTransformationVersion() {
+        Model model = ObjReader.read(OBJ);
+        ModelTransformController controller = new ModelTransformController(model);
+        long geometry = model.getGeometryVersion();
+        long transformation = model.getTransformationVersion();
+
+        controller.translate(1, 0, 0);
+
+        assertTrue(model.getTransformationVersion() > transformation);
+        assertEquals(geometry, model.getGeometryVersion());
+    }
+}
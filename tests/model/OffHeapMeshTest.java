@@ -0,0 +1,159 @@
+package model;
+
+import com.cgvsu.model.MeshBuffers;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.ModelFootprint;
+import com.cgvsu.model.OffHeapMesh;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objwriter.ObjWriter;
+import com.cgvsu.objwriter.ObjWriterException;
+import com.cgvsu.removers.utils.ModelUtils;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapMeshTest {
+
+    private static final String OBJ = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            vt 0 0
+            vt 1 0
+            vt 1 1
+            vn 0 0 1
+            f 1/1/1 2/2/1 3/3/1
+            f 1 3 4
+            """;
+
+    @Test
+    @DisplayName("Копия вне кучи совпадает с моделью")
+    public void testAllocateMatchesModel() {
+        Model model = ObjReader.read(OBJ);
+        MeshBuffers heap = MeshBuffers.of(model);
+
+        try (OffHeapMesh mesh = OffHeapMesh.allocate(model)) {
+            assertEquals(4, mesh.vertexCount());
+            assertEquals(3, mesh.textureVertexCount());
+            assertEquals(1, mesh.normalCount());
+            assertEquals(2, mesh.polygonCount());
+            assertTrue(mesh.vertices().isDirect());
+            assertEquals(heap.vertices(), mesh.vertices());
+            assertEquals(heap.textureVertices(), mesh.textureVertices());
+            assertEquals(heap.vertexOffsets(), mesh.vertexOffsets());
+            assertEquals(heap.vertexIndices(), mesh.vertexIndices());
+            assertEquals(heap.normalOffsets(), mesh.normalOffsets());
+        }
+    }
+
+    @Test
+    @DisplayName("После закрытия буферы недоступны")
+    public void testClosedMeshRejectsAccess() {
+        OffHeapMesh mesh = OffHeapMesh.allocate(ObjReader.read(OBJ));
+        mesh.close();
+
+        assertTrue(mesh.isClosed());
+        assertEquals(4, mesh.vertexCount());
+        assertThrows(IllegalStateException.class, mesh::vertices);
+        assertThrows(IllegalStateException.class, mesh::vertexIndices);
+        mesh.close();
+    }
+
+    @Test
+    @DisplayName("Буферы модели вне кучи доступны только для чтения")
+    public void testBuffersAreReadOnly() {
+        try (OffHeapMesh mesh = OffHeapMesh.allocate(ObjReader.read(OBJ))) {
+            assertThrows(java.nio.ReadOnlyBufferException.class, () -> mesh.vertices().put(0, 5));
+        }
+    }
+
+    @Test
+    @DisplayName("Запись модели вне кучи дает тот же файл, что и запись модели")
+    public void testWriterOutputMatchesModel(@TempDir Path tempDir) throws IOException {
+        Model model = ObjReader.read(OBJ);
+        Path expected = tempDir.resolve("model.obj");
+        Path actual = tempDir.resolve("mesh.obj");
+        ObjWriter.write(model, expected);
+        try (OffHeapMesh mesh = OffHeapMesh.allocate(model)) {
+            ObjWriter.write(mesh, model.getName(), actual);
+        }
+
+        assertEquals(Files.readString(expected), Files.readString(actual));
+    }
+
+    @Test
+    @DisplayName("Неверный индекс в буферах отклоняется при записи")
+    public void testWriterValidatesBuffers(@TempDir Path tempDir) {
+        OffHeapMesh mesh = OffHeapMesh.wrap("broken",
+                FloatBuffer.wrap(new float[]{0, 0, 0, 1, 0, 0, 1, 1, 0}),
+                FloatBuffer.allocate(0), FloatBuffer.allocate(0),
+                IntBuffer.wrap(new int[]{0, 3}), IntBuffer.wrap(new int[]{0, 1, 7}),
+                IntBuffer.wrap(new int[]{0, 0}), IntBuffer.allocate(0),
+                IntBuffer.wrap(new int[]{0, 0}), IntBuffer.allocate(0));
+
+        assertThrows(ObjWriterException.class, () -> ObjWriter.write(mesh, null, tempDir.resolve("out.obj")));
+    }
+
+    @Test
+    @DisplayName("Поиск полигонов по вершинам читает индексы из буферов")
+    public void testFindPolygonsContainingVertices() {
+        try (OffHeapMesh mesh = OffHeapMesh.allocate(ObjReader.read(OBJ))) {
+            assertEquals(Set.of(1), ModelUtils.findPolygonsContainingVertices(mesh, Set.of(3)));
+            assertEquals(Set.of(0, 1), ModelUtils.findPolygonsContainingVertices(mesh, Set.of(2)));
+            assertEquals(Set.of(), ModelUtils.findPolygonsContainingVertices(mesh, Set.of()));
+        }
+    }
+
+    @Test
+    @DisplayName("Модель с геометрией вне кучи рисуется и записывается из буферов без возврата в кучу")
+    public void testStoredGeometryStaysOffHeap() {
+        Model model = ObjReader.read(OBJ);
+        String expected = ObjWriter.modelToString(model, null);
+        OffHeapMesh mesh = OffHeapMesh.allocate(model);
+        model.storeGeometry(mesh);
+
+        assertTrue(model.hasStoredGeometry());
+        assertSame(mesh, model.getMeshBuffers());
+        assertEquals(2, model.getPolygonCount());
+        assertEquals(expected, ObjWriter.modelToString(model, null));
+        // Прямые буферы кучу не занимают
+        assertEquals(0, ModelFootprint.of(model).getTotalBytes());
+        assertTrue(model.hasStoredGeometry());
+        assertFalse(mesh.isClosed());
+    }
+
+    @Test
+    @DisplayName("Обращение к спискам возвращает геометрию в кучу и закрывает буферы")
+    public void testStoredGeometryIsRestoredOnEdit() {
+        Model model = ObjReader.read(OBJ);
+        Model expected = model.copy();
+        OffHeapMesh mesh = OffHeapMesh.allocate(model);
+        model.storeGeometry(mesh);
+        long version = model.getGeometryVersion();
+
+        assertEquals(expected.getVertices(), model.getVertices());
+        assertFalse(model.hasStoredGeometry());
+        assertTrue(mesh.isClosed());
+        assertTrue(model.getGeometryVersion() > version);
+        assertEquals(expected.getTextureVertices(), model.getTextureVertices());
+        assertEquals(expected.getNormals(), model.getNormals());
+        assertEquals(expected.getPolygons().size(), model.getPolygons().size());
+        for (int i = 0; i < expected.getPolygons().size(); i++) {
+            assertEquals(expected.getPolygons().get(i).getVertexIndices(), model.getPolygons().get(i).getVertexIndices());
+            assertEquals(expected.getPolygons().get(i).getNormalIndices(), model.getPolygons().get(i).getNormalIndices());
+        }
+        assertEquals(1, model.removePolygons(List.of(0)));
+        assertEquals(1, model.getMeshBuffers().polygonCount());
+    }
+}
@@ -0,0 +1,222 @@
+package model;
+
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.IndexList;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.ModelFootprint;
+import com.cgvsu.model.PackedPolygons;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.model.Vector2fList;
+import com.cgvsu.model.Vector3fList;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedStorageTest {
+
+    @Test
+    @DisplayName("Упакованный список вершин ведет себя как ArrayList")
+    public void testVector3fListMatchesArrayList() {
+        List<Vector3f> expected = new ArrayList<>();
+        Vector3fList actual = new Vector3fList();
+        for (int i = 0; i < 50; i++) {
+            Vector3f vector = new Vector3f(i, -i, i * 0.5f);
+            expected.add(vector);
+            actual.add(vector);
+        }
+        expected.add(3, new Vector3f(7, 7, 7));
+        actual.add(3, new Vector3f(7, 7, 7));
+        expected.remove(10);
+        actual.remove(10);
+        expected.set(0, new Vector3f(1, 2, 3));
+        actual.set(0, new Vector3f(1, 2, 3));
+        expected.subList(20, 30).clear();
+        actual.subList(20, 30).clear();
+
+        assertEquals(expected, actual);
+        assertEquals(expected.size() * 3, Arrays.copyOf(actual.coordinates(), actual.size() * 3).length);
+        assertEquals(1, actual.x(0));
+        assertEquals(3, actual.z(0));
+    }
+
+    @Test
+    @DisplayName("Пустые элементы сохраняются и сдвигаются вместе со списком")
+    public void testNullElementsAreTracked() {
+        Vector3fList list = new Vector3fList();
+        list.add(new Vector3f(0, 0, 0));
+        list.add(null);
+        list.add(new Vector3f(2, 2, 2));
+        list.add(0, new Vector3f(-1, -1, -1));
+
+        assertNull(list.get(2));
+        assertTrue(list.isNullAt(2));
+
+        list.remove(0);
+        assertNull(list.get(1));
+        assertEquals(new Vector3f(2, 2, 2), list.get(2));
+
+        list.set(1, new Vector3f(1, 1, 1));
+        assertFalse(list.isNullAt(1));
+    }
+
+    @Test
+    @DisplayName("Диапазон элементов копируется массивом вместе с пустыми элементами")
+    public void testAddRangeCopiesCoordinatesAndNulls() {
+        Vector3fList source = new Vector3fList();
+        source.add(new Vector3f(0, 0, 0));
+        source.add(new Vector3f(1, 1, 1));
+        source.add(null);
+        source.add(new Vector3f(3, 3, 3));
+
+        Vector3fList target = new Vector3fList();
+        target.add(new Vector3f(9, 9, 9));
+        target.addAll(source, 1, 4);
+        assertEquals(Arrays.asList(new Vector3f(9, 9, 9), new Vector3f(1, 1, 1), null, new Vector3f(3, 3, 3)), target);
+
+        target.addAll(target, 0, 2);
+        assertEquals(6, target.size());
+        assertEquals(new Vector3f(1, 1, 1), target.get(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> target.addAll(source, 2, 5));
+    }
+
+    @Test
+    @DisplayName("Список индексов хранит значения в массиве int")
+    public void testIndexList() {
+        IndexList list = new IndexList(Arrays.asList(4, 5, 6));
+        list.add(1, 9);
+        list.remove(Integer.valueOf(5));
+
+        assertEquals(Arrays.asList(4, 9, 6), list);
+        assertEquals(9, list.getInt(1));
+        assertTrue(list.contains(6));
+        assertArrayEquals(new int[]{4, 9, 6}, list.toIntArray());
+        assertThrows(IndexOutOfBoundsException.class, () -> list.getInt(3));
+    }
+
+    @Test
+    @DisplayName("Сеттеры модели принимают обычные списки и сохраняют null")
+    public void testModelSettersCopyIntoPackedLists() {
+        Model model = new Model();
+        model.setVertices(new ArrayList<>(Arrays.asList(new Vector3f(1, 2, 3), new Vector3f(4, 5, 6))));
+        model.setTextureVertices(new ArrayList<>(List.of(new Vector2f(0.5f, 0.25f))));
+        model.setNormals(null);
+
+        assertEquals(2, model.getVertices().size());
+        assertEquals(5, model.getVertices().y(1));
+        assertEquals(0.25f, model.getTextureVertices().y(0));
+        assertNull(model.getNormals());
+
+        Vector2fList textures = new Vector2fList();
+        model.setTextureVertices(textures);
+        assertSame(textures, model.getTextureVertices());
+    }
+
+    @Test
+    @DisplayName("Индексы полигонов упаковываются в плоские массивы")
+    public void testPackPolygons() {
+        Model model = new Model();
+        model.getPolygons().add(new Polygon(Arrays.asList(0, 1, 2), Arrays.asList(0, 1, 2), new ArrayList<>()));
+        model.getPolygons().add(null);
+        model.getPolygons().add(new Polygon(Arrays.asList(2, 3, 4, 5), new ArrayList<>(), Arrays.asList(1, 1, 1, 1)));
+
+        PackedPolygons packed = model.packPolygons();
+
+        assertEquals(3, packed.polygonCount());
+        assertArrayEquals(new int[]{0, 3, 3, 7}, packed.vertexOffsets);
+        assertArrayEquals(new int[]{0, 1, 2, 2, 3, 4, 5}, packed.vertexIndices);
+        assertArrayEquals(new int[]{0, 3, 3, 3}, packed.textureOffsets);
+        assertArrayEquals(new int[]{0, 0, 0, 4}, packed.normalOffsets);
+        assertEquals(4, packed.vertexCount(2));
+        assertEquals(0, packed.vertexCount(1));
+    }
+
+    @Test
+    @DisplayName("Копия модели не зависит от исходной")
+    public void testCopyIsIndependent() {
+        Model model = new Model();
+        model.getVertices().add(new Vector3f(1, 1, 1));
+        model.getPolygons().add(new Polygon(Arrays.asList(0, 0, 0), new ArrayList<>(), new ArrayList<>()));
+
+        Model copy = model.copy();
+        copy.getVertices().set(0, new Vector3f(2, 2, 2));
+        copy.getPolygons().get(0).getVertexIndices().set(0, 5);
+
+        assertEquals(new Vector3f(1, 1, 1), model.getVertices().get(0));
+        assertEquals(0, model.getPolygons().get(0).getVertexIndices().getInt(0));
+    }
+
+    @Test
+    @DisplayName("Копия модели использует общие массивы до первого изменения")
+    public void testCopySharesStorageUntilWrite() {
+        Model model = new Model();
+        model.getVertices().add(new Vector3f(1, 1, 1));
+        model.getVertices().add(new Vector3f(2, 2, 2));
+        model.getPolygons().add(new Polygon(Arrays.asList(0, 1, 1), new ArrayList<>(), new ArrayList<>()));
+
+        Model copy = model.copy();
+        assertSame(model.getVertices().coordinates(), copy.getVertices().coordinates());
+
+        // Изменение исходной модели копирует массив только ей самой
+        model.getVertices().add(3, 3, 3);
+        model.getPolygons().get(0).getVertexIndices().setInt(2, 0);
+
+        assertNotSame(model.getVertices().coordinates(), copy.getVertices().coordinates());
+        assertEquals(2, copy.getVertices().size());
+        assertEquals(3, model.getVertices().size());
+        assertArrayEquals(new int[]{0, 1, 1}, copy.getPolygons().get(0).getVertexIndices().toIntArray());
+        assertArrayEquals(new int[]{0, 1, 0}, model.getPolygons().get(0).getVertexIndices().toIntArray());
+    }
+
+    @Test
+    @DisplayName("Копия модели использует общий список полигонов до первого getPolygons()")
+    public void testCopySharesPolygonListUntilAccess() {
+        Model model = new Model();
+        model.getVertices().add(new Vector3f(1, 1, 1));
+        model.getVertices().add(new Vector3f(2, 2, 2));
+        model.getPolygons().add(new Polygon(Arrays.asList(0, 1, 1), new ArrayList<>(), new ArrayList<>()));
+        ArrayList<Polygon> original = model.getPolygons();
+
+        Model copy = model.copy();
+        assertEquals(1, copy.getPolygonCount());
+        assertEquals(1, copy.getMeshBuffers().polygonCount());
+        assertTrue(ModelFootprint.of(copy).getPolygonBytes() > 0);
+
+        // Буферы и оценка памяти не отделяют список; первое обращение к списку копирует его
+        ArrayList<Polygon> copied = copy.getPolygons();
+        assertNotSame(original, copied);
+        copied.add(new Polygon(Arrays.asList(1, 0, 0), new ArrayList<>(), new ArrayList<>()));
+        copied.get(0).getVertexIndices().setInt(0, 1);
+
+        assertEquals(1, model.getPolygons().size());
+        assertArrayEquals(new int[]{0, 1, 1}, model.getPolygons().get(0).getVertexIndices().toIntArray());
+    }
+
+    @Test
+    @DisplayName("Копии списков не видят удаление и очистку друг друга")
+    public void testSharedListsStayIndependent() {
+        Vector3fList list = new Vector3fList();
+        list.add(new Vector3f(0, 0, 0));
+        list.add(null);
+        list.add(new Vector3f(2, 2, 2));
+        Vector3fList copy = list.copy();
+
+        list.remove(0);
+        copy.set(0, null);
+        assertEquals(Arrays.asList(null, new Vector3f(2, 2, 2)), list);
+        assertEquals(Arrays.asList(null, null, new Vector3f(2, 2, 2)), copy);
+
+        IndexList indices = new IndexList(Arrays.asList(1, 2, 3));
+        IndexList indicesCopy = indices.copy();
+        indices.clear();
+        indices.addInt(9);
+        indicesCopy.addInt(4);
+        assertEquals(List.of(9), indices);
+        assertEquals(Arrays.asList(1, 2, 3, 4), indicesCopy);
+    }
+}
@@ -0,0 +1,113 @@
+package model;
+
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.ModelFootprint;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.model.QuantizedMesh;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objwriter.ObjWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuantizedMeshTest {
+
+    @Test
+    @DisplayName("Позиции восстанавливаются с ошибкой не больше половины шага сетки")
+    public void testPositionErrorBound() {
+        Random random = new Random(7);
+        Model model = new Model();
+        for (int i = 0; i < 10000; i++) {
+            model.getVertices().add(random.nextFloat() * 200 - 100, random.nextFloat() * 3, random.nextFloat() * 5000);
+        }
+        model.getPolygons().add(new Polygon(Arrays.asList(0, 1, 2), new ArrayList<>(), new ArrayList<>()));
+
+        QuantizedMesh mesh = QuantizedMesh.of(model);
+        FloatBuffer decoded = mesh.vertices();
+        float[] extent = {200, 3, 5000};
+        for (int i = 0; i < 3 * model.getVertices().size(); i++) {
+            float bound = extent[i % 3] / 131070 + 4 * Math.ulp(extent[i % 3]);
+            assertEquals(model.getVertices().coordinates()[i], decoded.get(i), bound);
+        }
+        assertEquals(6L * model.getVertices().size(), mesh.quantizedBytes());
+    }
+
+    @Test
+    @DisplayName("Октаэдрические нормали восстанавливаются с ошибкой меньше 1e-4")
+    public void testNormalErrorBound() {
+        Random random = new Random(11);
+        Model model = new Model();
+        for (int i = 0; i < 20000; i++) {
+            Vector3f normal = new Vector3f((float) random.nextGaussian(), (float) random.nextGaussian(),
+                    (float) random.nextGaussian());
+            model.getNormals().add(normal.normalize());
+        }
+        model.getNormals().add(new Vector3f(0, 0, -1));
+        model.getNormals().add(new Vector3f(1, 0, 0));
+
+        QuantizedMesh mesh = QuantizedMesh.of(model);
+        float[] decoded = new float[3];
+        for (int i = 0; i < model.getNormals().size(); i++) {
+            mesh.decodeNormal(i, decoded, 0);
+            Vector3f expected = model.getNormals().get(i);
+            float dx = decoded[0] - expected.x;
+            float dy = decoded[1] - expected.y;
+            float dz = decoded[2] - expected.z;
+            assertTrue(Math.sqrt(dx * dx + dy * dy + dz * dz) < 1e-4, "normal " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Квантованная модель записывается в OBJ с теми же полигонами")
+    public void testWriteQuantizedMesh(@TempDir Path tempDir) throws IOException {
+        Model model = ObjReader.read("""
+                v 0 0 0
+                v 1 0 0
+                v 1 1 0
+                vn 0 0 1
+                f 1//1 2//1 3//1
+                """);
+        Path file = tempDir.resolve("quantized.obj");
+        ObjWriter.write(QuantizedMesh.of(model), model.getName(), file);
+
+        Model read = ObjReader.read(file);
+        assertEquals(model.getVertices(), read.getVertices());
+        assertEquals(model.getNormals(), read.getNormals());
+        assertEquals(model.getPolygons().get(0).getNormalIndices(), read.getPolygons().get(0).getNormalIndices());
+    }
+
+    @Test
+    @DisplayName("Модель с квантованной геометрией занимает меньше памяти и восстанавливается с той же погрешностью")
+    public void testStoredQuantizedGeometry() {
+        Random random = new Random(3);
+        Model model = new Model();
+        for (int i = 0; i < 1000; i++) {
+            model.getVertices().add(random.nextFloat() * 10, random.nextFloat() * 10, random.nextFloat() * 10);
+        }
+        for (int i = 0; i + 2 < 1000; i += 3) {
+            model.getPolygons().add(new Polygon(Arrays.asList(i, i + 1, i + 2), new ArrayList<>(), new ArrayList<>()));
+        }
+        Model expected = model.copy();
+        long heapBytes = ModelFootprint.of(model).getVertexBytes();
+        model.storeGeometry(QuantizedMesh.of(model));
+
+        assertTrue(ModelFootprint.of(model).getVertexBytes() < heapBytes);
+        assertEquals(333, model.getPolygonCount());
+        float bound = 10f / 131070 + 4 * Math.ulp(10f);
+        for (int i = 0; i < 3 * 1000; i++) {
+            assertEquals(expected.getVertices().coordinates()[i], model.getVertices().coordinates()[i], bound);
+        }
+        assertFalse(model.hasStoredGeometry());
+        assertEquals(expected.getPolygons().get(332).getVertexIndices(), model.getPolygons().get(332).getVertexIndices());
+    }
+}
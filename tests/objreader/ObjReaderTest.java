@@ -1,13 +1,33 @@
 package objreader;
 
 import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ObjGroupIndex;
+import com.cgvsu.objreader.ObjReadListener;
 import com.cgvsu.objreader.ObjReaderException;
 import com.cgvsu.objreader.ObjReader;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 class ObjReaderTest {
 
@@ -90,6 +110,449 @@ class ObjReaderTest {
             Assertions.assertEquals(expected, e.getMessage());
         }
     }
-}
 
+    private static final String MIXED_OBJ = """
+            # comment line
+            v 0 0 0
+            v 1 0 0\r
+            v 1 1 0 # trailing comment
+            v 0 1 0
+
+            vt 0 0
+            vt 1 0
+            vt 1 1
+            vn 0 0 1
+            f 1/1/1 2/2/1 3/3/1
+            f -4//-1 -2//-1 -1//-1""";
+
+    @Test
+    public void testReadPathMatchesReadString(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("mixed.obj");
+        Files.writeString(file, MIXED_OBJ);
+
+        assertSameModel(ObjReader.read(MIXED_OBJ), ObjReader.read(file));
+    }
+
+    @Test
+    public void testReadChannelMatchesReadString() throws IOException {
+        byte[] bytes = MIXED_OBJ.getBytes(StandardCharsets.UTF_8);
+        Model fromChannel = ObjReader.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+
+        assertSameModel(ObjReader.read(MIXED_OBJ), fromChannel);
+    }
+
+    @Test
+    public void testReadPathReportsLineNumber(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("broken.obj");
+        Files.writeString(file, "v 0 0 0\nv 1 0 0\nv 1 1 0\nf 1 2 7\n");
+        try {
+            ObjReader.read(file);
+            Assertions.fail();
+        } catch (ObjReaderException e) {
+            Assertions.assertEquals("Error parsing OBJ file on line: 4. Invalid index.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReadFloatsMatchFloatParseFloat() {
+        String[] values = {"0", "-0", "1", "-1.5", "3.14159265", "0.1", "1e-3", "2.5E+4", "-7.000001",
+                "123456.789", "0.000001", "1.", ".5", "+2", "1.17549435E-38", "3.4028235e38", "1e-45",
+                "0.30000001192092896", "16777217", "1f", "NaN", "-Infinity", "0x1p3"};
+        for (String value : values) {
+            Model model = ObjReader.read("v " + value + " 0 0\nf 1 1 1");
+            float expected = Float.parseFloat(value);
+            Assertions.assertEquals(Float.floatToRawIntBits(expected),
+                    Float.floatToRawIntBits(model.getVertices().get(0).getX()), value);
+        }
+
+        java.util.Random random = new java.util.Random(42);
+        StringBuilder sb = new StringBuilder();
+        float[] expected = new float[1000];
+        for (int i = 0; i < expected.length; i++) {
+            String text = String.format(java.util.Locale.ROOT, "%." + (1 + random.nextInt(9)) + "f",
+                    (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8)));
+            expected[i] = Float.parseFloat(text);
+            sb.append("v ").append(text).append(" 0 0\n");
+        }
+        sb.append("f 1 2 3");
+        Model model = ObjReader.read(sb.toString());
+        for (int i = 0; i < expected.length; i++) {
+            Assertions.assertEquals(Float.floatToRawIntBits(expected[i]),
+                    Float.floatToRawIntBits(model.getVertices().get(i).getX()));
+        }
+    }
+
+    @Test
+    public void testReadFaceWordForms() {
+        Model model = ObjReader.read("""
+                v 0 0 0
+                v 1 0 0
+                v 1 1 0
+                vt 0 0
+                vn 0 0 1
+                f 1/1/1/ 2/1/1 3/1/1
+                f 1// 2 3/1/1/4 3""");
+        Assertions.assertEquals(Arrays.asList(0, 1, 2), model.getPolygons().get(0).getVertexIndices());
+        Assertions.assertEquals(Arrays.asList(0, 0, 0), model.getPolygons().get(0).getNormalIndices());
+        Assertions.assertEquals(Arrays.asList(0, 1, 2), model.getPolygons().get(1).getVertexIndices());
+        Assertions.assertTrue(model.getPolygons().get(1).getTextureVertexIndices().isEmpty());
+    }
+
+    @Test
+    public void testReadErrorsKeepLineNumbers() {
+        assertReadError("v 1 2\n", "Error parsing OBJ file on line: 1. Too few arguments for vertex definition.");
+        assertReadError("# header\n\nv 1 2 3\nvt 0 x\n",
+                "Error parsing OBJ file on line: 2. Failed to parse float value in texture coordinate.");
+        assertReadError("v 1 2 3\nvn 1 1\n", "Error parsing OBJ file on line: 2. Too few arguments for normal vector.");
+        assertReadError("v 1 2 3\nf 1 a 1\n", "Error parsing OBJ file on line: 2. Failed to parse int value.");
+        assertReadError("v 1 2 3\nf 1/1 1/1 1/1\n", "Error parsing OBJ file on line: 2. Invalid index.");
+        assertReadError("v 1 2 3\nvn 0 0 1\nf 1/1/1 1/1/1 1/1/1\n", "Error parsing OBJ file on line: 3. Texture index used, but no 'vt' defined.");
+    }
+
+    @Test
+    public void testReadValidatesFacesWhileReading() {
+        String vertices = "v 0 0 0\nv 1 0 0\nv 0 1 0\nvt 0 0\nvn 0 0 1\n";
+        assertReadError(vertices + "f 1 2\n", "Error parsing OBJ file on line: 6. Polygon has less than 3 vertices.");
+        assertReadError(vertices + "f 1/1 2 3\n", "Error parsing OBJ file on line: 6. Not all vertices have textures.");
+        assertReadError(vertices + "f 1 2 3\nf 1//1 2 3\n",
+                "Error parsing OBJ file on line: 7. The number of normals and vertices does not match.");
+        // Ошибка грани сообщается сразу, до синтаксической ошибки в следующих строках
+        assertReadError(vertices + "f 1 2\nv 1 2\n", "Error parsing OBJ file on line: 6. Polygon has less than 3 vertices.");
+        assertReadError("v 0 0 0\n", "Error parsing OBJ file on line: -1. Model has no polygons.");
+    }
+
+    @Test
+    public void testReadReportsProgress(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("large.obj");
+        Files.writeString(file, generateStrips(40000));
+        ArrayList<Long> reported = new ArrayList<>();
+        ArrayList<Integer> polygonCounts = new ArrayList<>();
+
+        Model model = ObjReader.read(file, (partial, bytesRead) -> {
+            reported.add(bytesRead);
+            polygonCounts.add(partial.getPolygons().size());
+        });
+
+        assertSameModel(ObjReader.read(file), model);
+        Assertions.assertTrue(reported.size() > 2);
+        for (int i = 1; i < reported.size(); i++) {
+            Assertions.assertTrue(reported.get(i) >= reported.get(i - 1));
+            Assertions.assertTrue(polygonCounts.get(i) >= polygonCounts.get(i - 1));
+        }
+        Assertions.assertEquals(Files.size(file), reported.get(reported.size() - 1));
+    }
+
+    @Test
+    public void testReadStopsWhenListenerThrows(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("large.obj");
+        Files.writeString(file, generateStrips(40000));
+
+        Assertions.assertThrows(CancellationException.class, () -> ObjReader.read(file, (partial, bytesRead) -> {
+            throw new CancellationException();
+        }));
+    }
+
+    private static final String GROUPED_OBJ = """
+            # общие вершины в начале файла
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            vt 0 0
+            vt 1 1
+            o Base
+            f 1/1 2/2 3/1
+            o Roof
+            v 0 0 5
+            v 1 0 5
+
+            v 1 1 5
+            vn 0 0 1
+            f -1//1 -2//1 -3//1
+            f 1 4 5
+            g Base
+            f 3/2 2/1 1/1
+            """;
+
+    @Test
+    public void testIndexGroupsSplitsObjectsAndGroups(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("grouped.obj");
+        Files.writeString(file, GROUPED_OBJ);
+        ObjGroupIndex index = ObjReader.indexGroups(file);
+
+        Assertions.assertEquals(Arrays.asList("Base", "Roof"), index.getGroupNames());
+        Assertions.assertEquals(2, index.getPolygonCount(0));
+        Assertions.assertEquals(2, index.getPolygonCount(1));
+
+        Model full = ObjReader.read(file);
+        Model base = index.loadGroup(0);
+        Model roof = index.loadGroup(1);
+        Assertions.assertEquals("Base", base.getName());
+        Assertions.assertEquals(3, base.getVertices().size());
+        Assertions.assertEquals(4, roof.getVertices().size());
+        Assertions.assertEquals(1, roof.getNormals().size());
+        assertSamePolygonGeometry(full, full.getPolygons().get(0), base, base.getPolygons().get(0));
+        assertSamePolygonGeometry(full, full.getPolygons().get(3), base, base.getPolygons().get(1));
+        assertSamePolygonGeometry(full, full.getPolygons().get(1), roof, roof.getPolygons().get(0));
+        assertSamePolygonGeometry(full, full.getPolygons().get(2), roof, roof.getPolygons().get(1));
+    }
+
+    @Test
+    public void testLoadGroupReportsFileLineNumbers(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("grouped.obj");
+        Files.writeString(file, GROUPED_OBJ.replace("f 1 4 5", "f 1 4 9"));
+        ObjGroupIndex index = ObjReader.indexGroups(file);
+
+        String expected = Assertions.assertThrows(ObjReaderException.class, () -> ObjReader.read(file)).getMessage();
+        String actual = Assertions.assertThrows(ObjReaderException.class, () -> index.loadGroup(1)).getMessage();
+        Assertions.assertEquals(expected, actual);
+        // Ошибка в одной группе не мешает открыть другую
+        Assertions.assertEquals(2, index.loadGroup(0).getPolygons().size());
+    }
+
+    @Test
+    public void testReadBuildsSameGroupIndex(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("grouped.obj");
+        Files.writeString(file, GROUPED_OBJ);
+        ObjGroupIndex expected = ObjReader.indexGroups(file);
+
+        List<ObjGroupIndex> reported = new ArrayList<>();
+        Model full = ObjReader.read(file, groupListener(reported));
+        Assertions.assertEquals(1, reported.size());
+        Assertions.assertArrayEquals(serialize(expected), serialize(reported.get(0)));
+        // Группы выделяются из прочитанной модели так же, как читаются из файла по отдельности
+        for (int group = 0; group < expected.getGroupCount(); group++) {
+            assertSameModel(expected.loadGroup(group), reported.get(0).extractGroup(full, group));
+        }
+    }
+
+    @Test
+    public void testReadParallelBuildsSameGroupIndex(@TempDir Path tempDir) throws IOException {
+        String strips = generateStrips(40000);
+        StringBuilder content = new StringBuilder();
+        int from = 0;
+        for (int part = 1; part <= 7; part++) {
+            int to = strips.indexOf('\n', strips.length() * part / 8) + 1;
+            content.append(strips, from, to).append(part % 2 == 0 ? "g Even\n" : "o Part" + part + "\n");
+            from = to;
+        }
+        content.append(strips.substring(from));
+        Path file = tempDir.resolve("grouped.obj");
+        Files.writeString(file, content.toString());
+        ObjGroupIndex expected = ObjReader.indexGroups(file);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<ObjGroupIndex> reported = Collections.synchronizedList(new ArrayList<>());
+            Model full = ObjReader.readParallel(file, pool, groupListener(reported));
+            Assertions.assertEquals(1, reported.size());
+            Assertions.assertArrayEquals(serialize(expected), serialize(reported.get(0)));
+            for (int group = 0; group < expected.getGroupCount(); group++) {
+                assertSameModel(expected.loadGroup(group), reported.get(0).extractGroup(full, group));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static ObjReadListener groupListener(List<ObjGroupIndex> reported) {
+        return new ObjReadListener() {
+            @Override
+            public void onProgress(Model partial, long bytesRead) {
+            }
+
+            @Override
+            public void onGroups(ObjGroupIndex index) {
+                reported.add(index);
+            }
+        };
+    }
+
+    private static byte[] serialize(ObjGroupIndex index) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            index.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void assertSamePolygonGeometry(Model expectedModel, Polygon expected, Model actualModel, Polygon actual) {
+        Assertions.assertEquals(expected.getVertexIndices().size(), actual.getVertexIndices().size());
+        for (int i = 0; i < expected.getVertexIndices().size(); i++) {
+            Assertions.assertEquals(expectedModel.getVertices().get(expected.getVertexIndices().get(i)),
+                    actualModel.getVertices().get(actual.getVertexIndices().get(i)));
+        }
+        Assertions.assertEquals(expected.getTextureVertexIndices().size(), actual.getTextureVertexIndices().size());
+        for (int i = 0; i < expected.getTextureVertexIndices().size(); i++) {
+            Assertions.assertEquals(expectedModel.getTextureVertices().get(expected.getTextureVertexIndices().get(i)),
+                    actualModel.getTextureVertices().get(actual.getTextureVertexIndices().get(i)));
+        }
+        Assertions.assertEquals(expected.getNormalIndices().size(), actual.getNormalIndices().size());
+        for (int i = 0; i < expected.getNormalIndices().size(); i++) {
+            Assertions.assertEquals(expectedModel.getNormals().get(expected.getNormalIndices().get(i)),
+                    actualModel.getNormals().get(actual.getNormalIndices().get(i)));
+        }
+    }
+
+    @Test
+    public void testReadParallelMatchesRead(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("large.obj");
+        Files.writeString(file, generateStrips(40000));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertSameModel(ObjReader.read(file), ObjReader.readParallel(file, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadParallelListenerCancelsAllChunks(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("large.obj");
+        Files.writeString(file, generateStrips(40000));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Long> progress = Collections.synchronizedList(new ArrayList<>());
+            ObjReadListener counting = (partial, bytesRead) -> {
+                Assertions.assertNull(partial);
+                progress.add(bytesRead);
+            };
+            ObjReader.readParallel(file, pool, counting);
+            Assertions.assertEquals(Files.size(file), Collections.max(progress));
+
+            AtomicInteger calls = new AtomicInteger();
+            Assertions.assertThrows(CancellationException.class, () -> ObjReader.readParallel(file, pool,
+                    (partial, bytesRead) -> {
+                        calls.incrementAndGet();
+                        throw new CancellationException();
+                    }));
+            // Каждая часть прерывается на первом же сообщении, второй проход не начинается
+            Assertions.assertTrue(calls.get() < progress.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadParallelReportsSameErrors(@TempDir Path tempDir) throws IOException {
+        String strips = generateStrips(40000);
+        int middle = strips.indexOf('\n', strips.length() / 2) + 1;
+        String[] contents = {
+                strips.substring(0, middle) + "vt 0 x\n" + strips.substring(middle),
+                strips.substring(0, middle) + "f 1/1 -1 1\n" + strips.substring(middle),
+                strips.substring(0, middle) + "f 1 2 -999999999\n" + strips.substring(middle) + "v 1 2\n",
+                strips + "f 1 2\n"
+        };
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String content : contents) {
+                Path file = tempDir.resolve("broken.obj");
+                Files.writeString(file, content);
+                String expected = Assertions.assertThrows(ObjReaderException.class, () -> ObjReader.read(file)).getMessage();
+                String actual = Assertions.assertThrows(ObjReaderException.class, () -> ObjReader.readParallel(file, pool)).getMessage();
+                Assertions.assertEquals(expected, actual);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadGzipMatchesRead(@TempDir Path tempDir) throws IOException {
+        String content = generateStrips(100000);
+        Path file = tempDir.resolve("large.obj");
+        Path compressed = tempDir.resolve("large.obj.gz");
+        Files.writeString(file, content);
+        writeGzip(compressed, content);
+
+        Assertions.assertTrue(ObjReader.isGzip(compressed));
+        Assertions.assertFalse(ObjReader.isGzip(file));
+        Assertions.assertEquals(Files.size(file), ObjReader.contentLength(compressed));
+        Model expected = ObjReader.read(file);
+        assertSameModel(expected, ObjReader.read(compressed));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertSameModel(expected, ObjReader.readParallel(compressed, pool));
+        } finally {
+            pool.shutdown();
+        }
+        Assertions.assertThrows(IOException.class, () -> ObjReader.indexGroups(compressed));
+    }
+
+    @Test
+    public void testReadGzipReportsSameErrors(@TempDir Path tempDir) throws IOException {
+        String strips = generateStrips(100000);
+        int middle = strips.indexOf('\n', strips.length() / 2) + 1;
+        String content = strips.substring(0, middle) + "f 1/1 -1 1\n" + strips.substring(middle);
+        Path compressed = tempDir.resolve("broken.obj.gz");
+        writeGzip(compressed, content);
+
+        String expected = Assertions.assertThrows(ObjReaderException.class, () -> ObjReader.read(content)).getMessage();
+        String actual = Assertions.assertThrows(ObjReaderException.class, () -> ObjReader.read(compressed)).getMessage();
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testReadGzipStopsInflaterWhenListenerThrows(@TempDir Path tempDir) throws IOException {
+        // Больше четырех блоков распаковки по 4 МБ: очередь к моменту отмены заполнена
+        Path compressed = tempDir.resolve("huge.obj.gz");
+        byte[] line = "v 0.125 0.25 -1.5\n".getBytes(StandardCharsets.UTF_8);
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            for (long written = 0; written < 5L * 4 * 1024 * 1024 + 1; written += line.length) {
+                output.write(line);
+            }
+        }
+
+        Assertions.assertThrows(CancellationException.class, () -> ObjReader.read(compressed, (partial, bytesRead) -> {
+            throw new CancellationException();
+        }));
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            Assertions.assertFalse(thread.getName().equals("obj-gzip-inflater") && thread.isAlive(),
+                    "gzip inflater thread is still running");
+        }
+    }
 
+    private static void writeGzip(Path file, String content) throws IOException {
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(file))) {
+            output.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Полосы из вершин и граней с отрицательными индексами, чтобы ссылки пересекали границы частей файла
+    private static String generateStrips(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append("v ").append(i * 0.25f).append(' ').append(i % 7 * 0.1f).append(" -1.5\n");
+            sb.append("vt ").append(i % 11 * 0.09f).append(" 0.5\n");
+            sb.append("vn 0 0 1\n");
+            if (i % 3 == 0) {
+                sb.append("# полоса ").append(i).append("\r\n\n");
+            }
+            if (i >= 2) {
+                sb.append("f -1/-1/-1 -2/-2/-2 -3/-3/-3\n");
+                sb.append("f ").append(i + 1).append(' ').append(i).append(" -3\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void assertReadError(String content, String expectedMessage) {
+        try {
+            ObjReader.read(content);
+            Assertions.fail();
+        } catch (ObjReaderException e) {
+            Assertions.assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    private static void assertSameModel(Model expected, Model actual) {
+        Assertions.assertEquals(expected.getVertices(), actual.getVertices());
+        Assertions.assertEquals(expected.getTextureVertices(), actual.getTextureVertices());
+        Assertions.assertEquals(expected.getNormals(), actual.getNormals());
+        Assertions.assertEquals(expected.getPolygons().size(), actual.getPolygons().size());
+        for (int i = 0; i < expected.getPolygons().size(); i++) {
+            Assertions.assertEquals(expected.getPolygons().get(i).getVertexIndices(), actual.getPolygons().get(i).getVertexIndices());
+            Assertions.assertEquals(expected.getPolygons().get(i).getTextureVertexIndices(), actual.getPolygons().get(i).getTextureVertexIndices());
+            Assertions.assertEquals(expected.getPolygons().get(i).getNormalIndices(), actual.getPolygons().get(i).getNormalIndices());
+        }
+    }
+}
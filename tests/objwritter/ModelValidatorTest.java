@@ -3,6 +3,7 @@ package objwritter;
 
 import com.cgvsu.math.Vector2f;
 import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.IndexList;
 import com.cgvsu.model.Model;
 import com.cgvsu.model.Polygon;
 import com.cgvsu.objwriter.ModelValidator;
@@ -206,7 +207,7 @@ public class ModelValidatorTest {
         try {
             java.lang.reflect.Field textureIndicesField = Polygon.class.getDeclaredField("textureVertexIndices");
             textureIndicesField.setAccessible(true);
-            textureIndicesField.set(polygon, new ArrayList<>(Arrays.asList(0, 1)));
+            textureIndicesField.set(polygon, new IndexList(Arrays.asList(0, 1)));
         } catch (Exception e) {
             fail("Failed to set texture indices via reflection: " + e.getMessage());
         }
@@ -237,7 +238,7 @@ public class ModelValidatorTest {
         try {
             java.lang.reflect.Field normalIndicesField = Polygon.class.getDeclaredField("normalIndices");
             normalIndicesField.setAccessible(true);
-            normalIndicesField.set(polygon, new ArrayList<>(Arrays.asList(0, 1)));
+            normalIndicesField.set(polygon, new IndexList(Arrays.asList(0, 1)));
         } catch (Exception e) {
             fail("Failed to set normal indices via reflection: " + e.getMessage());
         }
@@ -10,10 +10,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -64,6 +67,33 @@ public class ObjWriterTest {
         assertTrue(content.contains("f 1/1/1 2/2/2 3/1/1"));
     }
 
+    @Test
+    void testWrite_GzipPath_WritesCompressedContent(@TempDir Path tempDir) throws IOException {
+        Path outputPath = tempDir.resolve("test.obj.gz");
+
+        ObjWriter.write(validModel, outputPath);
+
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(outputPath))) {
+            String content = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(ObjWriter.modelToString(validModel), content);
+        }
+    }
+
+    @Test
+    void testWriteContent_LargeGzipContent_RoundTrip(@TempDir Path tempDir) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            sb.append("v ").append(i).append(" 0 0 # вершина\n");
+        }
+        Path outputPath = tempDir.resolve("large.obj.gz");
+
+        ObjWriter.writeContent(sb, outputPath);
+
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(outputPath))) {
+            assertEquals(sb.toString(), new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
     @Test
     void testWrite_ValidModelWithStringPath_Success(@TempDir Path tempDir) throws IOException {
         Path outputPath = tempDir.resolve("test_string.obj");
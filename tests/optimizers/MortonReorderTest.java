@@ -0,0 +1,115 @@
+package optimizers;
+
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.optimizers.MortonReorder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MortonReorderTest {
+
+    // Вершины квадрата перечислены вразброс: дальние углы идут подряд
+    private static final String SCATTERED_QUADS = """
+            v 0 0 0
+            v 2 2 0
+            v 1 0 0
+            v 0 2 0
+            v 2 0 0
+            v 1 2 0
+            v 0 1 0
+            v 2 1 0
+            v 1 1 0
+            vt 0 0
+            vt 1 1
+            f 8/1 6/2 2/1 9/2
+            f 1/1 3/2 9/1 7/2
+            f 3/1 5/2 8/1 9/2
+            f 7/1 9/2 6/1 4/2
+            """;
+
+    @Test
+    void testReorderKeepsGeometryOfEveryPolygon() {
+        Model model = ObjReader.read(SCATTERED_QUADS);
+        Set<List<Vector3f>> before = polygonCorners(model);
+        List<List<Integer>> texturesBefore = new ArrayList<>();
+        for (Polygon polygon : model.getPolygons()) {
+            texturesBefore.add(new ArrayList<>(polygon.getTextureVertexIndices()));
+        }
+
+        int[] newIndex = MortonReorder.reorder(model);
+
+        assertNotNull(newIndex);
+        assertEquals(9, model.getVertices().size());
+        assertEquals(4, model.getPolygons().size());
+        assertEquals(before, polygonCorners(model));
+        // Текстурные индексы не переставляются внутри полигона
+        for (Polygon polygon : model.getPolygons()) {
+            assertTrue(texturesBefore.contains(polygon.getTextureVertexIndices()));
+        }
+        // Вершина 0 (0, 0, 0) имеет наименьший код и становится первой
+        assertEquals(0, newIndex[0]);
+        assertEquals(new Vector3f(0, 0, 0), model.getVertices().get(0));
+        assertEquals(new Vector3f(2, 2, 0), model.getVertices().get(8));
+    }
+
+    @Test
+    void testPolygonsFollowMortonOrder() {
+        Model model = ObjReader.read(SCATTERED_QUADS);
+        MortonReorder.reorder(model);
+
+        // Квадраты сетки 2x2 идут по Z-кривой: левый нижний, правый нижний, левый верхний, правый верхний
+        float[][] expectedCentroids = {{0.5f, 0.5f}, {1.5f, 0.5f}, {0.5f, 1.5f}, {1.5f, 1.5f}};
+        for (int p = 0; p < 4; p++) {
+            float x = 0;
+            float y = 0;
+            for (int vertex : model.getPolygons().get(p).getVertexIndices()) {
+                x += model.getVertices().x(vertex) / 4;
+                y += model.getVertices().y(vertex) / 4;
+            }
+            assertEquals(expectedCentroids[p][0], x, 1e-6f);
+            assertEquals(expectedCentroids[p][1], y, 1e-6f);
+        }
+    }
+
+    @Test
+    void testReorderBumpsGeometryVersion() {
+        Model model = ObjReader.read(SCATTERED_QUADS);
+        long version = model.getGeometryVersion();
+        MortonReorder.reorder(model);
+        assertTrue(model.getGeometryVersion() > version);
+    }
+
+    @Test
+    void testModelWithNullVertexIsNotChanged() {
+        Model model = new Model();
+        model.getVertices().add(new Vector3f(1, 1, 1));
+        model.getVertices().add(null);
+        model.getVertices().add(new Vector3f(0, 0, 0));
+        model.getPolygons().add(new Polygon(Arrays.asList(0, 1, 2), new ArrayList<>(), new ArrayList<>()));
+
+        assertNull(MortonReorder.reorder(model));
+        assertEquals(new Vector3f(1, 1, 1), model.getVertices().get(0));
+        assertThrows(IllegalArgumentException.class, () -> MortonReorder.reorder(null));
+    }
+
+    private static Set<List<Vector3f>> polygonCorners(Model model) {
+        Set<List<Vector3f>> result = new HashSet<>();
+        for (Polygon polygon : model.getPolygons()) {
+            List<Vector3f> corners = new ArrayList<>();
+            for (int vertex : polygon.getVertexIndices()) {
+                corners.add(model.getVertices().get(vertex));
+            }
+            result.add(corners);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package optimizers;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PackedPolygons;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.optimizers.VertexCacheOptimizer;
+import com.cgvsu.optimizers.dto.VertexCacheResult;
+import com.cgvsu.render_engine.PostTransformCache;
+import com.cgvsu.triangulation.Triangulation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VertexCacheOptimizerTest {
+
+    @Test
+    void testAcmrCountsFifoMissesPerTriangle() {
+        List<Polygon> polygons = new ArrayList<>();
+        polygons.add(triangle(0, 1, 2));
+        polygons.add(triangle(2, 1, 3));
+        assertEquals(2.0, VertexCacheOptimizer.acmr(PackedPolygons.of(polygons), 16), 1e-9);
+
+        // Четырехугольник - два треугольника веером
+        polygons.add(new Polygon(Arrays.asList(4, 5, 6, 7), new ArrayList<>(), new ArrayList<>()));
+        assertEquals(8 / 4.0, VertexCacheOptimizer.acmr(PackedPolygons.of(polygons), 16), 1e-9);
+        assertEquals(0.0, VertexCacheOptimizer.acmr(PackedPolygons.of(new ArrayList<>()), 16));
+    }
+
+    @Test
+    void testFifoCacheEvictsOldestVertex() {
+        PostTransformCache cache = new PostTransformCache(2);
+        assertEquals(-1, cache.find(7));
+        int slot = cache.put(7, 1, 2);
+        cache.put(8, 3, 4);
+        assertEquals(slot, cache.find(7));
+        assertEquals(2, cache.y(slot));
+
+        // FIFO: повторное обращение не продлевает жизнь вершины 7
+        cache.put(9, 5, 6);
+        assertEquals(-1, cache.find(7));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void testOptimizeImprovesShuffledGridAndKeepsPolygons() {
+        int n = 40;
+        Model model = new Model();
+        model.getVertices().setCoordinates(new float[n * n * 3], n * n);
+        List<Polygon> quads = new ArrayList<>();
+        for (int y = 0; y < n - 1; y++) {
+            for (int x = 0; x < n - 1; x++) {
+                int a = y * n + x;
+                quads.add(new Polygon(Arrays.asList(a, a + 1, a + n + 1, a + n), new ArrayList<>(), new ArrayList<>()));
+            }
+        }
+        Collections.shuffle(quads, new Random(7));
+        model.getPolygons().addAll(Triangulation.triangulate(quads));
+        Set<List<Integer>> before = polygonSet(model.getPolygons());
+        long topologyVersion = model.getTopologyVersion();
+
+        VertexCacheResult result = VertexCacheOptimizer.optimize(model);
+
+        assertEquals(before, polygonSet(model.getPolygons()));
+        assertEquals(2 * (n - 1) * (n - 1), model.getPolygons().size());
+        assertTrue(model.getTopologyVersion() > topologyVersion);
+        assertTrue(result.getAcmrBefore() > 1.5, result.toString());
+        assertTrue(result.getAcmrAfter() < 0.9, result.toString());
+        assertEquals(result.getAcmrAfter(),
+                VertexCacheOptimizer.acmr(model.packPolygons(), PostTransformCache.DEFAULT_SIZE), 1e-9);
+    }
+
+    @Test
+    void testPolygonOrderIsPermutation() {
+        List<Polygon> polygons = new ArrayList<>();
+        polygons.add(triangle(0, 1, 2));
+        polygons.add(null);
+        polygons.add(triangle(5, 6, 7));
+        polygons.add(triangle(2, 1, 9));
+        int[] order = VertexCacheOptimizer.polygonOrder(PackedPolygons.of(polygons), 8);
+
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, sorted);
+        // Треугольник с общим ребром идет сразу за первым
+        assertEquals(0, order[0]);
+        assertEquals(3, order[1]);
+    }
+
+    private static Polygon triangle(int a, int b, int c) {
+        return new Polygon(Arrays.asList(a, b, c), new ArrayList<>(), new ArrayList<>());
+    }
+
+    private static Set<List<Integer>> polygonSet(List<Polygon> polygons) {
+        Set<List<Integer>> result = new HashSet<>();
+        for (Polygon polygon : polygons) {
+            result.add(new ArrayList<>(polygon.getVertexIndices()));
+        }
+        return result;
+    }
+}
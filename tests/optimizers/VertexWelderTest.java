@@ -0,0 +1,140 @@
+package optimizers;
+
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.optimizers.VertexWelder;
+import com.cgvsu.optimizers.dto.WeldResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VertexWelderTest {
+
+    // Два треугольника квадрата, у каждого угла свои копии v/vt/vn, как в "несваренном" экспорте
+    private static final String UNWELDED_QUAD = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 0 0
+            v 1 1.0000001 0
+            v 0 1 0
+            vt 0 0
+            vt 1 0
+            vt 1 1
+            vt 0 0
+            vt 1 1
+            vt 0 1
+            vn 0 0 1
+            vn 0 0 1
+            vn 0 0 1
+            vn -0 0 1
+            vn 0 0 1
+            vn 0 0 1
+            f 1/1/1 2/2/2 3/3/3
+            f 4/4/4 5/5/5 6/6/6
+            """;
+
+    @Test
+    void testWeldMergesCloseVerticesAndDuplicateAttributes() {
+        Model model = ObjReader.read(UNWELDED_QUAD);
+        WeldResult result = VertexWelder.weld(model, 1e-4f);
+
+        assertEquals(6, result.getOriginalVertexCount());
+        assertEquals(4, result.getVertexCount());
+        assertEquals(4, result.getTextureVertexCount());
+        assertEquals(1, result.getNormalCount());
+        assertEquals(4, model.getVertices().size());
+        assertTrue(result.getEstimatedBytesSaved() > 0);
+
+        assertEquals(Arrays.asList(0, 1, 2), model.getPolygons().get(0).getVertexIndices());
+        assertEquals(Arrays.asList(0, 2, 3), model.getPolygons().get(1).getVertexIndices());
+        assertEquals(Arrays.asList(0, 2, 3), model.getPolygons().get(1).getTextureVertexIndices());
+        assertEquals(Arrays.asList(0, 0, 0), model.getPolygons().get(1).getNormalIndices());
+    }
+
+    @Test
+    void testWeldWithZeroEpsilonKeepsDistinctPositions() {
+        Model model = ObjReader.read(UNWELDED_QUAD);
+        WeldResult result = VertexWelder.weld(model, 0);
+
+        // 1 1 0 и 1 1.0000001 0 различаются, а два 0 0 0 совпадают
+        assertEquals(5, result.getVertexCount());
+        assertEquals(new Vector3f(1, 1.0000001f, 0), model.getVertices().get(3));
+    }
+
+    @Test
+    void testWeldKeepsGeometryOfEveryPolygon() {
+        Model model = new Model();
+        List<Vector3f> expectedCorners = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            float x = (i % 10) * 0.5f;
+            float y = (i / 10 % 10) * 0.5f;
+            model.getVertices().add(new Vector3f(x + (i % 3) * 1e-6f, y, 0));
+        }
+        for (int i = 0; i + 2 < 300; i += 3) {
+            model.getPolygons().add(new Polygon(new ArrayList<>(Arrays.asList(i, i + 1, i + 2)),
+                    new ArrayList<>(), new ArrayList<>()));
+            for (int k = 0; k < 3; k++) {
+                expectedCorners.add(model.getVertices().get(i + k));
+            }
+        }
+
+        VertexWelder.weld(model, 1e-4f);
+
+        assertEquals(100, model.getVertices().size());
+        int corner = 0;
+        for (Polygon polygon : model.getPolygons()) {
+            for (int index : polygon.getVertexIndices()) {
+                Vector3f expected = expectedCorners.get(corner++);
+                Vector3f actual = model.getVertices().get(index);
+                assertTrue(expected.distanceTo(actual) <= 1e-4f);
+            }
+        }
+    }
+
+    @Test
+    void testWeldRejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> VertexWelder.weld(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> VertexWelder.weld(new Model(), -1));
+        assertThrows(IllegalArgumentException.class, () -> VertexWelder.weld(new Model(), Float.NaN));
+    }
+
+    @Test
+    void testWeldDedupesTextureVertices() {
+        Model model = new Model();
+        model.getTextureVertices().add(new Vector2f(0.5f, 0.5f));
+        model.getTextureVertices().add(new Vector2f(0.5f, 0.5f));
+        model.getTextureVertices().add(new Vector2f(0.25f, 0.5f));
+
+        WeldResult result = VertexWelder.weld(model, 0);
+
+        assertEquals(3, result.getOriginalTextureVertexCount());
+        assertEquals(2, result.getTextureVertexCount());
+    }
+
+    @Test
+    void testWeldSkipsMissingListsAndNullElements() {
+        Model model = ObjReader.read(UNWELDED_QUAD);
+        // Так модель выглядит после удаления всех текстур и нормалей (PolygonRemover)
+        model.setTextureVertices(null);
+        model.setNormals(null);
+        model.getVertices().add(null);
+        model.getPolygons().add(null);
+
+        WeldResult result = VertexWelder.weld(model, 1e-4f);
+
+        assertEquals(7, result.getOriginalVertexCount());
+        assertEquals(5, result.getVertexCount());
+        assertEquals(0, result.getTextureVertexCount());
+        assertNull(model.getTextureVertices());
+        assertNull(model.getVertices().get(4));
+        assertEquals(Arrays.asList(0, 2, 3), model.getPolygons().get(1).getVertexIndices());
+    }
+}